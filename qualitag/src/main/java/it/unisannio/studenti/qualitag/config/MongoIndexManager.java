@@ -0,0 +1,206 @@
+package it.unisannio.studenti.qualitag.config;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.UploadSession;
+import it.unisannio.studenti.qualitag.model.User;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates, at startup, the indexes needed by the repository finders and logs the finders that are
+ * still not supported by any index. Spring Data does not create indexes automatically, so this is
+ * the only place where they are declared.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoIndexManager {
+
+  /**
+   * An index to create on the collection of an entity.
+   *
+   * @param entity the entity whose collection is indexed
+   * @param name   a readable name of the index, for logging
+   * @param unique whether the index is unique
+   * @param fields the indexed fields, in order
+   */
+  record IndexSpec(Class<?> entity, String name, boolean unique, String... fields) {
+
+  }
+
+  /**
+   * A repository finder and the field it filters on first.
+   *
+   * @param finder the name of the finder, for logging
+   * @param entity the entity the finder queries
+   * @param field  the first field the finder filters on, or null if no index can support it
+   */
+  record FinderSpec(String finder, Class<?> entity, String field) {
+
+  }
+
+  static final List<IndexSpec> INDEXES = List.of(
+      new IndexSpec(User.class, "username_unique", true, "username"),
+      new IndexSpec(User.class, "email_unique", true, "email"),
+      new IndexSpec(Team.class, "projectId", false, "projectId"),
+      // Serves the cursor of the project export
+      new IndexSpec(Artifact.class, "projectId", false, "projectId"),
+      // Serves the lookups of the orphan file collector
+      new IndexSpec(Artifact.class, "filePath", false, "filePath"),
+      new IndexSpec(Team.class, "userIds", false, "userIds"),
+      // Serves the version updates of the agreement when the tags of an artifact change
+      new IndexSpec(Team.class, "artifactIds", false, "artifactIds"),
+      new IndexSpec(Project.class, "projectOwnerId", false, "projectOwnerId"),
+      new IndexSpec(Project.class, "projectName_unique", true, "projectName"),
+      new IndexSpec(OutboxMail.class, "status_nextAttemptAt", false, "status", "nextAttemptAt"),
+      new IndexSpec(UploadSession.class, "updatedAt", false, "updatedAt"),
+      new IndexSpec(Tag.class, "createdBy_tagValue", false, "createdBy", "tagValue"),
+      new IndexSpec(Tag.class, "artifactIds", false, "artifactIds"),
+      new IndexSpec(Job.class, "projectId_type_status", false, "projectId", "type", "status"),
+      // Serves the renewal of the leases and the jobs whose instance has stopped
+      new IndexSpec(Job.class, "status", false, "status"));
+
+  /**
+   * Indexes created by earlier versions that must not be kept. The unique index on (createdBy,
+   * tagValue, artifactIds) is multikey, so it rejected a tag sharing a single artifact with another
+   * tag of the same value, not only a tag on the same list of artifacts.
+   */
+  static final List<IndexSpec> RETIRED = List.of(
+      new IndexSpec(Tag.class, "createdBy_tagValue_artifactIds_unique", true, "createdBy",
+          "tagValue", "artifactIds"));
+
+  static final List<FinderSpec> FINDERS = List.of(
+      new FinderSpec("UserRepository.existsByUsername", User.class, "username"),
+      new FinderSpec("UserRepository.findByUsername", User.class, "username"),
+      new FinderSpec("UserRepository.existsByEmail", User.class, "email"),
+      new FinderSpec("UserRepository.findByEmail", User.class, "email"),
+      new FinderSpec("TeamRepository.findTeamsByProjectId", Team.class, "projectId"),
+      new FinderSpec("TeamRepository.existsByProjectId", Team.class, "projectId"),
+      new FinderSpec("TeamRepository.existsByUserIdsContaining", Team.class, "userIds"),
+      new FinderSpec("TeamRepository.findByUserIdsContaining", Team.class, "userIds"),
+      new FinderSpec("TeamRepository.existsByUserIdsContainingAndTeamIdNot", Team.class,
+          "userIds"),
+      new FinderSpec("ProjectRepository.existsByOwnerId", Project.class, "projectOwnerId"),
+      new FinderSpec("ProjectRepository.findProjectsByOwnerId", Project.class, "projectOwnerId"),
+      new FinderSpec("ProjectRepository.existsByProjectName", Project.class, "projectName"),
+      new FinderSpec("TagRepository.findTagByCreatedBy", Tag.class, "createdBy"),
+      new FinderSpec("TagRepository.findTagByTagValueAndCreatedBy", Tag.class, "createdBy"),
+      new FinderSpec("TagRepository.findFirstByCreatedByAndTagValue", Tag.class, "createdBy"),
+      new FinderSpec("TagRepository.existsByCreatedByAndTagValue", Tag.class, "createdBy"),
+      new FinderSpec("TagRepository.existsByCreatedByAndTagValueAndArtifactIdsAndTagIdNot",
+          Tag.class, "createdBy"),
+      // A "contains" filter is an unanchored regex, no index can serve it
+      new FinderSpec("TagRepository.findByTagValueContaining", Tag.class, null),
+      new FinderSpec("OutboxMailRepository.countByStatus", OutboxMail.class, "status"),
+      new FinderSpec("UploadSessionRepository.findByUpdatedAtLessThan", UploadSession.class,
+          "updatedAt"),
+      new FinderSpec("JobRepository.findFirstByProjectIdAndTypeAndStatusIn", Job.class,
+          "projectId"));
+
+  private final MongoTemplate mongoTemplate;
+
+  /**
+   * Creates the missing indexes and checks that every finder is supported by one.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void manageIndexes() {
+    dropRetiredIndexes();
+    ensureIndexes();
+    List<String> unsupported = findUnsupportedFinders();
+    for (String finder : unsupported) {
+      log.warn("No index supports the finder {}, it will scan the whole collection.", finder);
+    }
+  }
+
+  /**
+   * Creates every declared index. A failure on one index, e.g. a unique index on a collection
+   * that already contains duplicates, is logged and does not prevent the others.
+   */
+  void ensureIndexes() {
+    for (IndexSpec spec : INDEXES) {
+      // Default names, so indexes with the same keys created elsewhere are reused
+      Index index = new Index();
+      for (String field : spec.fields()) {
+        index.on(field, Direction.ASC);
+      }
+      if (spec.unique()) {
+        index.unique();
+      }
+
+      try {
+        mongoTemplate.indexOps(spec.entity()).ensureIndex(index);
+      } catch (RuntimeException e) {
+        log.error("Cannot create index {} on {}: {}", spec.name(),
+            spec.entity().getSimpleName(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Drops the retired indexes still present, looking them up by the default name they were
+   * created with.
+   */
+  void dropRetiredIndexes() {
+    for (IndexSpec spec : RETIRED) {
+      String name = String.join("_1_", spec.fields()) + "_1";
+      try {
+        IndexOperations indexOps = mongoTemplate.indexOps(spec.entity());
+        for (IndexInfo info : indexOps.getIndexInfo()) {
+          if (info.getName().equals(name)) {
+            indexOps.dropIndex(name);
+            log.info("Dropped retired index {} on {}.", spec.name(),
+                spec.entity().getSimpleName());
+          }
+        }
+      } catch (RuntimeException e) {
+        log.error("Cannot drop index {} on {}: {}", spec.name(),
+            spec.entity().getSimpleName(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the finders whose first filtered field is not the leading key of any existing index.
+   *
+   * @return the names of the unsupported finders
+   */
+  List<String> findUnsupportedFinders() {
+    Map<Class<?>, List<String>> leadingKeys = new HashMap<>();
+    List<String> unsupported = new ArrayList<>();
+
+    for (FinderSpec finder : FINDERS) {
+      List<String> keys = leadingKeys.computeIfAbsent(finder.entity(), this::getLeadingKeys);
+      if (finder.field() == null || !keys.contains(finder.field())) {
+        unsupported.add(finder.finder());
+      }
+    }
+    return unsupported;
+  }
+
+  private List<String> getLeadingKeys(Class<?> entity) {
+    List<String> keys = new ArrayList<>();
+    for (IndexInfo info : mongoTemplate.indexOps(entity).getIndexInfo()) {
+      if (!info.getIndexFields().isEmpty()) {
+        keys.add(info.getIndexFields().get(0).getKey());
+      }
+    }
+    return keys;
+  }
+}
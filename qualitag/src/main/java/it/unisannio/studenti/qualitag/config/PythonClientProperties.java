@@ -0,0 +1,42 @@
+package it.unisannio.studenti.qualitag.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Connection settings of the Python service, bound from the {@code python.service.*} properties.
+ *
+ * @param baseUrl            the base URL of the Python service
+ * @param connectTimeout     the maximum time to open a connection
+ * @param readTimeout        the maximum time to wait for a response
+ * @param maxConnections     the maximum number of pooled connections
+ * @param maxPendingRequests the maximum number of requests waiting for a pooled connection
+ * @param maxRetries         the number of retries of a call that failed for a transient error
+ * @param retryBackoff       the delay before the first retry, doubled at every retry
+ * @param failureThreshold   the consecutive failures after which the circuit breaker opens
+ * @param openDuration       how long the circuit breaker stays open before trying a call again
+ */
+@ConfigurationProperties(prefix = "python.service")
+public record PythonClientProperties(
+    String baseUrl,
+    @DefaultValue("2s") Duration connectTimeout,
+    @DefaultValue("30s") Duration readTimeout,
+    @DefaultValue("16") int maxConnections,
+    @DefaultValue("64") int maxPendingRequests,
+    @DefaultValue("2") int maxRetries,
+    @DefaultValue("200ms") Duration retryBackoff,
+    @DefaultValue("5") int failureThreshold,
+    @DefaultValue("30s") Duration openDuration) {
+
+  /**
+   * Returns the default settings for a Python service.
+   *
+   * @param baseUrl the base URL of the Python service
+   * @return the default settings
+   */
+  public static PythonClientProperties withDefaults(String baseUrl) {
+    return new PythonClientProperties(baseUrl, Duration.ofSeconds(2), Duration.ofSeconds(30), 16,
+        64, 2, Duration.ofMillis(200), 5, Duration.ofSeconds(30));
+  }
+}
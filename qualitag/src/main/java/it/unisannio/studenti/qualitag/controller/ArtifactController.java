@@ -2,9 +2,16 @@ package it.unisannio.studenti.qualitag.controller;
 
 import it.unisannio.studenti.qualitag.dto.artifact.AddTagsToArtifactDto;
 import it.unisannio.studenti.qualitag.dto.artifact.ArtifactCreateDto;
+import it.unisannio.studenti.qualitag.dto.artifact.ArtifactImportDto;
+import it.unisannio.studenti.qualitag.dto.artifact.ChunkedUploadCreateDto;
+import it.unisannio.studenti.qualitag.service.ArtifactImportService;
+import it.unisannio.studenti.qualitag.service.ArtifactPreviewService;
 import it.unisannio.studenti.qualitag.service.ArtifactService;
+import it.unisannio.studenti.qualitag.service.ChunkedUploadService;
+import java.io.InputStream;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,7 +21,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -25,15 +34,26 @@ import org.springframework.web.bind.annotation.RestController;
 public class ArtifactController {
 
   private final ArtifactService artifactService;
+  private final ArtifactImportService artifactImportService;
+  private final ChunkedUploadService chunkedUploadService;
+  private final ArtifactPreviewService artifactPreviewService;
 
   /**
    * Constructs a new ArtifactController.
    *
-   * @param artifactService the artifact service
+   * @param artifactService        the artifact service
+   * @param artifactImportService  the artifact import service
+   * @param chunkedUploadService   the chunked upload service
+   * @param artifactPreviewService the artifact preview service
    */
   @Autowired
-  public ArtifactController(ArtifactService artifactService) {
+  public ArtifactController(ArtifactService artifactService,
+      ArtifactImportService artifactImportService, ChunkedUploadService chunkedUploadService,
+      ArtifactPreviewService artifactPreviewService) {
     this.artifactService = artifactService;
+    this.artifactImportService = artifactImportService;
+    this.chunkedUploadService = chunkedUploadService;
+    this.artifactPreviewService = artifactPreviewService;
   }
 
   // POST Methods
@@ -48,17 +68,64 @@ public class ArtifactController {
     return this.artifactService.addArtifact(artifactCreateDto);
   }
 
+  /**
+   * Imports many artifacts at once, from plain files or ZIP archives.
+   *
+   * @param artifactImportDto the project and the files to import
+   * @return the response entity with the outcome of every imported file
+   */
+  @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+  public ResponseEntity<?> importArtifacts(@ModelAttribute ArtifactImportDto artifactImportDto) {
+    return this.artifactImportService.importArtifacts(artifactImportDto);
+  }
+
+  /**
+   * Begins the upload of an artifact in chunks, for files too large for a single request.
+   *
+   * @param chunkedUploadCreateDto the artifact data and the size of the file
+   * @return the response entity with the id of the upload
+   */
+  @PostMapping("/uploads")
+  public ResponseEntity<?> beginUpload(@RequestBody ChunkedUploadCreateDto chunkedUploadCreateDto) {
+    return this.chunkedUploadService.beginUpload(chunkedUploadCreateDto);
+  }
+
+  /**
+   * Commits an upload whose chunks were all received, creating the artifact.
+   *
+   * @param uploadId the id of the upload
+   * @return the response entity with the id of the artifact
+   */
+  @PostMapping("/uploads/{uploadId}/commit")
+  public ResponseEntity<?> commitUpload(@PathVariable String uploadId) {
+    return this.chunkedUploadService.commitUpload(uploadId);
+  }
+
   // GET Methods
 
   /**
-   * Gets the artifact file when given the ID.
+   * Gets the artifact file when given the ID. Parts of the file can be requested with the Range
+   * header.
    *
    * @param artifactId the id of the artifact to get
+   * @param headers    the request headers
    * @return the response entity
    */
   @GetMapping("/{artifactId}")
-  public ResponseEntity<?> getArtifact(@PathVariable String artifactId) {
-    return this.artifactService.getArtifact(artifactId);
+  public ResponseEntity<?> getArtifact(@PathVariable String artifactId,
+      @RequestHeader HttpHeaders headers) {
+    return this.artifactService.getArtifact(artifactId, headers);
+  }
+
+  /**
+   * Gets the progress of an upload, to resume it from the bytes received.
+   *
+   * @param uploadId the id of the upload
+   * @return the response entity
+   */
+  @GetMapping("/uploads/{uploadId}")
+  public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+    return this.chunkedUploadService.getUpload(uploadId);
   }
 
   /**
@@ -83,6 +150,21 @@ public class ArtifactController {
     return this.artifactService.getArtifactMetadata(artifactId);
   }
 
+  /**
+   * Gets a window of lines of a text artifact, without downloading the whole file.
+   *
+   * @param artifactId the id of the artifact to preview
+   * @param offset     the first line to get, counting from 0
+   * @param lines      the number of lines to get
+   * @return the response entity with the lines
+   */
+  @GetMapping("/{artifactId}/preview")
+  public ResponseEntity<?> getArtifactPreview(@PathVariable String artifactId,
+      @RequestParam(defaultValue = "0") long offset,
+      @RequestParam(defaultValue = "200") int lines) {
+    return this.artifactPreviewService.getPreview(artifactId, offset, lines);
+  }
+
   /**
    * Gets the tags of an artifact by a user.
    *
@@ -178,8 +260,35 @@ public class ArtifactController {
     return this.artifactService.processTags(artifactId);
   }
 
+  /**
+   * Sends a chunk of an upload, starting at the bytes received so far.
+   *
+   * @param uploadId the id of the upload
+   * @param offset   the offset of the chunk in the file
+   * @param checksum the hex SHA-256 digest of the chunk
+   * @param content  the content of the chunk
+   * @return the response entity with the bytes received
+   */
+  @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<?> uploadChunk(@PathVariable String uploadId, @RequestParam long offset,
+      @RequestHeader(value = ChunkedUploadService.CHUNK_CHECKSUM_HEADER, required = false)
+      String checksum, InputStream content) {
+    return this.chunkedUploadService.uploadChunk(uploadId, offset, checksum, content);
+  }
+
   // DELETE Methods
 
+  /**
+   * Aborts an upload, deleting the chunks received.
+   *
+   * @param uploadId the id of the upload
+   * @return the response entity
+   */
+  @DeleteMapping("/uploads/{uploadId}")
+  public ResponseEntity<?> abortUpload(@PathVariable String uploadId) {
+    return this.chunkedUploadService.abortUpload(uploadId);
+  }
+
   /**
    * Deletes an artifact from the repository.
    *
@@ -1,7 +1,9 @@
 package it.unisannio.studenti.qualitag.controller;
 
+import it.unisannio.studenti.qualitag.storage.OrphanFileCollector;
 import java.util.HashMap;
 import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,6 +15,18 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class HealthController {
 
+  private final OrphanFileCollector orphanFileCollector;
+
+  /**
+   * Constructs a new HealthController.
+   *
+   * @param orphanFileCollector the collector of the orphan artifact files
+   */
+  @Autowired
+  public HealthController(OrphanFileCollector orphanFileCollector) {
+    this.orphanFileCollector = orphanFileCollector;
+  }
+
   /**
    * Checks if the server is up and running.
    *
@@ -25,4 +39,18 @@ public class HealthController {
     response.put("msg", "Server is up and running");
     return ResponseEntity.status(HttpStatus.OK).body(response);
   }
+
+  /**
+   * Reports the counts of the collector of the orphan artifact files.
+   *
+   * @return a response entity with the pending and failed file deletions, the orphan files removed
+   *         and the outcome of the last sweep
+   */
+  @GetMapping("/health/orphan-files")
+  public ResponseEntity<?> orphanFiles() {
+    Map<String, Object> response = new HashMap<>(orphanFileCollector.getStatus());
+
+    response.put("msg", "Orphan file collector status");
+    return ResponseEntity.status(HttpStatus.OK).body(response);
+  }
 }
@@ -0,0 +1,53 @@
+package it.unisannio.studenti.qualitag.controller;
+
+import it.unisannio.studenti.qualitag.service.JobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * The JobController class is a REST controller that reports the state of the background jobs.
+ */
+@RestController
+@RequestMapping("/api/v1/job")
+public class JobController {
+
+  private final JobService jobService;
+
+  /**
+   * Constructs a new JobController.
+   *
+   * @param jobService the job service
+   */
+  @Autowired
+  public JobController(JobService jobService) {
+    this.jobService = jobService;
+  }
+
+  /**
+   * Gets the state of a job, and its result once it is completed.
+   *
+   * @param jobId the id of the job
+   * @return the response entity
+   */
+  @GetMapping("/{jobId}")
+  public ResponseEntity<?> getJob(@PathVariable String jobId) {
+    return jobService.getJob(jobId);
+  }
+
+  /**
+   * Streams the state of a job as server-sent events until it finishes.
+   *
+   * @param jobId the id of the job
+   * @return the response entity with the stream of events
+   */
+  @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamJob(@PathVariable String jobId) {
+    return jobService.streamJob(jobId);
+  }
+}
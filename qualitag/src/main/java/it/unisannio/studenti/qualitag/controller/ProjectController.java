@@ -1,7 +1,9 @@
 package it.unisannio.studenti.qualitag.controller;
 
 import it.unisannio.studenti.qualitag.dto.project.ProjectCreateDto;
+import it.unisannio.studenti.qualitag.service.ProjectExportService;
 import it.unisannio.studenti.qualitag.service.ProjectService;
+import it.unisannio.studenti.qualitag.service.TagConsolidationService;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +14,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
@@ -22,15 +25,23 @@ import org.springframework.web.bind.annotation.RestController;
 public class ProjectController {
 
   private final ProjectService projectService;
+  private final ProjectExportService projectExportService;
+  private final TagConsolidationService tagConsolidationService;
 
   /**
    * Constructs a new ProjectController.
    *
-   * @param projectService the project service
+   * @param projectService          the project service
+   * @param projectExportService    the project export service
+   * @param tagConsolidationService the tag consolidation service
    */
   @Autowired
-  public ProjectController(ProjectService projectService) {
+  public ProjectController(ProjectService projectService,
+      ProjectExportService projectExportService,
+      TagConsolidationService tagConsolidationService) {
     this.projectService = projectService;
+    this.projectExportService = projectExportService;
+    this.tagConsolidationService = tagConsolidationService;
   }
 
   /**
@@ -112,6 +123,31 @@ public class ProjectController {
     return projectService.getProjectsArtifacts(projectId);
   }
 
+  /**
+   * Exports a project, streaming a ZIP archive with the artifact files and an NDJSON manifest,
+   * or the manifest alone.
+   *
+   * @param projectId the id of the project to export
+   * @param format    zip or ndjson
+   * @return the response entity
+   */
+  @GetMapping("/{projectId}/export")
+  public ResponseEntity<?> exportProject(@PathVariable String projectId,
+      @RequestParam(defaultValue = "zip") String format) {
+    return projectExportService.exportProject(projectId, format);
+  }
+
+  /**
+   * Starts consolidating the tags of a project in the background.
+   *
+   * @param projectId the id of the project
+   * @return the response entity with the id of the job, to poll at /api/v1/job
+   */
+  @PostMapping("/{projectId}/consolidate-tags")
+  public ResponseEntity<?> consolidateTags(@PathVariable String projectId) {
+    return tagConsolidationService.startConsolidation(projectId);
+  }
+
   /**
    * Gets all the teams of a project.
    *
@@ -0,0 +1,16 @@
+package it.unisannio.studenti.qualitag.dto.artifact;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * DTO used to import many artifacts at once. Every file becomes an artifact, and every entry of
+ * a ZIP archive becomes an artifact too.
+ */
+public record ArtifactImportDto(
+    @NotBlank String projectId,
+    @NotEmpty List<MultipartFile> files) {
+
+}
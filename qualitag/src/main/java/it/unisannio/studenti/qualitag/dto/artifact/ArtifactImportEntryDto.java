@@ -0,0 +1,17 @@
+package it.unisannio.studenti.qualitag.dto.artifact;
+
+/**
+ * DTO reporting the outcome of one imported file.
+ *
+ * @param fileName   the name of the file, with its path inside the archive if any
+ * @param artifactId the id of the created artifact, null if the file was not imported
+ * @param teamId     the id of the team the artifact was assigned to, null if not imported
+ * @param error      the reason the file was not imported, null if it was
+ */
+public record ArtifactImportEntryDto(
+    String fileName,
+    String artifactId,
+    String teamId,
+    String error) {
+
+}
@@ -0,0 +1,27 @@
+package it.unisannio.studenti.qualitag.dto.artifact;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * DTO used to begin the upload of an artifact in chunks.
+ *
+ * @param projectId    the id of the project of the artifact
+ * @param artifactName the name of the artifact
+ * @param description  the description of the artifact
+ * @param fileName     the name of the file
+ * @param contentType  the content type of the file, if known
+ * @param size         the size of the file, in bytes
+ * @param sha256       the hex SHA-256 digest of the whole file, checked on commit if given
+ */
+public record ChunkedUploadCreateDto(
+    @NotBlank String projectId,
+    @NotBlank String artifactName,
+    String description,
+    @NotBlank String fileName,
+    String contentType,
+    @Positive long size,
+    @Pattern(regexp = "[0-9a-fA-F]{64}") String sha256) {
+
+}
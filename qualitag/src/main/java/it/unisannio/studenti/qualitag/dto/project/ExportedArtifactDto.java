@@ -0,0 +1,31 @@
+package it.unisannio.studenti.qualitag.dto.project;
+
+import java.util.List;
+
+/**
+ * DTO describing an artifact in a project export, one line of the manifest.
+ *
+ * @param artifactId    the id of the artifact
+ * @param artifactName  the name of the artifact
+ * @param description   the description of the artifact
+ * @param teamId        the id of the team the artifact belongs to
+ * @param teamName      the name of the team the artifact belongs to, null if not found
+ * @param fileName      the name the file was uploaded with
+ * @param contentType   the content type of the file
+ * @param file          the path of the file inside the export, null if it is not included
+ * @param isTaggingOpen whether the artifact can still be tagged
+ * @param tags          the tags of the artifact
+ */
+public record ExportedArtifactDto(
+    String artifactId,
+    String artifactName,
+    String description,
+    String teamId,
+    String teamName,
+    String fileName,
+    String contentType,
+    String file,
+    boolean isTaggingOpen,
+    List<ExportedTagDto> tags) {
+
+}
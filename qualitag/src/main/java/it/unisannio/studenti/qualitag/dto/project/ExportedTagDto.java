@@ -0,0 +1,19 @@
+package it.unisannio.studenti.qualitag.dto.project;
+
+/**
+ * DTO describing a tag of an artifact in a project export.
+ *
+ * @param tagId             the id of the tag
+ * @param tagValue          the value of the tag
+ * @param colorHex          the color of the tag
+ * @param createdBy         the id of the user who created the tag
+ * @param createdByUsername the username of the user who created the tag, null if not found
+ */
+public record ExportedTagDto(
+    String tagId,
+    String tagValue,
+    String colorHex,
+    String createdBy,
+    String createdByUsername) {
+
+}
@@ -0,0 +1,28 @@
+package it.unisannio.studenti.qualitag.exception;
+
+/**
+ * PythonServiceException is a custom exception class that extends RuntimeException. It is thrown
+ * when the Python service cannot be reached, does not answer in time, or is failing so often that
+ * calls to it are being rejected.
+ */
+public class PythonServiceException extends RuntimeException {
+
+  /**
+   * Constructs a new PythonServiceException.
+   *
+   * @param message the message to be displayed when the exception is thrown
+   */
+  public PythonServiceException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructs a new PythonServiceException caused by another exception.
+   *
+   * @param message the message to be displayed when the exception is thrown
+   * @param cause   the exception that caused the failure
+   */
+  public PythonServiceException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,71 @@
+package it.unisannio.studenti.qualitag.irr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tags given by the annotators to the items, dictionary-encoded for the Python service: every
+ * distinct tag value is sent once in the vocabulary, and the tags are sent as its indexes.
+ *
+ * <p>The tags of the annotator {@code j} on the item {@code i} are the codes from
+ * {@code offsets[i * annotators + j]} to {@code offsets[i * annotators + j + 1]}, exclusive. A
+ * team of 10 annotators on 1,000 artifacts is sent as two arrays of integers instead of 10,000
+ * lists of repeated strings.
+ *
+ * @param vocabulary the distinct tag values, in order of first use
+ * @param annotators the number of annotators of every item
+ * @param offsets    where the tags of every item and annotator start in the codes, followed by the
+ *                   number of codes
+ * @param codes      the indexes in the vocabulary of the tags
+ */
+public record CodedRatings(List<String> vocabulary, int annotators, int[] offsets, int[] codes) {
+
+  /**
+   * The media type of the coded ratings, as JSON. It does not end with +json, so a Python service
+   * that only knows the nested lists refuses it instead of misreading it.
+   */
+  public static final String MEDIA_TYPE = "application/vnd.qualitag.coded-ratings";
+
+  /**
+   * Encodes the tags given by the annotators to the items.
+   *
+   * @param ratings the tags of every annotator on every item; an item with fewer annotators than
+   *                the others is padded with empty lists
+   * @return the coded ratings
+   */
+  public static CodedRatings encode(List<List<List<String>>> ratings) {
+    int annotators = 0;
+    int total = 0;
+    for (List<List<String>> item : ratings) {
+      annotators = Math.max(annotators, item.size());
+      for (List<String> tags : item) {
+        total += tags.size();
+      }
+    }
+
+    Map<String, Integer> indexes = new HashMap<>();
+    List<String> vocabulary = new ArrayList<>();
+    int[] offsets = new int[ratings.size() * annotators + 1];
+    int[] codes = new int[total];
+    int cell = 0;
+    int next = 0;
+    for (List<List<String>> item : ratings) {
+      for (int annotator = 0; annotator < annotators; annotator++) {
+        offsets[cell++] = next;
+        if (annotator < item.size()) {
+          for (String tag : item.get(annotator)) {
+            codes[next++] = indexes.computeIfAbsent(tag, value -> {
+              vocabulary.add(value);
+              return vocabulary.size() - 1;
+            });
+          }
+        }
+      }
+    }
+    offsets[cell] = next;
+
+    return new CodedRatings(vocabulary, annotators, offsets, codes);
+  }
+}
@@ -0,0 +1,179 @@
+package it.unisannio.studenti.qualitag.irr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes Krippendorff's alpha for multi-label annotations, using the Jaccard distance between
+ * label sets. It reproduces the NLTK AnnotationTask used by the Python service, including the order
+ * in which the sums are accumulated, so both give the same value.
+ *
+ * <p>Tag values are interned to int IDs and every label set is stored as a bitset, so comparing
+ * two label sets only costs a few bitwise operations.
+ */
+public final class KrippendorffAlpha {
+
+  public static final String INSUFFICIENT_DATA_MSG =
+      "Krippendorff's alpha could not be calculated due to insufficient data.";
+
+  private final Map<String, Integer> tagIds = new HashMap<>();
+  private final Map<BitSet, Integer> labelSetIds = new HashMap<>();
+  private final List<long[]> labelSetWords = new ArrayList<>();
+  private int[] labelSetSizes = new int[16];
+
+  private KrippendorffAlpha() {
+  }
+
+  /**
+   * Computes Krippendorff's alpha.
+   *
+   * @param data for every item, the list of tag values assigned by every annotator; an empty list
+   *             means that the annotator did not annotate the item
+   * @return the alpha value
+   * @throws IllegalArgumentException if no item has been annotated by at least two annotators
+   */
+  public static double compute(List<List<List<String>>> data) {
+    return new KrippendorffAlpha().alpha(data);
+  }
+
+  private double alpha(List<List<List<String>>> data) {
+    // Encode every non-empty annotation as the id of its label set
+    int[][] itemLabelSets = new int[data.size()][];
+    boolean pairable = false;
+    for (int i = 0; i < data.size(); i++) {
+      List<List<String>> annotations = data.get(i);
+      int[] labelSets = new int[annotations.size()];
+      int count = 0;
+      for (List<String> tags : annotations) {
+        if (tags != null && !tags.isEmpty()) {
+          labelSets[count++] = internLabelSet(tags);
+        }
+      }
+      itemLabelSets[i] = Arrays.copyOf(labelSets, count);
+      pairable |= count > 1;
+    }
+
+    if (!pairable) {
+      throw new IllegalArgumentException(INSUFFICIENT_DATA_MSG);
+    }
+    if (labelSetWords.size() == 1) {
+      return 1.0;
+    }
+
+    // NLTK visits the items sorted by their "item_<index>" name
+    Integer[] itemOrder = new Integer[data.size()];
+    for (int i = 0; i < itemOrder.length; i++) {
+      itemOrder[i] = i;
+    }
+    Arrays.sort(itemOrder, Comparator.comparing(String::valueOf));
+
+    // Frequencies of the label sets over all pairable items, in order of first appearance
+    int[] totalFreqs = new int[labelSetWords.size()];
+    int[] totalOrder = new int[labelSetWords.size()];
+    int totalDistinct = 0;
+    int totalCount = 0;
+    double observed = 0.0;
+
+    int[] freqs = new int[labelSetWords.size()];
+    for (int item : itemOrder) {
+      int[] labelSets = itemLabelSets[item];
+      if (labelSets.length < 2) {
+        continue;
+      }
+
+      // Frequencies of the label sets within the item, in order of first appearance
+      int[] order = new int[labelSets.length];
+      int distinct = 0;
+      for (int labelSet : labelSets) {
+        if (freqs[labelSet]++ == 0) {
+          order[distinct++] = labelSet;
+        }
+      }
+
+      observed += disagreement(order, distinct, freqs) * labelSets.length;
+
+      for (int k = 0; k < distinct; k++) {
+        int labelSet = order[k];
+        if (totalFreqs[labelSet] == 0) {
+          totalOrder[totalDistinct++] = labelSet;
+        }
+        totalFreqs[labelSet] += freqs[labelSet];
+        freqs[labelSet] = 0;
+      }
+      totalCount += labelSets.length;
+    }
+
+    double observedDisagreement = observed / totalCount;
+    double expectedDisagreement = disagreement(totalOrder, totalDistinct, totalFreqs);
+    if (expectedDisagreement == 0.0) {
+      throw new IllegalArgumentException(INSUFFICIENT_DATA_MSG);
+    }
+    return 1.0 - observedDisagreement / expectedDisagreement;
+  }
+
+  /**
+   * Computes the average distance between every ordered pair of labels of a coincidence list.
+   *
+   * @param labelSets the ids of the distinct label sets
+   * @param distinct  the number of valid entries in labelSets
+   * @param freqs     the frequency of every label set, indexed by id
+   * @return the disagreement
+   */
+  private double disagreement(int[] labelSets, int distinct, int[] freqs) {
+    long total = 0;
+    for (int k = 0; k < distinct; k++) {
+      total += freqs[labelSets[k]];
+    }
+
+    double pairs = 0.0;
+    for (int j = 0; j < distinct; j++) {
+      int labelJ = labelSets[j];
+      for (int l = 0; l < distinct; l++) {
+        int labelL = labelSets[l];
+        pairs += (double) ((long) freqs[labelJ] * freqs[labelL]) * distance(labelL, labelJ);
+      }
+    }
+    return 1.0 * pairs / (total * (total - 1));
+  }
+
+  /**
+   * Jaccard distance between two non-empty label sets.
+   */
+  private double distance(int a, int b) {
+    if (a == b) {
+      return 0.0;
+    }
+    long[] wordsA = labelSetWords.get(a);
+    long[] wordsB = labelSetWords.get(b);
+    int intersection = 0;
+    for (int k = Math.min(wordsA.length, wordsB.length) - 1; k >= 0; k--) {
+      intersection += Long.bitCount(wordsA[k] & wordsB[k]);
+    }
+    int union = labelSetSizes[a] + labelSetSizes[b] - intersection;
+    return (double) (union - intersection) / union;
+  }
+
+  private int internLabelSet(List<String> tags) {
+    BitSet bits = new BitSet();
+    for (String tag : tags) {
+      bits.set(tagIds.computeIfAbsent(tag, key -> tagIds.size()));
+    }
+
+    Integer id = labelSetIds.get(bits);
+    if (id == null) {
+      id = labelSetWords.size();
+      labelSetIds.put(bits, id);
+      labelSetWords.add(bits.toLongArray());
+      if (id == labelSetSizes.length) {
+        labelSetSizes = Arrays.copyOf(labelSetSizes, id * 2);
+      }
+      labelSetSizes[id] = bits.cardinality();
+    }
+    return id;
+  }
+}
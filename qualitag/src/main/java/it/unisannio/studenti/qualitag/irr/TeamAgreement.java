@@ -0,0 +1,270 @@
+package it.unisannio.studenti.qualitag.irr;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Krippendorff's alpha of a team, maintained incrementally as tags are added to and removed from
+ * its artifacts. It keeps the sums of the observed and expected disagreement instead of the raw
+ * annotation matrix, so reading alpha costs O(1) and every change only touches the affected
+ * artifact and the distinct label sets.
+ *
+ * <p>It gives the same value as {@link KrippendorffAlpha}, up to floating point rounding.
+ */
+public class TeamAgreement {
+
+  /**
+   * A distinct set of tag values, with its usage counters.
+   */
+  private static final class LabelSet {
+
+    private final long[] words;
+    private final int size;
+    // Number of annotations with this label set, on any artifact
+    private int uses;
+    // Number of annotations with this label set, on artifacts annotated by 2 or more annotators
+    private int freq;
+
+    private LabelSet(BitSet bits) {
+      this.words = bits.toLongArray();
+      this.size = bits.cardinality();
+    }
+  }
+
+  /**
+   * The tags an annotator has put on an artifact.
+   */
+  private static final class Annotation {
+
+    private final Map<String, String> valuesByTagId = new HashMap<>();
+    private LabelSet labelSet;
+  }
+
+  // Minimum expected disagreement, below which it is considered zero
+  private static final double EPSILON = 1e-9;
+
+  private final Set<String> annotators;
+  private final Set<String> items;
+
+  private final Map<String, Integer> valueIds = new HashMap<>();
+  private final Map<BitSet, LabelSet> labelSets = new HashMap<>();
+  private final Map<String, Map<String, Annotation>> annotations = new HashMap<>();
+
+  private int pairableItems;
+  private long totalCount;
+  private double observedSum;
+  private double expectedSum;
+
+  /**
+   * Creates the agreement state of a team with no tags.
+   *
+   * @param annotators the ids of the users of the team
+   * @param items      the ids of the artifacts of the team
+   */
+  public TeamAgreement(Collection<String> annotators, Collection<String> items) {
+    this.annotators = new HashSet<>(annotators);
+    this.items = new HashSet<>(items);
+  }
+
+  /**
+   * Adds a tag to an artifact, or updates its value if it is already there. Tags on artifacts
+   * outside the team or created by users outside the team are ignored.
+   *
+   * @param item      the id of the artifact
+   * @param annotator the id of the user who created the tag
+   * @param tagId     the id of the tag
+   * @param value     the value of the tag
+   */
+  public synchronized void addTag(String item, String annotator, String tagId, String value) {
+    if (!items.contains(item) || !annotators.contains(annotator)) {
+      return;
+    }
+
+    Map<String, Annotation> itemAnnotations =
+        annotations.computeIfAbsent(item, key -> new LinkedHashMap<>());
+    Annotation annotation = itemAnnotations.computeIfAbsent(annotator, key -> new Annotation());
+    if (value.equals(annotation.valuesByTagId.get(tagId))) {
+      return;
+    }
+
+    detachItem(itemAnnotations);
+    annotation.valuesByTagId.put(tagId, value);
+    relabel(annotation);
+    attachItem(itemAnnotations);
+  }
+
+  /**
+   * Removes a tag from an artifact. Nothing happens if the tag is not on the artifact.
+   *
+   * @param item  the id of the artifact
+   * @param tagId the id of the tag
+   */
+  public synchronized void removeTag(String item, String tagId) {
+    Map<String, Annotation> itemAnnotations = annotations.get(item);
+    if (itemAnnotations == null) {
+      return;
+    }
+
+    for (Iterator<Annotation> it = itemAnnotations.values().iterator(); it.hasNext(); ) {
+      Annotation annotation = it.next();
+      if (!annotation.valuesByTagId.containsKey(tagId)) {
+        continue;
+      }
+
+      detachItem(itemAnnotations);
+      annotation.valuesByTagId.remove(tagId);
+      relabel(annotation);
+      if (annotation.labelSet == null) {
+        it.remove();
+      }
+      attachItem(itemAnnotations);
+      return;
+    }
+  }
+
+  /**
+   * Returns the current Krippendorff's alpha.
+   *
+   * @return the alpha value
+   * @throws IllegalArgumentException if no artifact has been tagged by at least two users
+   */
+  public synchronized double alpha() {
+    if (pairableItems == 0) {
+      throw new IllegalArgumentException(KrippendorffAlpha.INSUFFICIENT_DATA_MSG);
+    }
+    if (labelSets.size() == 1) {
+      return 1.0;
+    }
+
+    double expectedDisagreement = expectedSum / (totalCount * (totalCount - 1));
+    if (expectedDisagreement < EPSILON) {
+      throw new IllegalArgumentException(KrippendorffAlpha.INSUFFICIENT_DATA_MSG);
+    }
+    double observedDisagreement = Math.max(0.0, observedSum) / totalCount;
+    return 1.0 - observedDisagreement / expectedDisagreement;
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Removes the contribution of an artifact from the sums.
+   */
+  private void detachItem(Map<String, Annotation> itemAnnotations) {
+    List<LabelSet> itemLabelSets = labelSetsOf(itemAnnotations);
+    if (itemLabelSets.size() < 2) {
+      return;
+    }
+
+    observedSum -= observedContribution(itemLabelSets);
+    for (LabelSet labelSet : itemLabelSets) {
+      changeFreq(labelSet, -1);
+    }
+    totalCount -= itemLabelSets.size();
+    pairableItems--;
+
+    if (pairableItems == 0) {
+      // Drop the accumulated rounding errors
+      observedSum = 0.0;
+      expectedSum = 0.0;
+    }
+  }
+
+  /**
+   * Adds the contribution of an artifact to the sums.
+   */
+  private void attachItem(Map<String, Annotation> itemAnnotations) {
+    List<LabelSet> itemLabelSets = labelSetsOf(itemAnnotations);
+    if (itemLabelSets.size() < 2) {
+      return;
+    }
+
+    observedSum += observedContribution(itemLabelSets);
+    for (LabelSet labelSet : itemLabelSets) {
+      changeFreq(labelSet, 1);
+    }
+    totalCount += itemLabelSets.size();
+    pairableItems++;
+  }
+
+  /**
+   * Returns the disagreement within an artifact, weighted by its number of annotations.
+   */
+  private double observedContribution(List<LabelSet> itemLabelSets) {
+    double pairs = 0.0;
+    for (LabelSet a : itemLabelSets) {
+      for (LabelSet b : itemLabelSets) {
+        pairs += distance(a, b);
+      }
+    }
+    return pairs / (itemLabelSets.size() - 1);
+  }
+
+  /**
+   * Changes the frequency of a label set, updating the expected disagreement sum.
+   */
+  private void changeFreq(LabelSet labelSet, int delta) {
+    double distances = 0.0;
+    for (LabelSet other : labelSets.values()) {
+      if (other.freq > 0) {
+        distances += other.freq * distance(labelSet, other);
+      }
+    }
+    expectedSum += 2.0 * delta * distances;
+    labelSet.freq += delta;
+  }
+
+  /**
+   * Recomputes the label set of an annotation after its tags have changed.
+   */
+  private void relabel(Annotation annotation) {
+    if (annotation.labelSet != null && --annotation.labelSet.uses == 0) {
+      labelSets.values().remove(annotation.labelSet);
+    }
+
+    if (annotation.valuesByTagId.isEmpty()) {
+      annotation.labelSet = null;
+      return;
+    }
+
+    BitSet bits = new BitSet();
+    for (String value : annotation.valuesByTagId.values()) {
+      bits.set(valueIds.computeIfAbsent(value, key -> valueIds.size()));
+    }
+    LabelSet labelSet = labelSets.computeIfAbsent(bits, LabelSet::new);
+    labelSet.uses++;
+    annotation.labelSet = labelSet;
+  }
+
+  private static List<LabelSet> labelSetsOf(Map<String, Annotation> itemAnnotations) {
+    List<LabelSet> result = new ArrayList<>(itemAnnotations.size());
+    for (Annotation annotation : itemAnnotations.values()) {
+      if (annotation.labelSet != null) {
+        result.add(annotation.labelSet);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Jaccard distance between two non-empty label sets.
+   */
+  private static double distance(LabelSet a, LabelSet b) {
+    if (a == b) {
+      return 0.0;
+    }
+    int intersection = 0;
+    for (int k = Math.min(a.words.length, b.words.length) - 1; k >= 0; k--) {
+      intersection += Long.bitCount(a.words[k] & b.words[k]);
+    }
+    int union = a.size + b.size - intersection;
+    return (double) (union - intersection) / union;
+  }
+}
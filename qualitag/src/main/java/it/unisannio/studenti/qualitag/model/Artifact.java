@@ -35,6 +35,17 @@ public class Artifact {
   @Field(name = "filePath")
   private String filePath;
 
+  // The name of the uploaded file, since the stored file is named after its content
+  @Field(name = "fileName")
+  private String fileName;
+
+  @Field(name = "contentType")
+  private String contentType;
+
+  // The encoding the file is stored with, such as gzip, or null if it is stored as uploaded
+  @Field(name = "contentEncoding")
+  private String contentEncoding;
+
   @Field(name = "artifactTags")
   private List<String> tags;
 
@@ -0,0 +1,37 @@
+package it.unisannio.studenti.qualitag.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * Represents a stored artifact file, shared by every artifact with the same content.
+ */
+@Data
+@Document(collection = "artifact_blob")
+public class ArtifactBlob {
+
+  // The SHA-256 digest of the content in hex, prefixed by the storage for storages other than the
+  // local disk
+  @Id
+  private String key;
+
+  @Field(name = "size")
+  private long size;
+
+  // The number of artifacts pointing at the file
+  @Field(name = "refCount")
+  private long refCount;
+
+  @Field(name = "createdAt")
+  private long createdAt;
+
+  // When an artifact last started pointing at the file, so that it is not collected meanwhile
+  @Field(name = "lastReferencedAt")
+  private long lastReferencedAt;
+
+  // The file holding the content, for storages that do not name files after their digest
+  @Field(name = "fileId")
+  private String fileId;
+}
@@ -0,0 +1,37 @@
+package it.unisannio.studenti.qualitag.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Represents where the lines of a text artifact start, so that a window of lines is read without
+ * reading the file from the beginning.
+ */
+@Data
+@Document(collection = "artifact_line_index")
+public class ArtifactLineIndex {
+
+  @MongoId
+  @Field(targetType = FieldType.OBJECT_ID)
+  private String artifactId;
+
+  // The size of the content as uploaded, before it is compressed
+  @Field(name = "size")
+  private long size;
+
+  @Field(name = "lineCount")
+  private long lineCount;
+
+  // Every how many lines a position is recorded
+  @Field(name = "step")
+  private int step;
+
+  // The position of line i * step, for every line of the file at that index
+  @Field(name = "checkpoints")
+  private List<Long> checkpoints = new ArrayList<>();
+}
@@ -0,0 +1,62 @@
+package it.unisannio.studenti.qualitag.model;
+
+import java.util.Map;
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Represents a long-running analysis run in the background, such as the processing of the tags of
+ * an artifact or the agreement of a team. Its state is updated as it progresses, so the client
+ * that requested it can poll it.
+ */
+@Data
+@Document(collection = "job")
+public class Job {
+
+  @MongoId
+  @Field(targetType = FieldType.OBJECT_ID)
+  private String jobId;
+
+  @Field(name = "type")
+  private JobType type;
+
+  // The project the job works on, whose jobs run a few at a time
+  @Field(name = "projectId")
+  private String projectId;
+
+  @Field(name = "requestedBy")
+  private String requestedBy;
+
+  @Field(name = "status")
+  private JobStatus status;
+
+  // The units of work done so far, out of the total, when the job reports them
+  @Field(name = "done")
+  private int done;
+
+  @Field(name = "total")
+  private int total;
+
+  @Field(name = "result")
+  private Map<String, Object> result;
+
+  @Field(name = "error")
+  private String error;
+
+  // The instance running the job, and until when it is known to be alive; a job whose lease has
+  // expired is failed by the other instances
+  @Field(name = "owner")
+  private String owner;
+
+  @Field(name = "leaseUntil")
+  private long leaseUntil;
+
+  @Field(name = "createdAt")
+  private long createdAt;
+
+  @Field(name = "updatedAt")
+  private long updatedAt;
+}
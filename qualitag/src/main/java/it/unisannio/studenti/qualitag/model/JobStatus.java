@@ -0,0 +1,11 @@
+package it.unisannio.studenti.qualitag.model;
+
+/**
+ * The JobStatus enum represents the state of a background job.
+ */
+public enum JobStatus {
+  QUEUED,
+  RUNNING,
+  COMPLETED,
+  FAILED
+}
@@ -0,0 +1,9 @@
+package it.unisannio.studenti.qualitag.model;
+
+/**
+ * The JobType enum represents the kind of work a background job does.
+ */
+public enum JobType {
+  TAG_PROCESSING,
+  TAG_CONSOLIDATION
+}
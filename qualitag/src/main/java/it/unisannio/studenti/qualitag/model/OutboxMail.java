@@ -0,0 +1,67 @@
+package it.unisannio.studenti.qualitag.model;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Represents an e-mail waiting in the outbox to be sent.
+ */
+@Data
+@Document(collection = "outbox")
+public class OutboxMail {
+
+  @MongoId
+  @Field(targetType = FieldType.OBJECT_ID)
+  private String mailId;
+
+  @Field(name = "subject")
+  private String subject;
+
+  @Field(name = "to")
+  private String to;
+
+  @Field(name = "message")
+  private String message;
+
+  @Field(name = "status")
+  private OutboxMailStatus status;
+
+  @Field(name = "attempts")
+  private int attempts;
+
+  @Field(name = "createdAt")
+  private long createdAt;
+
+  // When the mail can be sent, or when the claim of a worker expires while it is being sent
+  @Field(name = "nextAttemptAt")
+  private long nextAttemptAt;
+
+  @Field(name = "lastError")
+  private String lastError;
+
+  /**
+   * Default constructor.
+   */
+  public OutboxMail() {
+  }
+
+  /**
+   * Constructs a pending e-mail, to be sent as soon as possible.
+   *
+   * @param subject   the subject of the e-mail
+   * @param to        the recipient e-mail address
+   * @param message   the body of the e-mail
+   * @param createdAt the time the e-mail was queued, in milliseconds
+   */
+  public OutboxMail(String subject, String to, String message, long createdAt) {
+    this.subject = subject;
+    this.to = to;
+    this.message = message;
+    this.status = OutboxMailStatus.PENDING;
+    this.createdAt = createdAt;
+    this.nextAttemptAt = createdAt;
+  }
+}
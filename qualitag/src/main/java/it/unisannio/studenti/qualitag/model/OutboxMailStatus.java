@@ -0,0 +1,11 @@
+package it.unisannio.studenti.qualitag.model;
+
+/**
+ * The OutboxMailStatus enum represents the delivery status of an e-mail in the outbox.
+ */
+public enum OutboxMailStatus {
+  PENDING,
+  SENDING,
+  SENT,
+  FAILED
+}
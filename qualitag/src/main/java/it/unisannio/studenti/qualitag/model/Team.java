@@ -39,6 +39,11 @@ public class Team {
   @Field(name = "teamDescription")
   private String teamDescription;
 
+  // Incremented whenever the agreement of the team may change, so that the instances caching it
+  // know when to build it again
+  @Field(name = "irrVersion")
+  private long irrVersion;
+
   /**
    * Default constructor for Team.
    */
@@ -0,0 +1,58 @@
+package it.unisannio.studenti.qualitag.model;
+
+import lombok.Data;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+import org.springframework.data.mongodb.core.mapping.MongoId;
+
+/**
+ * Represents an artifact being uploaded in chunks. The chunks are written to a temporary file
+ * named after the upload, and the artifact is created when the upload is committed.
+ */
+@Data
+@Document(collection = "upload_session")
+public class UploadSession {
+
+  @MongoId
+  @Field(targetType = FieldType.OBJECT_ID)
+  private String uploadId;
+
+  @Field(name = "projectId")
+  private String projectId;
+
+  @Field(name = "ownerId")
+  private String ownerId;
+
+  @Field(name = "artifactName")
+  private String artifactName;
+
+  @Field(name = "description")
+  private String description;
+
+  @Field(name = "fileName")
+  private String fileName;
+
+  @Field(name = "contentType")
+  private String contentType;
+
+  @Field(name = "size")
+  private long size;
+
+  // The SHA-256 digest of the whole file, checked on commit if the client sent it
+  @Field(name = "sha256")
+  private String sha256;
+
+  // The bytes received so far, all from the start of the file
+  @Field(name = "received")
+  private long received;
+
+  @Field(name = "status")
+  private UploadSessionStatus status;
+
+  @Field(name = "createdAt")
+  private long createdAt;
+
+  @Field(name = "updatedAt")
+  private long updatedAt;
+}
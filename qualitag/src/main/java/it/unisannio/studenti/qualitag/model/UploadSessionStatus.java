@@ -0,0 +1,9 @@
+package it.unisannio.studenti.qualitag.model;
+
+/**
+ * The UploadSessionStatus enum represents the state of a chunked upload.
+ */
+public enum UploadSessionStatus {
+  OPEN,
+  COMMITTING
+}
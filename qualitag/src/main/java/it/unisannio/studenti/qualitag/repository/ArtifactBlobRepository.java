@@ -0,0 +1,12 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Repository for the ArtifactBlob entity. Provides methods to interact with the database.
+ */
+public interface ArtifactBlobRepository extends MongoRepository<ArtifactBlob, String>,
+    ArtifactBlobRepositoryCustom {
+
+}
@@ -0,0 +1,43 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+
+/**
+ * Atomic reference counting on stored artifact files.
+ */
+public interface ArtifactBlobRepositoryCustom {
+
+  /**
+   * Adds a reference to a stored file, recording the file on its first reference.
+   *
+   * @param key  the key of the file
+   * @param size the size of the file, in bytes
+   * @return the number of references after the update
+   */
+  long addReference(String key, long size);
+
+  /**
+   * Removes a reference to a stored file.
+   *
+   * @param key the key of the file
+   * @return the number of references left, or -1 if the file is not recorded
+   */
+  long removeReference(String key);
+
+  /**
+   * Makes the given file the one holding the content, unless another file already does.
+   *
+   * @param key    the key of the file
+   * @param fileId the id of the file just written
+   * @return the id of the file holding the content, which is the given one if it was claimed
+   */
+  String claimFile(String key, String fileId);
+
+  /**
+   * Forgets a stored file if nothing references it anymore.
+   *
+   * @param key the key of the file
+   * @return the forgotten record, or null if the file is still referenced
+   */
+  ArtifactBlob removeIfUnreferenced(String key);
+}
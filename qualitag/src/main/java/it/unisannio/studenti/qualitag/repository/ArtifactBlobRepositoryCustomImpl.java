@@ -0,0 +1,64 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link ArtifactBlobRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class ArtifactBlobRepositoryCustomImpl implements ArtifactBlobRepositoryCustom {
+
+  private static final String ID = "_id";
+  private static final String SIZE = "size";
+  private static final String REF_COUNT = "refCount";
+  private static final String CREATED_AT = "createdAt";
+  private static final String LAST_REFERENCED_AT = "lastReferencedAt";
+  private static final String FILE_ID = "fileId";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public long addReference(String key, long size) {
+    Query query = new Query(Criteria.where(ID).is(key));
+    long now = System.currentTimeMillis();
+    Update update = new Update()
+        .inc(REF_COUNT, 1)
+        .set(LAST_REFERENCED_AT, now)
+        .setOnInsert(SIZE, size)
+        .setOnInsert(CREATED_AT, now);
+    ArtifactBlob blob = mongoTemplate.findAndModify(query, update,
+        FindAndModifyOptions.options().upsert(true).returnNew(true), ArtifactBlob.class);
+    return blob.getRefCount();
+  }
+
+  @Override
+  public long removeReference(String key) {
+    Query query = new Query(Criteria.where(ID).is(key));
+    ArtifactBlob blob = mongoTemplate.findAndModify(query, new Update().inc(REF_COUNT, -1),
+        FindAndModifyOptions.options().returnNew(true), ArtifactBlob.class);
+    return blob == null ? -1 : blob.getRefCount();
+  }
+
+  @Override
+  public String claimFile(String key, String fileId) {
+    Query query = new Query(Criteria.where(ID).is(key).and(FILE_ID).is(null));
+    ArtifactBlob blob = mongoTemplate.findAndModify(query, new Update().set(FILE_ID, fileId),
+        FindAndModifyOptions.options().returnNew(true), ArtifactBlob.class);
+    if (blob == null) {
+      blob = mongoTemplate.findById(key, ArtifactBlob.class);
+    }
+    return blob == null ? null : blob.getFileId();
+  }
+
+  @Override
+  public ArtifactBlob removeIfUnreferenced(String key) {
+    Query query = new Query(Criteria.where(ID).is(key).and(REF_COUNT).lte(0));
+    return mongoTemplate.findAndRemove(query, ArtifactBlob.class);
+  }
+}
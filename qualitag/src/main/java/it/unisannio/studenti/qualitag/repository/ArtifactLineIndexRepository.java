@@ -0,0 +1,11 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Repository for the ArtifactLineIndex entity. Provides methods to interact with the database.
+ */
+public interface ArtifactLineIndexRepository extends MongoRepository<ArtifactLineIndex, String> {
+
+}
@@ -6,7 +6,8 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 /**
  * Repository for the Artifact entity. Provides methods to interact with the database.
  */
-public interface ArtifactRepository extends MongoRepository<Artifact, String> {
+public interface ArtifactRepository extends MongoRepository<Artifact, String>,
+    ArtifactRepositoryCustom {
 
   /**
    * Finds an artifact by its id.
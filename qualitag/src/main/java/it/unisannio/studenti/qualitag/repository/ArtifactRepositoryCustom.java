@@ -0,0 +1,54 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bulk operations on artifacts that cannot be expressed as derived queries.
+ */
+public interface ArtifactRepositoryCustom {
+
+  /**
+   * Opens or closes tagging on every artifact in the given list with a single update.
+   *
+   * @param artifactIds the ids of the artifacts to update
+   * @param open        true to open tagging, false to close it
+   * @return the number of artifacts matched by the update
+   */
+  long setTaggingOpen(Collection<String> artifactIds, boolean open);
+
+  /**
+   * Returns the ids, among the given ones, of the artifacts that exist.
+   *
+   * @param artifactIds the ids of the artifacts to look for
+   * @return the ids of the artifacts found
+   */
+  List<String> findExistingArtifactIds(Collection<String> artifactIds);
+
+  /**
+   * Sets the content type of an artifact, without rewriting the rest of the document.
+   *
+   * @param artifactId  the id of the artifact to update
+   * @param contentType the content type of the artifact file
+   */
+  void setContentType(String artifactId, String contentType);
+
+  /**
+   * Points an artifact at another file, if it still points at the expected one.
+   *
+   * @param artifactId  the id of the artifact to update
+   * @param oldFilePath the location the artifact is expected to point at
+   * @param newFilePath the new location
+   * @return true if the artifact was updated
+   */
+  boolean replaceFilePath(String artifactId, String oldFilePath, String newFilePath);
+
+  /**
+   * Points every artifact at a file to another file.
+   *
+   * @param oldFilePath the location the artifacts point at
+   * @param newFilePath the new location
+   * @return the number of artifacts updated
+   */
+  long replaceFilePaths(String oldFilePath, String newFilePath);
+}
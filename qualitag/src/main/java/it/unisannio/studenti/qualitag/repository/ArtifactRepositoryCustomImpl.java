@@ -0,0 +1,60 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link ArtifactRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class ArtifactRepositoryCustomImpl implements ArtifactRepositoryCustom {
+
+  private static final String ID = "_id";
+  private static final String TAGGING_OPEN = "isTaggingOpen";
+  private static final String CONTENT_TYPE = "contentType";
+  private static final String FILE_PATH = "filePath";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public long setTaggingOpen(Collection<String> artifactIds, boolean open) {
+    Query query = new Query(Criteria.where(ID).in(artifactIds));
+    Update update = new Update().set(TAGGING_OPEN, open);
+    return mongoTemplate.updateMulti(query, update, Artifact.class).getMatchedCount();
+  }
+
+  @Override
+  public List<String> findExistingArtifactIds(Collection<String> artifactIds) {
+    Query query = new Query(Criteria.where(ID).in(artifactIds));
+    query.fields().include(ID);
+    return mongoTemplate.find(query, Artifact.class).stream()
+        .map(Artifact::getArtifactId)
+        .toList();
+  }
+
+  @Override
+  public void setContentType(String artifactId, String contentType) {
+    Query query = new Query(Criteria.where(ID).is(artifactId));
+    mongoTemplate.updateFirst(query, new Update().set(CONTENT_TYPE, contentType), Artifact.class);
+  }
+
+  @Override
+  public boolean replaceFilePath(String artifactId, String oldFilePath, String newFilePath) {
+    Query query = new Query(Criteria.where(ID).is(artifactId).and(FILE_PATH).is(oldFilePath));
+    Update update = new Update().set(FILE_PATH, newFilePath);
+    return mongoTemplate.updateFirst(query, update, Artifact.class).getModifiedCount() > 0;
+  }
+
+  @Override
+  public long replaceFilePaths(String oldFilePath, String newFilePath) {
+    Query query = new Query(Criteria.where(FILE_PATH).is(oldFilePath));
+    Update update = new Update().set(FILE_PATH, newFilePath);
+    return mongoTemplate.updateMulti(query, update, Artifact.class).getModifiedCount();
+  }
+}
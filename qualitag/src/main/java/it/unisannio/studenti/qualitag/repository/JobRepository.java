@@ -0,0 +1,24 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.JobStatus;
+import it.unisannio.studenti.qualitag.model.JobType;
+import java.util.Collection;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Repository for the Job entity. Provides methods to interact with the database.
+ */
+public interface JobRepository extends MongoRepository<Job, String>, JobRepositoryCustom {
+
+  /**
+   * Finds the first job of a project of the given type in one of the given states.
+   *
+   * @param projectId the id of the project
+   * @param type      the type of the job
+   * @param statuses  the states of the job
+   * @return the job, or null if there is none
+   */
+  Job findFirstByProjectIdAndTypeAndStatusIn(String projectId, JobType type,
+      Collection<JobStatus> statuses);
+}
@@ -0,0 +1,28 @@
+package it.unisannio.studenti.qualitag.repository;
+
+/**
+ * Job operations that cannot be expressed as derived queries.
+ */
+public interface JobRepositoryCustom {
+
+  /**
+   * Extends the lease of the unfinished jobs of an instance, telling the other instances it is
+   * still running them.
+   *
+   * @param owner      the id of the instance
+   * @param leaseUntil the time the leases expire, in milliseconds
+   * @return the number of jobs renewed
+   */
+  long renewLeases(String owner, long leaseUntil);
+
+  /**
+   * Atomically marks as failed the unfinished jobs whose lease has expired, and those of the
+   * given instance.
+   *
+   * @param owner the id of the instance whose jobs are failed anyway, or null
+   * @param now   the current time, in milliseconds
+   * @param error the error recorded in the jobs
+   * @return the number of jobs failed
+   */
+  long failAbandoned(String owner, long now, String error);
+}
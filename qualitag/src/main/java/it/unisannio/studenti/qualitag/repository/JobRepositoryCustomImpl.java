@@ -0,0 +1,49 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.JobStatus;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link JobRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class JobRepositoryCustomImpl implements JobRepositoryCustom {
+
+  private static final List<JobStatus> UNFINISHED = List.of(JobStatus.QUEUED, JobStatus.RUNNING);
+
+  private static final String STATUS = "status";
+  private static final String OWNER = "owner";
+  private static final String LEASE_UNTIL = "leaseUntil";
+  private static final String ERROR = "error";
+  private static final String UPDATED_AT = "updatedAt";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public long renewLeases(String owner, long leaseUntil) {
+    Query query = new Query(Criteria.where(STATUS).in(UNFINISHED).and(OWNER).is(owner));
+    return mongoTemplate.updateMulti(query, new Update().set(LEASE_UNTIL, leaseUntil), Job.class)
+        .getModifiedCount();
+  }
+
+  @Override
+  public long failAbandoned(String owner, long now, String error) {
+    Criteria abandoned = Criteria.where(LEASE_UNTIL).lt(now);
+    if (owner != null) {
+      abandoned = new Criteria().orOperator(abandoned, Criteria.where(OWNER).is(owner));
+    }
+    Query query = new Query(new Criteria().andOperator(Criteria.where(STATUS).in(UNFINISHED),
+        abandoned));
+    Update update = new Update()
+        .set(STATUS, JobStatus.FAILED)
+        .set(ERROR, error)
+        .set(UPDATED_AT, now);
+    return mongoTemplate.updateMulti(query, update, Job.class).getModifiedCount();
+  }
+}
@@ -0,0 +1,522 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import com.mongodb.client.result.UpdateResult;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.User;
+import java.util.Collection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository for the relationships between entities. Every method issues a single partial update
+ * ($addToSet or $pull) on the embedded list of IDs, so concurrent changes to the same document do
+ * not overwrite each other.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MembershipRepository {
+
+  private static final String ID = "_id";
+
+  private static final String PROJECT_USERS = "projectUsersIds";
+  private static final String PROJECT_TEAMS = "projectTeamsIds";
+  private static final String PROJECT_ARTIFACTS = "projectArtifactsIds";
+  private static final String TEAM_USERS = "userIds";
+  private static final String TEAM_ARTIFACTS = "artifactIds";
+  private static final String TAG_ARTIFACTS = "artifactIds";
+  private static final String ARTIFACT_TAGS = "artifactTags";
+  private static final String USER_PROJECTS = "projectIds";
+  private static final String USER_TEAMS = "teamIds";
+  private static final String USER_TAGS = "tagIds";
+
+  private final MongoTemplate mongoTemplate;
+
+  // PROJECT
+
+  /**
+   * Adds a user to a project.
+   *
+   * @param projectId the id of the project
+   * @param userId    the id of the user to add
+   * @return true if the project was found, false otherwise
+   */
+  public boolean addUserToProject(String projectId, String userId) {
+    return addToSet(Project.class, projectId, PROJECT_USERS, userId);
+  }
+
+  /**
+   * Removes a user from a project.
+   *
+   * @param projectId the id of the project
+   * @param userId    the id of the user to remove
+   * @return true if the project was found, false otherwise
+   */
+  public boolean removeUserFromProject(String projectId, String userId) {
+    return pull(Project.class, projectId, PROJECT_USERS, userId);
+  }
+
+  /**
+   * Adds a team to a project.
+   *
+   * @param projectId the id of the project
+   * @param teamId    the id of the team to add
+   * @return true if the project was found, false otherwise
+   */
+  public boolean addTeamToProject(String projectId, String teamId) {
+    return addToSet(Project.class, projectId, PROJECT_TEAMS, teamId);
+  }
+
+  /**
+   * Removes a team from a project.
+   *
+   * @param projectId the id of the project
+   * @param teamId    the id of the team to remove
+   * @return true if the project was found, false otherwise
+   */
+  public boolean removeTeamFromProject(String projectId, String teamId) {
+    return pull(Project.class, projectId, PROJECT_TEAMS, teamId);
+  }
+
+  /**
+   * Adds an artifact to a project.
+   *
+   * @param projectId  the id of the project
+   * @param artifactId the id of the artifact to add
+   * @return true if the project was found, false otherwise
+   */
+  public boolean addArtifactToProject(String projectId, String artifactId) {
+    return addToSet(Project.class, projectId, PROJECT_ARTIFACTS, artifactId);
+  }
+
+  /**
+   * Adds artifacts to a project, with a single update.
+   *
+   * @param projectId   the id of the project
+   * @param artifactIds the ids of the artifacts to add
+   * @return true if the project was found, false otherwise
+   */
+  public boolean addArtifactsToProject(String projectId, Collection<String> artifactIds) {
+    return addAllToSet(Project.class, projectId, PROJECT_ARTIFACTS, artifactIds);
+  }
+
+  /**
+   * Removes an artifact from a project.
+   *
+   * @param projectId  the id of the project
+   * @param artifactId the id of the artifact to remove
+   * @return true if the project was found, false otherwise
+   */
+  public boolean removeArtifactFromProject(String projectId, String artifactId) {
+    return pull(Project.class, projectId, PROJECT_ARTIFACTS, artifactId);
+  }
+
+  // TEAM
+
+  /**
+   * Adds a user to a team.
+   *
+   * @param teamId the id of the team
+   * @param userId the id of the user to add
+   * @return true if the team was found, false otherwise
+   */
+  public boolean addUserToTeam(String teamId, String userId) {
+    return addToSet(Team.class, teamId, TEAM_USERS, userId);
+  }
+
+  /**
+   * Removes a user from a team.
+   *
+   * @param teamId the id of the team
+   * @param userId the id of the user to remove
+   * @return true if the team was found, false otherwise
+   */
+  public boolean removeUserFromTeam(String teamId, String userId) {
+    return pull(Team.class, teamId, TEAM_USERS, userId);
+  }
+
+  /**
+   * Removes a user from every given team.
+   *
+   * @param teamIds the ids of the teams
+   * @param userId  the id of the user to remove
+   * @return the number of teams found
+   */
+  public long removeUserFromTeams(Collection<String> teamIds, String userId) {
+    return pullAll(Team.class, teamIds, TEAM_USERS, userId);
+  }
+
+  /**
+   * Replaces the users of a team.
+   *
+   * @param teamId  the id of the team
+   * @param userIds the ids of the new users of the team
+   * @return true if the team was found, false otherwise
+   */
+  public boolean setTeamUsers(String teamId, Collection<String> userIds) {
+    UpdateResult result = mongoTemplate.updateFirst(byId(teamId),
+        new Update().set(TEAM_USERS, userIds), Team.class);
+    return result.getMatchedCount() > 0;
+  }
+
+  /**
+   * Adds an artifact to a team.
+   *
+   * @param teamId     the id of the team
+   * @param artifactId the id of the artifact to add
+   * @return true if the team was found, false otherwise
+   */
+  public boolean addArtifactToTeam(String teamId, String artifactId) {
+    return addToSet(Team.class, teamId, TEAM_ARTIFACTS, artifactId);
+  }
+
+  /**
+   * Adds artifacts to a team, with a single update.
+   *
+   * @param teamId      the id of the team
+   * @param artifactIds the ids of the artifacts to add
+   * @return true if the team was found, false otherwise
+   */
+  public boolean addArtifactsToTeam(String teamId, Collection<String> artifactIds) {
+    return addAllToSet(Team.class, teamId, TEAM_ARTIFACTS, artifactIds);
+  }
+
+  /**
+   * Removes an artifact from a team.
+   *
+   * @param teamId     the id of the team
+   * @param artifactId the id of the artifact to remove
+   * @return true if the team was found, false otherwise
+   */
+  public boolean removeArtifactFromTeam(String teamId, String artifactId) {
+    return pull(Team.class, teamId, TEAM_ARTIFACTS, artifactId);
+  }
+
+  // TAG
+
+  /**
+   * Adds an artifact to a tag.
+   *
+   * @param tagId      the id of the tag
+   * @param artifactId the id of the artifact to add
+   * @return true if the tag was found, false otherwise
+   */
+  public boolean addArtifactToTag(String tagId, String artifactId) {
+    return addToSet(Tag.class, tagId, TAG_ARTIFACTS, artifactId);
+  }
+
+  /**
+   * Adds an artifact to every given tag.
+   *
+   * @param tagIds     the ids of the tags
+   * @param artifactId the id of the artifact to add
+   * @return the number of tags found
+   */
+  public long addArtifactToTags(Collection<String> tagIds, String artifactId) {
+    return addToSetAll(Tag.class, tagIds, TAG_ARTIFACTS, artifactId);
+  }
+
+  /**
+   * Removes an artifact from a tag.
+   *
+   * @param tagId      the id of the tag
+   * @param artifactId the id of the artifact to remove
+   * @return true if the tag was found, false otherwise
+   */
+  public boolean removeArtifactFromTag(String tagId, String artifactId) {
+    return pull(Tag.class, tagId, TAG_ARTIFACTS, artifactId);
+  }
+
+  /**
+   * Removes an artifact from every given tag.
+   *
+   * @param tagIds     the ids of the tags
+   * @param artifactId the id of the artifact to remove
+   * @return the number of tags found
+   */
+  public long removeArtifactFromTags(Collection<String> tagIds, String artifactId) {
+    return pullAll(Tag.class, tagIds, TAG_ARTIFACTS, artifactId);
+  }
+
+  /**
+   * Removes artifacts from a tag.
+   *
+   * @param tagId       the id of the tag
+   * @param artifactIds the ids of the artifacts to remove
+   * @return true if the tag was found, false otherwise
+   */
+  public boolean removeArtifactsFromTag(String tagId, Collection<String> artifactIds) {
+    if (artifactIds == null || artifactIds.isEmpty()) {
+      return false;
+    }
+    UpdateResult result = mongoTemplate.updateFirst(byId(tagId),
+        new Update().pullAll(TAG_ARTIFACTS, artifactIds.toArray()), Tag.class);
+    return result.getMatchedCount() > 0;
+  }
+
+  // ARTIFACT
+
+  /**
+   * Adds a tag to an artifact.
+   *
+   * @param artifactId the id of the artifact
+   * @param tagId      the id of the tag to add
+   * @return true if the artifact was found, false otherwise
+   */
+  public boolean addTagToArtifact(String artifactId, String tagId) {
+    return addToSet(Artifact.class, artifactId, ARTIFACT_TAGS, tagId);
+  }
+
+  /**
+   * Adds a tag to every given artifact.
+   *
+   * @param artifactIds the ids of the artifacts
+   * @param tagId       the id of the tag to add
+   * @return the number of artifacts found
+   */
+  public long addTagToArtifacts(Collection<String> artifactIds, String tagId) {
+    return addToSetAll(Artifact.class, artifactIds, ARTIFACT_TAGS, tagId);
+  }
+
+  /**
+   * Adds tags to an artifact.
+   *
+   * @param artifactId the id of the artifact
+   * @param tagIds     the ids of the tags to add
+   * @return true if the artifact was found, false otherwise
+   */
+  public boolean addTagsToArtifact(String artifactId, Collection<String> tagIds) {
+    UpdateResult result = mongoTemplate.updateFirst(byId(artifactId),
+        new Update().addToSet(ARTIFACT_TAGS).each(tagIds.toArray()), Artifact.class);
+    return result.getMatchedCount() > 0;
+  }
+
+  /**
+   * Removes a tag from an artifact.
+   *
+   * @param artifactId the id of the artifact
+   * @param tagId      the id of the tag to remove
+   * @return true if the artifact was found, false otherwise
+   */
+  public boolean removeTagFromArtifact(String artifactId, String tagId) {
+    return pull(Artifact.class, artifactId, ARTIFACT_TAGS, tagId);
+  }
+
+  /**
+   * Removes a tag from every given artifact.
+   *
+   * @param artifactIds the ids of the artifacts
+   * @param tagId       the id of the tag to remove
+   * @return the number of artifacts found
+   */
+  public long removeTagFromArtifacts(Collection<String> artifactIds, String tagId) {
+    return pullAll(Artifact.class, artifactIds, ARTIFACT_TAGS, tagId);
+  }
+
+  /**
+   * Removes tags from every given artifact, with a single update.
+   *
+   * @param artifactIds the ids of the artifacts
+   * @param tagIds      the ids of the tags to remove
+   * @return the number of artifacts found
+   */
+  public long removeTagsFromArtifacts(Collection<String> artifactIds, Collection<String> tagIds) {
+    return pullAll(Artifact.class, artifactIds, ARTIFACT_TAGS, tagIds);
+  }
+
+  // USER
+
+  /**
+   * Adds a project to a user.
+   *
+   * @param userId    the id of the user
+   * @param projectId the id of the project to add
+   * @return true if the user was found, false otherwise
+   */
+  public boolean addProjectToUser(String userId, String projectId) {
+    return addToSet(User.class, userId, USER_PROJECTS, projectId);
+  }
+
+  /**
+   * Adds a project to every given user.
+   *
+   * @param userIds   the ids of the users
+   * @param projectId the id of the project to add
+   * @return the number of users found
+   */
+  public long addProjectToUsers(Collection<String> userIds, String projectId) {
+    return addToSetAll(User.class, userIds, USER_PROJECTS, projectId);
+  }
+
+  /**
+   * Removes a project from a user.
+   *
+   * @param userId    the id of the user
+   * @param projectId the id of the project to remove
+   * @return true if the user was found, false otherwise
+   */
+  public boolean removeProjectFromUser(String userId, String projectId) {
+    return pull(User.class, userId, USER_PROJECTS, projectId);
+  }
+
+  /**
+   * Removes a project from every given user.
+   *
+   * @param userIds   the ids of the users
+   * @param projectId the id of the project to remove
+   * @return the number of users found
+   */
+  public long removeProjectFromUsers(Collection<String> userIds, String projectId) {
+    return pullAll(User.class, userIds, USER_PROJECTS, projectId);
+  }
+
+  /**
+   * Adds a team to a user.
+   *
+   * @param userId the id of the user
+   * @param teamId the id of the team to add
+   * @return true if the user was found, false otherwise
+   */
+  public boolean addTeamToUser(String userId, String teamId) {
+    return addToSet(User.class, userId, USER_TEAMS, teamId);
+  }
+
+  /**
+   * Removes a team from a user.
+   *
+   * @param userId the id of the user
+   * @param teamId the id of the team to remove
+   * @return true if the user was found, false otherwise
+   */
+  public boolean removeTeamFromUser(String userId, String teamId) {
+    return pull(User.class, userId, USER_TEAMS, teamId);
+  }
+
+  /**
+   * Removes the given teams from a user.
+   *
+   * @param userId  the id of the user
+   * @param teamIds the ids of the teams to remove
+   * @return true if the user was found, false otherwise
+   */
+  public boolean removeTeamsFromUser(String userId, Collection<String> teamIds) {
+    if (teamIds == null || teamIds.isEmpty()) {
+      return false;
+    }
+    UpdateResult result = mongoTemplate.updateFirst(byId(userId),
+        new Update().pullAll(USER_TEAMS, teamIds.toArray()), User.class);
+    return result.getMatchedCount() > 0;
+  }
+
+  /**
+   * Removes a team from every given user.
+   *
+   * @param userIds the ids of the users
+   * @param teamId  the id of the team to remove
+   * @return the number of users found
+   */
+  public long removeTeamFromUsers(Collection<String> userIds, String teamId) {
+    return pullAll(User.class, userIds, USER_TEAMS, teamId);
+  }
+
+  /**
+   * Adds a tag to a user.
+   *
+   * @param userId the id of the user
+   * @param tagId  the id of the tag to add
+   * @return true if the user was found, false otherwise
+   */
+  public boolean addTagToUser(String userId, String tagId) {
+    return addToSet(User.class, userId, USER_TAGS, tagId);
+  }
+
+  /**
+   * Removes a tag from a user.
+   *
+   * @param userId the id of the user
+   * @param tagId  the id of the tag to remove
+   * @return true if the user was found, false otherwise
+   */
+  public boolean removeTagFromUser(String userId, String tagId) {
+    return pull(User.class, userId, USER_TAGS, tagId);
+  }
+
+  /**
+   * Removes tags from every given user, with a single update.
+   *
+   * @param userIds the ids of the users
+   * @param tagIds  the ids of the tags to remove
+   * @return the number of users found
+   */
+  public long removeTagsFromUsers(Collection<String> userIds, Collection<String> tagIds) {
+    return pullAll(User.class, userIds, USER_TAGS, tagIds);
+  }
+
+  // UTILITY METHODS
+
+  private boolean addToSet(Class<?> entityClass, String id, String field, String value) {
+    UpdateResult result = mongoTemplate.updateFirst(byId(id), new Update().addToSet(field, value),
+        entityClass);
+    return result.getMatchedCount() > 0;
+  }
+
+  private boolean addAllToSet(Class<?> entityClass, String id, String field,
+      Collection<String> values) {
+    if (values == null || values.isEmpty()) {
+      return false;
+    }
+    UpdateResult result = mongoTemplate.updateFirst(byId(id),
+        new Update().addToSet(field).each(values.toArray()), entityClass);
+    return result.getMatchedCount() > 0;
+  }
+
+  private long addToSetAll(Class<?> entityClass, Collection<String> ids, String field,
+      String value) {
+    if (ids == null || ids.isEmpty()) {
+      return 0;
+    }
+    UpdateResult result = mongoTemplate.updateMulti(byIds(ids),
+        new Update().addToSet(field, value), entityClass);
+    return result.getMatchedCount();
+  }
+
+  private boolean pull(Class<?> entityClass, String id, String field, String value) {
+    UpdateResult result = mongoTemplate.updateFirst(byId(id), new Update().pull(field, value),
+        entityClass);
+    return result.getMatchedCount() > 0;
+  }
+
+  private long pullAll(Class<?> entityClass, Collection<String> ids, String field,
+      String value) {
+    if (ids == null || ids.isEmpty()) {
+      return 0;
+    }
+    UpdateResult result = mongoTemplate.updateMulti(byIds(ids), new Update().pull(field, value),
+        entityClass);
+    return result.getMatchedCount();
+  }
+
+  private long pullAll(Class<?> entityClass, Collection<String> ids, String field,
+      Collection<String> values) {
+    if (ids == null || ids.isEmpty() || values.isEmpty()) {
+      return 0;
+    }
+    UpdateResult result = mongoTemplate.updateMulti(byIds(ids),
+        new Update().pullAll(field, values.toArray()), entityClass);
+    return result.getMatchedCount();
+  }
+
+  private static Query byId(String id) {
+    return Query.query(Criteria.where(ID).is(id));
+  }
+
+  private static Query byIds(Collection<String> ids) {
+    return Query.query(Criteria.where(ID).in(ids));
+  }
+}
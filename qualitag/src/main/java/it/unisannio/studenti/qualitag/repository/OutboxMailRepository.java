@@ -0,0 +1,20 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+import it.unisannio.studenti.qualitag.model.OutboxMailStatus;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Repository for the OutboxMail entity. Provides methods to interact with the database.
+ */
+public interface OutboxMailRepository extends MongoRepository<OutboxMail, String>,
+    OutboxMailRepositoryCustom {
+
+  /**
+   * Counts the e-mails with the given status.
+   *
+   * @param status the status of the e-mails
+   * @return the number of e-mails with the given status
+   */
+  long countByStatus(OutboxMailStatus status);
+}
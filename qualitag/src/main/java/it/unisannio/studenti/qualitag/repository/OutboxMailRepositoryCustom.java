@@ -0,0 +1,20 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+
+/**
+ * Outbox operations that cannot be expressed as derived queries.
+ */
+public interface OutboxMailRepositoryCustom {
+
+  /**
+   * Atomically claims the oldest e-mail that is due, so that no other worker sends it too. Pending
+   * e-mails are due once their next attempt time has passed; e-mails being sent are due again
+   * when the claim of their worker has expired.
+   *
+   * @param now        the current time, in milliseconds
+   * @param claimUntil the time the claim expires, in milliseconds
+   * @return the claimed e-mail, or null if no e-mail is due
+   */
+  OutboxMail claimNext(long now, long claimUntil);
+}
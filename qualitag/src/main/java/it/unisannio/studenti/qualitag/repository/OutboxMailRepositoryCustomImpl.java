@@ -0,0 +1,37 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+import it.unisannio.studenti.qualitag.model.OutboxMailStatus;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link OutboxMailRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class OutboxMailRepositoryCustomImpl implements OutboxMailRepositoryCustom {
+
+  private static final String STATUS = "status";
+  private static final String NEXT_ATTEMPT_AT = "nextAttemptAt";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public OutboxMail claimNext(long now, long claimUntil) {
+    Query query = new Query(Criteria.where(STATUS)
+        .in(List.of(OutboxMailStatus.PENDING, OutboxMailStatus.SENDING))
+        .and(NEXT_ATTEMPT_AT).lte(now))
+        .with(Sort.by(NEXT_ATTEMPT_AT));
+    Update update = new Update()
+        .set(STATUS, OutboxMailStatus.SENDING)
+        .set(NEXT_ATTEMPT_AT, claimUntil);
+    return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+        OutboxMail.class);
+  }
+}
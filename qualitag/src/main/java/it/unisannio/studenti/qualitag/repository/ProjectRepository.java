@@ -7,7 +7,8 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 /**
  * Repository for the Project model.
  */
-public interface ProjectRepository extends MongoRepository<Project, String> {
+public interface ProjectRepository extends MongoRepository<Project, String>,
+    ProjectRepositoryCustom {
 
   /**
    * Finds a project by its id.
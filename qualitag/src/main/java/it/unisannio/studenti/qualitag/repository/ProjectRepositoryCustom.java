@@ -0,0 +1,19 @@
+package it.unisannio.studenti.qualitag.repository;
+
+/**
+ * Updates of projects that cannot be expressed as derived queries.
+ */
+public interface ProjectRepositoryCustom {
+
+  /**
+   * Sets the name, the description and the deadline of a project, without rewriting its members,
+   * teams and artifacts, which are updated concurrently.
+   *
+   * @param projectId   the id of the project to update
+   * @param name        the new name
+   * @param description the new description
+   * @param deadline    the new deadline, in milliseconds since the epoch
+   * @return true if the project was found
+   */
+  boolean setDetails(String projectId, String name, String description, Long deadline);
+}
@@ -0,0 +1,32 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Project;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link ProjectRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class ProjectRepositoryCustomImpl implements ProjectRepositoryCustom {
+
+  private static final String ID = "_id";
+  private static final String NAME = "projectName";
+  private static final String DESCRIPTION = "projectDescription";
+  private static final String DEADLINE = "projectDeadline";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public boolean setDetails(String projectId, String name, String description, Long deadline) {
+    Query query = new Query(Criteria.where(ID).is(projectId));
+    Update update = new Update()
+        .set(NAME, name)
+        .set(DESCRIPTION, description)
+        .set(DEADLINE, deadline);
+    return mongoTemplate.updateFirst(query, update, Project.class).getMatchedCount() > 0;
+  }
+}
@@ -8,7 +8,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 /**
  * Repository interface for managing Tag entities in MongoDB.
  */
-public interface TagRepository extends MongoRepository<Tag, String> {
+public interface TagRepository extends MongoRepository<Tag, String>, TagRepositoryCustom {
 
   /**
    * Finds tags created by a specific user.
@@ -42,4 +42,34 @@ public interface TagRepository extends MongoRepository<Tag, String> {
    * @return The tag with the specified value.
    */
   Optional<Tag> findTagByTagValueAndCreatedBy(String tagValue, String createdBy);
+
+  /**
+   * Finds the first tag of a user with the given value.
+   *
+   * @param createdBy The id of the user that created the tag.
+   * @param tagValue  The value of the tag to find.
+   * @return The first tag with the specified value, or null if there is none.
+   */
+  Tag findFirstByCreatedByAndTagValue(String createdBy, String tagValue);
+
+  /**
+   * Checks whether a user has a tag with the given value.
+   *
+   * @param createdBy The id of the user that created the tag.
+   * @param tagValue  The value of the tag.
+   * @return True if such a tag exists, false otherwise.
+   */
+  boolean existsByCreatedByAndTagValue(String createdBy, String tagValue);
+
+  /**
+   * Checks whether a user has another tag with the given value on exactly the given artifacts.
+   *
+   * @param createdBy   The id of the user that created the tag.
+   * @param tagValue    The value of the tag.
+   * @param artifactIds The ids of the artifacts the tag is attached to.
+   * @param tagId       The id of the tag to exclude from the search.
+   * @return True if such a tag exists, false otherwise.
+   */
+  boolean existsByCreatedByAndTagValueAndArtifactIdsAndTagIdNot(String createdBy,
+      String tagValue, List<String> artifactIds, String tagId);
 }
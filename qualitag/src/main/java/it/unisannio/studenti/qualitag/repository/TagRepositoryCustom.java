@@ -0,0 +1,28 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Tag;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk operations on tags that cannot be expressed as derived queries.
+ */
+public interface TagRepositoryCustom {
+
+  /**
+   * Finds the tags on any of the given artifacts, with a single query.
+   *
+   * @param artifactIds the ids of the artifacts
+   * @return the tags found
+   */
+  List<Tag> findTagsOfArtifacts(Collection<String> artifactIds);
+
+  /**
+   * Sets the value of every given tag, with a single bulk write.
+   *
+   * @param tagValues the new value of each tag, by tag id
+   * @return the number of tags updated
+   */
+  int setTagValues(Map<String, String> tagValues);
+}
@@ -0,0 +1,45 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Tag;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link TagRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class TagRepositoryCustomImpl implements TagRepositoryCustom {
+
+  private static final String ID = "_id";
+  private static final String TAG_VALUE = "tagValue";
+  private static final String ARTIFACT_IDS = "artifactIds";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public List<Tag> findTagsOfArtifacts(Collection<String> artifactIds) {
+    if (artifactIds == null || artifactIds.isEmpty()) {
+      return List.of();
+    }
+    return mongoTemplate.find(new Query(Criteria.where(ARTIFACT_IDS).in(artifactIds)), Tag.class);
+  }
+
+  @Override
+  public int setTagValues(Map<String, String> tagValues) {
+    if (tagValues.isEmpty()) {
+      return 0;
+    }
+    BulkOperations operations = mongoTemplate.bulkOps(BulkMode.UNORDERED, Tag.class);
+    tagValues.forEach((tagId, tagValue) -> operations.updateOne(
+        new Query(Criteria.where(ID).is(tagId)), new Update().set(TAG_VALUE, tagValue)));
+    return operations.execute().getModifiedCount();
+  }
+}
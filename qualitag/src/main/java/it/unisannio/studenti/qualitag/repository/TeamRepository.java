@@ -7,7 +7,8 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 /**
  * Repository interface for managing Team entities in MongoDB.
  */
-public interface TeamRepository extends MongoRepository<Team, String> {
+public interface TeamRepository extends MongoRepository<Team, String>,
+    TeamRepositoryCustom {
 
   /**
    * Finds teams by project ID.
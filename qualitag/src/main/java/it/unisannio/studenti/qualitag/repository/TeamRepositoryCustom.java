@@ -0,0 +1,26 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Team operations that cannot be expressed as derived queries.
+ */
+public interface TeamRepositoryCustom {
+
+  /**
+   * Increments the agreement version of the given teams, so that every instance drops the
+   * agreement state it has cached for them.
+   *
+   * @param teamIds the ids of the teams
+   */
+  void incrementIrrVersion(Collection<String> teamIds);
+
+  /**
+   * Increments the agreement version of the teams holding any of the given artifacts.
+   *
+   * @param artifactIds the ids of the artifacts
+   * @return the ids of the teams whose version was incremented
+   */
+  List<String> incrementIrrVersionOfArtifacts(Collection<String> artifactIds);
+}
@@ -0,0 +1,43 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.Team;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link TeamRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class TeamRepositoryCustomImpl implements TeamRepositoryCustom {
+
+  private static final String ID = "_id";
+  private static final String ARTIFACT_IDS = "artifactIds";
+  private static final String IRR_VERSION = "irrVersion";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public void incrementIrrVersion(Collection<String> teamIds) {
+    if (teamIds.isEmpty()) {
+      return;
+    }
+    Query query = new Query(Criteria.where(ID).in(teamIds));
+    mongoTemplate.updateMulti(query, new Update().inc(IRR_VERSION, 1), Team.class);
+  }
+
+  @Override
+  public List<String> incrementIrrVersionOfArtifacts(Collection<String> artifactIds) {
+    Query query = new Query(Criteria.where(ARTIFACT_IDS).in(artifactIds));
+    query.fields().include(ID);
+    List<String> teamIds = mongoTemplate.find(query, Team.class).stream()
+        .map(Team::getTeamId)
+        .toList();
+    incrementIrrVersion(teamIds);
+    return teamIds;
+  }
+}
@@ -0,0 +1,20 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.UploadSession;
+import java.util.List;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Repository for the UploadSession entity. Provides methods to interact with the database.
+ */
+public interface UploadSessionRepository extends MongoRepository<UploadSession, String>,
+    UploadSessionRepositoryCustom {
+
+  /**
+   * Finds the uploads not updated since the given time.
+   *
+   * @param updatedAt the time, in milliseconds
+   * @return the uploads last updated before the given time
+   */
+  List<UploadSession> findByUpdatedAtLessThan(long updatedAt);
+}
@@ -0,0 +1,38 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.UploadSession;
+
+/**
+ * Upload session operations that cannot be expressed as derived queries.
+ */
+public interface UploadSessionRepositoryCustom {
+
+  /**
+   * Atomically records a received chunk, if the upload is open and had received exactly the
+   * bytes before the chunk.
+   *
+   * @param uploadId the id of the upload
+   * @param offset   the offset of the chunk
+   * @param received the bytes received with the chunk
+   * @param now      the current time, in milliseconds
+   * @return true if the chunk was recorded, false otherwise
+   */
+  boolean advance(String uploadId, long offset, long received, long now);
+
+  /**
+   * Atomically marks an open upload as being committed, so it is committed once.
+   *
+   * @param uploadId the id of the upload
+   * @param now      the current time, in milliseconds
+   * @return the upload, or null if it is not open
+   */
+  UploadSession claimCommit(String uploadId, long now);
+
+  /**
+   * Opens again an upload whose commit failed, so it can be retried.
+   *
+   * @param uploadId the id of the upload
+   * @param now      the current time, in milliseconds
+   */
+  void reopen(String uploadId, long now);
+}
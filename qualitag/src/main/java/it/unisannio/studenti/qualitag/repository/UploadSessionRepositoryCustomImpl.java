@@ -0,0 +1,52 @@
+package it.unisannio.studenti.qualitag.repository;
+
+import it.unisannio.studenti.qualitag.model.UploadSession;
+import it.unisannio.studenti.qualitag.model.UploadSessionStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Implementation of {@link UploadSessionRepositoryCustom} based on {@link MongoTemplate}.
+ */
+@RequiredArgsConstructor
+public class UploadSessionRepositoryCustomImpl implements UploadSessionRepositoryCustom {
+
+  private static final String ID = "_id";
+  private static final String STATUS = "status";
+  private static final String RECEIVED = "received";
+  private static final String UPDATED_AT = "updatedAt";
+
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public boolean advance(String uploadId, long offset, long received, long now) {
+    Query query = new Query(Criteria.where(ID).is(uploadId)
+        .and(STATUS).is(UploadSessionStatus.OPEN)
+        .and(RECEIVED).is(offset));
+    Update update = new Update().set(RECEIVED, received).set(UPDATED_AT, now);
+    return mongoTemplate.updateFirst(query, update, UploadSession.class).getModifiedCount() > 0;
+  }
+
+  @Override
+  public UploadSession claimCommit(String uploadId, long now) {
+    Query query = new Query(Criteria.where(ID).is(uploadId)
+        .and(STATUS).is(UploadSessionStatus.OPEN));
+    Update update = new Update()
+        .set(STATUS, UploadSessionStatus.COMMITTING)
+        .set(UPDATED_AT, now);
+    return mongoTemplate.findAndModify(query, update,
+        FindAndModifyOptions.options().returnNew(true), UploadSession.class);
+  }
+
+  @Override
+  public void reopen(String uploadId, long now) {
+    Query query = new Query(Criteria.where(ID).is(uploadId)
+        .and(STATUS).is(UploadSessionStatus.COMMITTING));
+    Update update = new Update().set(STATUS, UploadSessionStatus.OPEN).set(UPDATED_AT, now);
+    mongoTemplate.updateFirst(query, update, UploadSession.class);
+  }
+}
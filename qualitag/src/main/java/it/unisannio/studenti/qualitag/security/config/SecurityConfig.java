@@ -2,6 +2,7 @@ package it.unisannio.studenti.qualitag.security.config;
 
 import it.unisannio.studenti.qualitag.security.filter.JwtAuthenticationFilter;
 import it.unisannio.studenti.qualitag.security.service.CustomUserDetailService;
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -71,6 +72,8 @@ public class SecurityConfig {
         .sessionManagement(
             session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
         .authorizeHttpRequests(authorize -> authorize
+            // The job event streams are authorized when opened, not again as they complete
+            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
             // Allow access to static resources
             .requestMatchers("/index.html", "/auth/**", "/user/**").permitAll()
             // Permit all authentication-related POST requests
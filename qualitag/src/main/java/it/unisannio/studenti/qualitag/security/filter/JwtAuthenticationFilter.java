@@ -1,6 +1,9 @@
 package it.unisannio.studenti.qualitag.security.filter;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
 import it.unisannio.studenti.qualitag.security.service.CustomUserDetailService;
 import it.unisannio.studenti.qualitag.security.service.JwtService;
 import jakarta.servlet.FilterChain;
@@ -20,6 +23,10 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 /**
  * Filter for JWT authentication.
+ *
+ * <p>The token is parsed once and the principal is built from its claims. Requests that change
+ * data, and tokens issued without the user ID claim, are checked against the stored user through
+ * a short-lived cache, so a deleted or renamed user loses access within the cache TTL.
  */
 @Slf4j
 @Component
@@ -37,7 +44,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     final String authHeader = request.getHeader("Authorization");
     final String jwt;
-    final String userIdentifier;
+    final Claims claims;
 
     if (authHeader == null || !authHeader.startsWith("Bearer ")) {
       filterChain.doFilter(request, response);
@@ -48,18 +55,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     log.debug("JWT - {}", jwt);
 
     try {
-      userIdentifier = jwtService.extractUserName(jwt);
+      claims = jwtService.parseToken(jwt);
     } catch (ExpiredJwtException e) {
       log.error("JWT expired - {}", e.getMessage());
       filterChain.doFilter(request, response);
       return;
+    } catch (JwtException | IllegalArgumentException e) {
+      log.error("JWT invalid - {}", e.getMessage());
+      filterChain.doFilter(request, response);
+      return;
     }
 
+    if (claims.getSubject() != null
+        && SecurityContextHolder.getContext().getAuthentication() == null) {
+      UserDetails userDetails = resolveUser(request, claims);
 
-    if (userIdentifier != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-      UserDetails userDetails = customUserDetailService.loadUserByUsername(userIdentifier);
-
-      if (jwtService.isTokenValid(jwt, userDetails)) {
+      if (userDetails != null) {
         log.debug("User - {}", userDetails);
         SecurityContext context = SecurityContextHolder.createEmptyContext();
         UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
@@ -71,4 +82,28 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
     filterChain.doFilter(request, response);
   }
+
+  /**
+   * Returns the principal of the request, or null if the user of the token no longer exists.
+   */
+  private UserDetails resolveUser(HttpServletRequest request, Claims claims) {
+    CustomUserDetails fromClaims = jwtService.toUserDetails(claims);
+    if (fromClaims != null && isSafeMethod(request.getMethod())) {
+      return fromClaims;
+    }
+
+    CustomUserDetails stored = customUserDetailService.loadCachedUser(claims.getSubject());
+    if (stored == null) {
+      return null;
+    }
+    // A user deleted and registered again with the same username gets a new ID
+    if (fromClaims != null && !fromClaims.user().getUserId().equals(stored.user().getUserId())) {
+      return null;
+    }
+    return stored;
+  }
+
+  private static boolean isSafeMethod(String method) {
+    return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+  }
 }
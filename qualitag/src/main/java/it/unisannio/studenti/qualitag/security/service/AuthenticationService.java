@@ -10,7 +10,7 @@ import it.unisannio.studenti.qualitag.mapper.UserMapper;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
-import it.unisannio.studenti.qualitag.service.GmailService;
+import it.unisannio.studenti.qualitag.service.MailOutboxService;
 import it.unisannio.studenti.qualitag.service.UserService;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
@@ -42,6 +42,7 @@ public class AuthenticationService {
   private final JwtService jwtService;
   private final UserService userService;
   private final AuthenticationManager authenticationManager;
+  private final MailOutboxService mailOutboxService;
 
   private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
   private final Validator validator = factory.getValidator();
@@ -133,16 +134,16 @@ public class AuthenticationService {
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
-    // Send email
-    new GmailService().sendMail("QualiTag Registration", request.email(),
-        "Thank you for registering to QualiTag!");
-
     // Map the new user from the request
     User user = userMapper.toEntity(request);
 
     // Save the user in the database
     userRepository.save(user);
 
+    // Send email
+    mailOutboxService.enqueue("QualiTag Registration", request.email(),
+        "Thank you for registering to QualiTag!");
+
     // Generate a JWT token
     String jwt = jwtService.generateToken(new CustomUserDetails(user));
 
@@ -231,7 +232,7 @@ public class AuthenticationService {
 
     // Send email with reset link
     String resetLink = "http://localhost:8080/reset-password?token=" + resetToken;
-    new GmailService().sendMail("QualiTag Password Reset", dto.email(),
+    mailOutboxService.enqueue("QualiTag Password Reset", dto.email(),
         "Click the following link to reset your password: " + resetLink);
 
     response.put("msg", "Password reset email sent successfully.");
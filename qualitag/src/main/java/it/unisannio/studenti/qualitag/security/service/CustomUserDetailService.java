@@ -3,6 +3,9 @@ package it.unisannio.studenti.qualitag.security.service;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -14,7 +17,20 @@ import org.springframework.stereotype.Service;
 @Service
 public class CustomUserDetailService implements UserDetailsService {
 
+  private static final int MAX_CACHED_USERS = 10_000;
+
   private final UserRepository userRepository;
+  private final Map<String, CachedUser> cache = new ConcurrentHashMap<>();
+
+  @Value("${token.user-cache.ttl-ms:30000}")
+  long userCacheTtlMs = 30_000;
+
+  /**
+   * A stored user and the time after which it must be read again.
+   */
+  private record CachedUser(CustomUserDetails userDetails, long expiresAt) {
+
+  }
 
   /**
    * Creates a new CustomUserDetailService.
@@ -33,4 +49,44 @@ public class CustomUserDetailService implements UserDetailsService {
     }
     return new CustomUserDetails(user);
   }
+
+  /**
+   * Returns the stored user, read again from the database at most once per cache TTL. Used where a
+   * deleted or changed user must be noticed soon, without reading the user on every request.
+   *
+   * @param identifier the username or the email of the user
+   * @return the user details, or null if the user does not exist
+   */
+  public CustomUserDetails loadCachedUser(String identifier) {
+    long now = System.currentTimeMillis();
+    CachedUser cached = cache.get(identifier);
+    if (cached != null && cached.expiresAt() > now) {
+      return cached.userDetails();
+    }
+
+    User user = userRepository.findByUsernameOrEmail(identifier, identifier);
+    if (user == null) {
+      cache.remove(identifier);
+      return null;
+    }
+
+    if (cache.size() >= MAX_CACHED_USERS) {
+      cache.values().removeIf(entry -> entry.expiresAt() <= now);
+      if (cache.size() >= MAX_CACHED_USERS) {
+        cache.clear();
+      }
+    }
+    CustomUserDetails userDetails = new CustomUserDetails(user);
+    cache.put(identifier, new CachedUser(userDetails, now + userCacheTtlMs));
+    return userDetails;
+  }
+
+  /**
+   * Drops the cached copy of a user, e.g. after the user is modified or deleted.
+   *
+   * @param identifier the username or the email of the user
+   */
+  public void evict(String identifier) {
+    cache.remove(identifier);
+  }
 }
@@ -2,10 +2,15 @@ package it.unisannio.studenti.qualitag.security.service;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import it.unisannio.studenti.qualitag.model.Role;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
 import java.security.Key;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -20,10 +25,16 @@ import org.springframework.stereotype.Service;
 
 /**
  * Service class for JWT.
+ *
+ * <p>Access tokens carry the user ID and the project roles of the user as claims, so the
+ * authenticated principal can be rebuilt from the token alone.
  */
 @Service
 public class JwtService {
 
+  static final String USER_ID_CLAIM = "userId";
+  static final String ROLES_CLAIM = "roles";
+
   @Value("${token.secret.key}")
   String jwtSecretKey;
 
@@ -34,6 +45,10 @@ public class JwtService {
   @Value("${token.password.expiration}")
   int jwtResetPwMin;
 
+  // Built on first use, since the secret is injected after construction
+  private volatile Key signingKey;
+  private volatile JwtParser parser;
+
   /**
    * Extracts the username from the token.
    *
@@ -51,7 +66,14 @@ public class JwtService {
    * @return the token
    */
   public String generateToken(UserDetails userDetails) {
-    return generateToken(new HashMap<>(), userDetails);
+    Map<String, Object> claims = new HashMap<>();
+    if (userDetails instanceof CustomUserDetails(User user) && user.getUserId() != null) {
+      claims.put(USER_ID_CLAIM, user.getUserId());
+      if (user.getProjectRoles() != null) {
+        claims.put(ROLES_CLAIM, user.getProjectRolesAsString());
+      }
+    }
+    return generateToken(claims, userDetails);
   }
 
   /**
@@ -80,8 +102,47 @@ public class JwtService {
    * @return true if the token is valid, false otherwise
    */
   public boolean isTokenValid(String token, UserDetails userDetails) {
-    final String userName = extractUserName(token);
-    return (userName.equals(userDetails.getUsername())) && !isTokenExpired(token);
+    final Claims claims = extractAllClaims(token);
+    return claims.getSubject().equals(userDetails.getUsername())
+        && !claims.getExpiration().before(new Date());
+  }
+
+  /**
+   * Verifies the token and returns its claims. The signature and the expiration are checked here,
+   * so the token does not need to be parsed again.
+   *
+   * @param token the token
+   * @return the claims of the token
+   * @throws JwtException if the token is expired, malformed or not signed with our key
+   */
+  public Claims parseToken(String token) throws JwtException {
+    return extractAllClaims(token);
+  }
+
+  /**
+   * Builds the principal from the claims of an access token, without reading the database.
+   *
+   * @param claims the verified claims
+   * @return the user details, or null if the token does not carry the user ID
+   */
+  public CustomUserDetails toUserDetails(Claims claims) {
+    String userId = claims.get(USER_ID_CLAIM, String.class);
+    if (userId == null || claims.getSubject() == null) {
+      return null;
+    }
+
+    User user = new User();
+    user.setUserId(userId);
+    user.setUsername(claims.getSubject());
+
+    Map<String, Role> projectRoles = new HashMap<>();
+    Object roles = claims.get(ROLES_CLAIM);
+    if (roles instanceof Map<?, ?> rolesMap) {
+      rolesMap.forEach((projectId, role) ->
+          projectRoles.put(String.valueOf(projectId), Role.valueOf(String.valueOf(role))));
+    }
+    user.setProjectRoles(projectRoles);
+    return new CustomUserDetails(user);
   }
 
   /**
@@ -120,25 +181,25 @@ public class JwtService {
     return claimsResolvers.apply(claims);
   }
 
-  private boolean isTokenExpired(String token) {
-    return extractExpiration(token).before(new Date());
-  }
-
-  private Date extractExpiration(String token) throws ExpiredJwtException {
-    return extractClaim(token, Claims::getExpiration);
-  }
-
   private Claims extractAllClaims(String token) {
-    return Jwts
-        .parserBuilder()
-        .setSigningKey(getSigningKey())
-        .build()
-        .parseClaimsJws(token)
-        .getBody();
+    JwtParser jwtParser = parser;
+    if (jwtParser == null) {
+      jwtParser = Jwts
+          .parserBuilder()
+          .setSigningKey(getSigningKey())
+          .build();
+      parser = jwtParser;
+    }
+    return jwtParser.parseClaimsJws(token).getBody();
   }
 
   private Key getSigningKey() {
-    byte[] keyBytes = Decoders.BASE64.decode(jwtSecretKey);
-    return Keys.hmacShaKeyFor(keyBytes);
+    Key key = signingKey;
+    if (key == null) {
+      byte[] keyBytes = Decoders.BASE64.decode(jwtSecretKey);
+      key = Keys.hmacShaKeyFor(keyBytes);
+      signingKey = key;
+    }
+    return key;
   }
 }
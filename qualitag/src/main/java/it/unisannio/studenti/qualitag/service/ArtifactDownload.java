@@ -0,0 +1,288 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.StoredFile;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Builds the download response of an artifact file. It honours the Range and If-Range headers,
+ * answering with a single part or a multipart/byteranges body, and streams only the requested
+ * parts from the storage. Files stored compressed are sent as they are to the clients accepting
+ * their encoding, and decoded for the others and for the ranges.
+ */
+final class ArtifactDownload {
+
+  private static final String BYTES = "bytes";
+  private static final String CRLF = "\r\n";
+
+  /**
+   * A satisfiable byte range of the file, both ends included.
+   */
+  record Range(long start, long end) {
+
+    long length() {
+      return end - start + 1;
+    }
+
+    String contentRange(long fileLength) {
+      return BYTES + " " + start + "-" + end + "/" + fileLength;
+    }
+  }
+
+  private ArtifactDownload() {
+  }
+
+  /**
+   * Builds the response for a stored file.
+   *
+   * @param file               the file
+   * @param contentType        the content type of the file
+   * @param contentDisposition the Content-Disposition header of the response
+   * @param requestHeaders     the headers of the request
+   * @return a 200 response with the whole file, a 206 response with the requested ranges, or a
+   *         416 response if none of the requested ranges is satisfiable
+   */
+  static ResponseEntity<?> of(StoredFile file, MediaType contentType, String contentDisposition,
+      HttpHeaders requestHeaders) {
+    long fileLength = file.size();
+    long lastModified = file.lastModified();
+    String etag = "\"" + Long.toHexString(fileLength) + "-" + Long.toHexString(lastModified)
+        + "\"";
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+    headers.set(HttpHeaders.ACCEPT_RANGES, BYTES);
+    headers.setETag(etag);
+    headers.setLastModified(lastModified);
+
+    List<HttpRange> requested = parseRanges(requestHeaders);
+    if (requested.isEmpty()
+        || !ifRangeMatches(requestHeaders.getFirst(HttpHeaders.IF_RANGE), etag, lastModified)) {
+      headers.setContentType(contentType);
+      headers.setContentLength(fileLength);
+      return ResponseEntity.ok().headers(headers)
+          .body(body(file, List.of(new Range(0, fileLength - 1)), null, null, fileLength));
+    }
+
+    List<Range> ranges = toRanges(requested, fileLength);
+    if (ranges.isEmpty()) {
+      headers.set(HttpHeaders.CONTENT_RANGE, BYTES + " */" + fileLength);
+      return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers)
+          .build();
+    }
+
+    if (ranges.size() == 1) {
+      Range range = ranges.get(0);
+      headers.setContentType(contentType);
+      headers.setContentLength(range.length());
+      headers.set(HttpHeaders.CONTENT_RANGE, range.contentRange(fileLength));
+      return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+          .body(body(file, ranges, null, null, fileLength));
+    }
+
+    String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+    long contentLength = 0;
+    for (Range range : ranges) {
+      contentLength += partHeader(boundary, contentType, range, fileLength).length
+          + range.length();
+    }
+    contentLength += closingDelimiter(boundary).length;
+
+    headers.setContentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary));
+    headers.setContentLength(contentLength);
+    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT).headers(headers)
+        .body(body(file, ranges, boundary, contentType, fileLength));
+  }
+
+  /**
+   * Builds the response for a file stored with a content encoding, such as gzip. Clients
+   * accepting the encoding get the stored bytes as they are. The others, and every request for
+   * ranges, get the file decoded while it is sent, with its ranges counted on the decoded bytes
+   * as for a file stored as it is.
+   *
+   * @param file               the stored file
+   * @param contentEncoding    the encoding the file is stored with
+   * @param contentType        the content type of the file, once decoded
+   * @param contentDisposition the Content-Disposition header of the response
+   * @param requestHeaders     the headers of the request, read for Accept-Encoding and Range
+   * @return a 200 response with the whole file, encoded or not, a 206 response with the requested
+   *         ranges, or a 416 response if none of the requested ranges is satisfiable
+   * @throws IOException if the file cannot be read to know its decoded size
+   */
+  static ResponseEntity<?> ofEncoded(StoredFile file, String contentEncoding,
+      MediaType contentType, String contentDisposition, HttpHeaders requestHeaders)
+      throws IOException {
+    if (!parseRanges(requestHeaders).isEmpty()
+        || !acceptsEncoding(requestHeaders.get(HttpHeaders.ACCEPT_ENCODING), contentEncoding)) {
+      ResponseEntity<?> decoded = of(ArtifactCompression.decoded(file, contentEncoding),
+          contentType, contentDisposition, requestHeaders);
+      HttpHeaders headers = new HttpHeaders();
+      headers.addAll(decoded.getHeaders());
+      headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+      return ResponseEntity.status(decoded.getStatusCode()).headers(headers)
+          .body(decoded.getBody());
+    }
+
+    long lastModified = file.lastModified();
+    HttpHeaders headers = new HttpHeaders();
+    headers.add(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+    headers.set(HttpHeaders.ACCEPT_RANGES, BYTES);
+    headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+    headers.setETag("\"" + Long.toHexString(file.size()) + "-" + Long.toHexString(lastModified)
+        + "-" + contentEncoding + "\"");
+    headers.setLastModified(lastModified);
+    headers.setContentType(contentType);
+    headers.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+    headers.setContentLength(file.size());
+    return ResponseEntity.ok().headers(headers)
+        .body(body(file, List.of(new Range(0, file.size() - 1)), null, null, file.size()));
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Tells whether the Accept-Encoding headers accept an encoding, by name or with a wildcard,
+   * with a quality value above zero.
+   */
+  static boolean acceptsEncoding(List<String> acceptEncoding, String encoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    Boolean wildcard = null;
+    for (String header : acceptEncoding) {
+      for (String element : header.split(",")) {
+        String[] parts = element.trim().split(";");
+        String coding = parts[0].trim();
+        boolean accepted = true;
+        for (int i = 1; i < parts.length; i++) {
+          String parameter = parts[i].trim();
+          if (parameter.startsWith("q=")) {
+            try {
+              accepted = Double.parseDouble(parameter.substring(2)) > 0;
+            } catch (NumberFormatException e) {
+              accepted = false;
+            }
+          }
+        }
+        if (coding.equalsIgnoreCase(encoding)) {
+          return accepted;
+        }
+        if (coding.equals("*")) {
+          wildcard = accepted;
+        }
+      }
+    }
+    return Boolean.TRUE.equals(wildcard);
+  }
+
+  /**
+   * Returns the requested ranges. A malformed Range header is ignored, as allowed by RFC 9110.
+   */
+  private static List<HttpRange> parseRanges(HttpHeaders requestHeaders) {
+    try {
+      return requestHeaders.getRange();
+    } catch (IllegalArgumentException e) {
+      return List.of();
+    }
+  }
+
+  /**
+   * Tells whether the If-Range validator, if any, still matches the file. A weak entity tag never
+   * matches, and a date matches only if it is exactly the last modification time.
+   */
+  static boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+    if (ifRange == null) {
+      return true;
+    }
+    if (ifRange.startsWith("\"")) {
+      return ifRange.equals(etag);
+    }
+    if (ifRange.startsWith("W/")) {
+      return false;
+    }
+    try {
+      long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME)
+          .toInstant().toEpochMilli();
+      return date / 1000 == lastModified / 1000;
+    } catch (DateTimeParseException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Resolves the requested ranges against the file length, dropping the unsatisfiable ones.
+   * Requests asking for more bytes than the whole file are answered with the whole file.
+   */
+  static List<Range> toRanges(List<HttpRange> requested, long fileLength) {
+    List<Range> ranges = new ArrayList<>();
+    long total = 0;
+    for (HttpRange httpRange : requested) {
+      long start;
+      long end;
+      try {
+        start = httpRange.getRangeStart(fileLength);
+        end = httpRange.getRangeEnd(fileLength);
+      } catch (IllegalArgumentException e) {
+        continue;
+      }
+      if (start >= fileLength || start > end) {
+        continue;
+      }
+      Range range = new Range(start, end);
+      total += range.length();
+      ranges.add(range);
+    }
+
+    if (ranges.size() > 1 && total > fileLength) {
+      return List.of(new Range(0, fileLength - 1));
+    }
+    return ranges;
+  }
+
+  private static byte[] partHeader(String boundary, MediaType contentType, Range range,
+      long fileLength) {
+    String header = CRLF + "--" + boundary + CRLF
+        + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+        + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(fileLength) + CRLF + CRLF;
+    return header.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] closingDelimiter(String boundary) {
+    return (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Returns the body writing the given ranges, with the multipart delimiters if a boundary is
+   * given.
+   */
+  private static StreamingResponseBody body(StoredFile file, List<Range> ranges, String boundary,
+      MediaType contentType, long fileLength) {
+    return outputStream -> {
+      for (Range range : ranges) {
+        if (boundary != null) {
+          outputStream.write(partHeader(boundary, contentType, range, fileLength));
+        }
+        if (range.length() > 0) {
+          file.writeTo(outputStream, range.start(), range.length());
+        }
+      }
+      if (boundary != null) {
+        outputStream.write(closingDelimiter(boundary));
+      }
+      outputStream.flush();
+    };
+  }
+}
@@ -0,0 +1,491 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.dto.artifact.ArtifactImportDto;
+import it.unisannio.studenti.qualitag.dto.artifact.ArtifactImportEntryDto;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.TeamRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.service.AuthenticationService;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * The service importing many artifacts at once, from plain files or ZIP archives.
+ *
+ * <p>The files are streamed to the storage in parallel on a bounded pool. The teams are then
+ * planned in one pass, giving every artifact to the team with the fewest artifacts like a single
+ * upload does, and the artifacts are saved with one insert and one update per project and team.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArtifactImportService {
+
+  private final ArtifactRepository artifactRepository;
+  private final MembershipRepository membershipRepository;
+  private final ProjectRepository projectRepository;
+  private final TeamRepository teamRepository;
+  private final UserRepository userRepository;
+
+  private final ArtifactStorage artifactStorage;
+  private final ArtifactCompression artifactCompression;
+  private final ArtifactPreviewService artifactPreviewService;
+  private final IrrService irrService;
+
+  private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+  private final Validator validator = factory.getValidator();
+
+  @Value("${artifact.import.threads:4}")
+  int threads = 4;
+
+  @Value("${artifact.import.max-entries:5000}")
+  int maxEntries = 5000;
+
+  @Value("${artifact.import.max-entry-bytes:10485760}")
+  long maxEntryBytes = 10 * 1024 * 1024;
+
+  private ExecutorService executor;
+
+  /**
+   * An imported file: a plain file, or an entry of an archive.
+   *
+   * @param fileName            the name of the file, with its path inside the archive if any
+   * @param declaredContentType the content type sent by the client, if any
+   * @param declaredSize        the size sent by the client or recorded in the archive, -1 if not
+   *                            known
+   * @param source              opens the content of the file, null if it cannot be read
+   * @param error               the reason the file cannot be imported, null if it can
+   */
+  private record ImportEntry(String fileName, String declaredContentType, long declaredSize,
+      EntrySource source, String error) {
+
+  }
+
+  /**
+   * Opens the content of an imported file.
+   */
+  @FunctionalInterface
+  private interface EntrySource {
+
+    InputStream open() throws IOException;
+  }
+
+  /**
+   * A file written to the storage, with the index of its lines if it is text.
+   */
+  private record StoredEntry(String location, String contentType, String contentEncoding,
+      ArtifactLineIndex lineIndex) {
+
+  }
+
+  /**
+   * The number of artifacts of a team while planning, and its position in the project.
+   */
+  private record TeamLoad(String teamId, int artifacts, int position) {
+
+  }
+
+  /**
+   * Starts the pool storing the imported files.
+   */
+  @PostConstruct
+  void start() {
+    AtomicInteger count = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "artifact-import-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the pool storing the imported files.
+   */
+  @PreDestroy
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  // POST
+
+  /**
+   * Imports many artifacts at once. Every file becomes an artifact named after it, and every
+   * file inside a ZIP archive becomes an artifact too.
+   *
+   * @param artifactImportDto the project and the files to import
+   * @return the response entity with the outcome of every imported file
+   */
+  public ResponseEntity<?> importArtifacts(ArtifactImportDto artifactImportDto) {
+    Map<String, Object> response = new HashMap<>();
+
+    // Validate the DTO
+    Set<ConstraintViolation<ArtifactImportDto>> violations =
+        validator.validate(artifactImportDto);
+    if (!violations.isEmpty()) {
+      response.put("msg", "Invalid artifact data.");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    // Check if the project exists
+    Project project = projectRepository.findProjectByProjectId(artifactImportDto.projectId());
+    if (project == null) {
+      response.put("msg", "Project not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    // Check if the logged-in user is the owner of the project
+    User user = userRepository.findByUserId(project.getOwnerId());
+    if (AuthenticationService.getAuthority(user.getUsername())) {
+      response.put("msg", "User is not the project owner.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    // Load the teams once, in the order of the project
+    List<Team> teams = findTeams(project);
+    if (teams.isEmpty()) {
+      response.put("msg", "The project has no teams.");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    Deque<Closeable> resources = new ArrayDeque<>();
+    List<Future<StoredEntry>> futures = new ArrayList<>();
+    Queue<String> unsavedLocations = new ConcurrentLinkedQueue<>();
+    try {
+      List<ImportEntry> entries = collectEntries(artifactImportDto.files(), resources);
+      if (entries.size() > maxEntries) {
+        response.put("msg", "Too many files, at most " + maxEntries + " can be imported at once.");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+      }
+
+      // Store the files in parallel
+      for (ImportEntry entry : entries) {
+        futures.add(entry.error() == null
+            ? executor.submit(() -> store(entry, unsavedLocations)) : null);
+      }
+
+      List<ArtifactImportEntryDto> report = new ArrayList<>(entries.size());
+      List<Artifact> artifacts = new ArrayList<>();
+      List<ArtifactLineIndex> lineIndexes = new ArrayList<>();
+      List<Integer> artifactPositions = new ArrayList<>();
+      for (int i = 0; i < entries.size(); i++) {
+        ImportEntry entry = entries.get(i);
+        String error = entry.error();
+        if (error == null) {
+          try {
+            StoredEntry stored = futures.get(i).get();
+            artifacts.add(toArtifact(project.getProjectId(), entry, stored));
+            lineIndexes.add(stored.lineIndex());
+            artifactPositions.add(i);
+          } catch (ExecutionException e) {
+            error = Objects.requireNonNullElse(e.getCause().getMessage(),
+                "The file cannot be stored.");
+          }
+        }
+        report.add(new ArtifactImportEntryDto(entry.fileName(), null, null, error));
+      }
+
+      if (artifacts.isEmpty()) {
+        response.put("msg", "No artifact imported.");
+        response.put("entries", report);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+      }
+
+      // Assign the teams in one pass, then save everything with one write per document
+      List<String> plan = planTeams(teams, artifacts.size());
+      for (int i = 0; i < artifacts.size(); i++) {
+        artifacts.get(i).setTeamId(plan.get(i));
+      }
+      artifactRepository.insert(artifacts);
+      unsavedLocations.clear();
+
+      List<String> artifactIds = new ArrayList<>(artifacts.size());
+      Map<String, List<String>> artifactIdsByTeam = new LinkedHashMap<>();
+      List<ArtifactLineIndex> savedLineIndexes = new ArrayList<>();
+      for (int i = 0; i < artifacts.size(); i++) {
+        Artifact artifact = artifacts.get(i);
+        artifactIds.add(artifact.getArtifactId());
+        ArtifactLineIndex lineIndex = lineIndexes.get(i);
+        if (lineIndex != null) {
+          lineIndex.setArtifactId(artifact.getArtifactId());
+          savedLineIndexes.add(lineIndex);
+        }
+        artifactIdsByTeam.computeIfAbsent(artifact.getTeamId(), teamId -> new ArrayList<>())
+            .add(artifact.getArtifactId());
+
+        int position = artifactPositions.get(i);
+        report.set(position, new ArtifactImportEntryDto(report.get(position).fileName(),
+            artifact.getArtifactId(), artifact.getTeamId(), null));
+      }
+      membershipRepository.addArtifactsToProject(project.getProjectId(), artifactIds);
+      artifactIdsByTeam.forEach((teamId, ids) -> {
+        membershipRepository.addArtifactsToTeam(teamId, ids);
+        irrService.invalidate(teamId);
+      });
+      artifactPreviewService.saveIndexes(savedLineIndexes);
+
+      response.put("msg", "Artifacts imported successfully.");
+      response.put("imported", artifacts.size());
+      response.put("failed", entries.size() - artifacts.size());
+      response.put("entries", report);
+      return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response.put("msg", "The import was interrupted.");
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    } catch (Exception e) {
+      log.error("Cannot import the artifacts of project {}: {}", project.getProjectId(),
+          e.getMessage());
+      response.put("msg", "An error occurred.");
+      return ResponseEntity.status(500).body(response);
+    } finally {
+      // The files were stored but no artifact points at them
+      futures.stream().filter(Objects::nonNull).forEach(future -> future.cancel(true));
+      unsavedLocations.forEach(this::releaseFile);
+      while (!resources.isEmpty()) {
+        closeQuietly(resources.pop());
+      }
+    }
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Returns the teams of a project, in the order they were added to it.
+   */
+  private List<Team> findTeams(Project project) {
+    Map<String, Team> teamsById = new HashMap<>();
+    for (Team team : teamRepository.findAllById(project.getTeamIds())) {
+      teamsById.put(team.getTeamId(), team);
+    }
+
+    List<Team> teams = new ArrayList<>();
+    for (String teamId : project.getTeamIds()) {
+      Team team = teamsById.get(teamId);
+      if (team != null) {
+        teams.add(team);
+      }
+    }
+    return teams;
+  }
+
+  /**
+   * Lists the files to import, opening the ZIP archives. The archives are copied to temporary
+   * files, so their entries can be read in parallel; they are added to the resources to close.
+   */
+  private List<ImportEntry> collectEntries(List<MultipartFile> files, Deque<Closeable> resources)
+      throws IOException {
+    List<ImportEntry> entries = new ArrayList<>();
+    for (MultipartFile file : files) {
+      String fileName = file.getOriginalFilename();
+      if (!isZip(fileName, file.getContentType())) {
+        entries.add(new ImportEntry(fileName, file.getContentType(), file.getSize(),
+            file::getInputStream, null));
+        continue;
+      }
+
+      Path temp = Files.createTempFile("artifact-import-", ".zip");
+      resources.push(() -> Files.deleteIfExists(temp));
+      file.transferTo(temp);
+
+      ZipFile zipFile;
+      try {
+        zipFile = new ZipFile(temp.toFile());
+      } catch (ZipException e) {
+        entries.add(new ImportEntry(fileName, null, -1, null, "Invalid ZIP archive."));
+        continue;
+      }
+      resources.push(zipFile);
+
+      zipFile.stream()
+          .filter(zipEntry -> !zipEntry.isDirectory() && !isHidden(zipEntry.getName()))
+          .forEach(zipEntry -> entries.add(new ImportEntry(zipEntry.getName(), null,
+              zipEntry.getSize(), () -> zipFile.getInputStream(zipEntry), null)));
+    }
+    return entries;
+  }
+
+  /**
+   * Writes an imported file to the storage and records its location among the unsaved ones.
+   * Files larger than the limit are rejected while being read, so the size declared by an
+   * archive is never trusted.
+   */
+  private StoredEntry store(ImportEntry entry, Queue<String> unsavedLocations)
+      throws IOException {
+    String contentType = ArtifactService.resolveContentType(
+        StringUtils.getFilename(entry.fileName()), entry.declaredContentType());
+    // The declared size only chooses the encoding, the limit is checked on the bytes read
+    String contentEncoding = artifactCompression.encodingFor(contentType, entry.declaredSize());
+    try (LineIndexingInputStream content = artifactPreviewService.indexing(
+        new SizeLimitedInputStream(entry.source().open(), maxEntryBytes), contentType)) {
+      String location =
+          artifactStorage.store(ArtifactCompression.encode(content, contentEncoding));
+      unsavedLocations.add(location);
+      return new StoredEntry(location, contentType, contentEncoding, content.toIndex());
+    }
+  }
+
+  private static Artifact toArtifact(String projectId, ImportEntry entry, StoredEntry stored) {
+    String fileName = StringUtils.getFilename(entry.fileName());
+    Artifact artifact = new Artifact();
+    artifact.setArtifactName(fileName);
+    artifact.setProjectId(projectId);
+    artifact.setFilePath(stored.location());
+    artifact.setFileName(fileName);
+    artifact.setContentType(stored.contentType());
+    artifact.setContentEncoding(stored.contentEncoding());
+    artifact.setTaggingOpen(true);
+    return artifact;
+  }
+
+  /**
+   * Assigns every new artifact to the team with the fewest artifacts at that point, the earliest
+   * team in the project winning ties.
+   *
+   * @param teams the teams of the project, in order
+   * @param count the number of new artifacts
+   * @return the id of the team of every new artifact
+   */
+  static List<String> planTeams(List<Team> teams, int count) {
+    PriorityQueue<TeamLoad> loads = new PriorityQueue<>(
+        Comparator.comparingInt(TeamLoad::artifacts).thenComparingInt(TeamLoad::position));
+    for (int i = 0; i < teams.size(); i++) {
+      Team team = teams.get(i);
+      loads.add(new TeamLoad(team.getTeamId(), team.getArtifactIds().size(), i));
+    }
+
+    List<String> plan = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      TeamLoad load = loads.poll();
+      plan.add(load.teamId());
+      loads.add(new TeamLoad(load.teamId(), load.artifacts() + 1, load.position()));
+    }
+    return plan;
+  }
+
+  private static boolean isZip(String fileName, String contentType) {
+    return "zip".equalsIgnoreCase(StringUtils.getFilenameExtension(fileName))
+        || "application/zip".equals(contentType)
+        || "application/x-zip-compressed".equals(contentType);
+  }
+
+  /**
+   * Tells whether an archive entry is a hidden file or metadata added by the archiver.
+   */
+  private static boolean isHidden(String entryName) {
+    for (String segment : entryName.split("/")) {
+      if (segment.startsWith(".") || segment.equals("__MACOSX")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void releaseFile(String location) {
+    try {
+      artifactStorage.release(location);
+    } catch (IOException e) {
+      log.error("Cannot release the file {}: {}", location, e.getMessage());
+    }
+  }
+
+  private static void closeQuietly(Closeable resource) {
+    try {
+      resource.close();
+    } catch (IOException e) {
+      log.warn("Cannot clean up after the import: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * An input stream failing once more than a given number of bytes is read.
+   */
+  private static final class SizeLimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long count;
+
+    private SizeLimitedInputStream(InputStream in, long limit) {
+      super(in);
+      this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      count(skipped);
+      return skipped;
+    }
+
+    private void count(long read) throws IOException {
+      count += read;
+      if (count > limit) {
+        throw new IOException("File larger than " + limit + " bytes.");
+      }
+    }
+  }
+}
@@ -0,0 +1,359 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ArtifactLineIndexRepository;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import it.unisannio.studenti.qualitag.storage.StoredFile;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+/**
+ * The service class for the preview of text artifacts, a window of lines at a time.
+ *
+ * <p>Where every given number of lines starts is recorded once, when the file is uploaded, so a
+ * window is read from the closest recorded line on. Files on the local disk are read by mapping
+ * the window in memory. Compressed files are decompressed once per request, up to the window and
+ * through it; only files up to {@code artifact.compression.max-bytes} are compressed, so the large
+ * ones are always read in place.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArtifactPreviewService {
+
+  private final ArtifactLineIndexRepository artifactLineIndexRepository;
+  private final ArtifactRepository artifactRepository;
+  private final ProjectRepository projectRepository;
+  private final UserRepository userRepository;
+
+  private final ArtifactStorage artifactStorage;
+
+  @Value("${artifact.preview.index-step:1000}")
+  int indexStep = 1000;
+
+  @Value("${artifact.preview.max-lines:1000}")
+  int maxLines = 1000;
+
+  @Value("${artifact.preview.max-window-bytes:1048576}")
+  int maxWindowBytes = 1024 * 1024;
+
+  // GET
+
+  /**
+   * Retrieves a window of lines of a text artifact.
+   *
+   * @param artifactId the ID of the artifact
+   * @param offset     the first line to retrieve, counting from 0
+   * @param lines      the number of lines to retrieve
+   * @return the response entity with the lines, the content type and the number of lines of the
+   *         artifact, and the offset of the next window, null if the artifact ends with this one
+   */
+  public ResponseEntity<?> getPreview(String artifactId, long offset, int lines) {
+    Map<String, Object> response = new HashMap<>();
+
+    // Check the window
+    if (offset < 0) {
+      response.put("msg", "The offset must not be negative.");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+    if (lines < 1 || lines > maxLines) {
+      response.put("msg", "The number of lines must be between 1 and " + maxLines + ".");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    // Retrieve the artifact data
+    Artifact artifact = artifactRepository.findArtifactByArtifactId(artifactId);
+    if (artifact == null) {
+      response.put("msg", "Artifact not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    // Check if the user is authorized to view the artifact
+    User user = userRepository.findByUserId(getLoggedInUserId());
+    Project project = projectRepository.findProjectByProjectId(artifact.getProjectId());
+    if (user == null) {
+      response.put("msg", "User not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+    if (!(project.getOwnerId().equals(user.getUserId()) || user.getTeamIds()
+        .contains(artifact.getTeamId()))) {
+      response.put("msg", "User is not authorized to view this artifact.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    try {
+      // Only text has lines
+      String contentType = artifact.getContentType();
+      if (contentType == null) {
+        String fileName = artifact.getFileName() != null ? artifact.getFileName()
+            : Paths.get(artifact.getFilePath()).getFileName().toString();
+        contentType = ArtifactService.resolveContentType(fileName, null);
+      }
+      if (!ArtifactCompression.isText(contentType)) {
+        response.put("msg", "Only text artifacts can be previewed.");
+        return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(response);
+      }
+
+      StoredFile file = artifactStorage.open(artifact.getFilePath());
+      if (file == null) {
+        response.put("msg", "File not found.");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+      }
+
+      ArtifactLineIndex index = findIndex(artifact, file);
+      List<String> window = offset < index.getLineCount()
+          ? readLines(file, artifact.getContentEncoding(), index, offset, lines) : List.of();
+      long next = offset + window.size();
+
+      response.put("msg", "Artifact preview retrieved successfully.");
+      response.put("contentType", contentType);
+      response.put("offset", offset);
+      response.put("lines", window);
+      response.put("totalLines", index.getLineCount());
+      response.put("nextOffset", next < index.getLineCount() ? next : null);
+      return ResponseEntity.status(HttpStatus.OK).body(response);
+    } catch (IOException e) {
+      log.error("Cannot preview the artifact {}: {}", artifactId, e.getMessage());
+      response.put("msg", "The artifact cannot be read.");
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+  }
+
+  // POST
+
+  /**
+   * Wraps the content of a file being stored, to index its lines if it is text.
+   *
+   * @param content     the content of the file, as uploaded
+   * @param contentType the content type of the file
+   * @return the content, read through
+   */
+  LineIndexingInputStream indexing(InputStream content, String contentType) {
+    return new LineIndexingInputStream(content,
+        ArtifactCompression.isText(contentType) ? indexStep : 0);
+  }
+
+  /**
+   * Saves the index of the lines of a new artifact, if its file was indexed while it was stored.
+   * If the index cannot be saved, it is built again by the first preview.
+   *
+   * @param artifactId the ID of the saved artifact
+   * @param content    the content of its file, read to the end
+   */
+  void saveIndex(String artifactId, LineIndexingInputStream content) {
+    ArtifactLineIndex index = content.toIndex();
+    if (index == null) {
+      return;
+    }
+    index.setArtifactId(artifactId);
+    saveIndexes(List.of(index));
+  }
+
+  /**
+   * Saves the indexes of the lines of new artifacts at once.
+   *
+   * @param indexes the indexes, with their artifact IDs
+   */
+  void saveIndexes(List<ArtifactLineIndex> indexes) {
+    if (indexes.isEmpty()) {
+      return;
+    }
+    try {
+      artifactLineIndexRepository.insert(indexes);
+    } catch (RuntimeException e) {
+      log.warn("Cannot save the line indexes of {} artifacts, they are built on preview: {}",
+          indexes.size(), e.getMessage());
+    }
+  }
+
+  // DELETE
+
+  /**
+   * Deletes the index of the lines of a deleted artifact.
+   *
+   * @param artifactId the ID of the artifact
+   */
+  void deleteIndex(String artifactId) {
+    artifactLineIndexRepository.deleteById(artifactId);
+  }
+
+  // UTILITY METHODS
+
+  private String getLoggedInUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()) {
+      throw new IllegalStateException("No authenticated user found.");
+    }
+
+    Object principal = authentication.getPrincipal();
+    if (principal instanceof CustomUserDetails(User user)) {
+      return user.getUserId();
+    }
+    throw new IllegalStateException(
+        "Unexpected authentication principal type: " + principal.getClass() + ".");
+  }
+
+  /**
+   * Returns the index of the lines of an artifact, building it once for the artifacts uploaded
+   * before they were indexed.
+   */
+  private ArtifactLineIndex findIndex(Artifact artifact, StoredFile file) throws IOException {
+    ArtifactLineIndex index =
+        artifactLineIndexRepository.findById(artifact.getArtifactId()).orElse(null);
+    if (index != null) {
+      return index;
+    }
+
+    try (LineIndexingInputStream content = new LineIndexingInputStream(
+        ArtifactCompression.decode(file.openStream(), artifact.getContentEncoding()),
+        indexStep)) {
+      content.transferTo(OutputStream.nullOutputStream());
+      index = content.toIndex();
+    }
+    index.setArtifactId(artifact.getArtifactId());
+    return artifactLineIndexRepository.save(index);
+  }
+
+  /**
+   * Reads lines from the closest recorded line before the offset, a window of bytes at a time.
+   * A line longer than a window is cut to the window.
+   */
+  private List<String> readLines(StoredFile file, String contentEncoding,
+      ArtifactLineIndex index, long offset, int count) throws IOException {
+    int step = index.getStep();
+    List<Long> checkpoints = index.getCheckpoints();
+    long start = checkpoints.get((int) (offset / step));
+    long skip = offset % step;
+
+    // The window ends at the recorded line after the last one, or at the end of the file
+    long lastLine = Math.min(offset + count, index.getLineCount());
+    int endCheckpoint = (int) ((lastLine + step - 1) / step);
+    long end = endCheckpoint < checkpoints.size() ? checkpoints.get(endCheckpoint)
+        : index.getSize();
+
+    List<String> lines = new ArrayList<>(count);
+    try (DecodedWindows decoded = contentEncoding == null ? null
+        : new DecodedWindows(ArtifactCompression.decode(file.openStream(), contentEncoding),
+            start)) {
+      while (lines.size() < count && start < end) {
+        int length = (int) Math.min(end - start, maxWindowBytes);
+        ByteBuffer window = decoded == null ? file.read(start, length)
+            : decoded.read(start, length);
+        int limit = window.limit();
+        if (limit == 0) {
+          break;
+        }
+
+        // Skip the lines before the offset
+        int position = 0;
+        while (skip > 0 && position < limit) {
+          if (window.get(position++) == '\n') {
+            skip--;
+          }
+        }
+
+        int lineStart = position;
+        for (; position < limit && lines.size() < count; position++) {
+          if (window.get(position) == '\n') {
+            lines.add(decode(window, lineStart, position));
+            lineStart = position + 1;
+          }
+        }
+        if (lines.size() == count) {
+          break;
+        }
+        if (start + limit >= index.getSize()) {
+          // The last line has no final newline
+          if (skip == 0 && lineStart < limit) {
+            lines.add(decode(window, lineStart, limit));
+          }
+          break;
+        }
+        if (skip == 0 && lineStart == 0) {
+          // The line fills the window: it is cut, and the rest of it is skipped
+          lines.add(decode(window, 0, limit));
+          skip = 1;
+          lineStart = limit;
+        }
+        start += skip > 0 ? limit : lineStart;
+      }
+    }
+    return lines;
+  }
+
+  private static String decode(ByteBuffer window, int from, int to) {
+    if (to > from && window.get(to - 1) == '\r') {
+      to--;
+    }
+    return StandardCharsets.UTF_8.decode(window.slice(from, to - from)).toString();
+  }
+
+  /**
+   * Reads the windows of a compressed file from a single decompressing stream. The windows move
+   * forward, each starting within or right after the previous one, so the bytes already read are
+   * kept instead of decompressing the file again from its start.
+   */
+  private static final class DecodedWindows implements Closeable {
+
+    private final InputStream content;
+    // The last window read, and where it starts in the file
+    private byte[] window = new byte[0];
+    private long position;
+
+    DecodedWindows(InputStream content, long start) throws IOException {
+      this.content = content;
+      this.position = start;
+      try {
+        content.skipNBytes(start);
+      } catch (IOException e) {
+        content.close();
+        throw e;
+      }
+    }
+
+    ByteBuffer read(long start, int count) throws IOException {
+      int from = (int) (start - position);
+      if (from < 0 || from > window.length) {
+        throw new IllegalArgumentException("The windows must move forward.");
+      }
+      byte[] next = new byte[count];
+      int kept = Math.min(window.length - from, count);
+      System.arraycopy(window, from, next, 0, kept);
+      int read = kept + content.readNBytes(next, kept, count - kept);
+      window = read == count ? next : Arrays.copyOf(next, read);
+      position = start;
+      return ByteBuffer.wrap(window);
+    }
+
+    @Override
+    public void close() throws IOException {
+      content.close();
+    }
+  }
+}
@@ -1,73 +1,91 @@
 package it.unisannio.studenti.qualitag.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import it.unisannio.studenti.qualitag.dto.artifact.AddTagsToArtifactDto;
 import it.unisannio.studenti.qualitag.dto.artifact.ArtifactCreateDto;
 import it.unisannio.studenti.qualitag.dto.artifact.WholeArtifactDto;
-import it.unisannio.studenti.qualitag.dto.tag.TagCreateDto;
 import it.unisannio.studenti.qualitag.dto.tag.TagResponseDto;
 import it.unisannio.studenti.qualitag.mapper.ArtifactMapper;
 import it.unisannio.studenti.qualitag.mapper.TagMapper;
 import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.JobType;
 import it.unisannio.studenti.qualitag.model.Project;
 import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
 import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
 import it.unisannio.studenti.qualitag.security.service.AuthenticationService;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import it.unisannio.studenti.qualitag.storage.OrphanFileCollector;
+import it.unisannio.studenti.qualitag.storage.StoredFile;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
  * The service class for the artifact.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ArtifactService {
 
-  private static final String UPLOAD_DIR = "artifacts/";
   private final ArtifactRepository artifactRepository;
+  private final MembershipRepository membershipRepository;
   private final ProjectRepository projectRepository;
   private final TagRepository tagRepository;
   private final TeamRepository teamRepository;
   private final UserRepository userRepository;
 
+  private final ArtifactStorage artifactStorage;
+  private final ArtifactCompression artifactCompression;
+  private final ArtifactPreviewService artifactPreviewService;
+  private final OrphanFileCollector orphanFileCollector;
+  private final IrrService irrService;
+  private final JobService jobService;
   private final PythonClientService pythonClientService;
-  private final TagService tagService;
+  private final TagConsolidationService tagConsolidationService;
 
   private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
   private final Validator validator = factory.getValidator();
 
+  // The largest file of a single upload; larger files are uploaded in chunks
+  @Value("${artifact.max-file-bytes:10485760}")
+  long maxFileBytes = 10 * 1024 * 1024;
+
   // POST
 
   /**
@@ -78,6 +96,7 @@ public class ArtifactService {
    */
   public ResponseEntity<?> addArtifact(ArtifactCreateDto artifactCreateDto) {
     Map<String, Object> response = new HashMap<>();
+    String filePath = null;
 
     try {
       // Validate the DTO
@@ -87,6 +106,11 @@ public class ArtifactService {
         response.put("msg", "Invalid artifact data.");
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
       }
+      if (artifactCreateDto.file().getSize() > maxFileBytes) {
+        response.put("msg", "File too large, at most " + maxFileBytes
+            + " bytes are allowed; upload larger files in chunks.");
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+      }
 
       // Check if the project exists
       Project project = projectRepository.findProjectByProjectId(artifactCreateDto.projectId());
@@ -102,43 +126,34 @@ public class ArtifactService {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
       }
 
-      // Save the file to the server's file system
-      String filePath = saveFile(artifactCreateDto.file());
+      // Save the file to the server's file system, compressed and with its lines indexed if it
+      // is text
+      MultipartFile file = artifactCreateDto.file();
+      String fileName = StringUtils.getFilename(file.getOriginalFilename());
+      String contentType = resolveContentType(fileName, file.getContentType());
+      String contentEncoding = artifactCompression.encodingFor(contentType, file.getSize());
+      LineIndexingInputStream content =
+          artifactPreviewService.indexing(file.getInputStream(), contentType);
+      filePath = artifactStorage.store(ArtifactCompression.encode(content, contentEncoding));
 
       // Convert the DTO to an entity
       Artifact artifact = ArtifactMapper.toEntity(artifactCreateDto);
       artifact.setFilePath(filePath);
+      artifact.setFileName(fileName);
+      artifact.setContentType(contentType);
+      artifact.setContentEncoding(contentEncoding);
       artifact.setTaggingOpen(true);
 
-      // Find the team with the least artifacts
-      String minTeamId = null;
-      int minSize = Integer.MAX_VALUE;
-      List<String> teamIds = project.getTeamIds();
-
-      for (String teamId : teamIds) {
-        Team team = teamRepository.findTeamByTeamId(teamId);
-        List<String> artifactIds = team.getArtifactIds();
-
-        if (artifactIds.size() < minSize) {
-          minSize = artifactIds.size();
-          minTeamId = teamId;
-        }
-      }
-
       // Add the artifact to the team with the least artifacts
-      Team team = teamRepository.findTeamByTeamId(minTeamId);
-      artifact.setTeamId(team.getTeamId());
+      assignLeastLoadedTeam(project, artifact);
 
       // Save the artifact to the database
       artifactRepository.save(artifact);
+      filePath = null;
+      artifactPreviewService.saveIndex(artifact.getArtifactId(), content);
 
-      // Add the artifact to the project
-      project.getArtifactIds().add(artifact.getArtifactId());
-      projectRepository.save(project);
-
-      // Add the artifact to the team
-      team.getArtifactIds().add(artifact.getArtifactId());
-      teamRepository.save(team);
+      // Add the artifact to the project and to the team
+      linkNewArtifact(project, artifact);
     } catch (IOException e) {
       response.put("msg", "File upload failed.");
       response.put("error_message", e.getMessage());
@@ -148,6 +163,11 @@ public class ArtifactService {
       e.printStackTrace();
       response.put("msg", "An error occurred.");
       return ResponseEntity.status(500).body(response);
+    } finally {
+      // The file was stored but no artifact points at it
+      if (filePath != null) {
+        releaseFile(filePath);
+      }
     }
 
     response.put("msg", "Artifact created successfully.");
@@ -163,6 +183,18 @@ public class ArtifactService {
    * @return the response entity with the file of the artifact
    */
   public ResponseEntity<?> getArtifact(String artifactId) {
+    return getArtifact(artifactId, new HttpHeaders());
+  }
+
+  /**
+   * Retrieves the file of the artifact given its ID, or the byte ranges of it requested with the
+   * Range header.
+   *
+   * @param artifactId     the ID of the artifact to retrieve
+   * @param requestHeaders the headers of the request, read for Range and If-Range
+   * @return the response entity with the file of the artifact, or the requested ranges of it
+   */
+  public ResponseEntity<?> getArtifact(String artifactId, HttpHeaders requestHeaders) {
     Map<String, Object> response = new HashMap<>();
 
     // Retrieve the artifact data
@@ -185,31 +217,34 @@ public class ArtifactService {
       return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
     }
 
-    // Check if the file exists
-    Path filePath = Paths.get(artifact.getFilePath());
-    if (!Files.exists(filePath)) {
-      response.put("msg", "File not found.");
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-    }
-
     // Retrieve and return the file
     try {
-      Resource file = new FileSystemResource(filePath);
-      String contentType = Files.probeContentType(filePath);
+      StoredFile file = artifactStorage.open(artifact.getFilePath());
+      if (file == null) {
+        response.put("msg", "File not found.");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+      }
+
+      // Artifacts stored before the upload name was kept are named after their path
+      String fileName = artifact.getFileName() != null
+          ? artifact.getFileName() : Paths.get(artifact.getFilePath()).getFileName().toString();
 
-      // Fallback if it cannot determine the content type
+      // Artifacts uploaded before the content type was stored get it once, here
+      String contentType = artifact.getContentType();
       if (contentType == null) {
-        contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        contentType = resolveContentType(fileName, null);
+        artifactRepository.setContentType(artifactId, contentType);
       }
 
-      HttpHeaders headers = new HttpHeaders();
-      headers.add(HttpHeaders.CONTENT_DISPOSITION,
-          "attachment; filename=" + file.getFilename() + "\"");
-      headers.setContentType(MediaType.parseMediaType(contentType));
-      headers.setContentLength(Files.size(filePath));
-
-      // return new ResponseEntity<>(file, headers, HttpStatus.OK);
-      return ResponseEntity.ok().headers(headers).body(file);
+      // The name given by the uploader is quoted, and encoded if it is not ASCII
+      String contentDisposition = ContentDisposition.attachment()
+          .filename(fileName, StandardCharsets.UTF_8).build().toString();
+      if (artifact.getContentEncoding() != null) {
+        return ArtifactDownload.ofEncoded(file, artifact.getContentEncoding(),
+            MediaType.parseMediaType(contentType), contentDisposition, requestHeaders);
+      }
+      return ArtifactDownload.of(file, MediaType.parseMediaType(contentType),
+          contentDisposition, requestHeaders);
     } catch (IOException e) {
       // Log the exception properly
       e.printStackTrace();
@@ -341,6 +376,7 @@ public class ArtifactService {
     }
 
     // Check tags
+    List<Tag> tags = new ArrayList<>();
     for (String tagId : dto.tagIds()) {
       // Check if the tag id is null or empty
       if (tagId == null || tagId.isEmpty()) {
@@ -376,17 +412,13 @@ public class ArtifactService {
           return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
         }
       }
+      tags.add(tag);
     }
 
     // If all checks pass, add the tags to the artifact
-    for (String tagId : dto.tagIds()) {
-      Tag tag = tagRepository.findTagByTagId(tagId);
-      tag.getArtifactIds().add(artifact.getArtifactId());
-      tagRepository.save(tag);
-
-      artifact.getTags().add(tagId);
-      artifactRepository.save(artifact);
-    }
+    membershipRepository.addArtifactToTags(dto.tagIds(), artifact.getArtifactId());
+    membershipRepository.addTagsToArtifact(artifact.getArtifactId(), dto.tagIds());
+    irrService.tagsAdded(artifact.getArtifactId(), tags);
 
     response.put("msg", "Tags added successfully.");
     return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -396,7 +428,7 @@ public class ArtifactService {
    * Processes the tags of an artifact.
    *
    * @param artifactId the ID of the artifact to process the tags
-   * @return the response entity with the result of the tag processing
+   * @return the response entity with the id of the job processing the tags
    */
   public ResponseEntity<?> processTags(String artifactId) {
     Map<String, Object> response = new HashMap<>();
@@ -420,88 +452,21 @@ public class ArtifactService {
       return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
     }
 
-    // Get the value of all the tags
-    List<String> tagValues = new ArrayList<>();
-    for (String tagId : artifact.getTags()) {
-      Tag tag = tagRepository.findTagByTagId(tagId);
-      tagValues.add(tag.getTagValue());
-    }
-
-    // Remove tags from artifact
-    for (String tagId : artifact.getTags()) {
-      ResponseEntity<?> removeTagResponse = removeTag(artifactId, tagId);
-      if (removeTagResponse.getStatusCode() != HttpStatus.OK) {
-        response.put("msg", "Error removing tags from artifact.");
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-      }
-    }
-
-    // Call the Python service to process the tags
-    String processedTags = pythonClientService.processTags(tagValues);
-    if (processedTags == null) {
-      response.put("msg", "Error processing tags.");
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-    }
-
-    // Parse the processed tags and put them in a list
-    List<String> processedTagsList = new ArrayList<>();
-    try {
-      ObjectMapper objectMapper = new ObjectMapper();
-      JsonNode jsonNode = objectMapper.readTree(processedTags);
-
-      JsonNode resultNode = jsonNode.get("result");
-
-      if (resultNode.isArray()) {
-        for (JsonNode element : resultNode) { // Iterate through the array
-          processedTagsList.add(element.asText()); // Add each element as a string to the list
-        }
-      } else {
-        response.put("msg", "Error: 'result' is not an array.");
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-      }
-    } catch (JsonProcessingException e) {
-      response.put("msg", "Error processing JSON.");
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-          .body(response + e.getMessage());
-    }
-
-    // Create tags from the processed tags and add them
-    List<String> tagIds = new ArrayList<>();
-    for (String tagValue : processedTagsList) {
-      ResponseEntity<?> responseRequest = tagService.createTag(
-          new TagCreateDto(tagValue, this.getLoggedInUserId(), "#000000"));
-
-      if (responseRequest.getStatusCode() != HttpStatus.CREATED
-          && responseRequest.getStatusCode() != HttpStatus.CONFLICT) {
-        response.put("msg", "Error creating tags from processed tags.");
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-      }
-
-      // Insert tag ID in tagIds
-      Map<String, String> map = new HashMap<>();
-      String responseBody = responseRequest.getBody().toString();
-
-      // Remove curly braces and split into key-value pairs
-      String[] pairs = responseBody.substring(1, responseBody.length() - 1).split(",");
-
-      for (String pair : pairs) {
-        String[] keyValue = pair.split("=");
-        if (keyValue.length == 2) { // Handle cases where a key might not have a value
-          map.put(keyValue[0].trim(), keyValue[1].trim()); // Trim whitespace
-        } else if (keyValue.length == 1) {
-          map.put(keyValue[0].trim(), ""); // Handle missing values
-        }
-      }
-
-      tagIds.add(map.get("tagId"));
-    }
-
-    // Add tags to artifact
-    this.addTags(artifactId, new AddTagsToArtifactDto(tagIds));
-
-    response.put("msg", "Tags processed successfully.");
-    response.put("processedTags", processedTagsList);
-    return ResponseEntity.status(HttpStatus.OK).body(response);
+    // Consolidate the tags of the artifact in the background, read at once and rewritten in bulk
+    return jobService.submit(JobType.TAG_PROCESSING, artifact.getProjectId(), user.getUserId(),
+        progress -> {
+          Artifact current = artifactRepository.findArtifactByArtifactId(artifactId);
+          if (current == null) {
+            throw new IllegalStateException("Artifact not found.");
+          }
+          List<Tag> tags = tagRepository.findAllById(current.getTags());
+          TagConsolidationService.Result result = tagConsolidationService.consolidate(tags,
+              Collections.singletonList(artifactId), progress);
+
+          Map<String, Object> processed = new HashMap<>();
+          processed.put("processedTags", result.tagValues());
+          return processed;
+        });
   }
 
   // DELETE
@@ -549,31 +514,21 @@ public class ArtifactService {
     }
 
     // Remove the artifact from the project
-    project.getArtifactIds().remove(artifact.getArtifactId());
-    projectRepository.save(project);
+    membershipRepository.removeArtifactFromProject(project.getProjectId(), id);
 
     // Remove the artifact from the team
-    team.getArtifactIds().remove(artifact.getArtifactId());
-    teamRepository.save(team);
+    membershipRepository.removeArtifactFromTeam(team.getTeamId(), id);
+    irrService.invalidate(team.getTeamId());
 
     // Remove the artifact from the tags
-    for (String tagId : artifact.getTags()) {
-      Tag tag = tagRepository.findTagByTagId(tagId);
-      tag.getArtifactIds().remove(artifact.getArtifactId());
-      tagRepository.save(tag);
-    }
+    membershipRepository.removeArtifactFromTags(artifact.getTags(), id);
 
     // Delete the artifact from the database
     artifactRepository.deleteArtifactByArtifactId(id);
+    artifactPreviewService.deleteIndex(id);
 
-    // Delete the file from the system
-    try {
-      Path filePath = Paths.get(artifact.getFilePath());
-      Files.delete(filePath);
-    } catch (IOException e) {
-      response.put("msg", "File deletion failed.");
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-    }
+    // Delete the file in the background, unless other artifacts share it
+    orphanFileCollector.releaseLater(artifact.getFilePath());
 
     // Check if the artifact was deleted
     if (!artifactRepository.existsById(id)) {
@@ -632,12 +587,11 @@ public class ArtifactService {
     }
 
     // Remove the artifact from the tag
-    tag.getArtifactIds().remove(artifactId);
-    tagRepository.save(tag);
+    membershipRepository.removeArtifactFromTag(tagId, artifactId);
 
     // Remove the tag from the artifact
-    artifact.getTags().remove(tagId);
-    artifactRepository.save(artifact);
+    membershipRepository.removeTagFromArtifact(artifactId, tagId);
+    irrService.tagRemoved(artifactId, tagId);
 
     response.put("msg", "Tag removed successfully.");
     return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -659,22 +613,64 @@ public class ArtifactService {
         "Unexpected authentication principal type: " + principal.getClass() + ".");
   }
 
-  private String saveFile(MultipartFile file) throws IOException {
-    // Generate a unique file name by appending a UUID to the original file name.
-    String uniqueFileName = UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
+  /**
+   * Assigns a new artifact to the team of its project with the fewest artifacts.
+   *
+   * @param project  the project of the artifact
+   * @param artifact the new artifact
+   */
+  void assignLeastLoadedTeam(Project project, Artifact artifact) {
+    String minTeamId = null;
+    int minSize = Integer.MAX_VALUE;
+    for (String teamId : project.getTeamIds()) {
+      Team team = teamRepository.findTeamByTeamId(teamId);
+      List<String> artifactIds = team.getArtifactIds();
+
+      if (artifactIds.size() < minSize) {
+        minSize = artifactIds.size();
+        minTeamId = teamId;
+      }
+    }
 
-    // Construct the path where the file will be saved using the upload directory
-    // and the unique file name.
-    Path path = Paths.get(System.getProperty("user.dir"), "..", UPLOAD_DIR, uniqueFileName);
+    Team team = teamRepository.findTeamByTeamId(minTeamId);
+    artifact.setTeamId(team.getTeamId());
+  }
 
-    // Create any necessary directories in the path if they do not already exist.
-    Files.createDirectories(path.getParent());
+  /**
+   * Adds a saved artifact to its project and to its team.
+   *
+   * @param project  the project of the artifact
+   * @param artifact the saved artifact
+   */
+  void linkNewArtifact(Project project, Artifact artifact) {
+    membershipRepository.addArtifactToProject(project.getProjectId(), artifact.getArtifactId());
+    membershipRepository.addArtifactToTeam(artifact.getTeamId(), artifact.getArtifactId());
+    irrService.invalidate(artifact.getTeamId());
+  }
 
-    // Transfer the contents of the multipart file to the target file on the file system.
-    file.transferTo(path.toFile());
+  private void releaseFile(String filePath) {
+    try {
+      artifactStorage.release(filePath);
+    } catch (IOException e) {
+      log.error("Cannot release the file {}: {}", filePath, e.getMessage());
+    }
+  }
 
-    // Return the path to the saved file as a string.
-    return path.toString();
+  /**
+   * Returns the content type of a file: the one guessed from its name, else the one sent by the
+   * client, else application/octet-stream.
+   */
+  static String resolveContentType(String fileName, String declaredContentType)
+      throws IOException {
+    String contentType = fileName == null ? null : Files.probeContentType(Paths.get(fileName));
+    if (contentType == null) {
+      contentType = declaredContentType;
+    }
+    try {
+      return MediaType.parseMediaType(contentType).toString();
+    } catch (InvalidMediaTypeException e) {
+      return MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
   }
 
   /**
@@ -820,20 +816,7 @@ public class ArtifactService {
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
-    for (String id : artifactIds) {
-      Artifact artifact = artifactRepository.findArtifactByArtifactId(id);
-      if (artifact == null) {
-        response.put("msg", "Artifact not found.");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-      }
-
-      artifact.setTaggingOpen(true);
-
-      artifactRepository.save(artifact);
-    }
-
-    response.put("msg", "Tagging started successfully for all artifacts.");
-    return ResponseEntity.status(HttpStatus.OK).body(response);
+    return setTaggingOpen(artifactIds, true, "Tagging started successfully for all artifacts.");
   }
 
   /**
@@ -878,19 +861,43 @@ public class ArtifactService {
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
-    for (String id : artifactIds) {
-      Artifact artifact = artifactRepository.findArtifactByArtifactId(id);
-      if (artifact == null) {
-        response.put("msg", "Artifact not found.");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-      }
+    return setTaggingOpen(artifactIds, false, "Tagging stopped successfully for all artifacts.");
+  }
+
+  /**
+   * Opens or closes tagging on a list of artifacts with a single bulk update. The artifacts that
+   * are found are updated even if some of the others are missing.
+   *
+   * @param artifactIds the list of artifact ids to update
+   * @param open        true to open tagging, false to close it
+   * @param successMsg  the message to return if all the artifacts are found
+   * @return the response entity, with the updated and the missing artifact ids
+   */
+  private ResponseEntity<?> setTaggingOpen(List<String> artifactIds, boolean open,
+      String successMsg) {
+    Map<String, Object> response = new HashMap<>();
 
-      artifact.setTaggingOpen(false);
+    List<String> requestedIds = new ArrayList<>(new LinkedHashSet<>(artifactIds));
+    long matched = artifactRepository.setTaggingOpen(requestedIds, open);
 
-      artifactRepository.save(artifact);
+    // Only look for the missing artifacts if the update did not match all of them
+    List<String> updatedIds = requestedIds;
+    if (matched < requestedIds.size()) {
+      Set<String> existingIds =
+          new HashSet<>(artifactRepository.findExistingArtifactIds(requestedIds));
+      updatedIds = requestedIds.stream().filter(existingIds::contains).toList();
+    }
+    List<String> missingIds = new ArrayList<>(requestedIds);
+    missingIds.removeAll(updatedIds);
+
+    response.put("updatedIds", updatedIds);
+    response.put("missingIds", missingIds);
+    if (!missingIds.isEmpty()) {
+      response.put("msg", "Artifact not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
-    response.put("msg", "Tagging stopped successfully for all artifacts.");
+    response.put("msg", successMsg);
     return ResponseEntity.status(HttpStatus.OK).body(response);
   }
 
@@ -0,0 +1,515 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.dto.artifact.ChunkedUploadCreateDto;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.UploadSession;
+import it.unisannio.studenti.qualitag.model.UploadSessionStatus;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.UploadSessionRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import it.unisannio.studenti.qualitag.security.service.AuthenticationService;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * The service uploading artifacts in chunks, so large files are sent with bounded memory and an
+ * interrupted upload resumes from the last received byte.
+ *
+ * <p>An upload is begun with the size of the file, then its chunks are sent in order, each with
+ * its SHA-256 digest, and written straight to a temporary file at their offset. A chunk whose
+ * digest does not match is not counted, and can be sent again. Once the whole file is received,
+ * the upload is committed: the file is moved into the artifact storage and the artifact created.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+  public static final String CHUNK_CHECKSUM_HEADER = "X-Chunk-Sha256";
+
+  private static final Pattern SHA256 = Pattern.compile("[0-9a-fA-F]{64}");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final ArtifactService artifactService;
+  private final ArtifactRepository artifactRepository;
+  private final ProjectRepository projectRepository;
+  private final UploadSessionRepository uploadSessionRepository;
+  private final UserRepository userRepository;
+
+  private final ArtifactStorage artifactStorage;
+  private final ArtifactCompression artifactCompression;
+  private final ArtifactPreviewService artifactPreviewService;
+
+  private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+  private final Validator validator = factory.getValidator();
+
+  // The uploads receiving a chunk right now, on this instance
+  private final Set<String> receiving = ConcurrentHashMap.newKeySet();
+
+  @Value("${artifact.upload.dir:../artifacts/uploads}")
+  String uploadDir = "../artifacts/uploads";
+
+  @Value("${artifact.upload.max-file-bytes:2147483648}")
+  long maxFileBytes = 2L * 1024 * 1024 * 1024;
+
+  @Value("${artifact.upload.max-chunk-bytes:8388608}")
+  long maxChunkBytes = 8 * 1024 * 1024;
+
+  @Value("${artifact.upload.ttl-ms:86400000}")
+  long ttlMs = 24 * 60 * 60 * 1000;
+
+  // POST
+
+  /**
+   * Begins the upload of an artifact in chunks.
+   *
+   * @param chunkedUploadCreateDto the artifact data and the size of the file
+   * @return the response entity with the id of the upload
+   */
+  public ResponseEntity<?> beginUpload(ChunkedUploadCreateDto chunkedUploadCreateDto) {
+    Map<String, Object> response = new HashMap<>();
+
+    // Validate the DTO
+    Set<ConstraintViolation<ChunkedUploadCreateDto>> violations =
+        validator.validate(chunkedUploadCreateDto);
+    if (!violations.isEmpty()) {
+      response.put("msg", "Invalid artifact data.");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+    if (chunkedUploadCreateDto.size() > maxFileBytes) {
+      response.put("msg", "File too large, at most " + maxFileBytes + " bytes are allowed.");
+      return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+    }
+
+    // Check if the project exists
+    Project project = projectRepository.findProjectByProjectId(chunkedUploadCreateDto.projectId());
+    if (project == null) {
+      response.put("msg", "Project not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    // Check if the logged-in user is the owner of the project
+    User user = userRepository.findByUserId(project.getOwnerId());
+    if (AuthenticationService.getAuthority(user.getUsername())) {
+      response.put("msg", "User is not the project owner.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    long now = System.currentTimeMillis();
+    UploadSession session = new UploadSession();
+    session.setProjectId(project.getProjectId());
+    session.setOwnerId(project.getOwnerId());
+    session.setArtifactName(chunkedUploadCreateDto.artifactName());
+    session.setDescription(chunkedUploadCreateDto.description());
+    session.setFileName(StringUtils.getFilename(chunkedUploadCreateDto.fileName()));
+    session.setContentType(chunkedUploadCreateDto.contentType());
+    session.setSize(chunkedUploadCreateDto.size());
+    session.setSha256(chunkedUploadCreateDto.sha256() == null
+        ? null : chunkedUploadCreateDto.sha256().toLowerCase());
+    session.setStatus(UploadSessionStatus.OPEN);
+    session.setCreatedAt(now);
+    session.setUpdatedAt(now);
+    uploadSessionRepository.save(session);
+
+    try {
+      Files.createDirectories(getUploadRoot());
+      Files.createFile(partFile(session.getUploadId()));
+    } catch (IOException e) {
+      log.error("Cannot create the file of upload {}: {}", session.getUploadId(),
+          e.getMessage());
+      uploadSessionRepository.deleteById(session.getUploadId());
+      response.put("msg", "File upload failed.");
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    response.put("msg", "Upload started.");
+    response.put("uploadId", session.getUploadId());
+    response.put("maxChunkBytes", maxChunkBytes);
+    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+  }
+
+  /**
+   * Commits an upload whose file was received in full, creating the artifact.
+   *
+   * @param uploadId the id of the upload
+   * @return the response entity with the id of the new artifact
+   */
+  public ResponseEntity<?> commitUpload(String uploadId) {
+    Map<String, Object> response = new HashMap<>();
+
+    UploadSession session = uploadSessionRepository.findById(uploadId).orElse(null);
+    ResponseEntity<?> error = checkSession(session, response);
+    if (error != null) {
+      return error;
+    }
+    if (session.getReceived() != session.getSize()) {
+      response.put("msg", "Upload incomplete.");
+      response.put("received", session.getReceived());
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    if (uploadSessionRepository.claimCommit(uploadId, System.currentTimeMillis()) == null) {
+      response.put("msg", "Upload is already being committed.");
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    Project project = projectRepository.findProjectByProjectId(session.getProjectId());
+    if (project == null) {
+      discard(uploadId);
+      response.put("msg", "Project not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    // Check the whole file, then move it into the storage, or compress it there if it is text
+    Path part = partFile(uploadId);
+    String contentType;
+    String contentEncoding;
+    String filePath;
+    LineIndexingInputStream content = null;
+    try {
+      if (session.getSha256() != null && !session.getSha256().equals(digestOf(part))) {
+        discard(uploadId);
+        response.put("msg", "File checksum mismatch, the upload must be restarted.");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+      }
+      contentType = ArtifactService.resolveContentType(session.getFileName(),
+          session.getContentType());
+      contentEncoding = artifactCompression.encodingFor(contentType, session.getSize());
+      content = artifactPreviewService.indexing(Files.newInputStream(part), contentType);
+      if (contentEncoding != null) {
+        try (InputStream in = ArtifactCompression.encode(content, contentEncoding)) {
+          filePath = artifactStorage.store(in);
+        }
+      } else {
+        // The file is moved as it is, so the lines of a text file are indexed beforehand
+        try (InputStream in = content) {
+          if (content.isIndexing()) {
+            in.transferTo(OutputStream.nullOutputStream());
+          }
+        }
+        filePath = artifactStorage.storeFile(part);
+      }
+    } catch (IOException e) {
+      log.error("Cannot store the file of upload {}: {}", uploadId, e.getMessage());
+      uploadSessionRepository.reopen(uploadId, System.currentTimeMillis());
+      response.put("msg", "File upload failed.");
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
+    // Create the artifact, like a single upload does
+    Artifact artifact = new Artifact();
+    try {
+      artifact.setArtifactName(session.getArtifactName());
+      artifact.setDescription(session.getDescription());
+      artifact.setProjectId(project.getProjectId());
+      artifact.setFilePath(filePath);
+      artifact.setFileName(session.getFileName());
+      artifact.setContentType(contentType);
+      artifact.setContentEncoding(contentEncoding);
+      artifact.setTaggingOpen(true);
+
+      artifactService.assignLeastLoadedTeam(project, artifact);
+      artifactRepository.save(artifact);
+    } catch (RuntimeException e) {
+      log.error("Cannot create the artifact of upload {}: {}", uploadId, e.getMessage());
+      releaseFile(filePath);
+      discard(uploadId);
+      response.put("msg", "An error occurred.");
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+    artifactService.linkNewArtifact(project, artifact);
+    artifactPreviewService.saveIndex(artifact.getArtifactId(), content);
+    discard(uploadId);
+
+    response.put("msg", "Artifact created successfully.");
+    response.put("artifactId", artifact.getArtifactId());
+    return ResponseEntity.status(HttpStatus.CREATED).body(response);
+  }
+
+  // GET
+
+  /**
+   * Retrieves the progress of an upload, to resume it from the bytes received.
+   *
+   * @param uploadId the id of the upload
+   * @return the response entity with the bytes received and the size of the file
+   */
+  public ResponseEntity<?> getUpload(String uploadId) {
+    Map<String, Object> response = new HashMap<>();
+
+    UploadSession session = uploadSessionRepository.findById(uploadId).orElse(null);
+    if (session == null) {
+      response.put("msg", "Upload not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+    if (!session.getOwnerId().equals(getLoggedInUserId())) {
+      response.put("msg", "User is not the owner of the upload.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    response.put("msg", "Upload found.");
+    response.put("uploadId", uploadId);
+    response.put("received", session.getReceived());
+    response.put("size", session.getSize());
+    response.put("status", session.getStatus());
+    return ResponseEntity.status(HttpStatus.OK).body(response);
+  }
+
+  // PUT
+
+  /**
+   * Receives a chunk of an upload. The chunk must start where the bytes received so far end.
+   *
+   * @param uploadId the id of the upload
+   * @param offset   the offset of the chunk in the file
+   * @param checksum the hex SHA-256 digest of the chunk
+   * @param content  the content of the chunk
+   * @return the response entity with the bytes received so far
+   */
+  public ResponseEntity<?> uploadChunk(String uploadId, long offset, String checksum,
+      InputStream content) {
+    Map<String, Object> response = new HashMap<>();
+
+    UploadSession session = uploadSessionRepository.findById(uploadId).orElse(null);
+    ResponseEntity<?> error = checkSession(session, response);
+    if (error != null) {
+      return error;
+    }
+    if (checksum == null || !SHA256.matcher(checksum).matches()) {
+      response.put("msg", "Missing or invalid " + CHUNK_CHECKSUM_HEADER + " header.");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+    if (offset != session.getReceived()) {
+      response.put("msg", "Unexpected offset, the upload continues from the bytes received.");
+      response.put("received", session.getReceived());
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    if (!receiving.add(uploadId)) {
+      response.put("msg", "Another chunk of the upload is being received.");
+      response.put("received", session.getReceived());
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    try {
+      // Only the bytes after those received are written, so a bad chunk cannot damage them
+      long limit = Math.min(maxChunkBytes, session.getSize() - offset);
+      MessageDigest sha256 = newDigest();
+      long written = writeChunk(partFile(uploadId), offset, limit, content, sha256);
+      if (written < 0) {
+        response.put("msg", "Chunk too large, at most " + limit + " bytes are allowed here.");
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+      }
+      if (written == 0) {
+        response.put("msg", "Empty chunk.");
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+      }
+      if (!HexFormat.of().formatHex(sha256.digest()).equalsIgnoreCase(checksum)) {
+        response.put("msg", "Chunk checksum mismatch, the chunk must be sent again.");
+        response.put("received", offset);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+      }
+
+      long received = offset + written;
+      if (!uploadSessionRepository.advance(uploadId, offset, received,
+          System.currentTimeMillis())) {
+        response.put("msg", "Upload changed while the chunk was received.");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+      }
+      response.put("msg", "Chunk received.");
+      response.put("received", received);
+      return ResponseEntity.status(HttpStatus.OK).body(response);
+    } catch (IOException e) {
+      log.warn("Cannot receive a chunk of upload {}: {}", uploadId, e.getMessage());
+      response.put("msg", "Chunk upload failed, the chunk must be sent again.");
+      response.put("received", offset);
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    } finally {
+      receiving.remove(uploadId);
+    }
+  }
+
+  // DELETE
+
+  /**
+   * Aborts an upload, deleting what was received.
+   *
+   * @param uploadId the id of the upload
+   * @return the response entity
+   */
+  public ResponseEntity<?> abortUpload(String uploadId) {
+    Map<String, Object> response = new HashMap<>();
+
+    UploadSession session = uploadSessionRepository.findById(uploadId).orElse(null);
+    ResponseEntity<?> error = checkSession(session, response);
+    if (error != null) {
+      return error;
+    }
+
+    discard(uploadId);
+    response.put("msg", "Upload aborted.");
+    return ResponseEntity.status(HttpStatus.OK).body(response);
+  }
+
+  /**
+   * Deletes the uploads not updated for longer than their time to live, with their files.
+   *
+   * @return the number of uploads deleted
+   */
+  @Scheduled(fixedDelayString = "${artifact.upload.cleanup-interval-ms:3600000}")
+  public int removeExpiredUploads() {
+    int removed = 0;
+    for (UploadSession session :
+        uploadSessionRepository.findByUpdatedAtLessThan(System.currentTimeMillis() - ttlMs)) {
+      discard(session.getUploadId());
+      removed++;
+    }
+    if (removed > 0) {
+      log.info("Removed {} expired uploads.", removed);
+    }
+    return removed;
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Checks that an upload exists, belongs to the logged-in user and is open.
+   *
+   * @return the error response, or null if the upload can be used
+   */
+  private ResponseEntity<?> checkSession(UploadSession session, Map<String, Object> response) {
+    if (session == null) {
+      response.put("msg", "Upload not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+    if (!session.getOwnerId().equals(getLoggedInUserId())) {
+      response.put("msg", "User is not the owner of the upload.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+    if (session.getStatus() != UploadSessionStatus.OPEN) {
+      response.put("msg", "Upload is already being committed.");
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    return null;
+  }
+
+  /**
+   * Writes a chunk to the file of the upload at its offset, hashing it on the way.
+   *
+   * @return the bytes written, or -1 if the chunk is longer than the limit
+   */
+  private static long writeChunk(Path part, long offset, long limit, InputStream content,
+      MessageDigest sha256) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long written = 0;
+    try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+      int read;
+      while ((read = content.read(buffer)) != -1) {
+        if (written + read > limit) {
+          return -1;
+        }
+        sha256.update(buffer, 0, read);
+        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+        while (chunk.hasRemaining()) {
+          written += channel.write(chunk, offset + written);
+        }
+      }
+    }
+    return written;
+  }
+
+  private static String digestOf(Path file) throws IOException {
+    MessageDigest sha256 = newDigest();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha256)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(sha256.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+  }
+
+  /**
+   * Deletes an upload and its file.
+   */
+  private void discard(String uploadId) {
+    try {
+      Files.deleteIfExists(partFile(uploadId));
+    } catch (IOException e) {
+      log.warn("Cannot delete the file of upload {}: {}", uploadId, e.getMessage());
+    }
+    uploadSessionRepository.deleteById(uploadId);
+  }
+
+  private void releaseFile(String filePath) {
+    try {
+      artifactStorage.release(filePath);
+    } catch (IOException e) {
+      log.error("Cannot release the file {}: {}", filePath, e.getMessage());
+    }
+  }
+
+  /**
+   * Returns the directory holding the files being uploaded.
+   */
+  Path getUploadRoot() {
+    return Paths.get(System.getProperty("user.dir")).resolve(uploadDir).normalize();
+  }
+
+  private Path partFile(String uploadId) {
+    return getUploadRoot().resolve(uploadId + ".part");
+  }
+
+  private String getLoggedInUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()) {
+      throw new IllegalStateException("No authenticated user found.");
+    }
+
+    Object principal = authentication.getPrincipal();
+    if (principal instanceof CustomUserDetails(User user)) {
+      return user.getUserId();
+    }
+    throw new IllegalStateException(
+        "Unexpected authentication principal type: " + principal.getClass() + ".");
+  }
+}
@@ -33,29 +33,45 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.stream.Stream;
 import org.apache.commons.codec.binary.Base64;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
 
 /**
- * This class is used to send e-mails using the Gmail API.
+ * This class is used to send e-mails using the Gmail API. A single Gmail client is shared by all
+ * the e-mails; it is initialized when the first e-mail is sent.
  */
-public class GmailService {
+@Service
+@ConditionalOnProperty(name = "mail.sender", havingValue = "gmail", matchIfMissing = true)
+public class GmailService implements MailSender {
   private static final String FROM_EMAIL = "qualitag.project@gmail.com";
-  private final Gmail service;
+  private volatile Gmail service;
 
   /**
-   * Constructor that initializes the Gmail service.
+   * Returns the Gmail service, initializing it the first time.
    *
+   * @return the Gmail service.
    * @throws Exception if an error occurs while initializing the service.
    */
-  public GmailService() throws Exception {
-    // Initialize HTTP transport and JSON factory
-    NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-
-    // Build the Gmail service
-    GsonFactory jsonFactory = GsonFactory.getDefaultInstance();
-    service = new Gmail.Builder(httpTransport, jsonFactory,
-        getCredentials(httpTransport, jsonFactory))
-        .setApplicationName("QualiTag Project")
-        .build();
+  private Gmail getService() throws Exception {
+    Gmail gmail = service;
+    if (gmail == null) {
+      synchronized (this) {
+        gmail = service;
+        if (gmail == null) {
+          // Initialize HTTP transport and JSON factory
+          NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+
+          // Build the Gmail service
+          GsonFactory jsonFactory = GsonFactory.getDefaultInstance();
+          gmail = new Gmail.Builder(httpTransport, jsonFactory,
+              getCredentials(httpTransport, jsonFactory))
+              .setApplicationName("QualiTag Project")
+              .build();
+          service = gmail;
+        }
+      }
+    }
+    return gmail;
   }
 
   /**
@@ -147,6 +163,7 @@ public class GmailService {
    * @param message the e-mail message.
    * @throws Exception if an error occurs while sending the e-mail.
    */
+  @Override
   public void sendMail(String subject, String to, String message) throws Exception {
     // Set up mail properties and session
     Properties props = new Properties();
@@ -169,7 +186,7 @@ public class GmailService {
 
     try {
       // Send the e-mail using the Gmail API
-      msg = service.users().messages().send(FROM_EMAIL, msg).execute();
+      msg = getService().users().messages().send(FROM_EMAIL, msg).execute();
       System.out.println("Message sent: " + msg.toPrettyString());
     } catch (GoogleJsonResponseException e) {
       GoogleJsonError error = e.getDetails();
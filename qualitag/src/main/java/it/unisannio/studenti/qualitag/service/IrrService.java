@@ -0,0 +1,186 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.irr.TeamAgreement;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.TagRepository;
+import it.unisannio.studenti.qualitag.repository.TeamRepository;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the inter-rater reliability of the teams up to date as tags change. The state of a team
+ * is built from the database the first time it is read, then updated incrementally.
+ *
+ * <p>Every change that may affect the agreement of a team increments its version in the database,
+ * and a cached state is only served while it reflects the current version of its team. A change
+ * made by another instance, or to the users or the artifacts of the team, makes the state be
+ * built again.
+ */
+@Service
+@RequiredArgsConstructor
+public class IrrService {
+
+  private final ArtifactRepository artifactRepository;
+  private final TagRepository tagRepository;
+  private final TeamRepository teamRepository;
+
+  private final Map<String, CachedAgreement> agreements = new ConcurrentHashMap<>();
+
+  /**
+   * The agreement state of a team, with the version of the team it reflects.
+   */
+  private record CachedAgreement(TeamAgreement agreement, long version) {
+  }
+
+  /**
+   * Returns the agreement state of a team, building it if it is not cached for the current version
+   * of the team.
+   *
+   * @param team the team
+   * @return the agreement state, or null if one of the artifacts of the team does not exist
+   */
+  public TeamAgreement getAgreement(Team team) {
+    CachedAgreement cached = agreements.get(team.getTeamId());
+    if (cached != null && cached.version() == team.getIrrVersion()) {
+      return cached.agreement();
+    }
+
+    List<String> artifactIds = team.getArtifactIds();
+    List<Artifact> artifacts = artifactRepository.findAllById(artifactIds);
+    if (artifacts.size() < new HashSet<>(artifactIds).size()) {
+      return null;
+    }
+
+    Set<String> tagIds = new HashSet<>();
+    for (Artifact artifact : artifacts) {
+      tagIds.addAll(artifact.getTags());
+    }
+    Map<String, Tag> tags = new HashMap<>();
+    for (Tag tag : tagRepository.findAllById(tagIds)) {
+      tags.put(tag.getTagId(), tag);
+    }
+
+    TeamAgreement agreement = new TeamAgreement(team.getUserIds(), artifactIds);
+    for (Artifact artifact : artifacts) {
+      for (String tagId : artifact.getTags()) {
+        Tag tag = tags.get(tagId);
+        if (tag != null) {
+          agreement.addTag(artifact.getArtifactId(), tag.getCreatedBy(), tag.getTagId(),
+              tag.getTagValue());
+        }
+      }
+    }
+
+    // A change made while building is counted in a later version, so it is not missed
+    agreements.put(team.getTeamId(), new CachedAgreement(agreement, team.getIrrVersion()));
+    return agreement;
+  }
+
+  /**
+   * Records that some tags have been added to an artifact.
+   *
+   * @param artifactId the id of the artifact
+   * @param tags       the added tags
+   */
+  public void tagsAdded(String artifactId, List<Tag> tags) {
+    update(List.of(artifactId), agreement -> {
+      for (Tag tag : tags) {
+        agreement.addTag(artifactId, tag.getCreatedBy(), tag.getTagId(), tag.getTagValue());
+      }
+    });
+  }
+
+  /**
+   * Records that a tag has been removed from an artifact.
+   *
+   * @param artifactId the id of the artifact
+   * @param tagId      the id of the removed tag
+   */
+  public void tagRemoved(String artifactId, String tagId) {
+    update(List.of(artifactId), agreement -> agreement.removeTag(artifactId, tagId));
+  }
+
+  /**
+   * Records that a tag has been deleted, removing it from all of its artifacts.
+   *
+   * @param tag the deleted tag
+   */
+  public void tagDeleted(Tag tag) {
+    update(tag.getArtifactIds(), agreement -> {
+      for (String artifactId : tag.getArtifactIds()) {
+        agreement.removeTag(artifactId, tag.getTagId());
+      }
+    });
+  }
+
+  /**
+   * Records that the value of a tag has changed on all of its artifacts.
+   *
+   * @param tag the updated tag
+   */
+  public void tagUpdated(Tag tag) {
+    update(tag.getArtifactIds(), agreement -> {
+      for (String artifactId : tag.getArtifactIds()) {
+        agreement.addTag(artifactId, tag.getCreatedBy(), tag.getTagId(), tag.getTagValue());
+      }
+    });
+  }
+
+  /**
+   * Drops the state of a team on every instance, because its users or artifacts have changed.
+   *
+   * @param teamId the id of the team
+   */
+  public void invalidate(String teamId) {
+    if (teamId != null) {
+      teamRepository.incrementIrrVersion(List.of(teamId));
+      agreements.remove(teamId);
+    }
+  }
+
+  /**
+   * Drops the state of the teams holding the given artifacts on every instance, because the tags
+   * of the artifacts have been changed in bulk.
+   *
+   * @param artifactIds the ids of the changed artifacts
+   */
+  public void invalidateArtifacts(Collection<String> artifactIds) {
+    if (!artifactIds.isEmpty()) {
+      teamRepository.incrementIrrVersionOfArtifacts(artifactIds).forEach(agreements::remove);
+    }
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Increments the version of the teams holding the given artifacts, then applies a change to
+   * their cached states. A cached state follows the version only if it had the previous one; a
+   * change made meanwhile by another instance leaves it behind, so it is built again.
+   *
+   * @param artifactIds the ids of the changed artifacts
+   * @param change      the change to apply to the agreement state of each team
+   */
+  private void update(Collection<String> artifactIds, Consumer<TeamAgreement> change) {
+    if (artifactIds.isEmpty()) {
+      return;
+    }
+
+    for (String teamId : teamRepository.incrementIrrVersionOfArtifacts(artifactIds)) {
+      agreements.computeIfPresent(teamId, (id, cached) -> {
+        change.accept(cached.agreement());
+        return new CachedAgreement(cached.agreement(), cached.version() + 1);
+      });
+    }
+  }
+}
@@ -0,0 +1,418 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.JobStatus;
+import it.unisannio.studenti.qualitag.model.JobType;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.JobRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * The service running the long analyses in the background, so they do not hold a request thread.
+ *
+ * <p>A job is recorded as soon as it is accepted and updated as it progresses, so its state can be
+ * polled, or streamed as server-sent events. The jobs run on a fixed pool; the jobs of a project
+ * run a few at a time and the others wait their turn, and no more jobs are accepted once too many
+ * are waiting.
+ *
+ * <p>Every job is owned by the instance that accepted it, which renews its lease while it is
+ * alive. The jobs whose lease has expired are marked as failed by any instance, so a restart
+ * fails only the jobs of the instance that stopped, not those its peers are still running.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class JobService {
+
+  private static final String INTERRUPTED = "Interrupted by a restart.";
+
+  private final JobRepository jobRepository;
+
+  @Value("${job.threads:4}")
+  int threads = 4;
+
+  @Value("${job.max-per-project:2}")
+  int maxPerProject = 2;
+
+  @Value("${job.queue-capacity:100}")
+  int queueCapacity = 100;
+
+  @Value("${job.stream-timeout:10m}")
+  Duration streamTimeout = Duration.ofMinutes(10);
+
+  // The id of this instance; a random one unless it is configured to survive restarts
+  @Value("${job.instance-id:}")
+  String instanceId = "";
+
+  @Value("${job.lease:2m}")
+  Duration lease = Duration.ofMinutes(2);
+
+  private ExecutorService executor;
+
+  // The jobs of each project running, and the ones waiting for them to finish; guarded by this
+  private final Map<String, Integer> running = new HashMap<>();
+  private final Map<String, Deque<Runnable>> waiting = new HashMap<>();
+  // The jobs accepted and not started yet; guarded by this
+  private int queued;
+
+  private final Map<String, List<SseEmitter>> streams = new ConcurrentHashMap<>();
+
+  /**
+   * The work of a job.
+   */
+  @FunctionalInterface
+  public interface Work {
+
+    /**
+     * Does the work.
+     *
+     * @param progress where to report the progress of the work
+     * @return the result of the work, recorded in the job
+     * @throws RuntimeException if the work fails, its message is recorded in the job
+     */
+    Map<String, Object> run(Progress progress);
+  }
+
+  /**
+   * Records the progress of a job.
+   */
+  @FunctionalInterface
+  public interface Progress {
+
+    /**
+     * Records how much of the work is done.
+     *
+     * @param done  the units of work done
+     * @param total the units of work in all
+     */
+    void update(int done, int total);
+  }
+
+  /**
+   * Starts the pool running the jobs.
+   */
+  @PostConstruct
+  void start() {
+    if (instanceId.isBlank()) {
+      instanceId = UUID.randomUUID().toString();
+    }
+    AtomicInteger count = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "job-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the pool running the jobs.
+   */
+  @PreDestroy
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Marks as failed the jobs left unfinished by a previous run of this instance, when its id is
+   * configured, and the jobs whose instance has stopped renewing their lease, so their clients
+   * stop waiting and can request them again.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void failInterrupted() {
+    long failed = jobRepository.failAbandoned(instanceId, System.currentTimeMillis(), INTERRUPTED);
+    if (failed > 0) {
+      log.info("Marked {} interrupted jobs as failed.", failed);
+    }
+  }
+
+  /**
+   * Renews the lease of the jobs of this instance, then marks as failed the jobs whose lease has
+   * expired.
+   */
+  @Scheduled(fixedDelayString = "${job.heartbeat-interval-ms:30000}")
+  public void heartbeat() {
+    long now = System.currentTimeMillis();
+    jobRepository.renewLeases(instanceId, now + lease.toMillis());
+    long failed = jobRepository.failAbandoned(null, now, INTERRUPTED);
+    if (failed > 0) {
+      log.warn("Marked {} jobs of stopped instances as failed.", failed);
+    }
+  }
+
+  // POST
+
+  /**
+   * Accepts a job and runs it in the background as soon as its project has a free slot.
+   *
+   * @param type        the type of the job
+   * @param projectId   the id of the project the job works on
+   * @param requestedBy the id of the user requesting the job
+   * @param work        the work of the job
+   * @return the response entity with the id of the job, or too many requests if too many jobs are
+   *         waiting
+   */
+  public ResponseEntity<?> submit(JobType type, String projectId, String requestedBy, Work work) {
+    Map<String, Object> response = new HashMap<>();
+
+    synchronized (this) {
+      if (queued >= queueCapacity) {
+        response.put("msg", "Too many jobs are waiting, try again later.");
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+      }
+      queued++;
+    }
+
+    Job saved;
+    try {
+      long now = System.currentTimeMillis();
+      Job job = new Job();
+      job.setType(type);
+      job.setProjectId(projectId);
+      job.setRequestedBy(requestedBy);
+      job.setStatus(JobStatus.QUEUED);
+      job.setOwner(instanceId);
+      job.setLeaseUntil(now + lease.toMillis());
+      job.setCreatedAt(now);
+      job.setUpdatedAt(now);
+      saved = jobRepository.save(job);
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        queued--;
+      }
+      throw e;
+    }
+    schedule(saved.getProjectId() == null ? "" : saved.getProjectId(), () -> run(saved, work));
+
+    response.put("msg", "Job accepted.");
+    response.put("jobId", saved.getJobId());
+    response.put("status", saved.getStatus());
+    return ResponseEntity.accepted()
+        .location(URI.create("/api/v1/job/" + saved.getJobId()))
+        .body(response);
+  }
+
+  // GET
+
+  /**
+   * Retrieves the state of a job.
+   *
+   * @param jobId the id of the job
+   * @return the response entity with the state of the job
+   */
+  public ResponseEntity<?> getJob(String jobId) {
+    Map<String, Object> response = new HashMap<>();
+
+    Job job = jobRepository.findById(jobId).orElse(null);
+    if (job == null) {
+      response.put("msg", "Job not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+    if (!job.getRequestedBy().equals(getLoggedInUserId())) {
+      response.put("msg", "Only the user who requested the job can see it.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    response.putAll(describe(job));
+    response.put("msg", "Job retrieved successfully.");
+    return ResponseEntity.status(HttpStatus.OK).body(response);
+  }
+
+  /**
+   * Streams the state of a job as server-sent events, one whenever it changes, until it finishes.
+   *
+   * @param jobId the id of the job
+   * @return the response entity with the stream of the states of the job
+   */
+  public ResponseEntity<SseEmitter> streamJob(String jobId) {
+    Job job = jobRepository.findById(jobId).orElse(null);
+    if (job == null) {
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    }
+    if (!job.getRequestedBy().equals(getLoggedInUserId())) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+
+    SseEmitter emitter = new SseEmitter(streamTimeout.toMillis());
+    streams.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>()).add(emitter);
+    emitter.onCompletion(() -> streams.computeIfPresent(jobId, (id, emitters) -> {
+      emitters.remove(emitter);
+      return emitters.isEmpty() ? null : emitters;
+    }));
+    emitter.onTimeout(emitter::complete);
+
+    // Read again once registered, so a change made meanwhile is not missed
+    send(emitter, jobRepository.findById(jobId).orElse(job));
+    return ResponseEntity.ok(emitter);
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Runs a task of a project now if the project has a free slot, otherwise once one of its running
+   * tasks finishes.
+   */
+  private synchronized void schedule(String projectId, Runnable task) {
+    int active = running.getOrDefault(projectId, 0);
+    if (active < maxPerProject) {
+      running.put(projectId, active + 1);
+      execute(projectId, task);
+    } else {
+      waiting.computeIfAbsent(projectId, id -> new ArrayDeque<>()).add(task);
+    }
+  }
+
+  private void execute(String projectId, Runnable task) {
+    executor.execute(() -> {
+      synchronized (this) {
+        queued--;
+      }
+      try {
+        task.run();
+      } finally {
+        release(projectId);
+      }
+    });
+  }
+
+  /**
+   * Hands the slot of a finished task to the next task of its project, if any.
+   */
+  private synchronized void release(String projectId) {
+    Deque<Runnable> tasks = waiting.get(projectId);
+    Runnable next = tasks == null ? null : tasks.poll();
+    if (next != null) {
+      execute(projectId, next);
+      return;
+    }
+
+    waiting.remove(projectId);
+    int active = running.getOrDefault(projectId, 1) - 1;
+    if (active > 0) {
+      running.put(projectId, active);
+    } else {
+      running.remove(projectId);
+    }
+  }
+
+  /**
+   * Runs a job, recording its progress and its outcome.
+   *
+   * @param job  the job, as accepted
+   * @param work the work of the job
+   */
+  void run(Job job, Work work) {
+    job.setStatus(JobStatus.RUNNING);
+    update(job);
+
+    try {
+      Map<String, Object> result = work.run((done, total) -> {
+        job.setDone(done);
+        job.setTotal(total);
+        update(job);
+      });
+      job.setResult(result);
+      job.setStatus(JobStatus.COMPLETED);
+    } catch (RuntimeException e) {
+      log.error("The job {} of type {} failed: {}", job.getJobId(), job.getType(),
+          e.getMessage());
+      job.setStatus(JobStatus.FAILED);
+      job.setError(e.getMessage());
+    }
+    update(job);
+  }
+
+  /**
+   * Records the state of a job and sends it to its streams.
+   */
+  private void update(Job job) {
+    long now = System.currentTimeMillis();
+    job.setUpdatedAt(now);
+    job.setLeaseUntil(now + lease.toMillis());
+    jobRepository.save(job);
+
+    List<SseEmitter> emitters = streams.get(job.getJobId());
+    if (emitters != null) {
+      for (SseEmitter emitter : emitters) {
+        send(emitter, job);
+      }
+      if (isFinished(job)) {
+        streams.remove(job.getJobId());
+      }
+    }
+  }
+
+  private static void send(SseEmitter emitter, Job job) {
+    try {
+      emitter.send(SseEmitter.event()
+          .name("job")
+          .data(describe(job), MediaType.APPLICATION_JSON));
+      if (isFinished(job)) {
+        emitter.complete();
+      }
+    } catch (IOException | IllegalStateException e) {
+      // The client went away
+      emitter.completeWithError(e);
+    }
+  }
+
+  private static boolean isFinished(Job job) {
+    return job.getStatus() == JobStatus.COMPLETED || job.getStatus() == JobStatus.FAILED;
+  }
+
+  private static Map<String, Object> describe(Job job) {
+    Map<String, Object> description = new HashMap<>();
+    description.put("jobId", job.getJobId());
+    description.put("type", job.getType());
+    description.put("status", job.getStatus());
+    description.put("done", job.getDone());
+    description.put("total", job.getTotal());
+    description.put("result", job.getResult());
+    description.put("error", job.getError());
+    description.put("createdAt", job.getCreatedAt());
+    description.put("updatedAt", job.getUpdatedAt());
+    return description;
+  }
+
+  private String getLoggedInUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()) {
+      throw new IllegalStateException("No authenticated user found.");
+    }
+
+    Object principal = authentication.getPrincipal();
+    if (principal instanceof CustomUserDetails(User user)) {
+      return user.getUserId();
+    }
+    throw new IllegalStateException(
+        "Unexpected authentication principal type: " + principal.getClass() + ".");
+  }
+}
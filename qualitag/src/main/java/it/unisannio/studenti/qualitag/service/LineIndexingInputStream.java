@@ -0,0 +1,114 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records where the lines of a file start while it is read, every given number of lines, so the
+ * index of a text artifact is built as the file is stored.
+ */
+final class LineIndexingInputStream extends FilterInputStream {
+
+  private final int step;
+  private final List<Long> checkpoints = new ArrayList<>();
+  private long position;
+  private long newlines;
+  private int lastByte = -1;
+
+  /**
+   * Wraps a stream.
+   *
+   * @param in   the content of the file
+   * @param step every how many lines a position is recorded, 0 to leave the file unindexed
+   */
+  LineIndexingInputStream(InputStream in, int step) {
+    super(in);
+    this.step = step;
+    if (step > 0) {
+      checkpoints.add(0L);
+    }
+  }
+
+  /**
+   * Tells whether the lines of the file are indexed.
+   *
+   * @return true if they are, false if the stream only passes the content through
+   */
+  boolean isIndexing() {
+    return step > 0;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b >= 0 && step > 0) {
+      scan((byte) b);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = in.read(b, off, len);
+    if (n > 0 && step > 0) {
+      for (int i = off; i < off + n; i++) {
+        scan(b[i]);
+      }
+    }
+    return n;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    // Skipped bytes are read, so that no line is missed
+    byte[] buffer = new byte[(int) Math.min(n, 8192)];
+    long skipped = 0;
+    while (skipped < n) {
+      int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+      if (read < 0) {
+        break;
+      }
+      skipped += read;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  /**
+   * Returns the index of the content read so far, to be called once the stream is exhausted.
+   *
+   * @return the index, without an artifact id, or null if the file is not indexed
+   */
+  ArtifactLineIndex toIndex() {
+    if (step <= 0) {
+      return null;
+    }
+    List<Long> lineStarts = new ArrayList<>(checkpoints);
+    // A final newline does not start a line
+    if (position > 0 && lineStarts.get(lineStarts.size() - 1) == position) {
+      lineStarts.remove(lineStarts.size() - 1);
+    }
+    ArtifactLineIndex index = new ArtifactLineIndex();
+    index.setSize(position);
+    index.setLineCount(position > 0 && lastByte != '\n' ? newlines + 1 : newlines);
+    index.setStep(step);
+    index.setCheckpoints(lineStarts);
+    return index;
+  }
+
+  private void scan(byte b) {
+    position++;
+    lastByte = b;
+    if (b == '\n' && ++newlines % step == 0) {
+      checkpoints.add(position);
+    }
+  }
+}
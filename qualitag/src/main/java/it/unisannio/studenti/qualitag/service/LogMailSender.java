@@ -0,0 +1,20 @@
+package it.unisannio.studenti.qualitag.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Local stand-in for {@link GmailService} that only logs the e-mails. Enabled with
+ * {@code mail.sender=log}, for development and tests.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "mail.sender", havingValue = "log")
+public class LogMailSender implements MailSender {
+
+  @Override
+  public void sendMail(String subject, String to, String message) {
+    log.info("E-mail to {} with subject \"{}\":\n{}", to, subject, message);
+  }
+}
@@ -0,0 +1,92 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+import it.unisannio.studenti.qualitag.model.OutboxMailStatus;
+import it.unisannio.studenti.qualitag.repository.OutboxMailRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Outbox of the e-mails sent by the application. Requests only queue their e-mails in the
+ * database; a background worker sends them in batches, retrying the failed ones with an
+ * exponential backoff.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MailOutboxService {
+
+  private final OutboxMailRepository outboxMailRepository;
+  private final MailSender mailSender;
+
+  @Value("${mail.outbox.batch-size:20}")
+  private int batchSize;
+
+  @Value("${mail.outbox.max-attempts:5}")
+  private int maxAttempts;
+
+  @Value("${mail.outbox.retry-backoff-ms:60000}")
+  private long retryBackoffMs;
+
+  @Value("${mail.outbox.claim-timeout-ms:300000}")
+  private long claimTimeoutMs;
+
+  /**
+   * Queues an e-mail to be sent by the background worker.
+   *
+   * @param subject the e-mail subject.
+   * @param to      the recipient e-mail address.
+   * @param message the e-mail message.
+   */
+  public void enqueue(String subject, String to, String message) {
+    outboxMailRepository.save(new OutboxMail(subject, to, message, System.currentTimeMillis()));
+  }
+
+  /**
+   * Sends a batch of the queued e-mails that are due.
+   *
+   * @return the number of e-mails processed, whether they were sent or not
+   */
+  @Scheduled(fixedDelayString = "${mail.outbox.poll-interval-ms:5000}")
+  public int processOutbox() {
+    int processed = 0;
+    while (processed < batchSize) {
+      long now = System.currentTimeMillis();
+      OutboxMail mail = outboxMailRepository.claimNext(now, now + claimTimeoutMs);
+      if (mail == null) {
+        break;
+      }
+      send(mail);
+      processed++;
+    }
+    return processed;
+  }
+
+  // UTILITY METHODS
+
+  private void send(OutboxMail mail) {
+    mail.setAttempts(mail.getAttempts() + 1);
+    try {
+      mailSender.sendMail(mail.getSubject(), mail.getTo(), mail.getMessage());
+      mail.setStatus(OutboxMailStatus.SENT);
+      mail.setLastError(null);
+    } catch (Exception e) {
+      mail.setLastError(e.toString());
+      if (mail.getAttempts() >= maxAttempts) {
+        log.error("Giving up on e-mail {} to {} after {} attempts: {}", mail.getMailId(),
+            mail.getTo(), mail.getAttempts(), e.toString());
+        mail.setStatus(OutboxMailStatus.FAILED);
+      } else {
+        log.warn("Could not send e-mail {} to {}, retrying later: {}", mail.getMailId(),
+            mail.getTo(), e.toString());
+        mail.setStatus(OutboxMailStatus.PENDING);
+        mail.setNextAttemptAt(
+            System.currentTimeMillis() + (retryBackoffMs << (mail.getAttempts() - 1)));
+      }
+    }
+    outboxMailRepository.save(mail);
+  }
+}
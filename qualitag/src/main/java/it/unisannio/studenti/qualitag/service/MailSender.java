@@ -0,0 +1,18 @@
+package it.unisannio.studenti.qualitag.service;
+
+/**
+ * Sends e-mails on behalf of the mail outbox. The implementation is chosen with the
+ * {@code mail.sender} property.
+ */
+public interface MailSender {
+
+  /**
+   * Sends an e-mail message.
+   *
+   * @param subject the e-mail subject.
+   * @param to      the recipient e-mail address.
+   * @param message the e-mail message.
+   * @throws Exception if an error occurs while sending the e-mail.
+   */
+  void sendMail(String subject, String to, String message) throws Exception;
+}
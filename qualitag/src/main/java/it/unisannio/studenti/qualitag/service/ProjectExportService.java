@@ -0,0 +1,301 @@
+package it.unisannio.studenti.qualitag.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unisannio.studenti.qualitag.dto.project.ExportedArtifactDto;
+import it.unisannio.studenti.qualitag.dto.project.ExportedTagDto;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.TagRepository;
+import it.unisannio.studenti.qualitag.repository.TeamRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import it.unisannio.studenti.qualitag.storage.StoredFile;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * The service exporting a project: a ZIP archive with the artifact files and a manifest, or the
+ * manifest alone. The manifest is in NDJSON, one line per artifact with its team and its tags.
+ *
+ * <p>The artifacts are read with a cursor and written as they arrive, fetching the tags and their
+ * authors once per batch of artifacts, so the export starts at once and its memory does not grow
+ * with the project.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProjectExportService {
+
+  static final String MANIFEST = "manifest.ndjson";
+  static final String FILES_DIRECTORY = "files/";
+  static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+  private static final int BATCH_SIZE = 100;
+
+  private final ProjectRepository projectRepository;
+  private final TagRepository tagRepository;
+  private final TeamRepository teamRepository;
+  private final UserRepository userRepository;
+
+  private final ArtifactStorage artifactStorage;
+  private final MongoTemplate mongoTemplate;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Writes an artifact of the project, with its tags.
+   */
+  @FunctionalInterface
+  private interface ArtifactWriter {
+
+    void write(Artifact artifact, List<ExportedTagDto> tags) throws IOException;
+  }
+
+  // GET
+
+  /**
+   * Exports a project.
+   *
+   * @param projectId the id of the project
+   * @param format    zip for the files and the manifest, ndjson for the manifest alone
+   * @return the response entity streaming the export
+   */
+  public ResponseEntity<?> exportProject(String projectId, String format) {
+    Map<String, Object> response = new HashMap<>();
+
+    boolean zip = "zip".equals(format);
+    if (!zip && !"ndjson".equals(format)) {
+      response.put("msg", "Unknown export format, use zip or ndjson.");
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    // Retrieve the project
+    Project project = projectRepository.findProjectByProjectId(projectId);
+    if (project == null) {
+      response.put("msg", "Project not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    // Only the owner can export the project
+    if (!project.getOwnerId().equals(getLoggedInUserId())) {
+      response.put("msg", "Only the project owner can export the project.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    Map<String, String> teamNames = new HashMap<>();
+    for (Team team : teamRepository.findAllById(project.getTeamIds())) {
+      teamNames.put(team.getTeamId(), team.getTeamName());
+    }
+
+    StreamingResponseBody body = zip
+        ? outputStream -> writeZip(project, teamNames, outputStream)
+        : outputStream -> writeManifest(project, teamNames, outputStream);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(zip ? MediaType.parseMediaType("application/zip") : NDJSON);
+    headers.setContentDisposition(ContentDisposition.attachment()
+        .filename("project-" + projectId + (zip ? ".zip" : ".ndjson")).build());
+    return ResponseEntity.ok().headers(headers).body(body);
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Writes the ZIP archive: the files as they are read, then the manifest, which is spooled to a
+   * temporary file in the meantime.
+   */
+  private void writeZip(Project project, Map<String, String> teamNames, OutputStream outputStream)
+      throws IOException {
+    Path manifest = Files.createTempFile("project-export-", ".ndjson");
+    try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+      try (Writer manifestWriter = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8)) {
+        exportArtifacts(project, (artifact, tags) -> {
+          String file = writeFile(zip, artifact);
+          writeLine(manifestWriter, toDto(artifact, teamNames, file, tags));
+        });
+      }
+
+      zip.putNextEntry(new ZipEntry(MANIFEST));
+      Files.copy(manifest, zip);
+      zip.closeEntry();
+    } finally {
+      Files.deleteIfExists(manifest);
+    }
+  }
+
+  private void writeManifest(Project project, Map<String, String> teamNames,
+      OutputStream outputStream) throws IOException {
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    exportArtifacts(project,
+        (artifact, tags) -> writeLine(writer, toDto(artifact, teamNames, null, tags)));
+    writer.flush();
+  }
+
+  /**
+   * Reads the artifacts of the project with a cursor and hands them to the writer in batches,
+   * loading the tags of every batch with one query.
+   */
+  private void exportArtifacts(Project project, ArtifactWriter writer) throws IOException {
+    Query query = new Query(Criteria.where("projectId").is(project.getProjectId()))
+        .with(Sort.by("_id"))
+        .cursorBatchSize(BATCH_SIZE);
+
+    // The authors of the tags are few, so their names are kept for the whole export
+    Map<String, String> usernames = new HashMap<>();
+    List<Artifact> batch = new ArrayList<>(BATCH_SIZE);
+    try (Stream<Artifact> artifacts = mongoTemplate.stream(query, Artifact.class)) {
+      Iterator<Artifact> iterator = artifacts.iterator();
+      while (iterator.hasNext()) {
+        batch.add(iterator.next());
+        if (batch.size() == BATCH_SIZE || !iterator.hasNext()) {
+          writeBatch(batch, usernames, writer);
+          batch.clear();
+        }
+      }
+    }
+  }
+
+  private void writeBatch(List<Artifact> batch, Map<String, String> usernames,
+      ArtifactWriter writer) throws IOException {
+    Set<String> tagIds = new HashSet<>();
+    for (Artifact artifact : batch) {
+      tagIds.addAll(artifact.getTags());
+    }
+    Map<String, Tag> tags = new HashMap<>();
+    for (Tag tag : tagRepository.findAllById(tagIds)) {
+      tags.put(tag.getTagId(), tag);
+    }
+
+    Set<String> unknownAuthors = new HashSet<>();
+    for (Tag tag : tags.values()) {
+      if (!usernames.containsKey(tag.getCreatedBy())) {
+        unknownAuthors.add(tag.getCreatedBy());
+      }
+    }
+    if (!unknownAuthors.isEmpty()) {
+      unknownAuthors.forEach(userId -> usernames.put(userId, null));
+      for (User user : userRepository.findAllById(unknownAuthors)) {
+        usernames.put(user.getUserId(), user.getUsername());
+      }
+    }
+
+    for (Artifact artifact : batch) {
+      List<ExportedTagDto> artifactTags = new ArrayList<>();
+      for (String tagId : artifact.getTags()) {
+        Tag tag = tags.get(tagId);
+        if (tag != null) {
+          artifactTags.add(new ExportedTagDto(tag.getTagId(), tag.getTagValue(),
+              tag.getColorHex(), tag.getCreatedBy(), usernames.get(tag.getCreatedBy())));
+        }
+      }
+      writer.write(artifact, artifactTags);
+    }
+  }
+
+  /**
+   * Adds the file of an artifact to the archive.
+   *
+   * @return the path of the file in the archive, null if the file was not found
+   */
+  private String writeFile(ZipOutputStream zip, Artifact artifact) throws IOException {
+    StoredFile file = artifact.getFilePath() == null
+        ? null : artifactStorage.open(artifact.getFilePath());
+    if (file == null) {
+      log.warn("File of artifact {} not found, it is left out of the export.",
+          artifact.getArtifactId());
+      return null;
+    }
+
+    String name = FILES_DIRECTORY + artifact.getArtifactId() + "/" + fileNameOf(artifact);
+    ZipEntry entry = new ZipEntry(name);
+    entry.setTime(file.lastModified());
+    zip.putNextEntry(entry);
+    if (artifact.getContentEncoding() == null) {
+      file.writeTo(zip, 0, file.size());
+    } else {
+      // The archive holds the files as they were uploaded
+      try (InputStream in =
+          ArtifactCompression.decode(file.openStream(), artifact.getContentEncoding())) {
+        in.transferTo(zip);
+      }
+    }
+    zip.closeEntry();
+    return name;
+  }
+
+  private void writeLine(Writer writer, ExportedArtifactDto dto) throws IOException {
+    writer.write(objectMapper.writeValueAsString(dto));
+    writer.write('\n');
+  }
+
+  private static ExportedArtifactDto toDto(Artifact artifact, Map<String, String> teamNames,
+      String file, List<ExportedTagDto> tags) {
+    return new ExportedArtifactDto(artifact.getArtifactId(), artifact.getArtifactName(),
+        artifact.getDescription(), artifact.getTeamId(), teamNames.get(artifact.getTeamId()),
+        fileNameOf(artifact), artifact.getContentType(), file, artifact.isTaggingOpen(), tags);
+  }
+
+  /**
+   * Returns the name the file of an artifact was uploaded with. Artifacts stored before the name
+   * was kept are named after their path.
+   */
+  private static String fileNameOf(Artifact artifact) {
+    if (artifact.getFileName() != null || artifact.getFilePath() == null) {
+      return artifact.getFileName();
+    }
+    return Paths.get(artifact.getFilePath()).getFileName().toString();
+  }
+
+  private String getLoggedInUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()) {
+      throw new IllegalStateException("No authenticated user found.");
+    }
+
+    Object principal = authentication.getPrincipal();
+    if (principal instanceof CustomUserDetails(User user)) {
+      return user.getUserId();
+    }
+    throw new IllegalStateException(
+        "Unexpected authentication principal type: " + principal.getClass() + ".");
+  }
+}
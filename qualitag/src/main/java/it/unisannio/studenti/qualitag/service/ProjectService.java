@@ -24,6 +24,7 @@ import it.unisannio.studenti.qualitag.model.ProjectStatus;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
@@ -36,9 +37,12 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -56,9 +60,12 @@ import org.springframework.transaction.annotation.Transactional;
 public class ProjectService {
 
   private final ArtifactService artifactService;
+  private final IrrService irrService;
+  private final MailOutboxService mailOutboxService;
   private final TeamService teamService;
 
   private final ArtifactRepository artifactsRepository;
+  private final MembershipRepository membershipRepository;
   private final ProjectRepository projectRepository;
   private final UserRepository userRepository;
   private final TeamRepository teamsRepository;
@@ -343,20 +350,26 @@ public class ProjectService {
       response.put("msg", "Project ID cannot be null or empty.");
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
-    if (!projectRepository.existsById(projectId)) {
-      response.put("msg", "Project not found.");
-      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-    }
     Project project = projectRepository.findProjectByProjectId(projectId);
     if (project == null) {
       response.put("msg", "Project not found.");
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
+    // Load users (owner included), teams and artifacts with one $in query each, so the number
+    // of round trips does not grow with the size of the project
+    Set<String> userIds = new LinkedHashSet<>(project.getUserIds());
+    userIds.add(project.getOwnerId());
+    Map<String, User> users = indexById(userRepository.findAllById(userIds), User::getUserId);
+    Map<String, Team> teams =
+        indexById(teamsRepository.findAllById(project.getTeamIds()), Team::getTeamId);
+    Map<String, Artifact> artifacts = indexById(
+        artifactsRepository.findAllById(project.getArtifactIds()), Artifact::getArtifactId);
+
     // users
     List<UserResponseDto> responseUserDtos = new ArrayList<>();
     for (String userId : project.getUserIds()) {
-      User user = userRepository.findByUserId(userId);
+      User user = users.get(userId);
       if (user == null) {
         response.put("msg", "User with ID " + userId + " not found.");
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -365,7 +378,7 @@ public class ProjectService {
     }
     List<WholeTeamDto> wholeTeamDto = new ArrayList<>();
     for (String teamId : project.getTeamIds()) {
-      Team team = teamsRepository.findTeamByTeamId(teamId);
+      Team team = teams.get(teamId);
       if (team == null) {
         response.put("msg", "Team with ID " + teamId + " not found.");
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -376,7 +389,7 @@ public class ProjectService {
     // artifacts
     List<WholeArtifactDto> wholeArtifactDto = new ArrayList<>();
     for (String artifactId : project.getArtifactIds()) {
-      Artifact artifact = artifactsRepository.findArtifactByArtifactId(artifactId);
+      Artifact artifact = artifacts.get(artifactId);
       if (artifact == null) {
         response.put("msg", "Artifact with ID " + artifactId + " not found.");
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -384,7 +397,7 @@ public class ProjectService {
       wholeArtifactDto.add(ArtifactMapper.toWholeArtifactDto(artifact));
     }
 
-    User owner = userRepository.findByUserId(project.getOwnerId());
+    User owner = users.get(project.getOwnerId());
     if (owner == null) {
       response.put("msg", "Owner not found.");
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -457,28 +470,24 @@ public class ProjectService {
 
       // Remove users separately
       for (String userId : usersToRemove) {
-        User user = userRepository.findByUserId(userId);
-        user.getProjectIds().remove(projectId);
-
-        List<Team> teams = teamsRepository.findTeamsByProjectId(projectId);
-        for (Team team : teams) {
-          if (team.getUserIds().contains(userId)) {
-            team.getUserIds().remove(userId);
-            teamsRepository.save(team);
-            user.getTeamIds().remove(team.getTeamId());
-          }
-        }
+        membershipRepository.removeProjectFromUser(userId, projectId);
 
-        userRepository.save(user);
+        // Remove the user from the teams of the project
+        membershipRepository.removeUserFromTeams(project.getTeamIds(), userId);
+        membershipRepository.removeTeamsFromUser(userId, project.getTeamIds());
+
+        membershipRepository.removeUserFromProject(projectId, userId);
         project.getUserIds().remove(userId); // Now it's safe to modify
       }
+      if (!usersToRemove.isEmpty()) {
+        project.getTeamIds().forEach(irrService::invalidate);
+      }
 
       // Add new users
       for (String userId : correctProjectUpdateDto.userIds()) {
         if (!project.getUserIds().contains(userId)) {
           User user = userRepository.findByUserId(userId);
-          user.getProjectIds().add(projectId);
-          userRepository.save(user);
+          membershipRepository.addProjectToUser(userId, projectId);
 
           // Send email to user
           String emailMessage = String.format("""
@@ -496,13 +505,16 @@ public class ProjectService {
               user.getUsername(), project.getProjectName(), project.getProjectDescription(),
               userRepository.findByUserId(project.getOwnerId()).getName() + " "
                   + userRepository.findByUserId(project.getOwnerId()).getSurname());
-          new GmailService().sendMail("Project Invitation", user.getEmail(), emailMessage);
+          mailOutboxService.enqueue("Project Invitation", user.getEmail(), emailMessage);
 
+          membershipRepository.addUserToProject(projectId, userId);
           project.getUserIds().add(userId);
         }
       }
 
-      projectRepository.save(project);
+      // Only the details are written, the members are kept up to date by the updates above
+      projectRepository.setDetails(projectId, project.getProjectName(),
+          project.getProjectDescription(), project.getProjectDeadline());
 
       response.put("msg", "Project updated successfully.");
       return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -546,12 +558,11 @@ public class ProjectService {
       User user = userRepository.findByEmail(email);
       if (!project.getUserIds().contains(user.getUserId())) {
         // Add the project to the user
-        user.getProjectIds().add(project.getProjectId());
-        userRepository.save(user);
+        membershipRepository.addProjectToUser(user.getUserId(), project.getProjectId());
 
         // Add the user to the project
+        membershipRepository.addUserToProject(project.getProjectId(), user.getUserId());
         project.getUserIds().add(user.getUserId());
-        projectRepository.save(project);
 
         // Send email to user
         String emailMessage = String.format("""
@@ -568,7 +579,7 @@ public class ProjectService {
                 """, user.getUsername(), project.getProjectName(), project.getProjectDescription(),
             userRepository.findByUserId(project.getOwnerId()).getName() + " "
                 + userRepository.findByUserId(project.getOwnerId()).getSurname());
-        new GmailService().sendMail("Project Invitation", user.getEmail(), emailMessage);
+        mailOutboxService.enqueue("Project Invitation", user.getEmail(), emailMessage);
       }
 
       // If the user is already in the project, do nothing
@@ -644,17 +655,10 @@ public class ProjectService {
 
     // TODO: Eventually delete the roles of the users
     // Delete links to the project from owner
-    User owner = userRepository.findByUserId(currentUserId);
-    owner.getProjectIds().remove(projectId);
-    userRepository.save(owner);
+    membershipRepository.removeProjectFromUser(currentUserId, projectId);
 
     // Delete links to the project from users
-    List<String> userIds = projectToDelete.getUserIds();
-    for (String userId : userIds) {
-      User user = userRepository.findByUserId(userId);
-      user.getProjectIds().remove(projectId);
-      userRepository.save(user);
-    }
+    membershipRepository.removeProjectFromUsers(projectToDelete.getUserIds(), projectId);
 
     // Delete teams using the proper service
     List<String> teamIds = projectToDelete.getTeamIds();
@@ -692,18 +696,14 @@ public class ProjectService {
     }
 
     // Add project to owner
-    owner.getProjectIds().add(project.getProjectId());
-    userRepository.save(owner);
+    membershipRepository.addProjectToUser(owner.getUserId(), project.getProjectId());
 
     // Add project to users
     List<String> userList = project.getUserIds();
+    membershipRepository.addProjectToUsers(userList, project.getProjectId());
     for (String userId : userList) {
       User user = userRepository.findByUserId(userId);
 
-      // Add the project to the user
-      user.getProjectIds().add(project.getProjectId());
-      userRepository.save(user);
-
       // Send email to user
       String emailMessage = String.format("""
               Dear %s,
@@ -718,7 +718,7 @@ public class ProjectService {
               %s
               """, user.getUsername(), project.getProjectName(), project.getProjectDescription(),
           owner.getName() + " " + owner.getSurname());
-      new GmailService().sendMail("Project Invitation", user.getEmail(), emailMessage);
+      mailOutboxService.enqueue("Project Invitation", user.getEmail(), emailMessage);
     }
   }
 
@@ -744,6 +744,25 @@ public class ProjectService {
     return null;
   }
 
+  /**
+   * Indexes a batch of entities by their ID, keeping the order in which they were returned.
+   *
+   * @param entities   the entities to index
+   * @param idFunction the function extracting the ID of an entity
+   * @param <T>        the type of the entities
+   * @return a map from ID to entity
+   */
+  private static <T> Map<String, T> indexById(Iterable<T> entities,
+      Function<T, String> idFunction) {
+    Map<String, T> index = new LinkedHashMap<>();
+    if (entities != null) {
+      for (T entity : entities) {
+        index.put(idFunction.apply(entity), entity);
+      }
+    }
+    return index;
+  }
+
   private String getLoggedInUserId() {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
     if (authentication == null || !authentication.isAuthenticated()) {
@@ -1,26 +1,74 @@
 package it.unisannio.studenti.qualitag.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.channel.ChannelOption;
+import it.unisannio.studenti.qualitag.config.PythonClientProperties;
+import it.unisannio.studenti.qualitag.exception.PythonServiceException;
+import it.unisannio.studenti.qualitag.irr.CodedRatings;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.List;
-import org.springframework.beans.factory.annotation.Value;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
 
 /**
  * Service to interact with the Python service.
+ *
+ * <p>Calls go through a bounded connection pool, time out, are retried with jittered backoff when
+ * they fail for a transient error, and fail fast while the Python service keeps failing. Failed
+ * calls end with a {@link PythonServiceException}.
  */
+@Slf4j
 @Service
 public class PythonClientService {
 
   private final WebClient webClient;
+  private final ConnectionProvider connectionProvider;
+  private final PythonClientProperties properties;
+  private final CircuitBreaker circuitBreaker;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  // Whether the Python service accepts the ratings dictionary-encoded
+  private final AtomicBoolean codedRatings = new AtomicBoolean(true);
 
   /**
-   * Constructor. It initializes the webClient with the base URL of the Python service.
+   * Constructor. It initializes the webClient with the settings of the Python service.
    *
-   * @param baseUrl the base URL of the Python service
+   * @param properties the settings of the Python service
    */
-  public PythonClientService(@Value("${python.service.base-url}") String baseUrl) {
-    this.webClient = WebClient.create(baseUrl);
+  public PythonClientService(PythonClientProperties properties) {
+    this.properties = properties;
+    this.connectionProvider = ConnectionProvider.builder("python-service")
+        .maxConnections(properties.maxConnections())
+        .pendingAcquireMaxCount(properties.maxPendingRequests())
+        .pendingAcquireTimeout(properties.readTimeout())
+        .build();
+
+    HttpClient httpClient = HttpClient.create(connectionProvider)
+        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+            (int) properties.connectTimeout().toMillis())
+        .responseTimeout(properties.readTimeout());
+
+    this.webClient = WebClient.builder()
+        .baseUrl(properties.baseUrl())
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .build();
+    this.circuitBreaker =
+        new CircuitBreaker(properties.failureThreshold(), properties.openDuration());
   }
 
   /**
@@ -28,16 +76,30 @@ public class PythonClientService {
    *
    * @param input the input data
    * @return the Krippendorff's alpha value
+   * @throws PythonServiceException if the Python service is not available
    */
   public String getKrippendorffAlpha(List<List<List<String>>> input) {
-    return webClient.post()
-        .uri("/api/krippendorff")
-        .contentType(MediaType.APPLICATION_JSON)
-        .bodyValue(input)
-        .exchangeToMono(clientResponse -> {
-          return clientResponse.bodyToMono(String.class);
-        })
-        .block();
+    return getKrippendorffAlphaAsync(input).block();
+  }
+
+  /**
+   * Calls the Python service to get the Krippendorff's alpha value, without blocking.
+   *
+   * <p>The input is sent dictionary-encoded; a Python service that refuses it is sent the nested
+   * lists instead, from then on.
+   *
+   * @param input the input data
+   * @return the Krippendorff's alpha value
+   */
+  public Mono<String> getKrippendorffAlphaAsync(List<List<List<String>>> input) {
+    Mono<String> legacy = Mono.defer(() -> postRatings(MediaType.APPLICATION_JSON, input));
+    if (!codedRatings.get()) {
+      return call(legacy);
+    }
+
+    return call(Mono.fromCallable(() -> objectMapper.writeValueAsBytes(CodedRatings.encode(input)))
+        .flatMap(body -> postRatings(MediaType.parseMediaType(CodedRatings.MEDIA_TYPE), body))
+        .switchIfEmpty(legacy));
   }
 
   /**
@@ -45,14 +107,182 @@ public class PythonClientService {
    *
    * @param tags the tags to process
    * @return the processed tags
+   * @throws PythonServiceException if the Python service is not available
    */
   public String processTags(List<String> tags) {
-    return webClient.post()
+    return processTagsAsync(tags).block();
+  }
+
+  /**
+   * Calls the Python service to process the tags, without blocking.
+   *
+   * @param tags the tags to process
+   * @return the processed tags
+   */
+  public Mono<String> processTagsAsync(List<String> tags) {
+    return call(webClient.post()
         .uri("/api/process-tags")
         .contentType(MediaType.APPLICATION_JSON)
         .bodyValue(tags)
         .retrieve()
-        .bodyToMono(String.class)
-        .block();
+        .bodyToMono(String.class));
+  }
+
+  /**
+   * Calls the Python service to consolidate tags.
+   *
+   * @param tags the values of the tags to consolidate
+   * @return the value each tag is consolidated into, or null if the service answered without one
+   * @throws PythonServiceException if the Python service is not available
+   */
+  public Map<String, String> consolidateTags(List<String> tags) {
+    return consolidateTagsAsync(tags).block();
+  }
+
+  /**
+   * Calls the Python service to consolidate tags, without blocking.
+   *
+   * @param tags the values of the tags to consolidate
+   * @return the value each tag is consolidated into
+   */
+  public Mono<Map<String, String>> consolidateTagsAsync(List<String> tags) {
+    return call(webClient.post()
+        .uri("/api/consolidate-tags")
+        .contentType(MediaType.APPLICATION_JSON)
+        .bodyValue(tags)
+        .retrieve()
+        .bodyToMono(new ParameterizedTypeReference<Map<String, Map<String, String>>>() {})
+        .mapNotNull(body -> body.get("result")));
+  }
+
+  /**
+   * Releases the pooled connections.
+   */
+  @PreDestroy
+  public void close() {
+    connectionProvider.dispose();
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Posts the ratings to compute the Krippendorff's alpha of. Client errors carry the reason in
+   * the body, so they are returned like any other answer, except for an unsupported media type,
+   * which completes empty.
+   */
+  private Mono<String> postRatings(MediaType contentType, Object body) {
+    return webClient.post()
+        .uri("/api/krippendorff")
+        .contentType(contentType)
+        .bodyValue(body)
+        .exchangeToMono(clientResponse -> {
+          if (clientResponse.statusCode().is5xxServerError()) {
+            return clientResponse.createException().flatMap(Mono::error);
+          }
+          if (clientResponse.statusCode().value() == 415
+              && !MediaType.APPLICATION_JSON.equals(contentType)) {
+            log.info("The Python service does not support coded ratings, sending JSON lists.");
+            codedRatings.set(false);
+            return clientResponse.releaseBody().then(Mono.empty());
+          }
+          return clientResponse.bodyToMono(String.class);
+        });
+  }
+
+  /**
+   * Wraps an idempotent call with the timeout, the retries and the circuit breaker.
+   */
+  private <T> Mono<T> call(Mono<T> request) {
+    Retry retry = Retry.backoff(properties.maxRetries(), properties.retryBackoff())
+        .jitter(0.5)
+        .filter(PythonClientService::isTransient)
+        .doBeforeRetry(signal -> log.warn("Retrying call to the Python service: {}",
+            signal.failure().toString()))
+        .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+
+    return Mono.defer(() -> {
+      if (!circuitBreaker.tryAcquire()) {
+        return Mono.error(new PythonServiceException("Python service unavailable."));
+      }
+      return request
+          .timeout(properties.readTimeout())
+          .retryWhen(retry)
+          .doOnSuccess(result -> circuitBreaker.onSuccess())
+          .doOnCancel(circuitBreaker::onCancel)
+          .doOnError(e -> {
+            if (isTransient(e)) {
+              circuitBreaker.onFailure();
+            } else {
+              circuitBreaker.onSuccess();
+            }
+          })
+          .onErrorMap(e -> new PythonServiceException(
+              "Python service call failed: " + e.getMessage(), e));
+    });
+  }
+
+  /**
+   * Tells whether a failed call may succeed if retried.
+   */
+  private static boolean isTransient(Throwable e) {
+    if (e instanceof WebClientResponseException responseException) {
+      HttpStatusCode status = responseException.getStatusCode();
+      return status.value() == 502 || status.value() == 503 || status.value() == 504;
+    }
+    return e instanceof WebClientRequestException || e instanceof TimeoutException;
+  }
+
+  /**
+   * Rejects calls for a while after too many consecutive failures, then lets a single call through
+   * to check whether the service has recovered.
+   */
+  static final class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private int failures;
+    private boolean open;
+    private boolean trialInProgress;
+    private long openedAt;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration) {
+      this.failureThreshold = failureThreshold;
+      this.openNanos = openDuration.toNanos();
+    }
+
+    synchronized boolean tryAcquire() {
+      if (!open) {
+        return true;
+      }
+      if (trialInProgress || System.nanoTime() - openedAt < openNanos) {
+        return false;
+      }
+      trialInProgress = true;
+      return true;
+    }
+
+    synchronized void onSuccess() {
+      failures = 0;
+      open = false;
+      trialInProgress = false;
+    }
+
+    synchronized void onCancel() {
+      trialInProgress = false;
+    }
+
+    synchronized void onFailure() {
+      failures++;
+      if (trialInProgress || failures >= failureThreshold) {
+        if (!open) {
+          log.warn("Python service failed {} times in a row, rejecting calls for {} ms",
+              failures, openNanos / 1_000_000);
+        }
+        open = true;
+        trialInProgress = false;
+        openedAt = System.nanoTime();
+      }
+    }
   }
 }
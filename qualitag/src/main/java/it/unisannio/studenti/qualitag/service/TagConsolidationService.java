@@ -0,0 +1,341 @@
+package it.unisannio.studenti.qualitag.service;
+
+import it.unisannio.studenti.qualitag.constants.TagConstants;
+import it.unisannio.studenti.qualitag.exception.PythonServiceException;
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.JobStatus;
+import it.unisannio.studenti.qualitag.model.JobType;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.JobRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.TagRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+/**
+ * The service consolidating tags: similar tag values are rewritten to a common one, chosen by the
+ * Python service.
+ *
+ * <p>The tags of a whole project are read with a single query, their distinct values are sent to
+ * the Python service in batches, each along with the values the earlier batches were consolidated
+ * into, and the new values are written with bulk updates. A tag that
+ * becomes equal to another tag of the same user on the same artifacts is merged into it. Only the
+ * artifacts in the scope of the consolidation change: a tag also on other artifacts is left there
+ * as it is, and a copy of it takes the new value on the artifacts of the scope. A project
+ * is consolidated as a background job, which reports its progress after every batch.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TagConsolidationService {
+
+  private final MembershipRepository membershipRepository;
+  private final ProjectRepository projectRepository;
+  private final JobRepository jobRepository;
+  private final TagRepository tagRepository;
+
+  private final IrrService irrService;
+  private final JobService jobService;
+  private final PythonClientService pythonClientService;
+
+  @Value("${tag.consolidation.batch-size:500}")
+  int batchSize = 500;
+
+  /**
+   * The outcome of a consolidation.
+   *
+   * @param tagValues the distinct values of the tags afterwards
+   * @param rewritten the number of tags given a new value
+   * @param merged    the number of tags removed because they became a duplicate
+   */
+  record Result(List<String> tagValues, int rewritten, int merged) {
+
+  }
+
+  /**
+   * A tag also on artifacts outside the scope of a consolidation.
+   *
+   * @param tag         the tag
+   * @param artifactIds the artifacts of the tag inside the scope
+   * @param value       the value the tag takes on them
+   */
+  private record Share(Tag tag, List<String> artifactIds, String value) {
+
+  }
+
+  // POST
+
+  /**
+   * Starts consolidating the tags of a project in the background.
+   *
+   * @param projectId the id of the project
+   * @return the response entity with the id of the job
+   */
+  public ResponseEntity<?> startConsolidation(String projectId) {
+    Map<String, Object> response = new HashMap<>();
+
+    // Retrieve the project
+    Project project = projectRepository.findProjectByProjectId(projectId);
+    if (project == null) {
+      response.put("msg", "Project not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+    }
+
+    // Only the owner can consolidate the tags of the project
+    String userId = getLoggedInUserId();
+    if (!project.getOwnerId().equals(userId)) {
+      response.put("msg", "Only the project owner can consolidate its tags.");
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    Job running = jobRepository.findFirstByProjectIdAndTypeAndStatusIn(projectId,
+        JobType.TAG_CONSOLIDATION, List.of(JobStatus.QUEUED, JobStatus.RUNNING));
+    if (running != null) {
+      response.put("msg", "The tags of the project are already being consolidated.");
+      response.put("jobId", running.getJobId());
+      return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+
+    return jobService.submit(JobType.TAG_CONSOLIDATION, projectId, userId,
+        progress -> consolidateProject(projectId, progress));
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Consolidates the tags of a project.
+   *
+   * @param projectId the id of the project
+   * @param progress  where to report the values consolidated so far
+   * @return the number of tags rewritten and merged
+   */
+  Map<String, Object> consolidateProject(String projectId, JobService.Progress progress) {
+    Project project = projectRepository.findProjectByProjectId(projectId);
+    if (project == null) {
+      throw new IllegalStateException("Project not found.");
+    }
+
+    List<Tag> tags = tagRepository.findTagsOfArtifacts(project.getArtifactIds());
+    Result result = consolidate(tags, project.getArtifactIds(), progress);
+    log.info("Consolidated the tags of the project {}: {} rewritten, {} merged.", projectId,
+        result.rewritten(), result.merged());
+
+    Map<String, Object> outcome = new HashMap<>();
+    outcome.put("rewrittenTags", result.rewritten());
+    outcome.put("mergedTags", result.merged());
+    return outcome;
+  }
+
+  /**
+   * Consolidates the given tags.
+   *
+   * @param tags        the tags, read at once
+   * @param artifactIds the artifacts in the scope of the consolidation; a tag also on other
+   *                    artifacts is only changed on these
+   * @param progress    where to report the values consolidated so far, or null
+   * @return the outcome of the consolidation
+   * @throws PythonServiceException if the Python service is not available
+   */
+  Result consolidate(List<Tag> tags, Collection<String> artifactIds,
+      JobService.Progress progress) {
+    // Every distinct value is sent once
+    List<String> values = new ArrayList<>(new TreeSet<>(tags.stream()
+        .map(Tag::getTagValue)
+        .toList()));
+    if (progress != null) {
+      progress.update(0, values.size());
+    }
+
+    // The values of the earlier batches are sent again through the values they were consolidated
+    // into, so similar values are grouped even when they fall in different batches
+    Map<String, String> consolidated = new HashMap<>();
+    Set<String> representatives = new TreeSet<>();
+    for (int from = 0; from < values.size(); from += batchSize) {
+      List<String> batch = values.subList(from, Math.min(from + batchSize, values.size()));
+      Set<String> sent = new LinkedHashSet<>(batch);
+      sent.addAll(representatives);
+      Map<String, String> answer = pythonClientService.consolidateTags(new ArrayList<>(sent));
+      if (answer == null) {
+        throw new PythonServiceException("The Python service did not consolidate the tags.");
+      }
+
+      // An earlier group joined with other values takes their common value
+      Map<String, String> moved = new HashMap<>();
+      for (String representative : representatives) {
+        String common = answer.get(representative);
+        if (common != null && !common.equals(representative)) {
+          moved.put(representative, common);
+        }
+      }
+      if (!moved.isEmpty()) {
+        consolidated.replaceAll((value, common) -> moved.getOrDefault(common, common));
+      }
+      for (String value : batch) {
+        String common = answer.get(value);
+        if (common != null) {
+          consolidated.put(value, common);
+        }
+      }
+      representatives = new TreeSet<>(consolidated.values());
+
+      if (progress != null) {
+        progress.update(from + batch.size(), values.size());
+      }
+    }
+
+    // A tag whose value does not change is kept over the ones that take that value
+    List<Tag> ordered = new ArrayList<>(tags);
+    ordered.sort(Comparator.comparing(tag -> !tag.getTagValue()
+        .equals(newValue(tag.getTagValue(), consolidated))));
+
+    Set<String> scope = new HashSet<>(artifactIds);
+    Map<String, Tag> kept = new HashMap<>();
+    Map<String, String> rewritten = new HashMap<>();
+    List<Tag> merged = new ArrayList<>();
+    List<Share> split = new ArrayList<>();
+    List<Share> detached = new ArrayList<>();
+    Set<String> changedArtifactIds = new HashSet<>();
+    for (Tag tag : ordered) {
+      String value = newValue(tag.getTagValue(), consolidated);
+      boolean changed = !value.equals(tag.getTagValue());
+      List<String> inScope = tag.getArtifactIds().stream().filter(scope::contains).toList();
+      boolean shared = inScope.size() < tag.getArtifactIds().size();
+
+      // The same duplicates TagService rejects: same user, value and list of artifacts. A tag also
+      // on artifacts outside the scope only changes on the ones inside
+      List<String> changes = changed && shared ? inScope : tag.getArtifactIds();
+      String key = tag.getCreatedBy() + '\n' + value + '\n' + changes;
+      if (kept.putIfAbsent(key, tag) != null) {
+        if (shared) {
+          detached.add(new Share(tag, inScope, value));
+        } else {
+          merged.add(tag);
+        }
+        changedArtifactIds.addAll(inScope);
+      } else if (changed) {
+        if (shared) {
+          split.add(new Share(tag, inScope, value));
+        } else {
+          rewritten.put(tag.getTagId(), value);
+        }
+        changedArtifactIds.addAll(inScope);
+      }
+    }
+
+    // The duplicates are removed first, so no new value collides with them
+    if (!merged.isEmpty()) {
+      Set<String> mergedIds = new HashSet<>();
+      Set<String> mergedArtifactIds = new HashSet<>();
+      Set<String> userIds = new HashSet<>();
+      for (Tag tag : merged) {
+        mergedIds.add(tag.getTagId());
+        mergedArtifactIds.addAll(tag.getArtifactIds());
+        userIds.add(tag.getCreatedBy());
+      }
+      membershipRepository.removeTagsFromArtifacts(mergedArtifactIds, mergedIds);
+      membershipRepository.removeTagsFromUsers(userIds, mergedIds);
+      tagRepository.deleteAllById(mergedIds);
+    }
+    for (Share share : detached) {
+      detach(share);
+    }
+    tagRepository.setTagValues(rewritten);
+    splitOff(split);
+
+    if (!changedArtifactIds.isEmpty()) {
+      irrService.invalidateArtifacts(changedArtifactIds);
+    }
+
+    List<String> tagValues = new ArrayList<>(new TreeSet<>(kept.values().stream()
+        .map(tag -> newValue(tag.getTagValue(), consolidated))
+        .toList()));
+    return new Result(tagValues, rewritten.size() + split.size(),
+        merged.size() + detached.size());
+  }
+
+  /**
+   * Removes a tag from the artifacts of the scope, leaving it on the others.
+   */
+  private void detach(Share share) {
+    String tagId = share.tag().getTagId();
+    membershipRepository.removeArtifactsFromTag(tagId, share.artifactIds());
+    membershipRepository.removeTagFromArtifacts(share.artifactIds(), tagId);
+  }
+
+  /**
+   * Gives the tags shared with artifacts outside the scope their new value on the artifacts of the
+   * scope only: a copy of each tag with the new value takes its place there.
+   */
+  private void splitOff(List<Share> split) {
+    if (split.isEmpty()) {
+      return;
+    }
+
+    List<Tag> copies = new ArrayList<>();
+    for (Share share : split) {
+      Tag copy = new Tag(share.value(), share.tag().getCreatedBy(), share.tag().getColorHex());
+      copy.getArtifactIds().addAll(share.artifactIds());
+      copies.add(copy);
+    }
+    copies = tagRepository.saveAll(copies);
+
+    for (int i = 0; i < split.size(); i++) {
+      Share share = split.get(i);
+      String copyId = copies.get(i).getTagId();
+      detach(share);
+      membershipRepository.addTagToArtifacts(share.artifactIds(), copyId);
+      membershipRepository.addTagToUser(share.tag().getCreatedBy(), copyId);
+    }
+  }
+
+  /**
+   * Returns the value a tag takes: the consolidated one in uppercase, like every tag value, unless
+   * it is not a valid tag value.
+   */
+  private static String newValue(String value, Map<String, String> consolidated) {
+    String newValue = consolidated.get(value);
+    if (newValue == null) {
+      return value;
+    }
+    newValue = newValue.trim().toUpperCase();
+    if (newValue.length() < TagConstants.MIN_TAG_VALUE_LENGTH
+        || newValue.length() > TagConstants.MAX_TAG_VALUE_LENGTH) {
+      return value;
+    }
+    return newValue;
+  }
+
+  private String getLoggedInUserId() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || !authentication.isAuthenticated()) {
+      throw new IllegalStateException("No authenticated user found.");
+    }
+
+    Object principal = authentication.getPrincipal();
+    if (principal instanceof CustomUserDetails(User user)) {
+      return user.getUserId();
+    }
+    throw new IllegalStateException(
+        "Unexpected authentication principal type: " + principal.getClass() + ".");
+  }
+}
@@ -6,10 +6,9 @@ import it.unisannio.studenti.qualitag.dto.tag.TagResponseDto;
 import it.unisannio.studenti.qualitag.dto.tag.TagUpdateDto;
 import it.unisannio.studenti.qualitag.exception.TagValidationException;
 import it.unisannio.studenti.qualitag.mapper.TagMapper;
-import it.unisannio.studenti.qualitag.model.Artifact;
 import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.User;
-import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
@@ -39,10 +38,12 @@ public class TagService {
 
   private final TagMapper tagMapper;
 
-  private final ArtifactRepository artifactRepository;
+  private final MembershipRepository membershipRepository;
   private final TagRepository tagRepository;
   private final UserRepository userRepository;
 
+  private final IrrService irrService;
+
   private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
   private final Validator validator = factory.getValidator();
 
@@ -114,9 +115,8 @@ public class TagService {
       }
 
       // adding tag to artifact
-      Artifact artifact = artifactRepository.findArtifactByArtifactId(artifactId);
-      artifact.getTags().add(tag.getTagId());
-      artifactRepository.save(artifact);
+      membershipRepository.addTagToArtifact(artifactId, tag.getTagId());
+      irrService.tagsAdded(artifactId, List.of(tag));
     }
 
     response.put("msg", "Tags added successfully.");
@@ -152,37 +152,22 @@ public class TagService {
       return false;
     }
 
-    // Check if the user already has a tag with the same value and for the same artifact
-    List<String> userTagIds = user.getTagIds();
-    for (String tagId : userTagIds) {
-      Tag userTag = tagRepository.findTagByTagId(tagId);
-      // check if the tag already exists with the same value
-      if (userTag.getTagValue().equals(tag.getTagValue())) {
-        // check if the tag is from the same artifact
-        if (userTag.getArtifactIds().equals(tag.getArtifactIds())) {
-          return false;
-        }
-      }
+    // Check if the user already has a tag with the same value and for the same artifacts, the
+    // whole list as the consolidation merges tags
+    if (tagRepository.existsByCreatedByAndTagValueAndArtifactIdsAndTagIdNot(user.getUserId(),
+        tag.getTagValue(), tag.getArtifactIds(), tag.getTagId())) {
+      return false;
     }
 
     // If all checks are passed, add the tag to the user
-    user.getTagIds().add(tag.getTagId());
-    userRepository.save(user);
+    membershipRepository.addTagToUser(user.getUserId(), tag.getTagId());
     return true;
   }
 
   private String getExistantTagId(Tag tag) {
-    User user = userRepository.findByUserId(tag.getCreatedBy());
-
-    List<String> userTagIds = user.getTagIds();
-    for (String tagId : userTagIds) {
-      Tag userTag = tagRepository.findTagByTagId(tagId);
-      if (userTag.getTagValue().equals(tag.getTagValue())) {
-        return userTag.getTagId();
-      }
-    }
-
-    return null;
+    Tag userTag = tagRepository.findFirstByCreatedByAndTagValue(tag.getCreatedBy(),
+        tag.getTagValue());
+    return userTag == null ? null : userTag.getTagId();
   }
 
 
@@ -247,16 +232,11 @@ public class TagService {
     }
 
     // Remove tag from user
-    User user = userRepository.findByUserId(tag.getCreatedBy());
-    user.getTagIds().remove(tag.getTagId());
-    userRepository.save(user);
+    membershipRepository.removeTagFromUser(tag.getCreatedBy(), tag.getTagId());
 
     // Remove tag from artifacts
-    for (String artifactId : tag.getArtifactIds()) {
-      Artifact artifact = artifactRepository.findArtifactByArtifactId(artifactId);
-      artifact.getTags().remove(tag.getTagId());
-      artifactRepository.save(artifact);
-    }
+    membershipRepository.removeTagFromArtifacts(tag.getArtifactIds(), tag.getTagId());
+    irrService.tagDeleted(tag);
 
     // Delete the tag
     tagRepository.deleteById(id);
@@ -322,13 +302,9 @@ public class TagService {
       TagUpdateDto correctedDto = validateUpdate(tagUpdateDto);
 
       // Check that the user doesn't already have a tag with the same value
-      User user = userRepository.findByUserId(tag.getCreatedBy());
-      List<String> userTagIds = user.getTagIds();
-      for (String tagId : userTagIds) {
-        Tag userTag = tagRepository.findTagByTagId(tagId);
-        if (userTag.getTagValue().equals(correctedDto.tagValue())) {
-          throw new TagValidationException("User already has a tag with the same value.");
-        }
+      if (tagRepository.existsByCreatedByAndTagValue(tag.getCreatedBy(),
+          correctedDto.tagValue())) {
+        throw new TagValidationException("User already has a tag with the same value.");
       }
 
       // Update tag
@@ -337,6 +313,7 @@ public class TagService {
 
       // Save tag
       tagRepository.save(tag);
+      irrService.tagUpdated(tag);
 
       response.put("msg", "Tag updated successfully.");
       return ResponseEntity.status(HttpStatus.OK).body(response);
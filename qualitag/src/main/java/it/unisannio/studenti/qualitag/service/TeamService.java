@@ -4,15 +4,13 @@ import it.unisannio.studenti.qualitag.constants.TeamConstants;
 import it.unisannio.studenti.qualitag.dto.team.CompletedTeamCreateDto;
 import it.unisannio.studenti.qualitag.dto.team.TeamCreateDto;
 import it.unisannio.studenti.qualitag.exception.TeamValidationException;
+import it.unisannio.studenti.qualitag.irr.TeamAgreement;
 import it.unisannio.studenti.qualitag.mapper.TeamMapper;
-import it.unisannio.studenti.qualitag.model.Artifact;
 import it.unisannio.studenti.qualitag.model.Project;
-import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
-import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
-import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
@@ -27,7 +25,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
-import org.json.JSONObject;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -41,14 +38,13 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class TeamService {
 
-  private final ArtifactRepository artifactRepository;
+  private final MembershipRepository membershipRepository;
   private final ProjectRepository projectRepository;
-  private final TagRepository tagRepository;
   private final TeamRepository teamRepository;
   private final UserRepository userRepository;
 
   private final ArtifactService artifactService;
-  private final PythonClientService pythonClientService;
+  private final IrrService irrService;
 
   private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
   private final Validator validator = factory.getValidator();
@@ -97,46 +93,20 @@ public class TeamService {
     }
 
     // Remove team from old users
-    for (String userId : team.getUserIds()) {
-      User user = userRepository.findByUserId(userId);
-      if (user == null) {
-        response.put("msg", "User with ID " + userId + " not found.");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-      }
-      user.getTeamIds().remove(teamId);
-      userRepository.save(user);
-    }
+    membershipRepository.removeTeamFromUsers(team.getUserIds(), teamId);
 
     // Insert team to new users
+    List<String> otherTeamIds = new ArrayList<>(project.getTeamIds());
+    otherTeamIds.remove(teamId);
     for (String userId : newUserIds) {
-      User user = userRepository.findByUserId(userId);
-      if (user == null) {
-        response.put("msg", "User with ID " + userId + " not found.");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-      }
-
       // If user is already in another team, switch it
-      for (String id : project.getTeamIds()) {
-        Team existingTeam = teamRepository.findTeamByTeamId(id);
-        if (existingTeam != null && existingTeam.getUserIds().contains(userId)) {
-          // Remove user from existing team
-          existingTeam.getUserIds().remove(userId);
-          teamRepository.save(existingTeam);
-
-          // Remove team from user
-          user.getTeamIds().remove(existingTeam.getTeamId());
-          userRepository.save(user);
-        }
-      }
-
-      // Add team to user
-      user.getTeamIds().add(teamId);
-      userRepository.save(user);
+      switchUserTeam(userId, teamId, otherTeamIds);
     }
 
     // Update the team's user IDs
     team.setUserIds(newUserIds);
-    teamRepository.save(team);
+    membershipRepository.setTeamUsers(teamId, newUserIds);
+    irrService.invalidate(teamId);
 
     response.put("msg", "Team users updated successfully.");
     return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -172,9 +142,7 @@ public class TeamService {
       this.addTeamToUsers(team);
 
       // Add team to project
-      Project project = projectRepository.findProjectByProjectId(teamCreateDto.projectId());
-      project.getTeamIds().add(team.getTeamId());
-      projectRepository.save(project);
+      membershipRepository.addTeamToProject(team.getProjectId(), team.getTeamId());
 
       response.put("msg", "Team added successfully.");
       return ResponseEntity.status(HttpStatus.CREATED).body(response);
@@ -282,6 +250,7 @@ public class TeamService {
     }
 
     // Validate users and add them to the team
+    Project project = projectRepository.findProjectByProjectId(team.getProjectId());
     List<String> userIds = team.getUserIds();
     for (String userId : userIds) {
       // Validate user ID
@@ -296,32 +265,33 @@ public class TeamService {
       }
 
       // Check if user is part of the project
-      Project project = projectRepository.findProjectByProjectId(team.getProjectId());
       if (!project.getUserIds().contains(userId)) {
         throw new TeamValidationException("User with ID " + userId 
             + " is not part of the project.");
       }
 
       // If user is already in another team, switch it
-      for (String teamId : project.getTeamIds()) {
-        Team existingTeam = teamRepository.findTeamByTeamId(teamId);
-        if (existingTeam != null && existingTeam.getUserIds().contains(userId)) {
-          // Remove user from existing team
-          existingTeam.getUserIds().remove(userId);
-          teamRepository.save(existingTeam);
-
-          // Remove team from user
-          user.getTeamIds().remove(existingTeam.getTeamId());
-          userRepository.save(user);
-        }
-      }
-
-      // Add team to user
-      user.getTeamIds().add(team.getTeamId());
-      userRepository.save(user);
+      switchUserTeam(userId, team.getTeamId(), project.getTeamIds());
     }
   }
 
+  /**
+   * Moves a user to a team, removing it from the other teams of the same project.
+   *
+   * @param userId       The user ID.
+   * @param teamId       The ID of the team the user is moved to.
+   * @param otherTeamIds The IDs of the other teams of the project.
+   */
+  private void switchUserTeam(String userId, String teamId, List<String> otherTeamIds) {
+    // Remove user from the other teams and the other teams from the user
+    membershipRepository.removeUserFromTeams(otherTeamIds, userId);
+    membershipRepository.removeTeamsFromUser(userId, otherTeamIds);
+    otherTeamIds.forEach(irrService::invalidate);
+
+    // Add team to user
+    membershipRepository.addTeamToUser(userId, teamId);
+  }
+
   /**
    * Gets teams by project ID.
    *
@@ -356,53 +326,20 @@ public class TeamService {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
-    List<List<List<String>>> data = new ArrayList<>();
-    for (String artifactId : team.getArtifactIds()) {
-      List<List<String>> innerData = new ArrayList<>();
-
-      Artifact artifact = artifactRepository.findArtifactByArtifactId(artifactId);
-      if (artifact == null) {
-        response.put("msg", "Artifact not found.");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-      }
-
-      List<Tag> tags = new ArrayList<>();
-      for (String tagId : artifact.getTags()) {
-        Tag tag = tagRepository.findTagByTagId(tagId);
-        if (tag != null) {
-          tags.add(tag);
-        }
-      }
-
-      for (String userId : team.getUserIds()) {
-        List<String> tagValues = new ArrayList<>();
-        for (Tag tag : tags) {
-          if (tag.getCreatedBy().equals(userId)) {
-            tagValues.add(tag.getTagValue());
-          }
-        }
-
-        innerData.add(tagValues);
-      }
-      data.add(innerData);
+    TeamAgreement agreement = irrService.getAgreement(team);
+    if (agreement == null) {
+      response.put("msg", "Artifact not found.");
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
-    String jsonAlpha = null;
+    double alphaValue;
     try {
-      jsonAlpha = pythonClientService.getKrippendorffAlpha(data);
-      System.out.println("JSON Alpha: " + jsonAlpha);
-    } catch (Exception e) {
-      response.put("msg", "Error while retrieving Krippendorff's alpha");
-      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
-    }
-    JSONObject jsonObject = new JSONObject(jsonAlpha);
-    if (!jsonObject.has("alpha")) {
-      response.put("msg", jsonObject.getString("error"));
+      alphaValue = agreement.alpha();
+    } catch (IllegalArgumentException e) {
+      response.put("msg", e.getMessage());
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
 
-    double alphaValue = jsonObject.getDouble("alpha");
-
     response.put("msg", "Successfully retrieved Krippendorff's alpha.");
     response.put("irr", alphaValue);
     return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -438,20 +375,10 @@ public class TeamService {
     }
 
     // Remove team from project
-    project.getTeamIds().remove(teamId);
-    projectRepository.save(project);
+    membershipRepository.removeTeamFromProject(project.getProjectId(), teamId);
 
     // Remove team from users
-    List<String> userIds = team.getUserIds();
-    for (String userId : userIds) {
-      User user = userRepository.findById(userId).orElse(null);
-      if (user == null) {
-        response.put("msg", "User with ID " + userId + " not found.");
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
-      }
-      user.getTeamIds().remove(teamId);
-      userRepository.save(user);
-    }
+    membershipRepository.removeTeamFromUsers(team.getUserIds(), teamId);
 
     // Delete all the artifacts of the team
     List<String> artifactIds = team.getArtifactIds();
@@ -461,6 +388,7 @@ public class TeamService {
 
     // Delete team from repository
     teamRepository.deleteById(teamId);
+    irrService.invalidate(teamId);
     if (teamRepository.existsById(teamId)) {
       response.put("msg", "Team not deleted.");
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
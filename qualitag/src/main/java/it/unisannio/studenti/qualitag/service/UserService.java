@@ -7,14 +7,14 @@ import it.unisannio.studenti.qualitag.dto.user.UserResponseDto;
 import it.unisannio.studenti.qualitag.mapper.UserMapper;
 import it.unisannio.studenti.qualitag.model.Project;
 import it.unisannio.studenti.qualitag.model.Tag;
-import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
 import it.unisannio.studenti.qualitag.repository.TagRepository;
-import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
 import it.unisannio.studenti.qualitag.security.service.AuthenticationService;
+import it.unisannio.studenti.qualitag.security.service.CustomUserDetailService;
 import it.unisannio.studenti.qualitag.security.service.JwtService;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
@@ -41,12 +41,14 @@ public class UserService {
 
   private final UserMapper userMapper;
 
+  private final MembershipRepository membershipRepository;
   private final ProjectRepository projectRepository;
   private final TagRepository tagRepository;
-  private final TeamRepository teamRepository;
   private final UserRepository userRepository;
 
   private final JwtService jwtService;
+  private final CustomUserDetailService customUserDetailService;
+  private final IrrService irrService;
   private final ProjectService projectService;
   private final TagService tagService;
 
@@ -180,6 +182,7 @@ public class UserService {
 
     // Save the updated user
     userRepository.save(existingUser);
+    customUserDetailService.evict(username);
 
     // Generate a JWT token
     String jwt = jwtService.generateToken(new CustomUserDetails(existingUser));
@@ -266,17 +269,13 @@ public class UserService {
       if (project.getOwnerId().equals(user.getUserId())) {
         projectService.deleteProject(projectId);
       } else {
-        project.getUserIds().remove(user.getUserId());
-        projectRepository.save(project);
+        membershipRepository.removeUserFromProject(projectId, user.getUserId());
       }
     }
 
     // Remove the user from the teams
-    for (String teamId : user.getTeamIds()) {
-      Team team = teamRepository.findTeamByTeamId(teamId);
-      team.getUserIds().remove(user.getUserId());
-      teamRepository.save(team);
-    }
+    membershipRepository.removeUserFromTeams(user.getTeamIds(), user.getUserId());
+    user.getTeamIds().forEach(irrService::invalidate);
 
     // Delete the user's tags
     for (String tagId : user.getTagIds()) {
@@ -285,6 +284,7 @@ public class UserService {
 
     // Delete the user
     userRepository.deleteByUsername(username);
+    customUserDetailService.evict(username);
 
     response.put("msg", "User deleted successfully.");
     return ResponseEntity.status(HttpStatus.OK).body(response);
@@ -0,0 +1,164 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides which artifact files are compressed at rest, and compresses and decompresses them.
+ *
+ * <p>Text files, such as source code, are stored in the gzip format and the encoding is recorded
+ * on the artifact. Files stored without an encoding are kept as they were uploaded. Only files up
+ * to a maximum size are compressed: a gzip stream is read from its start, so the larger files,
+ * the ones downloaded by ranges and previewed a window at a time, are kept as they are.
+ */
+@Component
+public class ArtifactCompression {
+
+  /**
+   * The gzip encoding, named as in the Content-Encoding header.
+   */
+  public static final String GZIP = "gzip";
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // Text formats that are not text/*
+  private static final Set<String> TEXT_TYPES = Set.of("application/json", "application/xml",
+      "application/javascript", "application/x-sh", "application/x-yaml", "application/yaml",
+      "application/sql", "application/x-python", "application/x-java", "image/svg+xml");
+
+  @Value("${artifact.compression.enabled:true}")
+  boolean enabled = true;
+
+  @Value("${artifact.compression.min-bytes:1024}")
+  long minBytes = 1024;
+
+  @Value("${artifact.compression.max-bytes:1048576}")
+  long maxBytes = 1024 * 1024;
+
+  /**
+   * Chooses the encoding a file is stored with.
+   *
+   * @param contentType the content type of the file
+   * @param size        the size of the file, or -1 if it is not known yet
+   * @return the encoding, or null if the file is stored as it is, as are the files whose size is
+   *         not known
+   */
+  public String encodingFor(String contentType, long size) {
+    if (!enabled || size < minBytes || size > maxBytes) {
+      return null;
+    }
+    return isText(contentType) ? GZIP : null;
+  }
+
+  /**
+   * Tells whether a content type is a text format.
+   *
+   * @param contentType the content type, possibly with parameters
+   * @return true if the content is text, false otherwise or if the type is null
+   */
+  public static boolean isText(String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    String type = contentType.toLowerCase();
+    int parameters = type.indexOf(';');
+    if (parameters >= 0) {
+      type = type.substring(0, parameters).trim();
+    }
+    return type.startsWith("text/") || TEXT_TYPES.contains(type)
+        || type.endsWith("+json") || type.endsWith("+xml");
+  }
+
+  /**
+   * Encodes the content of a file while it is read.
+   *
+   * @param content         the content, as uploaded
+   * @param contentEncoding the encoding, or null to keep the content as it is
+   * @return the encoded content
+   */
+  public static InputStream encode(InputStream content, String contentEncoding) {
+    if (contentEncoding == null) {
+      return content;
+    }
+    if (GZIP.equals(contentEncoding)) {
+      return new GzipCompressingInputStream(content);
+    }
+    throw new IllegalArgumentException("Unknown encoding: " + contentEncoding + ".");
+  }
+
+  /**
+   * Decodes the content of a stored file while it is read.
+   *
+   * @param stored          the content, as stored
+   * @param contentEncoding the encoding the file was stored with, or null
+   * @return the content, as uploaded
+   * @throws IOException if the content cannot be read
+   */
+  public static InputStream decode(InputStream stored, String contentEncoding)
+      throws IOException {
+    if (contentEncoding == null) {
+      return stored;
+    }
+    if (GZIP.equals(contentEncoding)) {
+      return new GZIPInputStream(stored, BUFFER_SIZE);
+    }
+    stored.close();
+    throw new IOException("Unknown encoding: " + contentEncoding + ".");
+  }
+
+  /**
+   * Returns a view of a stored file as it was uploaded, decoded while it is read. The file is
+   * decoded once to know its size, and a part of it is read by decoding up to the part.
+   *
+   * @param stored          the file, as stored
+   * @param contentEncoding the encoding the file was stored with
+   * @return the file, as uploaded
+   * @throws IOException if the file cannot be read
+   */
+  public static StoredFile decoded(StoredFile stored, String contentEncoding) throws IOException {
+    long size;
+    try (InputStream in = decode(stored.openStream(), contentEncoding)) {
+      size = in.transferTo(OutputStream.nullOutputStream());
+    }
+    return new DecodedFile(stored, contentEncoding, size);
+  }
+
+  /**
+   * A stored file, decoded while it is read.
+   */
+  private record DecodedFile(StoredFile stored, String contentEncoding, long size)
+      implements StoredFile {
+
+    @Override
+    public long lastModified() {
+      return stored.lastModified();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+      return decode(stored.openStream(), contentEncoding);
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long position, long count) throws IOException {
+      try (InputStream in = openStream()) {
+        in.skipNBytes(position);
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(count, 1))];
+        long remaining = count;
+        while (remaining > 0) {
+          int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+          if (read < 0) {
+            throw new IOException("File truncated while being sent.");
+          }
+          out.write(buffer, 0, read);
+          remaining -= read;
+        }
+      }
+    }
+  }
+}
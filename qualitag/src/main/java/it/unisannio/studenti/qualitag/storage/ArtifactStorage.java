@@ -0,0 +1,61 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Stores the artifact files. A stored file is identified by the location returned when it is
+ * stored, which is what {@code Artifact.filePath} holds.
+ */
+public interface ArtifactStorage {
+
+  /**
+   * Stores a file. Files with the same content may be stored once and shared.
+   *
+   * @param content the content of the file, closed when done
+   * @return the location of the stored file
+   * @throws IOException if the file cannot be written
+   */
+  String store(InputStream content) throws IOException;
+
+  /**
+   * Stores a file that is already on the local disk, taking it over: the file is moved or
+   * deleted once stored.
+   *
+   * @param file the file to store
+   * @return the location of the stored file
+   * @throws IOException if the file cannot be read or written
+   */
+  default String storeFile(Path file) throws IOException {
+    String location = store(Files.newInputStream(file));
+    Files.delete(file);
+    return location;
+  }
+
+  /**
+   * Opens a stored file for reading.
+   *
+   * @param location the location of the file
+   * @return the file, or null if there is no file at the location
+   * @throws IOException if the file cannot be read
+   */
+  StoredFile open(String location) throws IOException;
+
+  /**
+   * Drops a reference to a stored file, deleting it if nothing else references it.
+   *
+   * @param location the location of the file
+   * @throws IOException if the file cannot be deleted
+   */
+  void release(String location) throws IOException;
+
+  /**
+   * Tells whether a location belongs to this storage.
+   *
+   * @param location the location of a file
+   * @return true if this storage handles the location
+   */
+  boolean owns(String location);
+}
@@ -0,0 +1,131 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the artifact files from one storage to the other, then stops the application. It runs
+ * when {@code artifact.storage.migrate-to} is set to local or gridfs, e.g. with
+ * {@code --artifact.storage.migrate-to=gridfs --spring.main.web-application-type=none}, while no
+ * other instance is serving requests.
+ *
+ * <p>Artifacts are read with a cursor and moved one at a time: the file is copied, the artifact
+ * is pointed at the copy, and only then the original is released. A failure leaves the artifact
+ * on its original file, so the migration can be run again.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "artifact.storage.migrate-to")
+@RequiredArgsConstructor
+public class ArtifactStorageMigrator implements ApplicationRunner {
+
+  private final LocalArtifactStorage localArtifactStorage;
+  private final GridFsArtifactStorage gridFsArtifactStorage;
+  private final ArtifactRepository artifactRepository;
+  private final MongoTemplate mongoTemplate;
+  private final ConfigurableApplicationContext context;
+
+  @Value("${artifact.storage.migrate-to}")
+  String migrateTo;
+
+  /**
+   * The outcome of a migration.
+   *
+   * @param moved   the number of artifacts moved to the target storage
+   * @param skipped the number of artifacts already in the target storage, or changed meanwhile
+   * @param failed  the number of artifacts that could not be moved
+   */
+  record Result(int moved, int skipped, int failed) {
+
+  }
+
+  @Override
+  public void run(ApplicationArguments args) {
+    Result result = switch (migrateTo) {
+      case "gridfs" -> migrate(localArtifactStorage, gridFsArtifactStorage);
+      case "local" -> migrate(gridFsArtifactStorage, localArtifactStorage);
+      default -> throw new IllegalArgumentException(
+          "Unknown artifact storage: " + migrateTo + ".");
+    };
+    log.info("Artifact storage migration to {} done: {} moved, {} skipped, {} failed.",
+        migrateTo, result.moved(), result.skipped(), result.failed());
+
+    int exitCode = SpringApplication.exit(context, () -> result.failed() == 0 ? 0 : 1);
+    System.exit(exitCode);
+  }
+
+  /**
+   * Moves every artifact file held by the source storage to the target storage.
+   *
+   * @param source the storage to move the files from
+   * @param target the storage to move the files to
+   * @return the outcome of the migration
+   */
+  Result migrate(ArtifactStorage source, ArtifactStorage target) {
+    Query query = new Query(Criteria.where("filePath").ne(null));
+    query.fields().include("_id").include("filePath");
+
+    int moved = 0;
+    int skipped = 0;
+    int failed = 0;
+    try (Stream<Artifact> artifacts = mongoTemplate.stream(query, Artifact.class)) {
+      Iterator<Artifact> iterator = artifacts.iterator();
+      while (iterator.hasNext()) {
+        Artifact artifact = iterator.next();
+        if (!source.owns(artifact.getFilePath())) {
+          skipped++;
+          continue;
+        }
+        try {
+          if (move(artifact, source, target)) {
+            moved++;
+          } else {
+            skipped++;
+          }
+        } catch (IOException | RuntimeException e) {
+          log.error("Cannot move the file of artifact {}: {}", artifact.getArtifactId(),
+              e.getMessage());
+          failed++;
+        }
+      }
+    }
+    return new Result(moved, skipped, failed);
+  }
+
+  private boolean move(Artifact artifact, ArtifactStorage source, ArtifactStorage target)
+      throws IOException {
+    String oldLocation = artifact.getFilePath();
+    StoredFile file = source.open(oldLocation);
+    if (file == null) {
+      throw new IOException("File " + oldLocation + " not found.");
+    }
+
+    String newLocation;
+    try (InputStream content = file.openStream()) {
+      newLocation = target.store(content);
+    }
+    if (!artifactRepository.replaceFilePath(artifact.getArtifactId(), oldLocation, newLocation)) {
+      // The artifact was deleted or changed meanwhile
+      target.release(newLocation);
+      return false;
+    }
+    source.release(oldLocation);
+    return true;
+  }
+}
@@ -0,0 +1,160 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import com.mongodb.client.gridfs.model.GridFSFile;
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+import it.unisannio.studenti.qualitag.repository.ArtifactBlobRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the artifact files in MongoDB GridFS, so every instance of the application sees the same
+ * files. Files with the same content are kept once and counted like on the local disk. The
+ * location of a file is {@code gridfs:} followed by the id of the GridFS file.
+ *
+ * <p>Every upload is written to its own GridFS file, then the reference record decides atomically
+ * which file holds the content. A record is removed atomically with its last reference, so an
+ * upload racing with the deletion of the same content creates a new record and keeps its own file.
+ * This holds across instances, with no lock.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GridFsArtifactStorage implements ArtifactStorage {
+
+  static final String LOCATION_PREFIX = "gridfs:";
+
+  private static final String FILES_COLLECTION = "fs.files";
+  private static final String DIGEST_METADATA = "metadata.digest";
+
+  private final ArtifactBlobRepository artifactBlobRepository;
+  private final GridFsTemplate gridFsTemplate;
+  private final MongoTemplate mongoTemplate;
+
+  @Override
+  public String store(InputStream content) throws IOException {
+    MessageDigest sha256 = LocalArtifactStorage.newDigest();
+    ObjectId fileId;
+    try (InputStream in = new DigestInputStream(content, sha256)) {
+      fileId = gridFsTemplate.store(in, "upload", new Document());
+    }
+    String digest = HexFormat.of().formatHex(sha256.digest());
+    mongoTemplate.updateFirst(byId(fileId), new Update().set(DIGEST_METADATA, digest),
+        FILES_COLLECTION);
+
+    GridFSFile file = gridFsTemplate.findOne(byId(fileId));
+    String key = LOCATION_PREFIX + digest;
+    artifactBlobRepository.addReference(key, file.getLength());
+
+    String holder = artifactBlobRepository.claimFile(key, fileId.toHexString());
+    if (!fileId.toHexString().equals(holder)) {
+      gridFsTemplate.delete(byId(fileId));
+    }
+    return LOCATION_PREFIX + holder;
+  }
+
+  @Override
+  public StoredFile open(String location) {
+    GridFSFile file = findFile(location);
+    return file == null ? null : new GridFsStoredFile(file);
+  }
+
+  @Override
+  public void release(String location) {
+    GridFSFile file = findFile(location);
+    if (file == null || file.getMetadata() == null) {
+      log.warn("Stored file {} not found, nothing to release.", location);
+      return;
+    }
+
+    String key = LOCATION_PREFIX + file.getMetadata().getString("digest");
+    long references = artifactBlobRepository.removeReference(key);
+    if (references > 0) {
+      return;
+    }
+    ArtifactBlob blob = artifactBlobRepository.removeIfUnreferenced(key);
+    if (blob != null && blob.getFileId() != null) {
+      gridFsTemplate.delete(byId(new ObjectId(blob.getFileId())));
+    } else if (references < 0) {
+      log.warn("Stored file {} has no reference count, it is left in place.", location);
+    }
+  }
+
+  @Override
+  public boolean owns(String location) {
+    return location.startsWith(LOCATION_PREFIX);
+  }
+
+  // UTILITY METHODS
+
+  private GridFSFile findFile(String location) {
+    String id = location.substring(LOCATION_PREFIX.length());
+    if (!ObjectId.isValid(id)) {
+      return null;
+    }
+    return gridFsTemplate.findOne(byId(new ObjectId(id)));
+  }
+
+  private static Query byId(ObjectId fileId) {
+    return new Query(Criteria.where("_id").is(fileId));
+  }
+
+  /**
+   * A file in GridFS. Parts of it are read by skipping the chunks before them.
+   */
+  private final class GridFsStoredFile implements StoredFile {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final GridFSFile file;
+
+    private GridFsStoredFile(GridFSFile file) {
+      this.file = file;
+    }
+
+    @Override
+    public long size() {
+      return file.getLength();
+    }
+
+    @Override
+    public long lastModified() {
+      return file.getUploadDate().getTime();
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+      return gridFsTemplate.getResource(file).getInputStream();
+    }
+
+    @Override
+    public void writeTo(OutputStream out, long position, long count) throws IOException {
+      try (InputStream in = openStream()) {
+        in.skipNBytes(position);
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(count, 1))];
+        long remaining = count;
+        while (remaining > 0) {
+          int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+          if (read < 0) {
+            throw new IOException("File truncated while being sent.");
+          }
+          out.write(buffer, 0, read);
+          remaining -= read;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Reads a stream compressed in the gzip format, compressing it while it is read. The storage takes
+ * the content as a stream, so it can be compressed on the way without a temporary copy.
+ */
+final class GzipCompressingInputStream extends InputStream {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  // No file name and no modification time, so the same content always compresses the same way
+  private static final byte[] HEADER =
+      {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  private final CRC32 crc = new CRC32();
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+  private final InputStream source;
+  private final SequenceInputStream parts;
+
+  GzipCompressingInputStream(InputStream source) {
+    this.source = new CheckedInputStream(source, crc);
+
+    Iterator<Supplier<InputStream>> suppliers = List.<Supplier<InputStream>>of(
+        () -> new ByteArrayInputStream(HEADER),
+        () -> new DeflaterInputStream(this.source, deflater, BUFFER_SIZE),
+        this::trailer).iterator();
+    this.parts = new SequenceInputStream(new Enumeration<>() {
+      @Override
+      public boolean hasMoreElements() {
+        return suppliers.hasNext();
+      }
+
+      @Override
+      public InputStream nextElement() {
+        return suppliers.next().get();
+      }
+    });
+  }
+
+  @Override
+  public int read() throws IOException {
+    return parts.read();
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    return parts.read(b, off, len);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      parts.close();
+      source.close();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Returns the trailer, read once the whole source was compressed: the CRC-32 and the size of the
+   * source, little-endian.
+   */
+  private InputStream trailer() {
+    long checksum = crc.getValue();
+    long size = deflater.getBytesRead();
+    byte[] trailer = new byte[8];
+    for (int i = 0; i < 4; i++) {
+      trailer[i] = (byte) (checksum >>> (8 * i));
+      trailer[4 + i] = (byte) (size >>> (8 * i));
+    }
+    return new ByteArrayInputStream(trailer);
+  }
+}
@@ -0,0 +1,336 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+import it.unisannio.studenti.qualitag.repository.ArtifactBlobRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores the artifact files on the local disk, under the SHA-256 digest of their content, so a
+ * file uploaded several times is kept once. Each stored file counts the artifacts pointing at it
+ * and is deleted when the last one goes away. The location of a file is its path.
+ *
+ * <p>Files are spread over two levels of directories named after the first two pairs of digits of
+ * the digest, such as {@code 2c/f2/2cf24d...}, so no directory grows past a few thousand files.
+ * Files stored before, directly in the storage directory, are still found, and are moved by the
+ * {@link LocalLayoutMigrator}. A file is written to a temporary directory while it is hashed, then
+ * moved in place; directories are only created when a move finds them missing.
+ *
+ * <p>The reference count and the file are updated together under a lock per digest, which makes
+ * concurrent uploads and deletions of the same content safe within this instance.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalArtifactStorage implements ArtifactStorage {
+
+  // The directory holding the files being written, under the storage directory
+  static final String TEMP_DIRECTORY = "tmp";
+
+  private static final Pattern DIGEST = Pattern.compile("[0-9a-f]{64}");
+  private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+  private static final int LOCK_STRIPES = 64;
+
+  private final ArtifactBlobRepository artifactBlobRepository;
+  private final Object[] locks = newLocks();
+
+  @Value("${artifact.storage.dir:../artifacts}")
+  String storageDir = "../artifacts";
+
+  /**
+   * Stores a file, hashing it while it is copied. If a file with the same content is already
+   * stored, the copy is dropped and the existing file gets one more reference.
+   *
+   * @param content the content of the file, closed when done
+   * @return the path of the stored file
+   * @throws IOException if the file cannot be written
+   */
+  @Override
+  public String store(InputStream content) throws IOException {
+    Path temp = createTempFile();
+    MessageDigest sha256 = newDigest();
+    long size;
+    try (InputStream in = new DigestInputStream(content, sha256)) {
+      size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+
+    try {
+      return promote(temp, HexFormat.of().formatHex(sha256.digest()), size);
+    } catch (IOException e) {
+      Files.deleteIfExists(temp);
+      throw e;
+    }
+  }
+
+  /**
+   * Stores a file already on disk. It is hashed in place and moved under its digest, so a large
+   * file is not copied when it is on the same file system as the storage.
+   *
+   * @param file the file to store
+   * @return the path of the stored file
+   * @throws IOException if the file cannot be read or moved
+   */
+  @Override
+  public String storeFile(Path file) throws IOException {
+    MessageDigest sha256 = newDigest();
+    long size;
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha256)) {
+      size = in.transferTo(OutputStream.nullOutputStream());
+    }
+
+    try {
+      return promote(file, HexFormat.of().formatHex(sha256.digest()), size);
+    } catch (AtomicMoveNotSupportedException e) {
+      // On another file system, so it is copied instead
+      return ArtifactStorage.super.storeFile(file);
+    }
+  }
+
+  @Override
+  public StoredFile open(String location) throws IOException {
+    return LocalStoredFile.of(Paths.get(location));
+  }
+
+  /**
+   * Drops a reference to a stored file, deleting the file if it was the last one. Files stored
+   * before the deduplication, which are not named after their digest, are deleted right away.
+   *
+   * @param filePath the path of the file
+   * @throws IOException if the file cannot be deleted
+   */
+  @Override
+  public void release(String filePath) throws IOException {
+    Path path = Paths.get(filePath);
+    String digest = digestOf(path);
+    if (digest == null) {
+      Files.delete(path);
+      return;
+    }
+
+    synchronized (lockFor(digest)) {
+      long references = artifactBlobRepository.removeReference(digest);
+      if (references <= 0 && artifactBlobRepository.removeIfUnreferenced(digest) != null) {
+        Files.deleteIfExists(path);
+      } else if (references < 0) {
+        log.warn("Stored file {} has no reference count, it is left in place.", filePath);
+      }
+    }
+  }
+
+  @Override
+  public boolean owns(String location) {
+    return !location.startsWith(GridFsArtifactStorage.LOCATION_PREFIX);
+  }
+
+  /**
+   * Removes a file no artifact points at, with its reference count. The file is kept if its
+   * content was referenced after the cutoff, since an upload may be about to point at it.
+   *
+   * @param file       the file
+   * @param cutoff     the time the content must have been last referenced before
+   * @param quarantine the directory the file is moved to, or null to delete it
+   * @return whether the file was removed
+   * @throws IOException if the file cannot be deleted or moved
+   */
+  boolean reclaim(Path file, long cutoff, Path quarantine) throws IOException {
+    String digest = digestOf(file);
+    if (digest == null) {
+      return dispose(file, quarantine);
+    }
+
+    synchronized (lockFor(digest)) {
+      ArtifactBlob blob = artifactBlobRepository.findById(digest).orElse(null);
+      if (blob != null && blob.getLastReferencedAt() >= cutoff) {
+        return false;
+      }
+      boolean removed = dispose(file, quarantine);
+      if (blob != null) {
+        artifactBlobRepository.deleteById(digest);
+      }
+      return removed;
+    }
+  }
+
+  // UTILITY METHODS
+
+  private static boolean dispose(Path file, Path quarantine) throws IOException {
+    if (quarantine == null) {
+      return Files.deleteIfExists(file);
+    }
+    Files.createDirectories(quarantine);
+    Files.move(file, quarantine.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    return true;
+  }
+
+  /**
+   * Moves a file under its digest, or drops it if the same content is already stored, and adds
+   * a reference to the stored file. The file is left in place if it cannot be moved.
+   */
+  private String promote(Path file, String digest, long size) throws IOException {
+    Path target = pathFor(digest);
+    synchronized (lockFor(digest)) {
+      artifactBlobRepository.addReference(digest, size);
+      try {
+        Path existing = findStored(digest);
+        if (existing != null) {
+          Files.delete(file);
+          target = existing;
+        } else {
+          moveInto(file, target);
+        }
+      } catch (IOException e) {
+        artifactBlobRepository.removeReference(digest);
+        throw e;
+      }
+    }
+    return target.toString();
+  }
+
+  /**
+   * Returns the stored file with a digest, in its directory or, if it was stored before the files
+   * were spread over directories, directly in the storage directory.
+   */
+  private Path findStored(String digest) {
+    Path path = pathFor(digest);
+    if (Files.exists(path)) {
+      return path;
+    }
+    Path flat = getRoot().resolve(digest);
+    return Files.exists(flat) ? flat : null;
+  }
+
+  /**
+   * Moves a file stored directly in the storage directory to the directory of its digest.
+   *
+   * @param flat the file, in the storage directory
+   * @return the new path of the file, also if it was moved before
+   * @throws IOException if the file cannot be moved
+   */
+  Path relocate(Path flat) throws IOException {
+    String digest = digestOf(flat);
+    if (digest == null) {
+      throw new IllegalArgumentException("Not a stored file: " + flat + ".");
+    }
+    Path target = pathFor(digest);
+    synchronized (lockFor(digest)) {
+      if (Files.exists(target)) {
+        Files.deleteIfExists(flat);
+      } else if (Files.exists(flat)) {
+        moveInto(flat, target);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Creates a temporary file, creating the temporary directory the first time.
+   */
+  private Path createTempFile() throws IOException {
+    Path tempDir = getRoot().resolve(TEMP_DIRECTORY);
+    try {
+      return Files.createTempFile(tempDir, "upload-", ".tmp");
+    } catch (NoSuchFileException e) {
+      Files.createDirectories(tempDir);
+      return Files.createTempFile(tempDir, "upload-", ".tmp");
+    }
+  }
+
+  /**
+   * Moves a file atomically, creating the directory of the target if the move finds it missing.
+   */
+  private static void moveInto(Path file, Path target) throws IOException {
+    try {
+      Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (NoSuchFileException e) {
+      if (!Files.exists(file)) {
+        throw e;
+      }
+      Files.createDirectories(target.getParent());
+      Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /**
+   * Returns the path a file with a digest is stored at.
+   */
+  Path pathFor(String digest) {
+    return getRoot().resolve(digest.substring(0, 2)).resolve(digest.substring(2, 4))
+        .resolve(digest);
+  }
+
+  /**
+   * Returns the directory holding the stored files.
+   */
+  Path getRoot() {
+    return Paths.get(System.getProperty("user.dir")).resolve(storageDir).normalize();
+  }
+
+  /**
+   * Returns the path the artifacts stored before the paths were normalized point at a file of the
+   * storage directory through: the storage directory resolved against the working directory, as
+   * in {@code <working directory>/../artifacts/<name>}.
+   */
+  String legacyPathOf(Path file) {
+    return Paths.get(System.getProperty("user.dir")).resolve(storageDir)
+        .resolve(file.getFileName()).toString();
+  }
+
+  /**
+   * Returns the digest a stored file is named after, or null if it is not a stored file.
+   */
+  static String digestOf(Path path) {
+    Path fileName = path.getFileName();
+    if (fileName == null || !DIGEST.matcher(fileName.toString()).matches()) {
+      return null;
+    }
+    return fileName.toString();
+  }
+
+  /**
+   * Tells whether a directory is one of those the stored files are spread over.
+   */
+  static boolean isShardDirectory(Path path) {
+    Path fileName = path.getFileName();
+    return fileName != null && SHARD.matcher(fileName.toString()).matches()
+        && Files.isDirectory(path);
+  }
+
+  private Object lockFor(String digest) {
+    return locks[Math.floorMod(digest.hashCode(), LOCK_STRIPES)];
+  }
+
+  private static Object[] newLocks() {
+    Object[] locks = new Object[LOCK_STRIPES];
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new Object();
+    }
+    return locks;
+  }
+
+  static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available.", e);
+    }
+  }
+}
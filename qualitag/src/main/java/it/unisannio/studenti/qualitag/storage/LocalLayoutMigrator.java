@@ -0,0 +1,143 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import it.unisannio.studenti.qualitag.repository.ArtifactBlobRepository;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the artifact files stored directly in the storage directory to the directories of their
+ * digests, then stops the application. The files stored before the deduplication, named after the
+ * upload they came from, are hashed and stored like new files. It runs when {@code artifact.storage.migrate-layout} is
+ * true, e.g. with {@code --artifact.storage.migrate-layout=true
+ * --spring.main.web-application-type=none}, while no other instance is serving requests.
+ *
+ * <p>For every file, the artifacts are pointed at the new path before the file is moved, so a
+ * migration that fails halfway is completed by running it again. The artifacts of a file stored
+ * before the deduplication are found through its path as stored, either normalized or as
+ * {@code <working directory>/../artifacts/<name>}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "artifact.storage.migrate-layout", havingValue = "true")
+@RequiredArgsConstructor
+public class LocalLayoutMigrator implements ApplicationRunner {
+
+  private final LocalArtifactStorage localArtifactStorage;
+  private final ArtifactBlobRepository artifactBlobRepository;
+  private final ArtifactRepository artifactRepository;
+  private final ConfigurableApplicationContext context;
+
+  /**
+   * The outcome of a migration.
+   *
+   * @param moved     the number of files moved
+   * @param artifacts the number of artifacts pointed at the moved files
+   * @param failed    the number of files that could not be moved
+   */
+  record Result(int moved, long artifacts, int failed) {
+
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    Result result = migrate();
+    log.info("Artifact file layout migration done: {} files moved, {} artifacts updated, "
+        + "{} failed.", result.moved(), result.artifacts(), result.failed());
+
+    int exitCode = SpringApplication.exit(context, () -> result.failed() == 0 ? 0 : 1);
+    System.exit(exitCode);
+  }
+
+  /**
+   * Moves every file out of the storage directory: first the files named after their digest, then
+   * the files stored before the deduplication, so these find the stored copies of their content.
+   *
+   * @return the outcome of the migration
+   * @throws IOException if the storage directory cannot be listed
+   */
+  Result migrate() throws IOException {
+    Path root = localArtifactStorage.getRoot();
+    int moved = 0;
+    long artifacts = 0;
+    int failed = 0;
+    if (!Files.isDirectory(root)) {
+      return new Result(moved, artifacts, failed);
+    }
+
+    for (boolean stored : new boolean[] {true, false}) {
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(root,
+          path -> (LocalArtifactStorage.digestOf(path) != null) == stored
+              && Files.isRegularFile(path))) {
+        for (Path flat : files) {
+          try {
+            artifacts += stored ? relocate(flat) : promote(flat);
+            moved++;
+          } catch (IOException | RuntimeException e) {
+            log.error("Cannot move the artifact file {}: {}", flat, e.getMessage());
+            failed++;
+          }
+        }
+      }
+    }
+    return new Result(moved, artifacts, failed);
+  }
+
+  /**
+   * Moves a file named after its digest to the directory of its digest.
+   *
+   * @return the number of artifacts pointed at the new path
+   */
+  private long relocate(Path flat) throws IOException {
+    Path target = localArtifactStorage.pathFor(LocalArtifactStorage.digestOf(flat));
+    long artifacts = artifactRepository.replaceFilePaths(flat.toString(), target.toString());
+    localArtifactStorage.relocate(flat);
+    return artifacts;
+  }
+
+  /**
+   * Stores a file saved before the deduplication under its digest, with a reference for each of
+   * its artifacts. When a previous run has already pointed the artifacts at the new path, none are
+   * found and the file gets the single reference of its upload.
+   *
+   * @return the number of artifacts pointed at the new path
+   */
+  private long promote(Path flat) throws IOException {
+    Path target = localArtifactStorage.pathFor(digestOf(flat));
+    long artifacts = artifactRepository.replaceFilePaths(flat.toString(), target.toString());
+    String legacy = localArtifactStorage.legacyPathOf(flat);
+    if (!legacy.equals(flat.toString())) {
+      artifacts += artifactRepository.replaceFilePaths(legacy, target.toString());
+    }
+
+    String stored = localArtifactStorage.storeFile(flat);
+    long size = Files.size(Path.of(stored));
+    for (long reference = 1; reference < artifacts; reference++) {
+      artifactBlobRepository.addReference(LocalArtifactStorage.digestOf(target), size);
+    }
+    return artifacts;
+  }
+
+  private static String digestOf(Path file) throws IOException {
+    MessageDigest sha256 = LocalArtifactStorage.newDigest();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(file), sha256)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return HexFormat.of().formatHex(sha256.digest());
+  }
+}
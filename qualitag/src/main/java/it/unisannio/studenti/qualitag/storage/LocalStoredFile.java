@@ -0,0 +1,79 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file on the local disk. Parts of it are written through its channel from the requested
+ * position, without reading the file from the start, and read by mapping them in memory.
+ *
+ * <p>The response stream is not a file or socket channel, so {@link FileChannel#transferTo} copies
+ * through a small buffer of the JDK instead of handing the copy to the kernel; with TLS enabled the
+ * bytes pass through the application to be encrypted anyway. It still avoids reading whole parts
+ * into the heap.
+ *
+ * @param path         the path of the file
+ * @param size         the size of the file, in bytes
+ * @param lastModified the last modification time, in milliseconds since the epoch
+ */
+public record LocalStoredFile(Path path, long size, long lastModified) implements StoredFile {
+
+  /**
+   * Reads the attributes of a file on the local disk.
+   *
+   * @param path the path of the file
+   * @return the file, or null if it does not exist
+   * @throws IOException if the attributes cannot be read
+   */
+  public static LocalStoredFile of(Path path) throws IOException {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      return new LocalStoredFile(path, attributes.size(), attributes.lastModifiedTime().toMillis());
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public InputStream openStream() throws IOException {
+    return Files.newInputStream(path);
+  }
+
+  @Override
+  public void writeTo(OutputStream out, long position, long count) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      WritableByteChannel target = Channels.newChannel(out);
+      long remaining = count;
+      while (remaining > 0) {
+        long sent = channel.transferTo(position, remaining, target);
+        if (sent <= 0) {
+          throw new IOException("File truncated while being sent.");
+        }
+        position += sent;
+        remaining -= sent;
+      }
+    }
+  }
+
+  @Override
+  public ByteBuffer read(long position, int count) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long length = Math.min(count, channel.size() - position);
+      if (length <= 0) {
+        return ByteBuffer.allocate(0);
+      }
+      // The mapping stays valid once the channel is closed
+      return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+  }
+}
@@ -0,0 +1,423 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes the artifact files left behind on the local disk, and the files of deleted artifacts.
+ *
+ * <p>A file is left behind when the artifact pointing at it is deleted but the file is not, or
+ * when the artifact cannot be saved after its file is stored. A periodic sweep lists the storage
+ * directory and looks the files up among the artifacts in batches; the files no artifact points at
+ * are deleted, or moved to a quarantine directory. Files younger than the grace period are left
+ * alone, as an upload may be about to point at them.
+ *
+ * <p>The sweep and the files of deleted artifacts are handled by a single background thread, so
+ * requests never wait on the disk and the sweep never competes with itself.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrphanFileCollector {
+
+  static final String QUARANTINE_DIRECTORY = "quarantine";
+
+  private static final String FILE_PATH = "filePath";
+
+  private final ArtifactStorage artifactStorage;
+  private final LocalArtifactStorage localArtifactStorage;
+  private final MongoTemplate mongoTemplate;
+
+  private ExecutorService executor;
+  private final AtomicBoolean sweeping = new AtomicBoolean();
+
+  private final AtomicInteger pendingReleases = new AtomicInteger();
+  private final AtomicLong failedReleases = new AtomicLong();
+  private final AtomicLong removedOrphans = new AtomicLong();
+  private volatile SweepReport lastSweep;
+
+  @Value("${artifact.gc.batch-size:500}")
+  int batchSize = 500;
+
+  @Value("${artifact.gc.batch-pause-ms:100}")
+  long batchPauseMs = 100;
+
+  @Value("${artifact.gc.grace-period-ms:3600000}")
+  long gracePeriodMs = 60 * 60 * 1000;
+
+  @Value("${artifact.gc.quarantine:true}")
+  boolean quarantine = true;
+
+  /**
+   * The outcome of a sweep of the storage directory.
+   *
+   * @param startedAt  when the sweep started
+   * @param finishedAt when the sweep finished
+   * @param scanned    the files listed
+   * @param referenced the files some artifact points at
+   * @param recent     the files no artifact points at, kept as they are younger than the grace
+   *                   period
+   * @param removed    the files deleted or quarantined, stale temporary files included
+   * @param failed     the files that could not be removed
+   */
+  public record SweepReport(long startedAt, long finishedAt, long scanned, long referenced,
+      long recent, long removed, long failed) {
+
+  }
+
+  /**
+   * The counts of a sweep in progress.
+   */
+  private static final class SweepCounts {
+
+    long scanned;
+    long referenced;
+    long recent;
+    long removed;
+    long failed;
+  }
+
+  /**
+   * Starts the thread removing the files.
+   */
+  @PostConstruct
+  void start() {
+    executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "orphan-file-collector");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+  }
+
+  /**
+   * Stops the thread removing the files. Files not released yet are found by the next sweep.
+   */
+  @PreDestroy
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Releases the file of a deleted artifact in the background. If it fails, the file is left to
+   * the sweep.
+   *
+   * @param location the location of the file
+   */
+  public void releaseLater(String location) {
+    if (location == null) {
+      return;
+    }
+    pendingReleases.incrementAndGet();
+    executor.execute(() -> {
+      try {
+        artifactStorage.release(location);
+      } catch (IOException | RuntimeException e) {
+        failedReleases.incrementAndGet();
+        log.warn("Cannot release the file {}, it is left to the sweep: {}", location,
+            e.getMessage());
+      } finally {
+        pendingReleases.decrementAndGet();
+      }
+    });
+  }
+
+  /**
+   * Starts a sweep in the background, unless one is running.
+   */
+  @Scheduled(initialDelayString = "${artifact.gc.initial-delay-ms:600000}",
+      fixedDelayString = "${artifact.gc.interval-ms:21600000}")
+  public void scheduleSweep() {
+    if (!sweeping.compareAndSet(false, true)) {
+      return;
+    }
+    executor.execute(() -> {
+      try {
+        sweep();
+      } catch (IOException | RuntimeException e) {
+        log.error("The sweep of the artifact files failed: {}", e.getMessage());
+      } finally {
+        sweeping.set(false);
+      }
+    });
+  }
+
+  /**
+   * Returns the counts of the collector, for monitoring.
+   *
+   * @return the files waiting to be released, the releases that failed, the orphans removed so
+   *         far and the outcome of the last sweep
+   */
+  public Map<String, Object> getStatus() {
+    Map<String, Object> status = new LinkedHashMap<>();
+    status.put("pendingReleases", pendingReleases.get());
+    status.put("failedReleases", failedReleases.get());
+    status.put("removedOrphans", removedOrphans.get());
+    status.put("sweeping", sweeping.get());
+    status.put("lastSweep", lastSweep);
+    return status;
+  }
+
+  /**
+   * Sweeps the storage directory and the directories of the digests, pausing between batches so
+   * the disk and the database are not hogged.
+   *
+   * @return the outcome of the sweep
+   * @throws IOException if the storage directory cannot be listed
+   */
+  SweepReport sweep() throws IOException {
+    long startedAt = System.currentTimeMillis();
+    long cutoff = startedAt - gracePeriodMs;
+    Path root = localArtifactStorage.getRoot();
+    Path quarantineDir = quarantine ? root.resolve(QUARANTINE_DIRECTORY) : null;
+    SweepCounts counts = new SweepCounts();
+
+    if (Files.isDirectory(root)) {
+      List<Path> batch = new ArrayList<>(batchSize);
+      for (Path directory : storedFileDirectories(root)) {
+        if (!sweepDirectory(directory, batch, cutoff, quarantineDir, counts)) {
+          break;
+        }
+      }
+      sweepBatch(batch, cutoff, quarantineDir, counts);
+      removeStaleTempFiles(root.resolve(LocalArtifactStorage.TEMP_DIRECTORY), cutoff, counts);
+    }
+
+    SweepReport report = new SweepReport(startedAt, System.currentTimeMillis(), counts.scanned,
+        counts.referenced, counts.recent, counts.removed, counts.failed);
+    lastSweep = report;
+    removedOrphans.addAndGet(report.removed());
+    log.info("Swept the artifact files: {}", report);
+    return report;
+  }
+
+  // UTILITY METHODS
+
+  /**
+   * Returns the directories holding stored files: the storage directory, for the files stored
+   * before they were spread over directories, then the directories of the digests.
+   */
+  private static List<Path> storedFileDirectories(Path root) throws IOException {
+    List<Path> directories = new ArrayList<>();
+    directories.add(root);
+    for (Path first : shardDirectories(root)) {
+      directories.addAll(shardDirectories(first));
+    }
+    return directories;
+  }
+
+  private static List<Path> shardDirectories(Path directory) throws IOException {
+    List<Path> shards = new ArrayList<>();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+        LocalArtifactStorage::isShardDirectory)) {
+      entries.forEach(shards::add);
+    }
+    return shards;
+  }
+
+  /**
+   * Adds the files of a directory to the batch, sweeping the batch whenever it is full.
+   *
+   * @return false if the thread was interrupted, so the sweep must stop
+   */
+  private boolean sweepDirectory(Path directory, List<Path> batch, long cutoff,
+      Path quarantineDir, SweepCounts counts) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+        Files::isRegularFile)) {
+      for (Path file : files) {
+        counts.scanned++;
+        batch.add(file);
+        if (batch.size() == batchSize) {
+          sweepBatch(batch, cutoff, quarantineDir, counts);
+          batch.clear();
+          if (!pause()) {
+            return false;
+          }
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // Removed meanwhile
+    }
+    return true;
+  }
+
+  /**
+   * Removes the files of a batch no artifact points at, looking them all up with one query.
+   */
+  private void sweepBatch(List<Path> batch, long cutoff, Path quarantineDir,
+      SweepCounts counts) {
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    Set<Path> referenced = findReferenced(batch);
+    for (Path file : batch) {
+      if (referenced.contains(file)) {
+        counts.referenced++;
+        continue;
+      }
+      try {
+        if (lastModified(file) >= cutoff
+            || !localArtifactStorage.reclaim(file, cutoff, quarantineDir)) {
+          counts.recent++;
+          continue;
+        }
+        counts.removed++;
+        log.info("Removed the orphan artifact file {}.", file);
+      } catch (NoSuchFileException e) {
+        // Released meanwhile
+        counts.referenced++;
+      } catch (IOException | RuntimeException e) {
+        counts.failed++;
+        log.warn("Cannot remove the orphan artifact file {}: {}", file, e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Returns the files of a batch some artifact points at, comparing normalized paths.
+   *
+   * <p>The artifacts are looked up by the paths of the files first. The files not found that way
+   * are looked up by name, as the artifacts stored before the paths were normalized point at
+   * their files through paths like {@code <working directory>/../artifacts/<name>}; those
+   * artifacts are pointed at the normalized path, so the next sweep finds them at once.
+   */
+  private Set<Path> findReferenced(List<Path> batch) {
+    List<String> locations = new ArrayList<>(batch.size());
+    for (Path file : batch) {
+      locations.add(file.toString());
+    }
+    Set<Path> referenced = new HashSet<>();
+    for (String filePath : findFilePaths(Criteria.where(FILE_PATH).in(locations))) {
+      Path path = normalize(filePath);
+      if (path != null) {
+        referenced.add(path);
+      }
+    }
+
+    Set<Path> unmatched = new HashSet<>();
+    List<Pattern> names = new ArrayList<>();
+    for (Path file : batch) {
+      if (!referenced.contains(file)) {
+        unmatched.add(file);
+        String name = file.getFileName().toString();
+        names.add(Pattern.compile("[/\\\\]" + Pattern.quote(name) + "$"));
+      }
+    }
+    if (names.isEmpty()) {
+      return referenced;
+    }
+    for (String filePath : findFilePaths(Criteria.where(FILE_PATH).in(names))) {
+      Path path = normalize(filePath);
+      if (path == null || !unmatched.contains(path)) {
+        continue;
+      }
+      referenced.add(path);
+      mongoTemplate.updateMulti(new Query(Criteria.where(FILE_PATH).is(filePath)),
+          new Update().set(FILE_PATH, path.toString()), Artifact.class);
+      log.info("Pointed the artifacts at {} to the normalized path {}.", filePath, path);
+    }
+    return referenced;
+  }
+
+  private List<String> findFilePaths(Criteria criteria) {
+    Query query = new Query(criteria);
+    query.fields().include(FILE_PATH);
+    List<String> filePaths = new ArrayList<>();
+    for (Document artifact : mongoTemplate.find(query, Document.class,
+        mongoTemplate.getCollectionName(Artifact.class))) {
+      filePaths.add(artifact.getString(FILE_PATH));
+    }
+    return filePaths;
+  }
+
+  /**
+   * Returns the normalized absolute path of a stored file path, resolved against the working
+   * directory as the storage directory is, or null if it is not a path.
+   */
+  private static Path normalize(String filePath) {
+    if (filePath == null) {
+      return null;
+    }
+    try {
+      return Paths.get(System.getProperty("user.dir")).resolve(filePath).normalize();
+    } catch (InvalidPathException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Deletes the temporary files left by uploads interrupted before the grace period.
+   */
+  private void removeStaleTempFiles(Path tempDir, long cutoff, SweepCounts counts)
+      throws IOException {
+    if (!Files.isDirectory(tempDir)) {
+      return;
+    }
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(tempDir, Files::isRegularFile)) {
+      for (Path file : files) {
+        try {
+          if (lastModified(file) < cutoff && Files.deleteIfExists(file)) {
+            counts.removed++;
+          }
+        } catch (IOException e) {
+          counts.failed++;
+          log.warn("Cannot delete the temporary file {}: {}", file, e.getMessage());
+        }
+      }
+    }
+  }
+
+  private static long lastModified(Path file) throws IOException {
+    return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+  }
+
+  /**
+   * Pauses between batches.
+   *
+   * @return false if the thread was interrupted, so the sweep must stop
+   */
+  private boolean pause() {
+    if (batchPauseMs <= 0) {
+      return true;
+    }
+    try {
+      Thread.sleep(batchPauseMs);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+/**
+ * The artifact storage used by the application. New files go to the storage selected with
+ * {@code artifact.storage.backend}, while existing files are read and released through the
+ * storage their location belongs to, so switching storage does not break the artifacts stored
+ * before.
+ */
+@Primary
+@Component
+public class RoutingArtifactStorage implements ArtifactStorage {
+
+  private final ArtifactStorage writeStorage;
+  private final List<ArtifactStorage> storages;
+
+  /**
+   * Creates the storage.
+   *
+   * @param localArtifactStorage  the storage on the local disk
+   * @param gridFsArtifactStorage the storage in GridFS
+   * @param backend               the storage new files go to, local or gridfs
+   */
+  public RoutingArtifactStorage(LocalArtifactStorage localArtifactStorage,
+      GridFsArtifactStorage gridFsArtifactStorage,
+      @Value("${artifact.storage.backend:local}") String backend) {
+    // GridFS first, since the local storage owns every location that is not in GridFS
+    this.storages = List.of(gridFsArtifactStorage, localArtifactStorage);
+    this.writeStorage = switch (backend) {
+      case "local" -> localArtifactStorage;
+      case "gridfs" -> gridFsArtifactStorage;
+      default -> throw new IllegalArgumentException("Unknown artifact storage: " + backend + ".");
+    };
+  }
+
+  @Override
+  public String store(InputStream content) throws IOException {
+    return writeStorage.store(content);
+  }
+
+  @Override
+  public String storeFile(Path file) throws IOException {
+    return writeStorage.storeFile(file);
+  }
+
+  @Override
+  public StoredFile open(String location) throws IOException {
+    return storageOf(location).open(location);
+  }
+
+  @Override
+  public void release(String location) throws IOException {
+    storageOf(location).release(location);
+  }
+
+  @Override
+  public boolean owns(String location) {
+    return true;
+  }
+
+  private ArtifactStorage storageOf(String location) {
+    for (ArtifactStorage storage : storages) {
+      if (storage.owns(location)) {
+        return storage;
+      }
+    }
+    throw new IllegalArgumentException("No storage for the location " + location + ".");
+  }
+}
@@ -0,0 +1,59 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A file held by an {@link ArtifactStorage}, read by streaming.
+ */
+public interface StoredFile {
+
+  /**
+   * Returns the size of the file.
+   *
+   * @return the size, in bytes
+   */
+  long size();
+
+  /**
+   * Returns when the file was last modified.
+   *
+   * @return the time, in milliseconds since the epoch
+   */
+  long lastModified();
+
+  /**
+   * Opens the whole file as a stream.
+   *
+   * @return the content of the file
+   * @throws IOException if the file cannot be read
+   */
+  InputStream openStream() throws IOException;
+
+  /**
+   * Writes a part of the file to a stream.
+   *
+   * @param out      the stream to write to, left open
+   * @param position the position of the first byte to write
+   * @param count    the number of bytes to write
+   * @throws IOException if the file cannot be read or the stream written
+   */
+  void writeTo(OutputStream out, long position, long count) throws IOException;
+
+  /**
+   * Reads a part of the file into a buffer.
+   *
+   * @param position the position of the first byte to read
+   * @param count    the number of bytes to read, fewer if the file ends before
+   * @return the bytes read, from position 0 to the limit of the buffer
+   * @throws IOException if the file cannot be read
+   */
+  default ByteBuffer read(long position, int count) throws IOException {
+    try (InputStream in = openStream()) {
+      in.skipNBytes(Math.min(position, size()));
+      return ByteBuffer.wrap(in.readNBytes(count));
+    }
+  }
+}
@@ -23,8 +23,8 @@ document.addEventListener('DOMContentLoaded', async function () {
   // before displaying the artifact, check artifact metadata
   const metadata = await fetchArtifactMetadata(artifactId);
 
-  // fetch and display artifact content
-  fetchArtifact(artifactId);
+  // fetch and display artifact content, a window of lines at a time if it is text
+  fetchArtifactPreview(artifactId);
 
 
 
@@ -200,6 +200,92 @@ async function fetchArtifact(artifactId) {
   }
 }
 
+const PREVIEW_LINES = 500;
+
+/**
+ * Fetches the first lines of a text artifact and displays them, with a button loading the next
+ * ones. Artifacts that are not text are fetched whole.
+ *
+ * @param artifactId  the ID of the artifact to preview
+ * @returns {Promise<void>} a promise that resolves when the first lines are displayed
+ */
+async function fetchArtifactPreview(artifactId) {
+  const artifactContainer = document.getElementById('artifact-container');
+
+  try {
+    const page = await fetchPreviewPage(artifactId, 0);
+    if (page === null) {
+      // not text: images, PDFs and other files are shown or downloaded whole
+      fetchArtifact(artifactId);
+      return;
+    }
+
+    const code = document.createElement('code');
+    code.className = detectLanguage(page.contentType);
+    const pre = document.createElement('pre');
+    pre.appendChild(code);
+
+    const moreButton = document.createElement('button');
+    moreButton.className = 'btn btn-outline-primary mt-2';
+
+    let shown = [];
+    const show = (nextPage) => {
+      shown = shown.concat(nextPage.lines);
+      code.textContent = shown.join('\n');
+      delete code.dataset.highlighted;
+      hljs.highlightElement(code);
+
+      moreButton.dataset.nextOffset = nextPage.nextOffset ?? '';
+      moreButton.textContent = `Load more lines (${shown.length} of ${nextPage.totalLines})`;
+      moreButton.style.display = nextPage.nextOffset === null ? 'none' : '';
+    };
+
+    moreButton.addEventListener('click', async () => {
+      moreButton.disabled = true;
+      try {
+        show(await fetchPreviewPage(artifactId, moreButton.dataset.nextOffset));
+      } catch (error) {
+        alert(`Error: ${error.message}`);
+      } finally {
+        moreButton.disabled = false;
+      }
+    });
+
+    artifactContainer.innerHTML = '';
+    artifactContainer.appendChild(pre);
+    artifactContainer.appendChild(moreButton);
+    show(page);
+  } catch (error) {
+    artifactContainer.innerHTML = `<p>${error.message}</p>`;
+  }
+}
+
+/**
+ * Fetches a window of lines of a text artifact.
+ *
+ * @param artifactId  the ID of the artifact
+ * @param offset      the first line to fetch
+ * @returns {Promise<Object|null>} the lines, or null if the artifact is not text
+ */
+async function fetchPreviewPage(artifactId, offset) {
+  const response = await fetch(
+      `/api/v1/artifact/${artifactId}/preview?offset=${offset}&lines=${PREVIEW_LINES}`, {
+        method: 'GET',
+        headers: {
+          'Authorization': `Bearer ${localStorage.getItem('authToken')}`
+        }
+      });
+
+  if (response.status === 415) {
+    return null;
+  }
+  const body = await response.json();
+  if (!response.ok) {
+    throw new Error(body.msg || 'Failed to fetch artifact');
+  }
+  return body;
+}
+
 // determine file type
 function detectLanguage(contentType) {
   if (contentType.includes('javascript')) {
@@ -293,24 +379,11 @@ async function populateSidebarOwner(artifactId, metadata) {
       if (confirm(
           "Are you sure you want to resolve all tags?\nThis will delete all existing tags and the operation is not reversable.")) {
 
-        fetch(`/api/v1/artifact/${artifactId}/process-tags`, {
-          method: 'PUT',
-          headers: {
-            'Authorization': `Bearer ${localStorage.getItem('authToken')}`
-          }
-        }).then(response => {
-          if (response.ok) {
-            return response.json().then(data => {
-              return data.msg;
-            });
-          } else {
-            return response.json().then(errorData => {
-              console.error("Error message: " + errorData.msg);
-              alert("Error: " + errorData.msg);
-              throw new Error(errorData.msg);
-            });
-          }
-        });
+        try {
+          alert(await processTags(artifactId));
+        } catch (error) {
+          console.error(error);
+        }
 
         window.location.reload();
       }
@@ -406,6 +479,51 @@ async function stopTaggingOperation(artifactId) {
   });
 }
 
+async function processTags(artifactId) {
+  const jobId = await fetch(`/api/v1/artifact/${artifactId}/process-tags`, {
+    method: 'PUT',
+    headers: {
+      'Authorization': `Bearer ${localStorage.getItem('authToken')}`
+    }
+  }).then(response => {
+    if (response.ok) {
+      return response.json().then(data => {
+        return data.jobId;
+      });
+    } else {
+      return response.json().then(errorData => {
+        console.error("Error message: " + errorData.msg);
+        alert("Error: " + errorData.msg);
+        throw new Error(errorData.msg);
+      });
+    }
+  });
+
+  // The tags are processed in the background, wait for the job to finish
+  const job = await waitForJob(jobId);
+  if (job.status === 'FAILED') {
+    alert("Error: " + job.error);
+    throw new Error(job.error);
+  }
+  return "Tags processed successfully.";
+}
+
+async function waitForJob(jobId) {
+  while (true) {
+    const job = await fetch(`/api/v1/job/${jobId}`, {
+      method: 'GET',
+      headers: {
+        'Authorization': `Bearer ${localStorage.getItem('authToken')}`
+      }
+    }).then(response => response.json());
+
+    if (job.status === 'COMPLETED' || job.status === 'FAILED') {
+      return job;
+    }
+    await new Promise(resolve => setTimeout(resolve, 1000));
+  }
+}
+
 async function startTaggingOperation(artifactId) {
   return fetch(`/api/v1/artifact/${artifactId}/starttagging`, {
     method: 'PUT',
@@ -0,0 +1,181 @@
+package it.unisannio.studenti.qualitag.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.UploadSession;
+import it.unisannio.studenti.qualitag.model.User;
+import java.util.Arrays;
+import java.util.List;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+/**
+ * Tests the MongoIndexManager class.
+ */
+public class MongoIndexManagerTest {
+
+  private MongoTemplate mongoTemplate;
+  private IndexOperations userIndexOps;
+  private IndexOperations teamIndexOps;
+  private IndexOperations projectIndexOps;
+  private IndexOperations tagIndexOps;
+  private IndexOperations outboxIndexOps;
+  private IndexOperations uploadIndexOps;
+  private IndexOperations jobIndexOps;
+  private MongoIndexManager indexManager;
+
+  /**
+   * Initializes the test environment.
+   */
+  @BeforeEach
+  public void setUp() {
+    mongoTemplate = mock(MongoTemplate.class);
+    userIndexOps = mock(IndexOperations.class);
+    teamIndexOps = mock(IndexOperations.class);
+    projectIndexOps = mock(IndexOperations.class);
+    tagIndexOps = mock(IndexOperations.class);
+    outboxIndexOps = mock(IndexOperations.class);
+    uploadIndexOps = mock(IndexOperations.class);
+    jobIndexOps = mock(IndexOperations.class);
+    when(mongoTemplate.indexOps(User.class)).thenReturn(userIndexOps);
+    when(mongoTemplate.indexOps(Team.class)).thenReturn(teamIndexOps);
+    when(mongoTemplate.indexOps(Project.class)).thenReturn(projectIndexOps);
+    when(mongoTemplate.indexOps(Tag.class)).thenReturn(tagIndexOps);
+    when(mongoTemplate.indexOps(OutboxMail.class)).thenReturn(outboxIndexOps);
+    when(mongoTemplate.indexOps(UploadSession.class)).thenReturn(uploadIndexOps);
+    when(mongoTemplate.indexOps(Job.class)).thenReturn(jobIndexOps);
+    indexManager = new MongoIndexManager(mongoTemplate);
+  }
+
+  /**
+   * Tests that every declared index is created with the right keys and options.
+   */
+  @Test
+  public void testEnsureIndexes() {
+    indexManager.ensureIndexes();
+
+    ArgumentCaptor<IndexDefinition> captor = ArgumentCaptor.forClass(IndexDefinition.class);
+    verify(projectIndexOps, times(2)).ensureIndex(captor.capture());
+    IndexDefinition projectName = captor.getAllValues().get(1);
+    assertEquals(new Document("projectName", 1), projectName.getIndexKeys());
+    assertEquals(true, projectName.getIndexOptions().get("unique"));
+
+    captor = ArgumentCaptor.forClass(IndexDefinition.class);
+    verify(tagIndexOps, times(2)).ensureIndex(captor.capture());
+    IndexDefinition tagValue = captor.getAllValues().get(0);
+    assertEquals(new Document("createdBy", 1).append("tagValue", 1), tagValue.getIndexKeys());
+    assertEquals(null, tagValue.getIndexOptions().get("unique"));
+    assertEquals(new Document("artifactIds", 1), captor.getAllValues().get(1).getIndexKeys());
+
+    verify(teamIndexOps, times(3)).ensureIndex(any());
+    verify(userIndexOps, times(2)).ensureIndex(any());
+
+    captor = ArgumentCaptor.forClass(IndexDefinition.class);
+    verify(outboxIndexOps).ensureIndex(captor.capture());
+    assertEquals(new Document("status", 1).append("nextAttemptAt", 1),
+        captor.getValue().getIndexKeys());
+
+    captor = ArgumentCaptor.forClass(IndexDefinition.class);
+    verify(jobIndexOps, times(2)).ensureIndex(captor.capture());
+    assertEquals(new Document("projectId", 1).append("type", 1).append("status", 1),
+        captor.getAllValues().get(0).getIndexKeys());
+  }
+
+  /**
+   * Tests that a failing index does not prevent the creation of the others.
+   */
+  @Test
+  public void testEnsureIndexesFailureIsNotFatal() {
+    when(projectIndexOps.ensureIndex(any())).thenThrow(new RuntimeException("duplicate key"));
+
+    indexManager.ensureIndexes();
+
+    verify(tagIndexOps, times(2)).ensureIndex(any());
+  }
+
+  /**
+   * Tests that finders without a supporting index are reported.
+   */
+  @Test
+  public void testFindUnsupportedFinders() {
+    when(userIndexOps.getIndexInfo()).thenReturn(List.of(
+        indexInfo("username"), indexInfo("email")));
+    when(teamIndexOps.getIndexInfo()).thenReturn(List.of(
+        indexInfo("_id"), indexInfo("projectId"), indexInfo("userIds")));
+    when(projectIndexOps.getIndexInfo()).thenReturn(List.of(indexInfo("projectOwnerId")));
+    when(tagIndexOps.getIndexInfo()).thenReturn(List.of(
+        indexInfo("createdBy", "tagValue")));
+    when(outboxIndexOps.getIndexInfo()).thenReturn(List.of(indexInfo("status", "nextAttemptAt")));
+    when(uploadIndexOps.getIndexInfo()).thenReturn(List.of(indexInfo("updatedAt")));
+    when(jobIndexOps.getIndexInfo()).thenReturn(List.of(
+        indexInfo("projectId", "type", "status"), indexInfo("status")));
+
+    List<String> unsupported = indexManager.findUnsupportedFinders();
+
+    assertEquals(List.of("ProjectRepository.existsByProjectName",
+        "TagRepository.findByTagValueContaining"), unsupported);
+  }
+
+  /**
+   * Tests that the retired unique index on the tags is dropped, and only if it exists.
+   */
+  @Test
+  public void testDropRetiredIndexes() {
+    IndexInfo retired = new IndexInfo(List.of(IndexField.create("createdBy", Direction.ASC),
+        IndexField.create("tagValue", Direction.ASC),
+        IndexField.create("artifactIds", Direction.ASC)),
+        "createdBy_1_tagValue_1_artifactIds_1", true, false, "");
+    when(tagIndexOps.getIndexInfo()).thenReturn(List.of(indexInfo("_id"), retired));
+
+    indexManager.dropRetiredIndexes();
+
+    verify(tagIndexOps).dropIndex("createdBy_1_tagValue_1_artifactIds_1");
+    verify(tagIndexOps, never()).dropIndex("_id");
+  }
+
+  /**
+   * Tests that every finder is reported when there are no indexes.
+   */
+  @Test
+  public void testFindUnsupportedFindersNoIndexes() {
+    when(userIndexOps.getIndexInfo()).thenReturn(List.of());
+    when(teamIndexOps.getIndexInfo()).thenReturn(List.of());
+    when(projectIndexOps.getIndexInfo()).thenReturn(List.of());
+    when(tagIndexOps.getIndexInfo()).thenReturn(List.of());
+    when(outboxIndexOps.getIndexInfo()).thenReturn(List.of());
+    when(uploadIndexOps.getIndexInfo()).thenReturn(List.of());
+    when(jobIndexOps.getIndexInfo()).thenReturn(List.of());
+
+    List<String> unsupported = indexManager.findUnsupportedFinders();
+
+    assertEquals(MongoIndexManager.FINDERS.size(), unsupported.size());
+    assertTrue(unsupported.contains("TeamRepository.findTeamsByProjectId"));
+  }
+
+  private static IndexInfo indexInfo(String... keys) {
+    List<IndexField> fields = Arrays.stream(keys)
+        .map(key -> IndexField.create(key, Direction.ASC))
+        .toList();
+    return new IndexInfo(fields, String.join("_", keys), false, false, "");
+  }
+}
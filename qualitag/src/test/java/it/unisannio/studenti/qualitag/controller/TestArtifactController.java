@@ -1,5 +1,8 @@
 package it.unisannio.studenti.qualitag.controller;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -13,13 +16,19 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.unisannio.studenti.qualitag.dto.artifact.AddTagsToArtifactDto;
 import it.unisannio.studenti.qualitag.dto.artifact.ArtifactCreateDto;
+import it.unisannio.studenti.qualitag.dto.artifact.ArtifactImportDto;
+import it.unisannio.studenti.qualitag.service.ArtifactImportService;
+import it.unisannio.studenti.qualitag.service.ArtifactPreviewService;
 import it.unisannio.studenti.qualitag.service.ArtifactService;
+import it.unisannio.studenti.qualitag.service.ChunkedUploadService;
+import java.io.InputStream;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
@@ -35,6 +44,12 @@ public class TestArtifactController {
 
   @Mock
   private ArtifactService artifactService;
+  @Mock
+  private ArtifactImportService artifactImportService;
+  @Mock
+  private ChunkedUploadService chunkedUploadService;
+  @Mock
+  private ArtifactPreviewService artifactPreviewService;
 
   @InjectMocks
   private ArtifactController artifactController;
@@ -71,6 +86,49 @@ public class TestArtifactController {
     verifyNoMoreInteractions(artifactService);
   }
 
+  /**
+   * Test the import of many artifacts.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testImportArtifacts() throws Exception {
+    MockMultipartFile first = new MockMultipartFile("files", "a.txt", "text/plain",
+        "a".getBytes());
+    MockMultipartFile second = new MockMultipartFile("files", "b.zip", "application/zip",
+        "b".getBytes());
+    ArtifactImportDto artifactImportDto =
+        new ArtifactImportDto("projectId", List.of(first, second));
+    when(artifactImportService.importArtifacts(artifactImportDto))
+        .thenReturn(ResponseEntity.status(201).build());
+    mockMvc.perform(multipart("/api/v1/artifact/import")
+            .file(first)
+            .file(second)
+            .param("projectId", "projectId"))
+        .andExpect(status().isCreated());
+    verify(artifactImportService, times(1)).importArtifacts(artifactImportDto);
+    verifyNoMoreInteractions(artifactImportService);
+  }
+
+  /**
+   * Test the upload of a chunk of an artifact.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testUploadChunk() throws Exception {
+    when(chunkedUploadService.uploadChunk(eq("uploadId"), eq(1024L), eq("checksum"),
+        any(InputStream.class))).thenReturn(ResponseEntity.ok().build());
+    mockMvc.perform(put("/api/v1/artifact/uploads/uploadId")
+            .param("offset", "1024")
+            .header(ChunkedUploadService.CHUNK_CHECKSUM_HEADER, "checksum")
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .content("chunk".getBytes()))
+        .andExpect(status().isOk());
+    verify(chunkedUploadService, times(1)).uploadChunk(eq("uploadId"), eq(1024L),
+        eq("checksum"), any(InputStream.class));
+  }
+
   /**
    * Test the retrieval of an artifact.
    *
@@ -78,10 +136,12 @@ public class TestArtifactController {
    */
   @Test
   public void testGetArtifact() throws Exception {
-    when(artifactService.getArtifact("artifactId")).thenReturn(ResponseEntity.ok().build());
-    mockMvc.perform(get("/api/v1/artifact/artifactId"))
+    when(artifactService.getArtifact(eq("artifactId"), any(HttpHeaders.class)))
+        .thenReturn(ResponseEntity.ok().build());
+    mockMvc.perform(get("/api/v1/artifact/artifactId").header(HttpHeaders.RANGE, "bytes=0-9"))
         .andExpect(status().isOk());
-    verify(artifactService, times(1)).getArtifact("artifactId");
+    verify(artifactService, times(1)).getArtifact(eq("artifactId"),
+        argThat((HttpHeaders headers) -> "bytes=0-9".equals(headers.getFirst(HttpHeaders.RANGE))));
     verifyNoMoreInteractions(artifactService);
   }
 
@@ -99,6 +159,23 @@ public class TestArtifactController {
     verifyNoMoreInteractions(artifactService);
   }
 
+  /**
+   * Test the retrieval of a window of lines of an artifact.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testGetArtifactPreview() throws Exception {
+    when(artifactPreviewService.getPreview("artifactId", 50000, 100)).thenReturn(
+        ResponseEntity.ok().build());
+    mockMvc.perform(get("/api/v1/artifact/artifactId/preview")
+            .param("offset", "50000")
+            .param("lines", "100"))
+        .andExpect(status().isOk());
+    verify(artifactPreviewService, times(1)).getPreview("artifactId", 50000, 100);
+    verifyNoMoreInteractions(artifactPreviewService);
+  }
+
   /**
    * Test the addition of tahs to an artifact.
    *
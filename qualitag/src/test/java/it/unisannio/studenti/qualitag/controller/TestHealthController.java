@@ -2,7 +2,10 @@ package it.unisannio.studenti.qualitag.controller;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import it.unisannio.studenti.qualitag.storage.OrphanFileCollector;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
@@ -13,7 +16,7 @@ class TestHealthController {
 
   @Test
   void testPing() {
-    HealthController healthController = new HealthController();
+    HealthController healthController = new HealthController(mock(OrphanFileCollector.class));
     ResponseEntity<?> response = healthController.ping();
 
     assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -23,4 +26,18 @@ class TestHealthController {
     Map<String, String> body = (Map<String, String>) response.getBody();
     assertEquals("Server is up and running", body.get("msg"));
   }
+
+  @Test
+  void testOrphanFiles() {
+    OrphanFileCollector orphanFileCollector = mock(OrphanFileCollector.class);
+    when(orphanFileCollector.getStatus()).thenReturn(Map.of("removedOrphans", 3L));
+    HealthController healthController = new HealthController(orphanFileCollector);
+    ResponseEntity<?> response = healthController.orphanFiles();
+
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> body = (Map<String, Object>) response.getBody();
+    assertEquals(3L, body.get("removedOrphans"));
+  }
 }
@@ -0,0 +1,71 @@
+package it.unisannio.studenti.qualitag.controller;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import it.unisannio.studenti.qualitag.service.JobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Test class for JobController.
+ */
+public class TestJobController {
+
+  private MockMvc mockMvc;
+
+  @Mock
+  private JobService jobService;
+
+  @InjectMocks
+  private JobController jobController;
+
+  /**
+   * Set up the test environment.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+    mockMvc = MockMvcBuilders.standaloneSetup(jobController).build();
+  }
+
+  /**
+   * Test the retrieval of the state of a job.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testGetJob() throws Exception {
+    when(jobService.getJob("jobId")).thenReturn(ResponseEntity.ok().build());
+    mockMvc.perform(get("/api/v1/job/jobId"))
+        .andExpect(status().isOk());
+    verify(jobService, times(1)).getJob("jobId");
+    verifyNoMoreInteractions(jobService);
+  }
+
+  /**
+   * Test the stream of the states of a job that does not exist.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testStreamJobNotFound() throws Exception {
+    when(jobService.streamJob("jobId")).thenReturn(ResponseEntity.status(HttpStatus.NOT_FOUND)
+        .build());
+    mockMvc.perform(get("/api/v1/job/jobId/events"))
+        .andExpect(status().isNotFound());
+    verify(jobService, times(1)).streamJob("jobId");
+    verifyNoMoreInteractions(jobService);
+  }
+}
@@ -11,7 +11,9 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import it.unisannio.studenti.qualitag.dto.project.ProjectCreateDto;
+import it.unisannio.studenti.qualitag.service.ProjectExportService;
 import it.unisannio.studenti.qualitag.service.ProjectService;
+import it.unisannio.studenti.qualitag.service.TagConsolidationService;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,6 +34,10 @@ public class TestProjectController {
 
   @Mock
   private ProjectService projectService;
+  @Mock
+  private ProjectExportService projectExportService;
+  @Mock
+  private TagConsolidationService tagConsolidationService;
 
   @InjectMocks
   private ProjectController projectController;
@@ -70,6 +76,36 @@ public class TestProjectController {
     verifyNoMoreInteractions(projectService);
   }
 
+  /**
+   * Test the export of a project, as a ZIP archive by default.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testExportProject() throws Exception {
+    when(projectExportService.exportProject("projectId", "zip"))
+        .thenReturn(ResponseEntity.ok().build());
+    mockMvc.perform(get("/api/v1/project/projectId/export"))
+        .andExpect(status().isOk());
+    verify(projectExportService, times(1)).exportProject("projectId", "zip");
+    verifyNoMoreInteractions(projectExportService);
+  }
+
+  /**
+   * Test the start of the consolidation of the tags of a project.
+   *
+   * @throws Exception if an error occurs during the test.
+   */
+  @Test
+  public void testConsolidateTags() throws Exception {
+    when(tagConsolidationService.startConsolidation("projectId"))
+        .thenReturn(ResponseEntity.accepted().build());
+    mockMvc.perform(post("/api/v1/project/projectId/consolidate-tags"))
+        .andExpect(status().isAccepted());
+    verify(tagConsolidationService, times(1)).startConsolidation("projectId");
+    verifyNoMoreInteractions(tagConsolidationService);
+  }
+
   /**
    * Test the closure of a project.
    *
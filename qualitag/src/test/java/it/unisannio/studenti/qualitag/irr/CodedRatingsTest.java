@@ -0,0 +1,56 @@
+package it.unisannio.studenti.qualitag.irr;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the CodedRatings class.
+ */
+public class CodedRatingsTest {
+
+  /**
+   * Tests that every tag value is coded once, and the tags of every annotator are found between
+   * their offsets.
+   */
+  @Test
+  public void testEncode() {
+    CodedRatings coded = CodedRatings.encode(List.of(
+        List.of(List.of("BUG", "DOCS"), List.of("BUG"), List.of()),
+        List.of(List.of(), List.of("DOCS"), List.of("FEATURE", "BUG"))));
+
+    assertEquals(List.of("BUG", "DOCS", "FEATURE"), coded.vocabulary());
+    assertEquals(3, coded.annotators());
+    assertArrayEquals(new int[] {0, 2, 3, 3, 3, 4, 6}, coded.offsets());
+    assertArrayEquals(new int[] {0, 1, 0, 1, 2, 0}, coded.codes());
+  }
+
+  /**
+   * Tests that an item with fewer annotators than the others is padded with empty tag lists.
+   */
+  @Test
+  public void testEncodeRagged() {
+    CodedRatings coded = CodedRatings.encode(List.of(
+        List.of(List.of("BUG")),
+        List.of(List.of("BUG"), List.of("BUG"))));
+
+    assertEquals(2, coded.annotators());
+    assertArrayEquals(new int[] {0, 1, 1, 2, 3}, coded.offsets());
+    assertArrayEquals(new int[] {0, 0, 0}, coded.codes());
+  }
+
+  /**
+   * Tests the encoding of no items.
+   */
+  @Test
+  public void testEncodeEmpty() {
+    CodedRatings coded = CodedRatings.encode(List.of());
+
+    assertEquals(List.of(), coded.vocabulary());
+    assertEquals(0, coded.annotators());
+    assertArrayEquals(new int[] {0}, coded.offsets());
+    assertArrayEquals(new int[0], coded.codes());
+  }
+}
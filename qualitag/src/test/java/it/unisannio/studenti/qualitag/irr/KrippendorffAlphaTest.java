@@ -0,0 +1,121 @@
+package it.unisannio.studenti.qualitag.irr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the KrippendorffAlpha class.
+ */
+public class KrippendorffAlphaTest {
+
+  /**
+   * Fixtures shared with the tests of the Python implementation.
+   */
+  private static final Path FIXTURES_PATH =
+      Path.of("..", "qualitag_python", "test", "fixtures", "krippendorff_cases.json");
+
+  /**
+   * A fixture case: the annotations and the expected alpha, null if it cannot be computed.
+   */
+  record Case(String name, Double alpha, List<List<List<String>>> data) {
+
+  }
+
+  /**
+   * Tests the computation with overlapping label sets.
+   */
+  @Test
+  public void testComputeMixedOverlap() {
+    List<List<List<String>>> data = List.of(
+        List.of(List.of("A", "B"), List.of("A", "C"), List.of("A"), List.of("B", "D")),
+        List.of(List.of("B", "C", "E"), List.of("B", "E"), List.of("C"), List.of("B", "C", "D")),
+        List.of(List.of("A", "D"), List.of("D"), List.of("A", "B"), List.of("A", "C", "D")));
+
+    assertEquals(0.08894939868391216, KrippendorffAlpha.compute(data));
+  }
+
+  /**
+   * Tests the computation when all the annotators agree.
+   */
+  @Test
+  public void testComputeAllEqual() {
+    List<List<List<String>>> data = List.of(
+        List.of(List.of("A"), List.of("A"), List.of("A")),
+        List.of(List.of("B"), List.of("B"), List.of("B")));
+
+    assertEquals(1.0, KrippendorffAlpha.compute(data));
+  }
+
+  /**
+   * Tests the computation when the annotators completely disagree.
+   */
+  @Test
+  public void testComputeDisagreement() {
+    List<List<List<String>>> data = List.of(
+        List.of(List.of("A"), List.of("B"), List.of(), List.of()));
+
+    assertEquals(0.0, KrippendorffAlpha.compute(data));
+  }
+
+  /**
+   * Tests that the order of the tags and repeated tags do not matter.
+   */
+  @Test
+  public void testComputeLabelSetsAreSets() {
+    List<List<List<String>>> data = List.of(
+        List.of(List.of("A", "B"), List.of("B", "A", "A")),
+        List.of(List.of("C"), List.of("D")));
+
+    List<List<List<String>>> normalized = List.of(
+        List.of(List.of("A", "B"), List.of("A", "B")),
+        List.of(List.of("C"), List.of("D")));
+
+    assertEquals(KrippendorffAlpha.compute(normalized), KrippendorffAlpha.compute(data));
+  }
+
+  /**
+   * Tests the computation when no item has been annotated by two annotators.
+   */
+  @Test
+  public void testComputeInsufficientData() {
+    List<List<List<String>>> data = List.of(
+        List.of(List.of("A"), List.of(), List.of()),
+        List.of(List.of(), List.of("B"), List.of()));
+
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> KrippendorffAlpha.compute(data));
+    assertEquals(KrippendorffAlpha.INSUFFICIENT_DATA_MSG, exception.getMessage());
+  }
+
+  /**
+   * Tests the computation against the values produced by the Python implementation.
+   *
+   * @throws IOException if the fixtures cannot be read
+   */
+  @Test
+  public void testComputeMatchesPythonFixtures() throws IOException {
+    assumeTrue(Files.exists(FIXTURES_PATH), "Python fixtures not available");
+    List<Case> cases = new ObjectMapper().readValue(FIXTURES_PATH.toFile(),
+        new TypeReference<>() {
+        });
+
+    for (Case fixture : cases) {
+      if (fixture.alpha() == null) {
+        assertThrows(IllegalArgumentException.class,
+            () -> KrippendorffAlpha.compute(fixture.data()), fixture.name());
+      } else {
+        assertEquals(fixture.alpha(), KrippendorffAlpha.compute(fixture.data()), 1e-12,
+            fixture.name());
+      }
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package it.unisannio.studenti.qualitag.irr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the TeamAgreement class.
+ */
+public class TeamAgreementTest {
+
+  private static final List<String> USERS = List.of("user1", "user2", "user3", "user4");
+  private static final List<String> ARTIFACTS = List.of("artifact1", "artifact2", "artifact3");
+
+  /**
+   * Tests that the incremental value matches the value computed from scratch.
+   */
+  @Test
+  public void testAlphaMatchesCompute() {
+    TeamAgreement agreement = new TeamAgreement(USERS, ARTIFACTS);
+    agreement.addTag("artifact1", "user1", "t1", "A");
+    agreement.addTag("artifact1", "user2", "t2", "A");
+    agreement.addTag("artifact2", "user1", "t3", "A");
+    agreement.addTag("artifact2", "user2", "t4", "B");
+
+    List<List<List<String>>> data = List.of(
+        List.of(List.of("A"), List.of("A"), List.of(), List.of()),
+        List.of(List.of("A"), List.of("B"), List.of(), List.of()),
+        List.of(List.of(), List.of(), List.of(), List.of()));
+    assertEquals(KrippendorffAlpha.compute(data), agreement.alpha(), 1e-12);
+  }
+
+  /**
+   * Tests that adding the same tag twice and removing a missing tag change nothing.
+   */
+  @Test
+  public void testUpdatesAreIdempotent() {
+    TeamAgreement agreement = new TeamAgreement(USERS, ARTIFACTS);
+    agreement.addTag("artifact1", "user1", "t1", "A");
+    agreement.addTag("artifact1", "user2", "t2", "B");
+    agreement.addTag("artifact2", "user1", "t3", "A");
+    agreement.addTag("artifact2", "user2", "t4", "A");
+    double alpha = agreement.alpha();
+
+    agreement.addTag("artifact1", "user1", "t1", "A");
+    agreement.removeTag("artifact3", "t1");
+    agreement.removeTag("artifact1", "missing");
+
+    assertEquals(alpha, agreement.alpha());
+  }
+
+  /**
+   * Tests that tags of users and artifacts outside the team are ignored.
+   */
+  @Test
+  public void testIgnoresOutsiders() {
+    TeamAgreement agreement = new TeamAgreement(USERS, ARTIFACTS);
+    agreement.addTag("artifact1", "user1", "t1", "A");
+    agreement.addTag("artifact1", "outsider", "t2", "B");
+    agreement.addTag("otherArtifact", "user1", "t3", "A");
+    agreement.addTag("otherArtifact", "user2", "t4", "B");
+
+    assertThrows(IllegalArgumentException.class, agreement::alpha);
+  }
+
+  /**
+   * Tests that the value cannot be computed once the tags making it computable are removed.
+   */
+  @Test
+  public void testInsufficientDataAfterRemoval() {
+    TeamAgreement agreement = new TeamAgreement(USERS, ARTIFACTS);
+    agreement.addTag("artifact1", "user1", "t1", "A");
+    agreement.addTag("artifact1", "user2", "t2", "B");
+    assertEquals(0.0, agreement.alpha(), 1e-12);
+
+    agreement.removeTag("artifact1", "t2");
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, agreement::alpha);
+    assertEquals(KrippendorffAlpha.INSUFFICIENT_DATA_MSG, e.getMessage());
+  }
+
+  /**
+   * Tests random sequences of additions, updates and removals against the computation from
+   * scratch.
+   */
+  @Test
+  public void testRandomUpdatesMatchCompute() {
+    Random random = new Random(42);
+    List<String> values = List.of("A", "B", "C", "D", "E");
+
+    for (int round = 0; round < 20; round++) {
+      TeamAgreement agreement = new TeamAgreement(USERS, ARTIFACTS);
+      // artifact -> user -> tag id -> value
+      Map<String, Map<String, Map<String, String>>> expected = new LinkedHashMap<>();
+      for (String artifact : ARTIFACTS) {
+        Map<String, Map<String, String>> users = new LinkedHashMap<>();
+        USERS.forEach(user -> users.put(user, new LinkedHashMap<>()));
+        expected.put(artifact, users);
+      }
+
+      for (int step = 0; step < 60; step++) {
+        String artifact = ARTIFACTS.get(random.nextInt(ARTIFACTS.size()));
+        String user = USERS.get(random.nextInt(USERS.size()));
+        String tagId = user + "-" + random.nextInt(3);
+        Map<String, String> tags = expected.get(artifact).get(user);
+
+        if (random.nextInt(3) == 0) {
+          agreement.removeTag(artifact, tagId);
+          tags.remove(tagId);
+        } else {
+          String value = values.get(random.nextInt(values.size()));
+          agreement.addTag(artifact, user, tagId, value);
+          tags.put(tagId, value);
+        }
+
+        assertSameAlpha(toData(expected), agreement);
+      }
+    }
+  }
+
+  private static List<List<List<String>>> toData(
+      Map<String, Map<String, Map<String, String>>> annotations) {
+    List<List<List<String>>> data = new ArrayList<>();
+    for (Map<String, Map<String, String>> users : annotations.values()) {
+      List<List<String>> item = new ArrayList<>();
+      users.values().forEach(tags -> item.add(new ArrayList<>(tags.values())));
+      data.add(item);
+    }
+    return data;
+  }
+
+  private static void assertSameAlpha(List<List<List<String>>> data, TeamAgreement agreement) {
+    double expected;
+    try {
+      expected = KrippendorffAlpha.compute(data);
+    } catch (IllegalArgumentException e) {
+      assertThrows(IllegalArgumentException.class, agreement::alpha);
+      return;
+    }
+    assertEquals(expected, agreement.alpha(), 1e-12);
+  }
+}
@@ -3,6 +3,9 @@ package it.unisannio.studenti.qualitag.security.filter;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import it.unisannio.studenti.qualitag.model.User;
@@ -155,4 +158,70 @@ public class JwtAuthenticationFilterTest {
 
     assertNull(SecurityContextHolder.getContext().getAuthentication());
   }
+
+  @Test
+  public void testSafeRequestDoesNotReadTheUser() throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/project");
+    request.addHeader("Authorization", "Bearer " + jwt);
+
+    jwtAuthenticationFilter.doFilterInternal(request, new MockHttpServletResponse(),
+        new MockFilterChain());
+
+    Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    assertEquals("userId", ((CustomUserDetails) principal).user().getUserId());
+    verify(userRepository, never()).findByUsernameOrEmail(anyString(), anyString());
+  }
+
+  @Test
+  public void testUnsafeRequestRejectsDeletedUser() throws ServletException, IOException {
+    when(userRepository.findByUsernameOrEmail("testuser", "testuser")).thenReturn(null);
+
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/project");
+    request.addHeader("Authorization", "Bearer " + jwt);
+
+    jwtAuthenticationFilter.doFilterInternal(request, new MockHttpServletResponse(),
+        new MockFilterChain());
+
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  public void testUnsafeRequestRejectsRecreatedUser() throws ServletException, IOException {
+    User recreated = new User("testuser", "email@example.com", "hashedPassword", "John", "Doe");
+    recreated.setUserId("newUserId");
+    when(userRepository.findByUsernameOrEmail("testuser", "testuser")).thenReturn(recreated);
+
+    MockHttpServletRequest request = new MockHttpServletRequest("DELETE", "/api/v1/project");
+    request.addHeader("Authorization", "Bearer " + jwt);
+
+    jwtAuthenticationFilter.doFilterInternal(request, new MockHttpServletResponse(),
+        new MockFilterChain());
+
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
+
+  @Test
+  public void testTokenWithoutUserIdUsesStoredUser() throws ServletException, IOException {
+    String resetToken = jwtService.generateResetToken(customUserDetails);
+
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/project");
+    request.addHeader("Authorization", "Bearer " + resetToken);
+
+    jwtAuthenticationFilter.doFilterInternal(request, new MockHttpServletResponse(),
+        new MockFilterChain());
+
+    assertEquals(customUserDetails,
+        SecurityContextHolder.getContext().getAuthentication().getPrincipal());
+  }
+
+  @Test
+  public void testMalformedJwt() throws ServletException, IOException {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.addHeader("Authorization", "Bearer not.a.token");
+
+    jwtAuthenticationFilter.doFilterInternal(request, new MockHttpServletResponse(),
+        new MockFilterChain());
+
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+  }
 }
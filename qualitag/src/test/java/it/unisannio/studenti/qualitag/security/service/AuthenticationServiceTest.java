@@ -6,12 +6,12 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.mockConstruction;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import io.jsonwebtoken.ExpiredJwtException;
@@ -26,7 +26,7 @@ import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.config.PasswordConfig;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
-import it.unisannio.studenti.qualitag.service.GmailService;
+import it.unisannio.studenti.qualitag.service.MailOutboxService;
 import it.unisannio.studenti.qualitag.service.UserService;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -35,7 +35,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
@@ -64,6 +63,8 @@ public class AuthenticationServiceTest {
   @Mock
   private UserMapper userMapper;
   @Mock
+  private MailOutboxService mailOutboxService;
+  @Mock
   private SecurityContext securityContext;
   @Mock
   private Authentication authentication;
@@ -96,7 +97,7 @@ public class AuthenticationServiceTest {
 
     // Manually inject the spy into authenticationService
     authenticationService = new AuthenticationService(userRepository, userMapper, jwtTokenProvider,
-        userService, authenticationManager);
+        userService, authenticationManager, mailOutboxService);
 
     String passwordHash = passwordEncoder.encode("pAssword12$");
     user = new User("username", "username@example.com", passwordHash, "Jane", "Doe");
@@ -169,9 +170,7 @@ public class AuthenticationServiceTest {
     // Use doReturn() for spies
     doReturn(user).when(userMapper).toEntity(userRegistrationDto);
 
-    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class);
-        MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-            context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
+    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class)) {
 
       // Act
       ResponseEntity<?> response = authenticationService.register(userRegistrationDto);
@@ -184,6 +183,8 @@ public class AuthenticationServiceTest {
       responseBody.put("token", jwt);
       responseBody.put("username", user.getUsername());
       assertEquals(responseBody, response.getBody());
+      verify(mailOutboxService).enqueue(eq("QualiTag Registration"),
+          eq(userRegistrationDto.email()), anyString());
     }
   }
 
@@ -414,9 +415,7 @@ public class AuthenticationServiceTest {
         + "MTYyMzkwMjIiLCJleHAiOiIyMDIxLTA1LTE3VDA3OjA5OjQ4LjAwMCswNTQ1In0";
     when(jwtTokenProvider.generateResetToken(new CustomUserDetails(user))).thenReturn(jwt);
     when(userRepository.save(user)).thenReturn(user);
-    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class);
-        MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-            context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
+    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class)) {
 
       // Act
       ResponseEntity<?> response = authenticationService.sendPasswordResetEmail(forgotPasswordDto);
@@ -427,6 +426,8 @@ public class AuthenticationServiceTest {
       Map<String, Object> responseBody = new HashMap<>();
       responseBody.put("msg", "Password reset email sent successfully.");
       assertEquals(responseBody, response.getBody());
+      verify(mailOutboxService).enqueue(eq("QualiTag Password Reset"),
+          eq(forgotPasswordDto.email()), anyString());
     }
   }
 
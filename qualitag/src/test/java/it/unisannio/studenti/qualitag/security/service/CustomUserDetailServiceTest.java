@@ -2,8 +2,11 @@ package it.unisannio.studenti.qualitag.security.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import it.unisannio.studenti.qualitag.model.User;
@@ -106,4 +109,37 @@ public class CustomUserDetailServiceTest {
     assertThrows(UsernameNotFoundException.class,
         () -> userDetailsService.loadUserByUsername(identifier));
   }
+
+  @Test
+  void loadCachedUserReadsTheUserOnce() {
+    CustomUserDetails first = userDetailsService.loadCachedUser("testuser");
+    CustomUserDetails second = userDetailsService.loadCachedUser("testuser");
+
+    assertEquals(new CustomUserDetails(user), first);
+    assertEquals(first, second);
+    verify(userRepository, times(1)).findByUsernameOrEmail("testuser", "testuser");
+  }
+
+  @Test
+  void loadCachedUserAfterEvict() {
+    userDetailsService.loadCachedUser("testuser");
+    userDetailsService.evict("testuser");
+    userDetailsService.loadCachedUser("testuser");
+
+    verify(userRepository, times(2)).findByUsernameOrEmail("testuser", "testuser");
+  }
+
+  @Test
+  void loadCachedUserAfterTtl() {
+    userDetailsService.userCacheTtlMs = 0;
+    userDetailsService.loadCachedUser("testuser");
+    userDetailsService.loadCachedUser("testuser");
+
+    verify(userRepository, times(2)).findByUsernameOrEmail("testuser", "testuser");
+  }
+
+  @Test
+  void loadCachedUserNotFound() {
+    assertNull(userDetailsService.loadCachedUser("nothing"));
+  }
 }
@@ -3,11 +3,15 @@ package it.unisannio.studenti.qualitag.security.service;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import it.unisannio.studenti.qualitag.model.Role;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
@@ -119,4 +123,35 @@ public class JwtServiceTest {
     assertTrue(token.contains("."));
     assertTrue(token.split("\\.").length == 3);
   }
+
+  @Test
+  public void testParseTokenCarriesUserIdAndRoles() {
+    user.getProjectRoles().put("projectId", Role.OWNER);
+    String token = jwtService.generateToken(customUserDetails);
+
+    Claims claims = jwtService.parseToken(token);
+    CustomUserDetails principal = jwtService.toUserDetails(claims);
+
+    assertNotNull(principal);
+    assertEquals("userId", principal.user().getUserId());
+    assertEquals("testuser", principal.getUsername());
+    assertEquals(Role.OWNER, principal.user().getProjectRoles().get("projectId"));
+    assertEquals(user.getAuthorities(), principal.getAuthorities());
+  }
+
+  @Test
+  public void testToUserDetails_resetTokenHasNoUserId() {
+    String token = jwtService.generateResetToken(customUserDetails);
+
+    assertNull(jwtService.toUserDetails(jwtService.parseToken(token)));
+  }
+
+  @Test
+  public void testParseToken_tamperedToken() {
+    String token = jwtService.generateToken(customUserDetails);
+    String tampered = token.substring(0, token.length() - 2)
+        + (token.endsWith("AA") ? "BB" : "AA");
+
+    assertThrows(JwtException.class, () -> jwtService.parseToken(tampered));
+  }
 }
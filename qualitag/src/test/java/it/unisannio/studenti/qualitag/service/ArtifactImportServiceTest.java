@@ -0,0 +1,333 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.dto.artifact.ArtifactImportDto;
+import it.unisannio.studenti.qualitag.dto.artifact.ArtifactImportEntryDto;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ArtifactLineIndexRepository;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.TeamRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Test class for the ArtifactImportService.
+ */
+public class ArtifactImportServiceTest {
+
+  @Mock
+  private ArtifactRepository artifactRepository;
+  @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
+  private ProjectRepository projectRepository;
+  @Mock
+  private TeamRepository teamRepository;
+  @Mock
+  private UserRepository userRepository;
+  @Mock
+  private ArtifactStorage artifactStorage;
+  @Mock
+  private ArtifactCompression artifactCompression;
+  @Mock
+  private ArtifactLineIndexRepository artifactLineIndexRepository;
+  @Mock
+  private IrrService irrService;
+
+  private ArtifactImportService artifactImportService;
+
+  private Project project;
+  private Team team1;
+  private Team team2;
+
+  /**
+   * Set up the test environment, with a project owned by the logged-in user and two teams.
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    MockitoAnnotations.openMocks(this);
+
+    ArtifactPreviewService artifactPreviewService = new ArtifactPreviewService(
+        artifactLineIndexRepository, artifactRepository, projectRepository, userRepository,
+        artifactStorage);
+    artifactImportService = new ArtifactImportService(artifactRepository, membershipRepository,
+        projectRepository, teamRepository, userRepository, artifactStorage, artifactCompression,
+        artifactPreviewService, irrService);
+    artifactImportService.start();
+
+    User owner = new User("owner", "owner@example.com", "password", "Alice", "Smith");
+    owner.setUserId("ownerId");
+
+    project = new Project();
+    project.setProjectId("projectId");
+    project.setOwnerId(owner.getUserId());
+    project.setTeamIds(new ArrayList<>(List.of("team1", "team2")));
+
+    team1 = new Team();
+    team1.setTeamId("team1");
+    team1.setArtifactIds(new ArrayList<>(List.of("old1", "old2")));
+    team2 = new Team();
+    team2.setTeamId("team2");
+
+    when(projectRepository.findProjectByProjectId("projectId")).thenReturn(project);
+    when(userRepository.findByUserId("ownerId")).thenReturn(owner);
+    when(teamRepository.findAllById(project.getTeamIds())).thenReturn(List.of(team2, team1));
+
+    // Every stored file gets its own location, and "bad" content cannot be stored
+    AtomicInteger locations = new AtomicInteger();
+    when(artifactStorage.store(any())).thenAnswer(invocation -> {
+      byte[] content = invocation.<InputStream>getArgument(0).readAllBytes();
+      if ("bad".equals(new String(content, StandardCharsets.UTF_8))) {
+        throw new IOException("Disk full.");
+      }
+      return "location" + locations.incrementAndGet();
+    });
+    AtomicInteger ids = new AtomicInteger();
+    when(artifactRepository.insert(anyList())).thenAnswer(invocation -> {
+      List<Artifact> artifacts = invocation.getArgument(0);
+      artifacts.forEach(artifact -> artifact.setArtifactId("artifact" + ids.incrementAndGet()));
+      return artifacts;
+    });
+
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.getName()).thenReturn("owner");
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+  }
+
+  /**
+   * Stops the import pool.
+   */
+  @AfterEach
+  public void tearDown() {
+    artifactImportService.stop();
+  }
+
+  /**
+   * Tests the import of a ZIP archive and a plain file, assigned to the least loaded teams.
+   */
+  @Test
+  public void testImportArtifactsSuccess() throws IOException {
+    // Arrange
+    MockMultipartFile archive = new MockMultipartFile("files", "snippets.zip",
+        "application/zip", zip(Map.of(
+            "a.txt", "a",
+            "dir/", "",
+            "dir/b.java", "b",
+            "__MACOSX/._a.txt", "metadata")));
+    MockMultipartFile file = new MockMultipartFile("files", "c.md", "text/markdown",
+        "c".getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    ResponseEntity<?> response = artifactImportService.importArtifacts(
+        new ArtifactImportDto("projectId", List.of(archive, file)));
+
+    // Assert
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) response.getBody();
+    assertNotNull(body);
+    assertEquals(3, body.get("imported"));
+    assertEquals(0, body.get("failed"));
+
+    List<?> entries = (List<?>) body.get("entries");
+    assertEquals(3, entries.size());
+    List<String> teams = entries.stream()
+        .map(entry -> ((ArtifactImportEntryDto) entry).teamId()).toList();
+    assertEquals(List.of("team2", "team2", "team1"), teams);
+
+    verify(artifactRepository, times(1)).insert(anyList());
+    verify(membershipRepository).addArtifactsToProject("projectId",
+        List.of("artifact1", "artifact2", "artifact3"));
+    verify(membershipRepository).addArtifactsToTeam("team2", List.of("artifact1", "artifact2"));
+    verify(membershipRepository).addArtifactsToTeam("team1", List.of("artifact3"));
+    verify(irrService).invalidate("team1");
+    verify(irrService).invalidate("team2");
+    verify(artifactStorage, never()).release(anyString());
+
+    // The lines of the text files are indexed, and saved at once
+    verify(artifactLineIndexRepository).insert(argThat((List<ArtifactLineIndex> indexes) ->
+        indexes.stream().anyMatch(index -> "artifact3".equals(index.getArtifactId())
+            && index.getLineCount() == 1)));
+  }
+
+  /**
+   * Tests that the files that cannot be stored are reported, while the others are imported.
+   */
+  @Test
+  public void testImportArtifactsReportsFailedFiles() throws IOException {
+    // Arrange
+    MockMultipartFile good = new MockMultipartFile("files", "good.txt", "text/plain",
+        "good".getBytes(StandardCharsets.UTF_8));
+    MockMultipartFile bad = new MockMultipartFile("files", "bad.txt", "text/plain",
+        "bad".getBytes(StandardCharsets.UTF_8));
+    MockMultipartFile broken = new MockMultipartFile("files", "broken.zip", "application/zip",
+        "not a zip".getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    ResponseEntity<?> response = artifactImportService.importArtifacts(
+        new ArtifactImportDto("projectId", List.of(good, bad, broken)));
+
+    // Assert
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) response.getBody();
+    assertEquals(1, body.get("imported"));
+    assertEquals(2, body.get("failed"));
+
+    List<?> entries = (List<?>) body.get("entries");
+    ArtifactImportEntryDto goodEntry = (ArtifactImportEntryDto) entries.get(0);
+    assertEquals("artifact1", goodEntry.artifactId());
+    assertNull(goodEntry.error());
+    assertEquals(new ArtifactImportEntryDto("bad.txt", null, null, "Disk full."),
+        entries.get(1));
+    assertEquals(new ArtifactImportEntryDto("broken.zip", null, null, "Invalid ZIP archive."),
+        entries.get(2));
+  }
+
+  /**
+   * Tests that files larger than the limit are rejected, whatever the archive declares.
+   */
+  @Test
+  public void testImportArtifactsTooLarge() throws IOException {
+    // Arrange
+    artifactImportService.maxEntryBytes = 4;
+    MockMultipartFile archive = new MockMultipartFile("files", "snippets.zip",
+        "application/zip", zip(Map.of("large.txt", "0123456789")));
+
+    // Act
+    ResponseEntity<?> response = artifactImportService.importArtifacts(
+        new ArtifactImportDto("projectId", List.of(archive)));
+
+    // Assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) response.getBody();
+    assertEquals("No artifact imported.", body.get("msg"));
+    assertEquals(List.of(new ArtifactImportEntryDto("large.txt", null, null,
+        "File larger than 4 bytes.")), body.get("entries"));
+    verify(artifactRepository, never()).insert(anyList());
+  }
+
+  /**
+   * Tests that the stored files are released if the artifacts cannot be saved.
+   */
+  @Test
+  public void testImportArtifactsReleasesFilesOnError() throws IOException {
+    // Arrange
+    when(artifactRepository.insert(anyList())).thenThrow(new RuntimeException("Database down"));
+    MockMultipartFile first = new MockMultipartFile("files", "a.txt", "text/plain",
+        "a".getBytes(StandardCharsets.UTF_8));
+    MockMultipartFile second = new MockMultipartFile("files", "b.txt", "text/plain",
+        "b".getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    ResponseEntity<?> response = artifactImportService.importArtifacts(
+        new ArtifactImportDto("projectId", List.of(first, second)));
+
+    // Assert
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    verify(artifactStorage).release("location1");
+    verify(artifactStorage).release("location2");
+    verify(membershipRepository, never()).addArtifactsToProject(anyString(), anyCollection());
+  }
+
+  /**
+   * Tests that only the project owner can import artifacts.
+   */
+  @Test
+  public void testImportArtifactsNotOwner() throws IOException {
+    // Arrange
+    User other = new User("other", "other@example.com", "password", "Bob", "Johnson");
+    when(userRepository.findByUserId("ownerId")).thenReturn(other);
+    MockMultipartFile file = new MockMultipartFile("files", "a.txt", "text/plain",
+        "a".getBytes(StandardCharsets.UTF_8));
+
+    // Act
+    ResponseEntity<?> response = artifactImportService.importArtifacts(
+        new ArtifactImportDto("projectId", List.of(file)));
+
+    // Assert
+    assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    verify(artifactStorage, never()).store(any());
+  }
+
+  /**
+   * Tests that a request without files is rejected.
+   */
+  @Test
+  public void testImportArtifactsInvalidData() {
+    // Act
+    ResponseEntity<?> response = artifactImportService.importArtifacts(
+        new ArtifactImportDto("projectId", List.of()));
+
+    // Assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertEquals(Map.of("msg", "Invalid artifact data."), response.getBody());
+  }
+
+  /**
+   * Tests that the teams are planned by load, the earliest team winning ties.
+   */
+  @Test
+  public void testPlanTeams() {
+    // Act
+    List<String> plan = ArtifactImportService.planTeams(List.of(team1, team2), 5);
+
+    // Assert
+    assertEquals(List.of("team2", "team2", "team1", "team2", "team1"), plan);
+  }
+
+  // UTILITY METHODS
+
+  private static byte[] zip(Map<String, String> entries) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+      for (String name : entries.keySet().stream().sorted().toList()) {
+        zipOutputStream.putNextEntry(new ZipEntry(name));
+        zipOutputStream.write(entries.get(name).getBytes(StandardCharsets.UTF_8));
+        zipOutputStream.closeEntry();
+      }
+    }
+    return outputStream.toByteArray();
+  }
+}
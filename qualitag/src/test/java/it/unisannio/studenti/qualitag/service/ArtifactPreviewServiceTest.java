@@ -0,0 +1,299 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ArtifactLineIndexRepository;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import it.unisannio.studenti.qualitag.storage.LocalStoredFile;
+import it.unisannio.studenti.qualitag.storage.StoredFile;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Test class for the ArtifactPreviewService.
+ */
+public class ArtifactPreviewServiceTest {
+
+  @Mock
+  private ArtifactLineIndexRepository artifactLineIndexRepository;
+  @Mock
+  private ArtifactRepository artifactRepository;
+  @Mock
+  private ProjectRepository projectRepository;
+  @Mock
+  private UserRepository userRepository;
+  @Mock
+  private ArtifactStorage artifactStorage;
+
+  private ArtifactPreviewService artifactPreviewService;
+
+  private Artifact artifact;
+  private User member;
+
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Set up the test environment, with a text artifact of the team of the logged-in user.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    artifactPreviewService = new ArtifactPreviewService(artifactLineIndexRepository,
+        artifactRepository, projectRepository, userRepository, artifactStorage);
+    artifactPreviewService.indexStep = 2;
+
+    member = new User("member", "member@example.com", "password", "Jane", "Doe");
+    member.setUserId("memberId");
+    member.getTeamIds().add("teamId");
+
+    Project project = new Project();
+    project.setProjectId("projectId");
+    project.setOwnerId("ownerId");
+
+    artifact = new Artifact("Log", "projectId", "teamId", "location");
+    artifact.setArtifactId("artifactId");
+    artifact.setContentType("text/plain");
+
+    when(artifactRepository.findArtifactByArtifactId("artifactId")).thenReturn(artifact);
+    when(projectRepository.findProjectByProjectId("projectId")).thenReturn(project);
+    when(userRepository.findByUserId("memberId")).thenReturn(member);
+    when(artifactLineIndexRepository.findById("artifactId")).thenReturn(Optional.empty());
+    when(artifactLineIndexRepository.save(any(ArtifactLineIndex.class)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.isAuthenticated()).thenReturn(true);
+    when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(member));
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+  }
+
+  /**
+   * Tests that the lines of a text file are indexed while it is read, every given number of lines.
+   */
+  @Test
+  public void testIndexing() throws IOException {
+    // Act
+    LineIndexingInputStream text = artifactPreviewService.indexing(
+        stream("a\nbb\nccc\ndddd\n"), "text/plain; charset=UTF-8");
+    text.transferTo(OutputStream.nullOutputStream());
+    LineIndexingInputStream binary = artifactPreviewService.indexing(
+        stream("a\nb"), "image/png");
+    binary.transferTo(OutputStream.nullOutputStream());
+
+    // Assert
+    ArtifactLineIndex index = text.toIndex();
+    assertEquals(14, index.getSize());
+    assertEquals(4, index.getLineCount());
+    assertEquals(List.of(0L, 5L), index.getCheckpoints());
+    assertNull(binary.toIndex());
+  }
+
+  /**
+   * Tests a window in the middle of a file on the local disk, read from the recorded line before
+   * it.
+   */
+  @Test
+  public void testGetPreviewWindow() throws IOException {
+    // Arrange
+    Path file = tempDir.resolve("log.txt");
+    Files.writeString(file, "line0\nline1\nline2\r\nline3\nline4\nline5\nline6");
+    when(artifactStorage.open("location")).thenReturn(LocalStoredFile.of(file));
+    LineIndexingInputStream content = artifactPreviewService.indexing(
+        Files.newInputStream(file), "text/plain");
+    content.transferTo(OutputStream.nullOutputStream());
+    ArtifactLineIndex index = content.toIndex();
+    when(artifactLineIndexRepository.findById("artifactId")).thenReturn(Optional.of(index));
+
+    // Act
+    ResponseEntity<?> middle = artifactPreviewService.getPreview("artifactId", 1, 3);
+    ResponseEntity<?> last = artifactPreviewService.getPreview("artifactId", 5, 10);
+
+    // Assert
+    assertEquals(HttpStatus.OK, middle.getStatusCode());
+    assertEquals(List.of("line1", "line2", "line3"), body(middle).get("lines"));
+    assertEquals(7L, body(middle).get("totalLines"));
+    assertEquals(4L, body(middle).get("nextOffset"));
+    assertEquals(List.of("line5", "line6"), body(last).get("lines"));
+    assertNull(body(last).get("nextOffset"));
+    verify(artifactLineIndexRepository, never()).save(any());
+  }
+
+  /**
+   * Tests that a compressed artifact uploaded before it was indexed gets its index on the first
+   * preview.
+   */
+  @Test
+  public void testGetPreviewCompressedBuildsIndex() throws IOException {
+    // Arrange
+    Path file = tempDir.resolve("log.gz");
+    try (InputStream in = ArtifactCompression.encode(stream("x\ny\nz\n"),
+        ArtifactCompression.GZIP)) {
+      Files.copy(in, file);
+    }
+    artifact.setContentEncoding(ArtifactCompression.GZIP);
+    when(artifactStorage.open("location")).thenReturn(LocalStoredFile.of(file));
+
+    // Act
+    ResponseEntity<?> response = artifactPreviewService.getPreview("artifactId", 2, 5);
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(List.of("z"), body(response).get("lines"));
+    assertEquals(3L, body(response).get("totalLines"));
+    verify(artifactLineIndexRepository).save(argThat((ArtifactLineIndex saved) ->
+        "artifactId".equals(saved.getArtifactId()) && saved.getSize() == 6
+            && saved.getCheckpoints().equals(List.of(0L, 4L))));
+  }
+
+  /**
+   * Tests that the windows of a compressed artifact are read from a single decompression of it.
+   */
+  @Test
+  public void testGetPreviewCompressedWindows() throws IOException {
+    // Arrange
+    artifactPreviewService.maxWindowBytes = 4;
+    Path file = tempDir.resolve("minified.js.gz");
+    try (InputStream in = ArtifactCompression.encode(stream("ab\ncdefghij\nk\nlm\n"),
+        ArtifactCompression.GZIP)) {
+      Files.copy(in, file);
+    }
+    artifact.setContentEncoding(ArtifactCompression.GZIP);
+    StoredFile stored = LocalStoredFile.of(file);
+    AtomicInteger opened = new AtomicInteger();
+    when(artifactStorage.open("location")).thenReturn(new StoredFile() {
+      @Override
+      public long size() {
+        return stored.size();
+      }
+
+      @Override
+      public long lastModified() {
+        return stored.lastModified();
+      }
+
+      @Override
+      public InputStream openStream() throws IOException {
+        opened.incrementAndGet();
+        return stored.openStream();
+      }
+
+      @Override
+      public void writeTo(OutputStream out, long position, long count) throws IOException {
+        stored.writeTo(out, position, count);
+      }
+    });
+    LineIndexingInputStream content = artifactPreviewService.indexing(
+        stream("ab\ncdefghij\nk\nlm\n"), "text/plain");
+    content.transferTo(OutputStream.nullOutputStream());
+    when(artifactLineIndexRepository.findById("artifactId"))
+        .thenReturn(Optional.of(content.toIndex()));
+
+    // Act
+    ResponseEntity<?> response = artifactPreviewService.getPreview("artifactId", 0, 4);
+
+    // Assert
+    assertEquals(List.of("ab", "cdef", "k", "lm"), body(response).get("lines"));
+    assertEquals(1, opened.get());
+  }
+
+  /**
+   * Tests that a line longer than the window is cut, and the next line follows it.
+   */
+  @Test
+  public void testGetPreviewCutsLongLines() throws IOException {
+    // Arrange
+    artifactPreviewService.maxWindowBytes = 4;
+    Path file = tempDir.resolve("minified.js");
+    Files.writeString(file, "abcdefghij\nk\n");
+    when(artifactStorage.open("location")).thenReturn(LocalStoredFile.of(file));
+
+    // Act
+    ResponseEntity<?> response = artifactPreviewService.getPreview("artifactId", 0, 2);
+
+    // Assert
+    assertEquals(List.of("abcd", "k"), body(response).get("lines"));
+    assertNull(body(response).get("nextOffset"));
+  }
+
+  /**
+   * Tests that artifacts that are not text cannot be previewed.
+   */
+  @Test
+  public void testGetPreviewNotText() {
+    // Arrange
+    artifact.setContentType("image/png");
+
+    // Act
+    ResponseEntity<?> response = artifactPreviewService.getPreview("artifactId", 0, 10);
+
+    // Assert
+    assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, response.getStatusCode());
+  }
+
+  /**
+   * Tests that the window is checked, and that users outside the team cannot preview.
+   */
+  @Test
+  public void testGetPreviewInvalid() {
+    // Act
+    ResponseEntity<?> negative = artifactPreviewService.getPreview("artifactId", -1, 10);
+    ResponseEntity<?> tooMany = artifactPreviewService.getPreview("artifactId", 0, 1001);
+    member.getTeamIds().clear();
+    ResponseEntity<?> forbidden = artifactPreviewService.getPreview("artifactId", 0, 10);
+
+    // Assert
+    assertEquals(HttpStatus.BAD_REQUEST, negative.getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, tooMany.getStatusCode());
+    assertEquals(HttpStatus.FORBIDDEN, forbidden.getStatusCode());
+  }
+
+  // UTILITY METHODS
+
+  private static InputStream stream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> body(ResponseEntity<?> response) {
+    return (Map<String, Object>) response.getBody();
+  }
+}
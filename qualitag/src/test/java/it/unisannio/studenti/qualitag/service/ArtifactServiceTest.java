@@ -1,17 +1,23 @@
 package it.unisannio.studenti.qualitag.service;
 
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.any;
-import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -19,24 +25,35 @@ import static org.mockito.Mockito.when;
 import it.unisannio.studenti.qualitag.dto.artifact.AddTagsToArtifactDto;
 import it.unisannio.studenti.qualitag.dto.artifact.ArtifactCreateDto;
 import it.unisannio.studenti.qualitag.dto.artifact.WholeArtifactDto;
-import it.unisannio.studenti.qualitag.dto.tag.TagCreateDto;
+import it.unisannio.studenti.qualitag.exception.PythonServiceException;
 import it.unisannio.studenti.qualitag.dto.tag.TagResponseDto;
 import it.unisannio.studenti.qualitag.mapper.ArtifactMapper;
 import it.unisannio.studenti.qualitag.mapper.TagMapper;
 import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.JobType;
 import it.unisannio.studenti.qualitag.model.Project;
 import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
 import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
 import it.unisannio.studenti.qualitag.security.service.AuthenticationService;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import it.unisannio.studenti.qualitag.storage.LocalStoredFile;
+import it.unisannio.studenti.qualitag.storage.OrphanFileCollector;
 import jakarta.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -47,20 +64,26 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
-import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Test class for the ArtifactService.
@@ -70,6 +93,8 @@ class ArtifactServiceTest {
   @Mock
   private ArtifactRepository artifactRepository;
   @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
   private ProjectRepository projectRepository;
   @Mock
   private TagRepository tagRepository;
@@ -82,9 +107,21 @@ class ArtifactServiceTest {
   @Mock
   private AuthenticationService authenticationService;
   @Mock
+  private ArtifactStorage artifactStorage;
+  @Mock
+  private ArtifactCompression artifactCompression;
+  @Mock
+  private ArtifactPreviewService artifactPreviewService;
+  @Mock
+  private OrphanFileCollector orphanFileCollector;
+  @Mock
+  private IrrService irrService;
+  @Mock
   private PythonClientService pythonClientService;
   @Mock
-  private TagService tagService;
+  private TagConsolidationService tagConsolidationService;
+  @Mock
+  private JobService jobService;
   @Mock
   private MultipartFile file;
 
@@ -113,6 +150,9 @@ class ArtifactServiceTest {
 
   private Path mockFilePath;
 
+  @TempDir
+  private Path tempDir;
+
 
   /**
    * Set up the test environment.
@@ -120,6 +160,8 @@ class ArtifactServiceTest {
   @BeforeEach
   void setUp() {
     MockitoAnnotations.openMocks(this);
+    when(artifactPreviewService.indexing(any(), any())).thenAnswer(
+        invocation -> new LineIndexingInputStream(invocation.getArgument(0), 0));
 
     // Initialize the objects
     tag1 = new Tag("TAG1", "6798e2740b80b85362a8ba90", "#fff8de");
@@ -204,7 +246,9 @@ class ArtifactServiceTest {
     when(tagRepository.save(any(Tag.class))).thenReturn(tag1);
     when(tagRepository.save(any(Tag.class))).thenReturn(tag2);
     when(file.getOriginalFilename()).thenReturn("fileName");
+    when(file.getContentType()).thenReturn("text/csv");
     when(file.getBytes()).thenReturn(new byte[0]);
+    when(artifactStorage.store(any())).thenReturn("/artifacts/" + "0".repeat(64));
 
     // Act
     ResponseEntity<?> response = artifactService.addArtifact(artifactCreateDto);
@@ -215,7 +259,69 @@ class ArtifactServiceTest {
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Artifact created successfully.");
     assertEquals(responseBody, response.getBody());
-    verify(artifactRepository).save(any(Artifact.class));
+    verify(artifactRepository).save(
+        argThat((Artifact saved) -> "text/csv".equals(saved.getContentType())
+            && "fileName".equals(saved.getFileName())
+            && ("/artifacts/" + "0".repeat(64)).equals(saved.getFilePath())));
+    verify(irrService).invalidate(team.getTeamId());
+    verify(artifactStorage, never()).release(anyString());
+    verify(artifactPreviewService).saveIndex(any(), any(LineIndexingInputStream.class));
+  }
+
+  /**
+   * Tests that a text file is stored compressed, and that the encoding is recorded.
+   */
+  @Test
+  public void testAddArtifactCompressesText() throws IOException {
+    // Arrange
+    when(projectRepository.findProjectByProjectId(artifactCreateDto.projectId()))
+        .thenReturn(project);
+    when(userRepository.findByUserId(project.getOwnerId())).thenReturn(owner);
+    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
+    when(file.getOriginalFilename()).thenReturn("fileName");
+    when(file.getContentType()).thenReturn("text/csv");
+    when(file.getSize()).thenReturn(4096L);
+    when(file.getInputStream()).thenReturn(new ByteArrayInputStream("a,b\n".getBytes()));
+    when(artifactCompression.encodingFor("text/csv", 4096L)).thenReturn(ArtifactCompression.GZIP);
+    ByteArrayOutputStream stored = new ByteArrayOutputStream();
+    when(artifactStorage.store(any())).thenAnswer(invocation -> {
+      invocation.<InputStream>getArgument(0).transferTo(stored);
+      return "/artifacts/" + "0".repeat(64);
+    });
+
+    // Act
+    ResponseEntity<?> response = artifactService.addArtifact(artifactCreateDto);
+
+    // Assert
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(stored.toByteArray()))) {
+      assertEquals("a,b\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    verify(artifactRepository).save(
+        argThat((Artifact saved) -> ArtifactCompression.GZIP.equals(saved.getContentEncoding())));
+  }
+
+  /**
+   * Tests an execution of the addArtifact method when the artifact cannot be saved after its file
+   * is stored.
+   */
+  @Test
+  public void testAddArtifactReleasesFileOnError() throws IOException {
+    // Arrange
+    when(projectRepository.findProjectByProjectId(artifactCreateDto.projectId()))
+        .thenReturn(project);
+    when(userRepository.findByUserId(project.getOwnerId())).thenReturn(owner);
+    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
+    when(file.getOriginalFilename()).thenReturn("fileName");
+    when(artifactStorage.store(any())).thenReturn("/artifacts/" + "0".repeat(64));
+    when(artifactRepository.save(any(Artifact.class))).thenThrow(new RuntimeException("down"));
+
+    // Act
+    ResponseEntity<?> response = artifactService.addArtifact(artifactCreateDto);
+
+    // Assert
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+    verify(artifactStorage).release("/artifacts/" + "0".repeat(64));
   }
 
   /**
@@ -257,6 +363,24 @@ class ArtifactServiceTest {
     assertEquals(responseBody, response.getBody());
   }
 
+  /**
+   * Tests an execution of the addArtifact method when the file is larger than a single upload
+   * allows.
+   */
+  @Test
+  public void testAddArtifactTooLarge() throws IOException {
+    // Arrange
+    when(file.getSize()).thenReturn(10L * 1024 * 1024 + 1);
+
+    // Act
+    ResponseEntity<?> response = artifactService.addArtifact(artifactCreateDto);
+
+    // Assert
+    assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, response.getStatusCode());
+    verify(projectRepository, never()).findProjectByProjectId(anyString());
+    verify(artifactStorage, never()).store(any());
+  }
+
   /**
    * Tests an execution of the addArtifact method when the user is not the project owner.
    */
@@ -282,29 +406,237 @@ class ArtifactServiceTest {
    * Tests a successful execution of the getArtifact method.
    */
   @Test
-  public void testGetArtifactSuccess() {
-    try (MockedStatic<Files> mockedFiles = mockStatic(Files.class)) {
-      // Arrange
-      when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-          .thenReturn(artifact);
-      when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-      when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-      mockedFiles.when(() -> Files.exists(mockFilePath)).thenReturn(true);
-      mockedFiles.when(() -> Files.probeContentType(mockFilePath)).thenReturn("text/plain");
-      mockedFiles.when(() -> Files.size(mockFilePath)).thenReturn(100L);
+  public void testGetArtifactSuccess() throws IOException {
+    // Arrange
+    mockArtifactFile("text/plain");
 
-      // Act
-      ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
+    // Act
+    ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
 
-      // Assert
-      assertNotNull(response);
-      assertEquals(HttpStatus.OK, response.getStatusCode());
-      HttpHeaders headers = response.getHeaders();
-      assertTrue(headers.containsKey(HttpHeaders.CONTENT_DISPOSITION));
-      assertEquals("attachment; filename=file.txt\"",
-          headers.getFirst(HttpHeaders.CONTENT_DISPOSITION));
-      assertEquals("text/plain", headers.getContentType().toString());
-    }
+    // Assert
+    assertNotNull(response);
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    HttpHeaders headers = response.getHeaders();
+    assertTrue(headers.containsKey(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals("file.txt", headers.getContentDisposition().getFilename());
+    assertEquals("text/plain", headers.getContentType().toString());
+    assertEquals("bytes", headers.getFirst(HttpHeaders.ACCEPT_RANGES));
+    assertEquals(10, headers.getContentLength());
+    assertEquals("0123456789", writeBody(response));
+    verify(artifactRepository, never()).setContentType(anyString(), anyString());
+  }
+
+  /**
+   * Tests that the name given by the uploader is quoted and encoded in the Content-Disposition
+   * header, so separators and non-ASCII characters do not break it.
+   */
+  @Test
+  public void testGetArtifactUploadedFileName() throws IOException {
+    // Arrange
+    mockArtifactFile("text/plain");
+    artifact.setFileName("résumé; \"v2\".txt");
+
+    // Act
+    ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
+
+    // Assert
+    ContentDisposition disposition = response.getHeaders().getContentDisposition();
+    assertEquals("attachment", disposition.getType());
+    assertEquals("résumé; \"v2\".txt", disposition.getFilename());
+  }
+
+  /**
+   * Tests an execution of the getArtifact method with a single range.
+   */
+  @Test
+  public void testGetArtifactSingleRange() throws IOException {
+    // Arrange
+    mockArtifactFile("text/plain");
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.RANGE, "bytes=2-4");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    assertEquals("bytes 2-4/10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    assertEquals(3, response.getHeaders().getContentLength());
+    assertEquals("234", writeBody(response));
+  }
+
+  /**
+   * Tests an execution of the getArtifact method with several ranges.
+   */
+  @Test
+  public void testGetArtifactMultipleRanges() throws IOException {
+    // Arrange
+    mockArtifactFile("text/plain");
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.RANGE, "bytes=0-1,-2");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    MediaType contentType = response.getHeaders().getContentType();
+    assertEquals("multipart/byteranges", contentType.getType() + "/" + contentType.getSubtype());
+    String boundary = contentType.getParameter("boundary");
+    String body = writeBody(response);
+    assertEquals("\r\n--" + boundary + "\r\nContent-Type: text/plain\r\n"
+        + "Content-Range: bytes 0-1/10\r\n\r\n01"
+        + "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\n"
+        + "Content-Range: bytes 8-9/10\r\n\r\n89"
+        + "\r\n--" + boundary + "--\r\n", body);
+    assertEquals(body.length(), response.getHeaders().getContentLength());
+  }
+
+  /**
+   * Tests an execution of the getArtifact method with a range past the end of the file.
+   */
+  @Test
+  public void testGetArtifactRangeNotSatisfiable() throws IOException {
+    // Arrange
+    mockArtifactFile("text/plain");
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.RANGE, "bytes=10-20");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+    assertEquals("bytes */10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+  }
+
+  /**
+   * Tests an execution of the getArtifact method when If-Range does not match the file anymore.
+   */
+  @Test
+  public void testGetArtifactIfRangeChanged() throws IOException {
+    // Arrange
+    mockArtifactFile("text/plain");
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.RANGE, "bytes=2-4");
+    requestHeaders.set(HttpHeaders.IF_RANGE, "\"stale\"");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("0123456789", writeBody(response));
+
+    // The current entity tag is honoured
+    requestHeaders.set(HttpHeaders.IF_RANGE, response.getHeaders().getETag());
+    response = artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+  }
+
+  /**
+   * Tests that a compressed file is sent as it is stored to a client accepting gzip.
+   */
+  @Test
+  public void testGetArtifactCompressedAccepted() throws IOException {
+    // Arrange
+    byte[] compressed = mockCompressedArtifactFile();
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.8");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    HttpHeaders headers = response.getHeaders();
+    assertEquals("gzip", headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(compressed.length, headers.getContentLength());
+    assertEquals("bytes", headers.getFirst(HttpHeaders.ACCEPT_RANGES));
+    assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    ((StreamingResponseBody) response.getBody()).writeTo(body);
+    assertArrayEquals(compressed, body.toByteArray());
+  }
+
+  /**
+   * Tests that a compressed file is decompressed for a client not accepting gzip.
+   */
+  @Test
+  public void testGetArtifactCompressedNotAccepted() throws IOException {
+    // Arrange
+    mockCompressedArtifactFile();
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals(10, response.getHeaders().getContentLength());
+    assertEquals("0123456789", writeBody(response));
+  }
+
+  /**
+   * Tests that the ranges of a compressed file are served on its decoded bytes, and resumed with
+   * the entity tag of the whole file.
+   */
+  @Test
+  public void testGetArtifactCompressedRange() throws IOException {
+    // Arrange
+    mockCompressedArtifactFile();
+    HttpHeaders requestHeaders = new HttpHeaders();
+    requestHeaders.set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    requestHeaders.set(HttpHeaders.RANGE, "bytes=2-4");
+
+    // Act
+    ResponseEntity<?> response =
+        artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+
+    // Assert
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    HttpHeaders headers = response.getHeaders();
+    assertNull(headers.getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals("bytes 2-4/10", headers.getFirst(HttpHeaders.CONTENT_RANGE));
+    assertEquals(3, headers.getContentLength());
+    assertEquals(List.of(HttpHeaders.ACCEPT_ENCODING), headers.getVary());
+    assertEquals("234", writeBody(response));
+
+    // A download started without the encoding is resumed
+    HttpHeaders identityHeaders = new HttpHeaders();
+    identityHeaders.set(HttpHeaders.ACCEPT_ENCODING, "identity");
+    String etag = artifactService.getArtifact(artifact.getArtifactId(), identityHeaders)
+        .getHeaders().getETag();
+    requestHeaders.set(HttpHeaders.RANGE, "bytes=7-");
+    requestHeaders.set(HttpHeaders.IF_RANGE, etag);
+    response = artifactService.getArtifact(artifact.getArtifactId(), requestHeaders);
+    assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+    assertEquals("789", writeBody(response));
+  }
+
+  /**
+   * Tests an execution of the getArtifact method on an artifact stored without content type.
+   */
+  @Test
+  public void testGetArtifactStoresMissingContentType() throws IOException {
+    // Arrange
+    mockArtifactFile(null);
+
+    // Act
+    ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    String contentType = response.getHeaders().getContentType().toString();
+    verify(artifactRepository).setContentType(artifact.getArtifactId(), contentType);
   }
 
   /**
@@ -374,40 +706,40 @@ class ArtifactServiceTest {
    * Tests an execution of the getArtifact method when the file is not found.
    */
   @Test
-  public void testGetArtifactFileNotFound() {
-    try (MockedStatic<Files> mockedFiles = mockStatic(Files.class)) {
-      // Arrange
-      when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-          .thenReturn(artifact);
-      when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-      when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-      mockedFiles.when(() -> Files.exists(mockFilePath)).thenReturn(false);
+  public void testGetArtifactFileNotFound() throws IOException {
+    // Arrange
+    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
+        .thenReturn(artifact);
+    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
+    when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
+    when(artifactStorage.open(artifact.getFilePath())).thenReturn(null);
 
-      // Act
-      ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
+    // Act
+    ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
 
-      // Assert
-      assertNotNull(response);
-      assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-      Map<String, Object> responseBody = new HashMap<>();
-      responseBody.put("msg", "File not found.");
-      assertEquals(responseBody, response.getBody());
-    }
+    // Assert
+    assertNotNull(response);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    Map<String, Object> responseBody = new HashMap<>();
+    responseBody.put("msg", "File not found.");
+    assertEquals(responseBody, response.getBody());
   }
 
   /**
    * Tests an execution of the getArtifact method when the file type is not found.
    */
   @Test
-  public void testGetArtifactIoException() {
+  public void testGetArtifactIoException() throws IOException {
     try (MockedStatic<Files> mockedFiles = mockStatic(Files.class)) {
       // Arrange
       when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
           .thenReturn(artifact);
       when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
       when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-      mockedFiles.when(() -> Files.exists(mockFilePath)).thenReturn(true);
-      mockedFiles.when(() -> Files.probeContentType(mockFilePath)).thenThrow(new IOException());
+      when(artifactStorage.open(artifact.getFilePath()))
+          .thenReturn(new LocalStoredFile(mockFilePath, 10, 0));
+      mockedFiles.when(() -> Files.probeContentType(any(Path.class)))
+          .thenThrow(new IOException());
 
       // Act
       ResponseEntity<?> response = artifactService.getArtifact(artifact.getArtifactId());
@@ -511,7 +843,7 @@ class ArtifactServiceTest {
    * Tests a successful execution of the deleteArtifact method.
    */
   @Test
-  public void testDeleteArtifactSuccess() {
+  public void testDeleteArtifactSuccess() throws IOException {
     // Arrange
     when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
         .thenReturn(artifact);
@@ -540,14 +872,19 @@ class ArtifactServiceTest {
       assertEquals(responseBody, response.getBody());
 
       // Verify that the artifact has been removed from the project, team, and tags
-      assertFalse(project.getArtifactIds().contains(artifact.getArtifactId()));
-      verify(projectRepository, times(1)).save(project);
-      assertFalse(team.getArtifactIds().contains(artifact.getArtifactId()));
-      verify(teamRepository, times(1)).save(team);
-      assertFalse(tag1.getArtifactIds().contains(artifact.getArtifactId()));
-      verify(tagRepository, times(1)).save(tag1);
-      assertFalse(tag2.getArtifactIds().contains(artifact.getArtifactId()));
-      verify(tagRepository, times(1)).save(tag2);
+      verify(membershipRepository, times(1))
+          .removeArtifactFromProject(project.getProjectId(), artifact.getArtifactId());
+      verify(membershipRepository, times(1))
+          .removeArtifactFromTeam(team.getTeamId(), artifact.getArtifactId());
+      verify(membershipRepository, times(1))
+          .removeArtifactFromTags(artifact.getTags(), artifact.getArtifactId());
+      verify(projectRepository, never()).save(project);
+      verify(teamRepository, never()).save(team);
+      verify(tagRepository, never()).save(any(Tag.class));
+      verify(irrService).invalidate(team.getTeamId());
+      verify(orphanFileCollector).releaseLater(artifact.getFilePath());
+      verify(artifactPreviewService).deleteIndex(artifact.getArtifactId());
+      verify(artifactStorage, never()).release(anyString());
     }
 
   }
@@ -674,34 +1011,6 @@ class ArtifactServiceTest {
     assertEquals(responseBody, response.getBody());
   }
 
-  /**
-   * Tests an execution of the deleteArtifact method when the file deletion fails.
-   */
-  @Test
-  public void testDeleteArtifactFileDeletionFailure() {
-    // Arrange
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-    when(teamRepository.findTeamByTeamId(artifact.getTeamId())).thenReturn(team);
-    when(projectRepository.save(project)).thenReturn(project);
-    when(teamRepository.save(team)).thenReturn(team);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
-    when(tagRepository.save(tag1)).thenReturn(tag1);
-    when(tagRepository.save(tag2)).thenReturn(tag2);
-
-    // Act
-    ResponseEntity<?> response = artifactService.deleteArtifact(artifact.getArtifactId());
-
-    // Assert
-    assertNotNull(response);
-    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "File deletion failed.");
-    assertEquals(responseBody, response.getBody());
-  }
-
   /**
    * Tests an execution of the deleteArtifact method when deletion of the artifact fails.
    */
@@ -762,10 +1071,13 @@ class ArtifactServiceTest {
     responseBody.put("msg", "Tag removed successfully.");
     assertEquals(responseBody, response.getBody());
 
-    assertFalse(artifact.getTags().contains(tag1.getTagId()));
-    verify(artifactRepository, times(1)).save(artifact);
-    assertFalse(tag1.getArtifactIds().contains(artifact.getArtifactId()));
-    verify(tagRepository, times(1)).save(tag1);
+    verify(membershipRepository, times(1))
+        .removeTagFromArtifact(artifact.getArtifactId(), tag1.getTagId());
+    verify(membershipRepository, times(1))
+        .removeArtifactFromTag(tag1.getTagId(), artifact.getArtifactId());
+    verify(artifactRepository, never()).save(artifact);
+    verify(tagRepository, never()).save(tag1);
+    verify(irrService).tagRemoved(artifact.getArtifactId(), tag1.getTagId());
   }
 
   /**
@@ -946,14 +1258,14 @@ class ArtifactServiceTest {
     responseBody.put("msg", "Tags added successfully.");
     assertEquals(responseBody, response.getBody());
 
-    assertTrue(artifact.getTags().contains(tag3.getTagId()));
-    assertTrue(artifact.getTags().contains(tag4.getTagId()));
-    // artifact is saved twice since we add two new tags
-    verify(artifactRepository, times(2)).save(artifact);
-    assertTrue(tag3.getArtifactIds().contains(artifact.getArtifactId()));
-    verify(tagRepository, times(1)).save(tag3);
-    assertTrue(tag4.getArtifactIds().contains(artifact.getArtifactId()));
-    verify(tagRepository, times(1)).save(tag4);
+    // both tags are added with a single update on the artifact and one on the tags
+    verify(membershipRepository, times(1))
+        .addTagsToArtifact(artifact.getArtifactId(), addTagsToArtifactDto.tagIds());
+    verify(membershipRepository, times(1))
+        .addArtifactToTags(addTagsToArtifactDto.tagIds(), artifact.getArtifactId());
+    verify(artifactRepository, never()).save(artifact);
+    verify(tagRepository, never()).save(any(Tag.class));
+    verify(irrService).tagsAdded(artifact.getArtifactId(), List.of(tag3, tag4));
   }
 
   // /**
@@ -1691,55 +2003,33 @@ class ArtifactServiceTest {
   }
 
   /**
-   * Tests a successful execution of the processTags method.
+   * Tests a successful execution of the processTags method, whose job consolidates the tags of
+   * the artifact.
    */
   @Test
   public void testProcessTagsSuccess() {
     // Arrange
-    ArtifactService artifactServiceSpy = Mockito.spy(artifactService);
     when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
         .thenReturn(artifact);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
     when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
     when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-    when(teamRepository.findTeamByTeamId(artifact.getTeamId())).thenReturn(team);
-    when(artifactRepository.save(artifact)).thenReturn(artifact);
-    when(tagRepository.save(tag1)).thenReturn(tag1);
-    when(tagRepository.save(tag2)).thenReturn(tag2);
-
-    //We must use doRetun() for method for spies
-    doReturn(ResponseEntity.ok().build()).when(artifactServiceSpy)
-        .addTags(eq(artifact.getArtifactId()), any(AddTagsToArtifactDto.class));
-    String mockProcessedTagsJson = "{ \"result\": [\"processedTag1\", \"processedTag2\"] }";
-    when(pythonClientService.processTags(anyList())).thenReturn(mockProcessedTagsJson);
-    when(tagService.createTag(any(TagCreateDto.class)))
-        .thenReturn((ResponseEntity) ResponseEntity.status(HttpStatus.CREATED)
-            .body(Map.of("tagId", "newTagId1")))
-        .thenReturn((ResponseEntity) ResponseEntity.status(HttpStatus.CREATED)
-            .body(Map.of("tagId", "newTagId2")));
-    List<String> tags = new ArrayList<>(Arrays.asList(tag1.getTagId(), tag2.getTagId()));
-    tags.add("newTagId1");
-    tags.add("newTagId2");
-    AddTagsToArtifactDto addTagsToArtifactDto = new AddTagsToArtifactDto(tags);
-    doReturn(ResponseEntity.ok().build()).when(artifactServiceSpy).addTags(artifact.getArtifactId(),
-        addTagsToArtifactDto);
+    when(tagRepository.findAllById(artifact.getTags())).thenReturn(List.of(tag1, tag2));
+    JobService.Progress progress = mock(JobService.Progress.class);
+    when(tagConsolidationService.consolidate(List.of(tag1, tag2),
+        Collections.singletonList(artifact.getArtifactId()), progress))
+        .thenReturn(new TagConsolidationService.Result(List.of("PROCESSEDTAG"), 1, 1));
+    ArgumentCaptor<JobService.Work> work = ArgumentCaptor.forClass(JobService.Work.class);
+    when(jobService.submit(eq(JobType.TAG_PROCESSING), eq(artifact.getProjectId()),
+        eq(owner.getUserId()), work.capture())).thenReturn(ResponseEntity.accepted().build());
 
     // Act
-    ResponseEntity<?> response = artifactServiceSpy.processTags(artifact.getArtifactId());
+    ResponseEntity<?> response = artifactService.processTags(artifact.getArtifactId());
 
     // Assert
     assertNotNull(response);
-    assertEquals(HttpStatus.OK, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "Tags processed successfully.");
-    responseBody.put("processedTags", Arrays.asList("processedTag1", "processedTag2"));
-    assertEquals(responseBody, response.getBody());
-
-    verify(artifactServiceSpy, times(artifact.getTags().size()))
-        .removeTag(eq(artifact.getArtifactId()), anyString());
-    verify(pythonClientService, times(1)).processTags(anyList());
-    verify(tagService, times(2)).createTag(any(TagCreateDto.class));
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertEquals(Map.of("processedTags", List.of("PROCESSEDTAG")),
+        work.getValue().run(progress));
   }
 
   /**
@@ -1806,136 +2096,32 @@ class ArtifactServiceTest {
   }
 
   /**
-   * Tests an execution of the processTags method when there is an error removing tags 
-   * from artifact.
-   */
-  @Test
-  public void testProcessTagsErrorRemovingTags() {
-    // Arrange
-    ArtifactService artifactServiceSpy = Mockito.spy(artifactService);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-    when(teamRepository.findTeamByTeamId(artifact.getTeamId())).thenReturn(team);
-    when(artifactRepository.save(artifact)).thenReturn(artifact);
-
-    doReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build())
-        .when(artifactServiceSpy).removeTag(eq(artifact.getArtifactId()), anyString());
-
-    // Act
-    ResponseEntity<?> response = artifactServiceSpy.processTags(artifact.getArtifactId());
-
-    // Assert
-    assertNotNull(response);
-    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "Error removing tags from artifact.");
-    assertEquals(responseBody, response.getBody());
-  }
-
-  /**
-   * Tests an execution of the processTags method when there is an error processing tags.
+   * Tests an execution of the processTags method when the Python service is unavailable: its job
+   * fails.
    */
   @Test
-  public void testProcessTagsErrorProcessingTags() {
+  public void testProcessTagsServiceUnavailable() {
     // Arrange
-    ArtifactService artifactServiceSpy = Mockito.spy(artifactService);
     when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
         .thenReturn(artifact);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
     when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
     when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-    when(teamRepository.findTeamByTeamId(artifact.getTeamId())).thenReturn(team);
-    when(artifactRepository.save(artifact)).thenReturn(artifact);
-
-    when(pythonClientService.processTags(anyList())).thenReturn(null);
-
-    // Act
-    ResponseEntity<?> response = artifactServiceSpy.processTags(artifact.getArtifactId());
-
-    // Assert
-    assertNotNull(response);
-    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "Error processing tags.");
-    assertEquals(responseBody, response.getBody());
-  }
-
-  /**
-   * Tests an execution of the processTags method when there is an error processing JSON.
-   */
-  @Test
-  public void testProcessTagsErrorProcessingJsonInvalidJson() {
-    // Arrange
-    ArtifactService artifactServiceSpy = Mockito.spy(artifactService);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
-
-    doReturn(ResponseEntity.ok().build()).when(artifactServiceSpy).removeTag(anyString(),
-        anyString());
-
-    when(pythonClientService.processTags(anyList())).thenReturn("invalid-json");
-
-    // Act
-    ResponseEntity<?> response = artifactService.processTags(artifact.getArtifactId());
-
-    // Assert
-    assertNotNull(response);
-    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-
-    assertNotNull(response.getBody());
-    String responseBody = response.getBody().toString();
-    // Ensure it contains the base error message
-    assertTrue(responseBody.contains("Error processing JSON."));
-
-    // Ensure it contains an exception message
-    assertTrue(responseBody.contains("Unrecognized token")
-        || responseBody.contains("Unexpected character"));
-  }
-
-  /**
-   * Tests an execution of the processTags method when there is an error creating tags.
-   */
-  @Test
-  public void testProcessTagsErrorCreatingTagsFromProcessedTags() {
-    // Arrange
-    ArtifactService artifactServiceSpy = Mockito.spy(artifactService);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
-
-    doReturn(ResponseEntity.ok().build()).when(artifactServiceSpy).removeTag(anyString(),
-        anyString());
-
-    when(pythonClientService.processTags(anyList()))
-        .thenReturn("{ \"result\": [\"processedTag1\", \"processedTag2\"] }");
-
-    when(tagService.createTag(any(TagCreateDto.class)))
-        .thenReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+    when(tagConsolidationService.consolidate(anyList(), anyList(), isNull()))
+        .thenThrow(new PythonServiceException("Python service unavailable."));
+    ArgumentCaptor<JobService.Work> work = ArgumentCaptor.forClass(JobService.Work.class);
+    when(jobService.submit(eq(JobType.TAG_PROCESSING), eq(artifact.getProjectId()),
+        eq(owner.getUserId()), work.capture())).thenReturn(ResponseEntity.accepted().build());
 
     // Act
     ResponseEntity<?> response = artifactService.processTags(artifact.getArtifactId());
 
     // Assert
-    assertNotNull(response);
-    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "Error creating tags from processed tags.");
-    assertEquals(responseBody, response.getBody());
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    PythonServiceException exception = assertThrows(PythonServiceException.class,
+        () -> work.getValue().run(null));
+    assertEquals("Python service unavailable.", exception.getMessage());
   }
 
-
   /**
    * Tests a successful execution of the starTagging(List) method.
    */
@@ -1943,20 +2129,13 @@ class ArtifactServiceTest {
   public void testStartTaggingList() {
     Artifact artifactToTag =
         new Artifact("artifactToTagName", "projectId", "teamId", mockFilePath.toString());
-    artifact.setArtifactId("6754740c8d6446369ba02b62");
+    artifactToTag.setArtifactId("6754740c8d6446369ba02b62");
     List<String> artifacts = new ArrayList<>();
     artifacts.add(artifact.getArtifactId());
     artifacts.add(artifactToTag.getArtifactId());
-    artifact.setTaggingOpen(false);
-    artifactToTag.setTaggingOpen(false);
 
     // Arrange
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(artifactRepository.findArtifactByArtifactId(artifactToTag.getArtifactId()))
-        .thenReturn(artifactToTag);
-    when(artifactRepository.save(artifact)).thenReturn(artifact);
-    when(artifactRepository.save(artifactToTag)).thenReturn(artifactToTag);
+    when(artifactRepository.setTaggingOpen(artifacts, true)).thenReturn(2L);
 
     // Act
     ResponseEntity<?> response = artifactService.startTagging(artifacts);
@@ -1966,10 +2145,13 @@ class ArtifactServiceTest {
     assertEquals(HttpStatus.OK, response.getStatusCode());
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Tagging started successfully for all artifacts.");
-    assertTrue(artifact.isTaggingOpen());
-    assertTrue(artifactToTag.isTaggingOpen());
-    verify(artifactRepository, times(1)).save(artifact);
-    verify(artifactRepository, times(1)).save(artifactToTag);
+    responseBody.put("updatedIds", artifacts);
+    responseBody.put("missingIds", List.of());
+    assertEquals(responseBody, response.getBody());
+    verify(artifactRepository, times(1)).setTaggingOpen(artifacts, true);
+    verify(artifactRepository, never()).findExistingArtifactIds(any());
+    verify(artifactRepository, never()).findArtifactByArtifactId(anyString());
+    verify(artifactRepository, never()).save(any(Artifact.class));
   }
 
   /**
@@ -2017,7 +2199,8 @@ class ArtifactServiceTest {
   public void testStartTaggingListArtifactNotFound() {
     // Arrange
     List<String> artifacts = new ArrayList<>(List.of(artifact.getArtifactId()));
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId())).thenReturn(null);
+    when(artifactRepository.setTaggingOpen(artifacts, true)).thenReturn(0L);
+    when(artifactRepository.findExistingArtifactIds(artifacts)).thenReturn(List.of());
 
     // Act
     ResponseEntity<?> response = artifactService.startTagging(artifacts);
@@ -2027,6 +2210,9 @@ class ArtifactServiceTest {
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Artifact not found.");
+    responseBody.put("updatedIds", List.of());
+    responseBody.put("missingIds", artifacts);
+    assertEquals(responseBody, response.getBody());
   }
 
   /**
@@ -2037,19 +2223,12 @@ class ArtifactServiceTest {
     Artifact artifactToTag =
         new Artifact("artifactToTagName", "projectId", "teamId", mockFilePath.toString());
     artifactToTag.setArtifactId("6754740c8d6446369ba02b62");
-    artifact.setTaggingOpen(true);
-    artifactToTag.setTaggingOpen(true);
     List<String> artifacts = new ArrayList<>();
     artifacts.add(artifact.getArtifactId());
     artifacts.add(artifactToTag.getArtifactId());
 
     // Arrange
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(artifactRepository.findArtifactByArtifactId(artifactToTag.getArtifactId()))
-        .thenReturn(artifactToTag);
-    when(artifactRepository.save(artifact)).thenReturn(artifact);
-    when(artifactRepository.save(artifactToTag)).thenReturn(artifactToTag);
+    when(artifactRepository.setTaggingOpen(artifacts, false)).thenReturn(2L);
 
     // Act
     ResponseEntity<?> response = artifactService.stopTagging(artifacts);
@@ -2059,10 +2238,37 @@ class ArtifactServiceTest {
     assertEquals(HttpStatus.OK, response.getStatusCode());
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Tagging stopped successfully for all artifacts.");
-    assertFalse(artifact.isTaggingOpen());
-    assertFalse(artifactToTag.isTaggingOpen());
-    verify(artifactRepository, times(1)).save(artifact);
-    verify(artifactRepository, times(1)).save(artifactToTag);
+    responseBody.put("updatedIds", artifacts);
+    responseBody.put("missingIds", List.of());
+    assertEquals(responseBody, response.getBody());
+    verify(artifactRepository, times(1)).setTaggingOpen(artifacts, false);
+    verify(artifactRepository, never()).findArtifactByArtifactId(anyString());
+    verify(artifactRepository, never()).save(any(Artifact.class));
+  }
+
+  /**
+   * Tests an execution of the stopTagging(List) method when only some of the artifacts are found.
+   */
+  @Test
+  public void testStopTaggingListSomeArtifactsNotFound() {
+    // Arrange
+    String missingId = "6754740c8d6446369ba02b63";
+    List<String> artifacts = new ArrayList<>(List.of(artifact.getArtifactId(), missingId));
+    when(artifactRepository.setTaggingOpen(artifacts, false)).thenReturn(1L);
+    when(artifactRepository.findExistingArtifactIds(artifacts))
+        .thenReturn(List.of(artifact.getArtifactId()));
+
+    // Act
+    ResponseEntity<?> response = artifactService.stopTagging(artifacts);
+
+    // Assert
+    assertNotNull(response);
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    Map<String, Object> responseBody = new HashMap<>();
+    responseBody.put("msg", "Artifact not found.");
+    responseBody.put("updatedIds", List.of(artifact.getArtifactId()));
+    responseBody.put("missingIds", List.of(missingId));
+    assertEquals(responseBody, response.getBody());
   }
 
   /**
@@ -2110,7 +2316,8 @@ class ArtifactServiceTest {
   public void testStopTaggingListArtifactNotFound() {
     // Arrange
     List<String> artifacts = new ArrayList<>(List.of(artifact.getArtifactId()));
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId())).thenReturn(null);
+    when(artifactRepository.setTaggingOpen(artifacts, false)).thenReturn(0L);
+    when(artifactRepository.findExistingArtifactIds(artifacts)).thenReturn(List.of());
 
     // Act
     ResponseEntity<?> response = artifactService.stopTagging(artifacts);
@@ -2120,7 +2327,50 @@ class ArtifactServiceTest {
     assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Artifact not found.");
+    responseBody.put("updatedIds", List.of());
+    responseBody.put("missingIds", artifacts);
+    assertEquals(responseBody, response.getBody());
+  }
+
+
+
+  // UTILITY METHODS
+
+  /**
+   * Stores the artifact file in a temporary directory and lets the owner read it.
+   */
+  private void mockArtifactFile(String contentType) throws IOException {
+    Path filePath = tempDir.resolve("file.txt");
+    Files.writeString(filePath, "0123456789");
+    artifact.setFilePath(filePath.toString());
+    artifact.setContentType(contentType);
+    when(artifactStorage.open(filePath.toString())).thenReturn(LocalStoredFile.of(filePath));
+
+    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
+        .thenReturn(artifact);
+    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
+    when(projectRepository.findProjectByProjectId(artifact.getProjectId())).thenReturn(project);
   }
 
+  /**
+   * Stores the artifact file compressed with gzip and lets the owner read it.
+   *
+   * @return the stored bytes
+   */
+  private byte[] mockCompressedArtifactFile() throws IOException {
+    mockArtifactFile("text/plain");
+    Path filePath = Paths.get(artifact.getFilePath());
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(filePath))) {
+      out.write("0123456789".getBytes(StandardCharsets.US_ASCII));
+    }
+    artifact.setContentEncoding(ArtifactCompression.GZIP);
+    when(artifactStorage.open(filePath.toString())).thenReturn(LocalStoredFile.of(filePath));
+    return Files.readAllBytes(filePath);
+  }
 
+  private static String writeBody(ResponseEntity<?> response) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingResponseBody) response.getBody()).writeTo(outputStream);
+    return outputStream.toString(StandardCharsets.US_ASCII);
+  }
 }
@@ -0,0 +1,375 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.dto.artifact.ChunkedUploadCreateDto;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.ArtifactLineIndex;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.UploadSession;
+import it.unisannio.studenti.qualitag.model.UploadSessionStatus;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ArtifactLineIndexRepository;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.UploadSessionRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import it.unisannio.studenti.qualitag.storage.ArtifactCompression;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Test class for the ChunkedUploadService.
+ */
+public class ChunkedUploadServiceTest {
+
+  @Mock
+  private ArtifactService artifactService;
+  @Mock
+  private ArtifactRepository artifactRepository;
+  @Mock
+  private ProjectRepository projectRepository;
+  @Mock
+  private UploadSessionRepository uploadSessionRepository;
+  @Mock
+  private UserRepository userRepository;
+  @Mock
+  private ArtifactStorage artifactStorage;
+  @Mock
+  private ArtifactCompression artifactCompression;
+  @Mock
+  private ArtifactLineIndexRepository artifactLineIndexRepository;
+
+  private ChunkedUploadService chunkedUploadService;
+
+  // The upload sessions, kept in a map by the repository mock
+  private final Map<String, UploadSession> sessions = new HashMap<>();
+  private final List<String> storedContents = new ArrayList<>();
+
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Set up the test environment, with a project owned by the logged-in user.
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    MockitoAnnotations.openMocks(this);
+
+    ArtifactPreviewService artifactPreviewService = new ArtifactPreviewService(
+        artifactLineIndexRepository, artifactRepository, projectRepository, userRepository,
+        artifactStorage);
+    chunkedUploadService = new ChunkedUploadService(artifactService, artifactRepository,
+        projectRepository, uploadSessionRepository, userRepository, artifactStorage,
+        artifactCompression, artifactPreviewService);
+    chunkedUploadService.uploadDir = tempDir.toString();
+    chunkedUploadService.maxChunkBytes = 8;
+
+    User owner = new User("owner", "owner@example.com", "password", "Alice", "Smith");
+    owner.setUserId("ownerId");
+
+    Project project = new Project();
+    project.setProjectId("projectId");
+    project.setOwnerId(owner.getUserId());
+    when(projectRepository.findProjectByProjectId("projectId")).thenReturn(project);
+    when(userRepository.findByUserId("ownerId")).thenReturn(owner);
+
+    when(uploadSessionRepository.save(any(UploadSession.class))).thenAnswer(invocation -> {
+      UploadSession session = invocation.getArgument(0);
+      if (session.getUploadId() == null) {
+        session.setUploadId("upload" + (sessions.size() + 1));
+      }
+      sessions.put(session.getUploadId(), session);
+      return session;
+    });
+    when(uploadSessionRepository.findById(anyString())).thenAnswer(
+        invocation -> Optional.ofNullable(sessions.get(invocation.<String>getArgument(0))));
+    when(uploadSessionRepository.advance(anyString(), anyLong(), anyLong(), anyLong()))
+        .thenAnswer(invocation -> {
+          UploadSession session = sessions.get(invocation.<String>getArgument(0));
+          if (session == null || session.getReceived() != invocation.<Long>getArgument(1)) {
+            return false;
+          }
+          session.setReceived(invocation.getArgument(2));
+          return true;
+        });
+    when(uploadSessionRepository.claimCommit(anyString(), anyLong())).thenAnswer(invocation -> {
+      UploadSession session = sessions.get(invocation.<String>getArgument(0));
+      if (session == null || session.getStatus() != UploadSessionStatus.OPEN) {
+        return null;
+      }
+      session.setStatus(UploadSessionStatus.COMMITTING);
+      return session;
+    });
+    doAnswer(invocation -> sessions.remove(invocation.<String>getArgument(0)))
+        .when(uploadSessionRepository).deleteById(anyString());
+
+    when(artifactStorage.storeFile(any(Path.class))).thenAnswer(invocation -> {
+      Path file = invocation.getArgument(0);
+      storedContents.add(Files.readString(file));
+      Files.delete(file);
+      return "location";
+    });
+    when(artifactRepository.save(any(Artifact.class))).thenAnswer(invocation -> {
+      Artifact artifact = invocation.getArgument(0);
+      artifact.setArtifactId("artifactId");
+      return artifact;
+    });
+
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.getName()).thenReturn("owner");
+    when(authentication.isAuthenticated()).thenReturn(true);
+    when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(owner));
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+  }
+
+  /**
+   * Tests an upload sent in two chunks, then committed.
+   */
+  @Test
+  public void testUploadInChunks() throws IOException {
+    // Arrange
+    String uploadId = begin("hello chunks");
+
+    // Act
+    ResponseEntity<?> first = sendChunk(uploadId, 0, "hello ch");
+    ResponseEntity<?> second = sendChunk(uploadId, 8, "unks");
+    ResponseEntity<?> commit = chunkedUploadService.commitUpload(uploadId);
+
+    // Assert
+    assertEquals(HttpStatus.OK, first.getStatusCode());
+    assertEquals(8L, body(first).get("received"));
+    assertEquals(12L, body(second).get("received"));
+    assertEquals(HttpStatus.CREATED, commit.getStatusCode());
+    assertEquals("artifactId", body(commit).get("artifactId"));
+    assertEquals(List.of("hello chunks"), storedContents);
+    assertFalse(sessions.containsKey(uploadId));
+
+    verify(artifactService).assignLeastLoadedTeam(any(Project.class), any(Artifact.class));
+    verify(artifactService).linkNewArtifact(any(Project.class), any(Artifact.class));
+
+    // The text file is indexed before it is moved
+    verify(artifactLineIndexRepository).insert(argThat((List<ArtifactLineIndex> indexes) ->
+        "artifactId".equals(indexes.get(0).getArtifactId())
+            && indexes.get(0).getSize() == 12 && indexes.get(0).getLineCount() == 1));
+  }
+
+  /**
+   * Tests that a text file is compressed into the storage when the upload is committed.
+   */
+  @Test
+  public void testCommitUploadCompressesText() throws IOException {
+    // Arrange
+    when(artifactCompression.encodingFor("text/plain", 5)).thenReturn(ArtifactCompression.GZIP);
+    when(artifactStorage.store(any())).thenAnswer(invocation -> {
+      try (InputStream in = new GZIPInputStream(invocation.getArgument(0))) {
+        storedContents.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+      }
+      return "location";
+    });
+    String uploadId = begin("hello");
+    sendChunk(uploadId, 0, "hello");
+
+    // Act
+    ResponseEntity<?> response = chunkedUploadService.commitUpload(uploadId);
+
+    // Assert
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    assertEquals(List.of("hello"), storedContents);
+    assertFalse(Files.exists(tempDir.resolve(uploadId + ".part")));
+    verify(artifactStorage, never()).storeFile(any(Path.class));
+    verify(artifactRepository).save(
+        argThat((Artifact saved) -> ArtifactCompression.GZIP.equals(saved.getContentEncoding())));
+  }
+
+  /**
+   * Tests that a chunk whose checksum does not match is not counted and can be sent again.
+   */
+  @Test
+  public void testUploadChunkChecksumMismatch() throws IOException {
+    // Arrange
+    String uploadId = begin("hello");
+
+    // Act
+    ResponseEntity<?> bad = chunkedUploadService.uploadChunk(uploadId, 0, sha256("other"),
+        new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+    ResponseEntity<?> retry = sendChunk(uploadId, 0, "hello");
+
+    // Assert
+    assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+    assertEquals(0L, body(bad).get("received"));
+    assertEquals(HttpStatus.OK, retry.getStatusCode());
+    assertEquals(5L, sessions.get(uploadId).getReceived());
+  }
+
+  /**
+   * Tests that chunks must start at the bytes received and fit the limits.
+   */
+  @Test
+  public void testUploadChunkInvalid() throws IOException {
+    // Arrange
+    String uploadId = begin("hello chunks");
+    sendChunk(uploadId, 0, "hello ch");
+
+    // Act
+    ResponseEntity<?> wrongOffset = sendChunk(uploadId, 0, "hello ch");
+    ResponseEntity<?> tooLarge = sendChunk(uploadId, 8, "unks and more");
+    ResponseEntity<?> noChecksum = chunkedUploadService.uploadChunk(uploadId, 8, null,
+        new ByteArrayInputStream("unks".getBytes(StandardCharsets.UTF_8)));
+
+    // Assert
+    assertEquals(HttpStatus.CONFLICT, wrongOffset.getStatusCode());
+    assertEquals(8L, body(wrongOffset).get("received"));
+    assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, noChecksum.getStatusCode());
+    assertEquals(8L, sessions.get(uploadId).getReceived());
+  }
+
+  /**
+   * Tests that an incomplete upload cannot be committed.
+   */
+  @Test
+  public void testCommitUploadIncomplete() throws IOException {
+    // Arrange
+    String uploadId = begin("hello chunks");
+    sendChunk(uploadId, 0, "hello ch");
+
+    // Act
+    ResponseEntity<?> response = chunkedUploadService.commitUpload(uploadId);
+
+    // Assert
+    assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+    assertEquals(UploadSessionStatus.OPEN, sessions.get(uploadId).getStatus());
+    verify(artifactStorage, never()).storeFile(any(Path.class));
+  }
+
+  /**
+   * Tests that a file whose checksum does not match the declared one is discarded.
+   */
+  @Test
+  public void testCommitUploadFileChecksumMismatch() throws IOException {
+    // Arrange
+    ResponseEntity<?> begin = chunkedUploadService.beginUpload(new ChunkedUploadCreateDto(
+        "projectId", "Artifact", null, "hello.txt", null, 5, sha256("other")));
+    String uploadId = (String) body(begin).get("uploadId");
+    sendChunk(uploadId, 0, "hello");
+
+    // Act
+    ResponseEntity<?> response = chunkedUploadService.commitUpload(uploadId);
+
+    // Assert
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertFalse(sessions.containsKey(uploadId));
+    assertFalse(Files.exists(tempDir.resolve(uploadId + ".part")));
+    verify(artifactStorage, never()).storeFile(any(Path.class));
+  }
+
+  /**
+   * Tests the beginning of uploads that are not allowed.
+   */
+  @Test
+  public void testBeginUploadInvalid() {
+    // Arrange
+    chunkedUploadService.maxFileBytes = 10;
+
+    // Act
+    ResponseEntity<?> tooLarge = chunkedUploadService.beginUpload(new ChunkedUploadCreateDto(
+        "projectId", "Artifact", null, "hello.txt", null, 11, null));
+    ResponseEntity<?> notFound = chunkedUploadService.beginUpload(new ChunkedUploadCreateDto(
+        "otherId", "Artifact", null, "hello.txt", null, 5, null));
+    ResponseEntity<?> invalid = chunkedUploadService.beginUpload(new ChunkedUploadCreateDto(
+        "projectId", "", null, "hello.txt", null, 0, null));
+
+    // Assert
+    assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, tooLarge.getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, invalid.getStatusCode());
+    assertTrue(sessions.isEmpty());
+  }
+
+  /**
+   * Tests that the uploads not updated for too long are removed with their files.
+   */
+  @Test
+  public void testRemoveExpiredUploads() throws IOException {
+    // Arrange
+    String uploadId = begin("hello");
+    when(uploadSessionRepository.findByUpdatedAtLessThan(anyLong()))
+        .thenReturn(List.of(sessions.get(uploadId)));
+
+    // Act
+    int removed = chunkedUploadService.removeExpiredUploads();
+
+    // Assert
+    assertEquals(1, removed);
+    assertFalse(sessions.containsKey(uploadId));
+    assertFalse(Files.exists(tempDir.resolve(uploadId + ".part")));
+  }
+
+  // UTILITY METHODS
+
+  private String begin(String content) {
+    ResponseEntity<?> response = chunkedUploadService.beginUpload(new ChunkedUploadCreateDto(
+        "projectId", "Artifact", "description", "hello.txt", null, content.length(),
+        sha256(content)));
+    assertEquals(HttpStatus.CREATED, response.getStatusCode());
+    return (String) body(response).get("uploadId");
+  }
+
+  private ResponseEntity<?> sendChunk(String uploadId, long offset, String chunk) {
+    return chunkedUploadService.uploadChunk(uploadId, offset, sha256(chunk),
+        new ByteArrayInputStream(chunk.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> body(ResponseEntity<?> response) {
+    return (Map<String, Object>) response.getBody();
+  }
+
+  private static String sha256(String content) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+          .digest(content.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.irr.TeamAgreement;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.TagRepository;
+import it.unisannio.studenti.qualitag.repository.TeamRepository;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Test class for the IrrService.
+ */
+public class IrrServiceTest {
+
+  @Mock
+  private ArtifactRepository artifactRepository;
+  @Mock
+  private TagRepository tagRepository;
+  @Mock
+  private TeamRepository teamRepository;
+
+  @InjectMocks
+  private IrrService irrService;
+
+  private Team team;
+  private Artifact artifact1;
+  private Artifact artifact2;
+  private Tag tag1;
+  private Tag tag2;
+  private Tag tag3;
+  private Tag tag4;
+
+  /**
+   * Sets up the test environment.
+   */
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    team = new Team("teamName", "projectId", Instant.now().toEpochMilli(), "teamDescription",
+        new ArrayList<>(Arrays.asList("user1Id", "user2Id")));
+    team.setTeamId("teamId");
+    team.setArtifactIds(List.of("artifact1Id", "artifact2Id"));
+
+    // Both users agree on the first artifact and disagree on the second one
+    tag1 = new Tag("docs", "user1Id", "#fff8de");
+    tag1.setTagId("tagId1");
+    tag1.getArtifactIds().add("artifact1Id");
+    tag2 = new Tag("docs", "user2Id", "#fff8de");
+    tag2.setTagId("tagId2");
+    tag2.getArtifactIds().add("artifact1Id");
+    tag3 = new Tag("bug", "user1Id", "#fff8de");
+    tag3.setTagId("tagId3");
+    tag3.getArtifactIds().add("artifact2Id");
+    tag4 = new Tag("feature", "user2Id", "#fff8de");
+    tag4.setTagId("tagId4");
+    tag4.getArtifactIds().add("artifact2Id");
+
+    artifact1 = new Artifact("artifact1Name", "projectId", "teamId", "filePath");
+    artifact1.setArtifactId("artifact1Id");
+    artifact1.setTags(new ArrayList<>(Arrays.asList("tagId1", "tagId2")));
+    artifact2 = new Artifact("artifact2Name", "projectId", "teamId", "filePath");
+    artifact2.setArtifactId("artifact2Id");
+    artifact2.setTags(new ArrayList<>(Arrays.asList("tagId3", "tagId4")));
+
+    when(artifactRepository.findAllById(team.getArtifactIds()))
+        .thenReturn(List.of(artifact1, artifact2));
+    when(tagRepository.findAllById(anyIterable())).thenReturn(List.of(tag1, tag2, tag3, tag4));
+    when(teamRepository.incrementIrrVersionOfArtifacts(anyCollection()))
+        .thenReturn(List.of("teamId"));
+  }
+
+  /**
+   * Tests that the agreement is built from the database in one query per collection and then
+   * cached.
+   */
+  @Test
+  void testGetAgreementBuildsOnce() {
+    // Act
+    TeamAgreement agreement = irrService.getAgreement(team);
+    TeamAgreement cached = irrService.getAgreement(team);
+
+    // Assert
+    assertEquals(0.4, agreement.alpha(), 1e-12);
+    assertSame(agreement, cached);
+    verify(artifactRepository, times(1)).findAllById(team.getArtifactIds());
+    verify(tagRepository, times(1)).findAllById(anyIterable());
+  }
+
+  /**
+   * Tests that nothing is returned when an artifact of the team does not exist.
+   */
+  @Test
+  void testGetAgreementArtifactNotFound() {
+    // Arrange
+    when(artifactRepository.findAllById(team.getArtifactIds())).thenReturn(List.of(artifact1));
+
+    // Act
+    TeamAgreement agreement = irrService.getAgreement(team);
+
+    // Assert
+    assertNull(agreement);
+  }
+
+  /**
+   * Tests that the cached agreement follows the changes of the tags, along with the version of
+   * its team.
+   */
+  @Test
+  void testTagChangesUpdateCachedAgreement() {
+    // Arrange
+    TeamAgreement agreement = irrService.getAgreement(team);
+
+    // Act & Assert
+    tag4.setTagValue("bug");
+    irrService.tagUpdated(tag4);
+    assertEquals(1.0, agreement.alpha(), 1e-12);
+
+    irrService.tagRemoved("artifact2Id", "tagId4");
+    Tag tag5 = new Tag("feature", "user2Id", "#fff8de");
+    tag5.setTagId("tagId5");
+    tag5.getArtifactIds().add("artifact2Id");
+    irrService.tagsAdded("artifact2Id", List.of(tag5));
+    assertEquals(0.4, agreement.alpha(), 1e-12);
+
+    irrService.tagDeleted(tag5);
+    assertThrows(IllegalArgumentException.class, agreement::alpha);
+
+    // Every change has incremented the version of the team once
+    verify(teamRepository, times(4)).incrementIrrVersionOfArtifacts(anyCollection());
+    team.setIrrVersion(4);
+    assertSame(agreement, irrService.getAgreement(team));
+    verify(artifactRepository, times(1)).findAllById(team.getArtifactIds());
+  }
+
+  /**
+   * Tests that the agreement is built again after a change made by another instance, even when
+   * this instance has made a change too.
+   */
+  @Test
+  void testChangeOnOtherInstance() {
+    // Arrange
+    TeamAgreement agreement = irrService.getAgreement(team);
+
+    // Act
+    irrService.tagRemoved("artifact2Id", "tagId4");
+    team.setIrrVersion(2);
+    TeamAgreement rebuilt = irrService.getAgreement(team);
+
+    // Assert
+    assertNotSame(agreement, rebuilt);
+    assertSame(rebuilt, irrService.getAgreement(team));
+    verify(artifactRepository, times(2)).findAllById(team.getArtifactIds());
+  }
+
+  /**
+   * Tests that the agreement is built again after the team changes.
+   */
+  @Test
+  void testInvalidate() {
+    // Arrange
+    TeamAgreement agreement = irrService.getAgreement(team);
+
+    // Act
+    irrService.invalidate(team.getTeamId());
+    team.setIrrVersion(1);
+    TeamAgreement rebuilt = irrService.getAgreement(team);
+
+    // Assert
+    assertNotSame(agreement, rebuilt);
+    verify(teamRepository, times(1)).incrementIrrVersion(List.of("teamId"));
+    verify(artifactRepository, times(2)).findAllById(team.getArtifactIds());
+  }
+
+  /**
+   * Tests that the agreement is built again after the tags of its artifacts change in bulk.
+   */
+  @Test
+  void testInvalidateArtifacts() {
+    // Arrange
+    TeamAgreement agreement = irrService.getAgreement(team);
+
+    // Act
+    irrService.invalidateArtifacts(List.of("artifact2Id"));
+    team.setIrrVersion(1);
+    TeamAgreement rebuilt = irrService.getAgreement(team);
+
+    // Assert
+    assertNotSame(agreement, rebuilt);
+    verify(teamRepository, times(1)).incrementIrrVersionOfArtifacts(List.of("artifact2Id"));
+  }
+}
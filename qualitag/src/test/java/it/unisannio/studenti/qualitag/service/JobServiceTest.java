@@ -0,0 +1,249 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.longThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.JobStatus;
+import it.unisannio.studenti.qualitag.model.JobType;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.JobRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Test class for the JobService.
+ */
+public class JobServiceTest {
+
+  @Mock
+  private JobRepository jobRepository;
+
+  private JobService jobService;
+
+  // The jobs saved, in the order they were accepted
+  private final List<Job> jobs = new ArrayList<>();
+
+  /**
+   * Set up the test environment, with a pool of two threads running one job per project.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    jobService = new JobService(jobRepository);
+    jobService.threads = 2;
+    jobService.maxPerProject = 1;
+    jobService.queueCapacity = 2;
+    jobService.instanceId = "instanceId";
+    jobService.lease = Duration.ofMinutes(1);
+    jobService.start();
+
+    when(jobRepository.save(any(Job.class))).thenAnswer(invocation -> {
+      Job job = invocation.getArgument(0);
+      if (job.getJobId() == null) {
+        synchronized (jobs) {
+          job.setJobId("jobId" + jobs.size());
+          jobs.add(job);
+        }
+      }
+      return job;
+    });
+
+    User user = new User("user", "user@example.com", "password", "John", "Doe");
+    user.setUserId("userId");
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.isAuthenticated()).thenReturn(true);
+    when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(user));
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+  }
+
+  /**
+   * Stops the pool of the service.
+   */
+  @AfterEach
+  public void tearDown() {
+    jobService.stop();
+  }
+
+  /**
+   * Tests that an accepted job runs in the background, recording its progress and its result.
+   */
+  @Test
+  public void testSubmit() throws InterruptedException {
+    // Act
+    ResponseEntity<?> response = jobService.submit(JobType.TAG_CONSOLIDATION, "projectId", "userId",
+        progress -> {
+          progress.update(1, 2);
+          return Map.of("rewritten", 2);
+        });
+
+    // Assert
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertEquals("jobId0", ((Map<?, ?>) response.getBody()).get("jobId"));
+    assertEquals("/api/v1/job/jobId0", response.getHeaders().getLocation().toString());
+    Job job = jobs.get(0);
+    awaitStatus(job, JobStatus.COMPLETED);
+    assertEquals(Map.of("rewritten", 2), job.getResult());
+    assertEquals(1, job.getDone());
+    assertEquals(2, job.getTotal());
+  }
+
+  /**
+   * Tests that a job whose work throws is recorded as failed, with the message of the exception.
+   */
+  @Test
+  public void testSubmitFailure() throws InterruptedException {
+    // Act
+    jobService.submit(JobType.TAG_PROCESSING, "projectId", "userId", progress -> {
+      throw new IllegalStateException("Artifact not found.");
+    });
+
+    // Assert
+    Job job = jobs.get(0);
+    awaitStatus(job, JobStatus.FAILED);
+    assertEquals("Artifact not found.", job.getError());
+  }
+
+  /**
+   * Tests that the jobs of a project wait for the running one, while the jobs of another project
+   * run, and that no more jobs are accepted once too many are waiting.
+   */
+  @Test
+  public void testSubmitLimits() throws InterruptedException {
+    // Arrange
+    CountDownLatch release = new CountDownLatch(1);
+    JobService.Work blocking = progress -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return Map.of();
+    };
+
+    // Act
+    jobService.submit(JobType.TAG_PROCESSING, "projectId", "userId", blocking);
+    awaitStatus(jobs.get(0), JobStatus.RUNNING);
+    jobService.submit(JobType.TAG_CONSOLIDATION, "projectId", "userId", progress -> Map.of());
+    jobService.submit(JobType.TAG_CONSOLIDATION, "projectId", "userId", progress -> Map.of());
+    ResponseEntity<?> refused =
+        jobService.submit(JobType.TAG_CONSOLIDATION, "otherProjectId", "userId", progress -> Map.of());
+
+    // Assert
+    assertEquals(HttpStatus.TOO_MANY_REQUESTS, refused.getStatusCode());
+    assertEquals(3, jobs.size());
+    assertEquals(JobStatus.QUEUED, jobs.get(1).getStatus());
+    assertEquals(JobStatus.QUEUED, jobs.get(2).getStatus());
+
+    release.countDown();
+    awaitStatus(jobs.get(1), JobStatus.COMPLETED);
+    awaitStatus(jobs.get(2), JobStatus.COMPLETED);
+
+    // Once the waiting jobs have started, the other project is served
+    jobService.submit(JobType.TAG_CONSOLIDATION, "otherProjectId", "userId", progress -> Map.of());
+    awaitStatus(jobs.get(3), JobStatus.COMPLETED);
+  }
+
+  /**
+   * Tests that a job is seen only by the user who requested it.
+   */
+  @Test
+  public void testGetJob() {
+    // Arrange
+    Job job = new Job();
+    job.setJobId("jobId");
+    job.setType(JobType.TAG_CONSOLIDATION);
+    job.setRequestedBy("userId");
+    job.setStatus(JobStatus.COMPLETED);
+    job.setResult(Map.of("rewritten", 2));
+    Job other = new Job();
+    other.setRequestedBy("otherUserId");
+    when(jobRepository.findById("jobId")).thenReturn(Optional.of(job));
+    when(jobRepository.findById("otherJobId")).thenReturn(Optional.of(other));
+
+    // Act
+    ResponseEntity<?> found = jobService.getJob("jobId");
+    ResponseEntity<?> forbidden = jobService.getJob("otherJobId");
+    ResponseEntity<?> notFound = jobService.getJob("missingJobId");
+
+    // Assert
+    assertEquals(HttpStatus.OK, found.getStatusCode());
+    Map<?, ?> body = (Map<?, ?>) found.getBody();
+    assertEquals(JobStatus.COMPLETED, body.get("status"));
+    assertEquals(Map.of("rewritten", 2), body.get("result"));
+    assertEquals(HttpStatus.FORBIDDEN, forbidden.getStatusCode());
+    assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+  }
+
+  /**
+   * Tests that a restart fails the jobs of this instance and those whose lease has expired.
+   */
+  @Test
+  public void testFailInterrupted() {
+    // Act
+    jobService.failInterrupted();
+
+    // Assert
+    verify(jobRepository).failAbandoned(eq("instanceId"), anyLong(),
+        eq("Interrupted by a restart."));
+  }
+
+  /**
+   * Tests that an accepted job is owned by this instance, and that the heartbeat renews the
+   * leases of its jobs and fails only the jobs whose lease has expired.
+   */
+  @Test
+  public void testHeartbeat() throws InterruptedException {
+    // Arrange
+    long before = System.currentTimeMillis();
+    jobService.submit(JobType.TAG_CONSOLIDATION, "projectId", "userId", progress -> Map.of());
+    Job job = jobs.get(0);
+    awaitStatus(job, JobStatus.COMPLETED);
+
+    // Act
+    jobService.heartbeat();
+
+    // Assert
+    assertEquals("instanceId", job.getOwner());
+    assertTrue(job.getLeaseUntil() >= before + 60_000);
+    verify(jobRepository).renewLeases(eq("instanceId"),
+        longThat(until -> until >= before + 60_000));
+    verify(jobRepository).failAbandoned(isNull(), anyLong(), eq("Interrupted by a restart."));
+  }
+
+  // UTILITY METHODS
+
+  private static void awaitStatus(Job job, JobStatus status) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (job.getStatus() != status && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(status, job.getStatus());
+  }
+}
@@ -0,0 +1,190 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.OutboxMail;
+import it.unisannio.studenti.qualitag.model.OutboxMailStatus;
+import it.unisannio.studenti.qualitag.repository.OutboxMailRepository;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test class for the MailOutboxService.
+ */
+public class MailOutboxServiceTest {
+
+  /**
+   * Stand-in for the Gmail sender that records the e-mails, and fails while asked to.
+   */
+  private static class RecordingMailSender implements MailSender {
+
+    private final List<String> sent = new ArrayList<>();
+    private boolean failing;
+
+    @Override
+    public void sendMail(String subject, String to, String message) throws Exception {
+      if (failing) {
+        throw new Exception("Gmail unavailable");
+      }
+      sent.add(to);
+    }
+  }
+
+  @Mock
+  private OutboxMailRepository outboxMailRepository;
+
+  private RecordingMailSender mailSender;
+  private MailOutboxService mailOutboxService;
+
+  private OutboxMail mail1;
+  private OutboxMail mail2;
+
+  /**
+   * Sets up the test environment.
+   */
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    mailSender = new RecordingMailSender();
+    mailOutboxService = new MailOutboxService(outboxMailRepository, mailSender);
+    ReflectionTestUtils.setField(mailOutboxService, "batchSize", 10);
+    ReflectionTestUtils.setField(mailOutboxService, "maxAttempts", 3);
+    ReflectionTestUtils.setField(mailOutboxService, "retryBackoffMs", 60000L);
+    ReflectionTestUtils.setField(mailOutboxService, "claimTimeoutMs", 300000L);
+
+    mail1 = new OutboxMail("Project Invitation", "user1@example.com", "Dear user1", 0L);
+    mail1.setMailId("mail1Id");
+    mail1.setStatus(OutboxMailStatus.SENDING);
+    mail2 = new OutboxMail("Project Invitation", "user2@example.com", "Dear user2", 0L);
+    mail2.setMailId("mail2Id");
+    mail2.setStatus(OutboxMailStatus.SENDING);
+  }
+
+  /**
+   * Tests that enqueuing an e-mail only stores it.
+   */
+  @Test
+  void testEnqueue() {
+    // Act
+    mailOutboxService.enqueue("Project Invitation", "user1@example.com", "Dear user1");
+
+    // Assert
+    ArgumentCaptor<OutboxMail> captor = ArgumentCaptor.forClass(OutboxMail.class);
+    verify(outboxMailRepository).save(captor.capture());
+    OutboxMail saved = captor.getValue();
+    assertEquals("user1@example.com", saved.getTo());
+    assertEquals(OutboxMailStatus.PENDING, saved.getStatus());
+    assertEquals(0, saved.getAttempts());
+    assertTrue(mailSender.sent.isEmpty());
+  }
+
+  /**
+   * Tests that the worker sends every due e-mail and marks it as sent.
+   */
+  @Test
+  void testProcessOutboxSendsBatch() {
+    // Arrange
+    when(outboxMailRepository.claimNext(anyLong(), anyLong()))
+        .thenReturn(mail1, mail2, null);
+
+    // Act
+    int processed = mailOutboxService.processOutbox();
+
+    // Assert
+    assertEquals(2, processed);
+    assertEquals(List.of("user1@example.com", "user2@example.com"), mailSender.sent);
+    assertEquals(OutboxMailStatus.SENT, mail1.getStatus());
+    assertEquals(OutboxMailStatus.SENT, mail2.getStatus());
+    verify(outboxMailRepository, times(2)).save(any(OutboxMail.class));
+  }
+
+  /**
+   * Tests that the worker does not process more than a batch at a time.
+   */
+  @Test
+  void testProcessOutboxStopsAtBatchSize() {
+    // Arrange
+    ReflectionTestUtils.setField(mailOutboxService, "batchSize", 1);
+    when(outboxMailRepository.claimNext(anyLong(), anyLong())).thenReturn(mail1, mail2);
+
+    // Act
+    int processed = mailOutboxService.processOutbox();
+
+    // Assert
+    assertEquals(1, processed);
+    assertEquals(List.of("user1@example.com"), mailSender.sent);
+  }
+
+  /**
+   * Tests that a failed e-mail is scheduled again with a backoff.
+   */
+  @Test
+  void testProcessOutboxRetriesLater() {
+    // Arrange
+    mailSender.failing = true;
+    when(outboxMailRepository.claimNext(anyLong(), anyLong())).thenReturn(mail1, (OutboxMail) null);
+    long before = System.currentTimeMillis();
+
+    // Act
+    mailOutboxService.processOutbox();
+
+    // Assert
+    assertEquals(OutboxMailStatus.PENDING, mail1.getStatus());
+    assertEquals(1, mail1.getAttempts());
+    assertTrue(mail1.getNextAttemptAt() >= before + 60000L);
+    assertEquals("java.lang.Exception: Gmail unavailable", mail1.getLastError());
+    verify(outboxMailRepository).save(mail1);
+  }
+
+  /**
+   * Tests that an e-mail is given up after the maximum number of attempts.
+   */
+  @Test
+  void testProcessOutboxGivesUp() {
+    // Arrange
+    mailSender.failing = true;
+    mail1.setAttempts(2);
+    when(outboxMailRepository.claimNext(anyLong(), anyLong())).thenReturn(mail1, (OutboxMail) null);
+
+    // Act
+    mailOutboxService.processOutbox();
+
+    // Assert
+    assertEquals(OutboxMailStatus.FAILED, mail1.getStatus());
+    assertEquals(3, mail1.getAttempts());
+    verify(outboxMailRepository).save(mail1);
+  }
+
+  /**
+   * Tests that an e-mail that failed before is sent on a later attempt.
+   */
+  @Test
+  void testProcessOutboxSucceedsAfterFailure() {
+    // Arrange
+    mail1.setAttempts(1);
+    mail1.setLastError("java.lang.Exception: Gmail unavailable");
+    when(outboxMailRepository.claimNext(anyLong(), anyLong())).thenReturn(mail1, (OutboxMail) null);
+
+    // Act
+    mailOutboxService.processOutbox();
+
+    // Assert
+    assertEquals(OutboxMailStatus.SENT, mail1.getStatus());
+    assertEquals(2, mail1.getAttempts());
+    assertNull(mail1.getLastError());
+  }
+}
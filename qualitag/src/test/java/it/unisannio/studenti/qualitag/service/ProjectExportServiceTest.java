@@ -0,0 +1,297 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.Team;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.TagRepository;
+import it.unisannio.studenti.qualitag.repository.TeamRepository;
+import it.unisannio.studenti.qualitag.repository.UserRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import it.unisannio.studenti.qualitag.storage.ArtifactStorage;
+import it.unisannio.studenti.qualitag.storage.LocalStoredFile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Test class for the ProjectExportService.
+ */
+public class ProjectExportServiceTest {
+
+  @Mock
+  private ProjectRepository projectRepository;
+  @Mock
+  private TagRepository tagRepository;
+  @Mock
+  private TeamRepository teamRepository;
+  @Mock
+  private UserRepository userRepository;
+  @Mock
+  private ArtifactStorage artifactStorage;
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  private ProjectExportService projectExportService;
+
+  private Artifact artifact1;
+  private Artifact artifact2;
+
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Set up the test environment: a project of the logged-in user with two artifacts, the second
+   * one without its file.
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    MockitoAnnotations.openMocks(this);
+
+    projectExportService = new ProjectExportService(projectRepository, tagRepository,
+        teamRepository, userRepository, artifactStorage, mongoTemplate, objectMapper);
+
+    User owner = new User("owner", "owner@example.com", "password", "Alice", "Smith");
+    owner.setUserId("ownerId");
+    User tagger = new User("tagger", "tagger@example.com", "password", "Bob", "Johnson");
+    tagger.setUserId("taggerId");
+
+    Project project = new Project();
+    project.setProjectId("projectId");
+    project.setOwnerId(owner.getUserId());
+    project.setTeamIds(new ArrayList<>(List.of("teamId")));
+    when(projectRepository.findProjectByProjectId("projectId")).thenReturn(project);
+
+    Team team = new Team();
+    team.setTeamId("teamId");
+    team.setTeamName("Team A");
+    when(teamRepository.findAllById(project.getTeamIds())).thenReturn(List.of(team));
+
+    Path file = tempDir.resolve("stored");
+    Files.writeString(file, "print('hello')");
+
+    artifact1 = new Artifact();
+    artifact1.setArtifactId("artifact1");
+    artifact1.setArtifactName("Hello");
+    artifact1.setProjectId("projectId");
+    artifact1.setTeamId("teamId");
+    artifact1.setFilePath(file.toString());
+    artifact1.setFileName("hello.py");
+    artifact1.setContentType("text/x-python");
+    artifact1.setTags(new ArrayList<>(List.of("tag1", "tag2")));
+    when(artifactStorage.open(file.toString())).thenReturn(LocalStoredFile.of(file));
+
+    artifact2 = new Artifact();
+    artifact2.setArtifactId("artifact2");
+    artifact2.setArtifactName("Missing");
+    artifact2.setProjectId("projectId");
+    artifact2.setTeamId("teamId");
+    artifact2.setFilePath("/artifacts/missing");
+    artifact2.setFileName("missing.txt");
+
+    Tag tag1 = new Tag("BUG", "taggerId", "#ff0000");
+    tag1.setTagId("tag1");
+    Tag tag2 = new Tag("STYLE", "ghostId", "#00ff00");
+    tag2.setTagId("tag2");
+    when(tagRepository.findAllById(anyCollection())).thenReturn(List.of(tag1, tag2));
+    when(userRepository.findAllById(anyCollection())).thenReturn(List.of(tagger));
+
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.isAuthenticated()).thenReturn(true);
+    when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(owner));
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+  }
+
+  /**
+   * Tests the ZIP export: the files that exist and the manifest, last.
+   */
+  @Test
+  public void testExportProjectZip() throws IOException {
+    // Arrange
+    when(mongoTemplate.stream(any(Query.class), eq(Artifact.class)))
+        .thenReturn(Stream.of(artifact1, artifact2));
+
+    // Act
+    ResponseEntity<?> response = projectExportService.exportProject("projectId", "zip");
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals("application/zip", response.getHeaders().getContentType().toString());
+    Map<String, String> entries = unzip(writeBody(response));
+    assertEquals(List.of("files/artifact1/hello.py", ProjectExportService.MANIFEST),
+        List.copyOf(entries.keySet()));
+    assertEquals("print('hello')", entries.get("files/artifact1/hello.py"));
+
+    List<JsonNode> manifest = parseLines(entries.get(ProjectExportService.MANIFEST));
+    assertEquals(2, manifest.size());
+    JsonNode first = manifest.get(0);
+    assertEquals("artifact1", first.get("artifactId").asText());
+    assertEquals("Team A", first.get("teamName").asText());
+    assertEquals("files/artifact1/hello.py", first.get("file").asText());
+    assertEquals("BUG", first.get("tags").get(0).get("tagValue").asText());
+    assertEquals("#ff0000", first.get("tags").get(0).get("colorHex").asText());
+    assertEquals("tagger", first.get("tags").get(0).get("createdByUsername").asText());
+    assertEquals("ghostId", first.get("tags").get(1).get("createdBy").asText());
+    assertEquals(true, first.get("tags").get(1).get("createdByUsername").isNull());
+    assertEquals(true, manifest.get(1).get("file").isNull());
+  }
+
+  /**
+   * Tests the NDJSON export, which reads no file.
+   */
+  @Test
+  public void testExportProjectNdjson() throws IOException {
+    // Arrange
+    when(mongoTemplate.stream(any(Query.class), eq(Artifact.class)))
+        .thenReturn(Stream.of(artifact1, artifact2));
+
+    // Act
+    ResponseEntity<?> response = projectExportService.exportProject("projectId", "ndjson");
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(ProjectExportService.NDJSON, response.getHeaders().getContentType());
+    List<JsonNode> manifest =
+        parseLines(new String(writeBody(response), StandardCharsets.UTF_8));
+    assertEquals(2, manifest.size());
+    assertEquals("artifact2", manifest.get(1).get("artifactId").asText());
+    assertEquals("missing.txt", manifest.get(1).get("fileName").asText());
+    verify(artifactStorage, never()).open(any());
+  }
+
+  /**
+   * Tests that the tags and their authors are loaded once per batch of artifacts.
+   */
+  @Test
+  public void testExportProjectLoadsTagsPerBatch() throws IOException {
+    // Arrange
+    List<Artifact> artifacts = new ArrayList<>();
+    for (int i = 0; i < 150; i++) {
+      Artifact artifact = new Artifact();
+      artifact.setArtifactId("artifact" + i);
+      artifact.setTags(new ArrayList<>(List.of("tag1")));
+      artifacts.add(artifact);
+    }
+    when(mongoTemplate.stream(any(Query.class), eq(Artifact.class)))
+        .thenReturn(artifacts.stream());
+
+    // Act
+    ResponseEntity<?> response = projectExportService.exportProject("projectId", "ndjson");
+    String body = new String(writeBody(response), StandardCharsets.UTF_8);
+
+    // Assert
+    assertEquals(150, parseLines(body).size());
+    verify(tagRepository, times(2)).findAllById(anyCollection());
+    verify(userRepository, times(1)).findAllById(anyCollection());
+  }
+
+  /**
+   * Tests that only the owner can export a project.
+   */
+  @Test
+  public void testExportProjectNotOwner() {
+    // Arrange
+    User other = new User("other", "other@example.com", "password", "Carl", "White");
+    other.setUserId("otherId");
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.isAuthenticated()).thenReturn(true);
+    when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(other));
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+
+    // Act
+    ResponseEntity<?> response = projectExportService.exportProject("projectId", "zip");
+
+    // Assert
+    assertEquals(HttpStatus.FORBIDDEN, response.getStatusCode());
+    verify(mongoTemplate, never()).stream(any(Query.class), eq(Artifact.class));
+  }
+
+  /**
+   * Tests the export of a project that does not exist, and an unknown format.
+   */
+  @Test
+  public void testExportProjectInvalidRequest() {
+    // Act
+    ResponseEntity<?> notFound = projectExportService.exportProject("otherId", "zip");
+    ResponseEntity<?> badFormat = projectExportService.exportProject("projectId", "csv");
+
+    // Assert
+    assertEquals(HttpStatus.NOT_FOUND, notFound.getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, badFormat.getStatusCode());
+    assertNull(notFound.getHeaders().getContentType());
+  }
+
+  // UTILITY METHODS
+
+  private static byte[] writeBody(ResponseEntity<?> response) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    ((StreamingResponseBody) response.getBody()).writeTo(outputStream);
+    return outputStream.toByteArray();
+  }
+
+  private static Map<String, String> unzip(byte[] zip) throws IOException {
+    Map<String, String> entries = new LinkedHashMap<>();
+    try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(zip))) {
+      ZipEntry entry;
+      while ((entry = zipInputStream.getNextEntry()) != null) {
+        entries.put(entry.getName(),
+            new String(zipInputStream.readAllBytes(), StandardCharsets.UTF_8));
+      }
+    }
+    return entries;
+  }
+
+  private List<JsonNode> parseLines(String ndjson) throws IOException {
+    List<JsonNode> lines = new ArrayList<>();
+    for (String line : ndjson.split("\n")) {
+      if (!line.isEmpty()) {
+        lines.add(objectMapper.readTree(line));
+      }
+    }
+    return lines;
+  }
+}
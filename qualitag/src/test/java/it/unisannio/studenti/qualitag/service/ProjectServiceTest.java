@@ -6,10 +6,11 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.mockConstruction;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,6 +38,7 @@ import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
@@ -52,7 +54,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedConstruction;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -70,11 +71,17 @@ public class ProjectServiceTest {
   @Mock
   private ArtifactService artifactService;
   @Mock
+  private IrrService irrService;
+  @Mock
+  private MailOutboxService mailOutboxService;
+  @Mock
   private TeamService teamService;
 
   @Mock
   private ProjectRepository projectRepository;
   @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
   private ArtifactRepository artifactRepository;
   @Mock
   private UserRepository userRepository;
@@ -198,9 +205,7 @@ public class ProjectServiceTest {
         .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
 
     // Mock static method before invoking validateProject
-    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class);
-        MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-            context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
+    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class)) {
 
       mockedMapper.when(() -> ProjectMapper.toEntity(any(CompletedProjectCreationDto.class)))
           .thenReturn(project); // Ensure this runs before validateProject
@@ -487,9 +492,7 @@ public class ProjectServiceTest {
         .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
 
     // Mock static method before invoking validateProject
-    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class);
-        MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-            context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
+    try (MockedStatic<ProjectMapper> mockedMapper = mockStatic(ProjectMapper.class)) {
 
       mockedMapper.when(() -> ProjectMapper.toEntity(any(CompletedProjectCreationDto.class)))
           .thenReturn(project);
@@ -529,33 +532,77 @@ public class ProjectServiceTest {
     when(userRepository.save(user1)).thenReturn(user1);
     when(userRepository.save(user2)).thenReturn(user2);
     when(userRepository.save(otherUser)).thenReturn(otherUser);
-    when(projectRepository.save(project)).thenReturn(project);
 
-    try (MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-        context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
 
-      // Act
-      ResponseEntity<?> response =
-          projectService.updateProject(projectModifyDto, project.getProjectId());
+    // Act
+    ResponseEntity<?> response =
+        projectService.updateProject(projectModifyDto, project.getProjectId());
 
-      System.out.println(response.getBody());
+    System.out.println(response.getBody());
 
-      // Assert
-      assertEquals(HttpStatus.OK, response.getStatusCode());
-      Map<String, Object> responseBody = new HashMap<>();
-      responseBody.put("msg", "Project updated successfully.");
-      assertEquals(responseBody, response.getBody());
-      verify(projectRepository).save(project);
-      assertEquals("projectNewName", project.getProjectName());
-      assertEquals("projectNewDescription", project.getProjectDescription());
-      long expectedDeadline = Instant.parse("2026-12-31T23:59:59Z").toEpochMilli();
-      assertEquals(expectedDeadline, project.getProjectDeadline());
-      assertEquals(new ArrayList<>(Arrays.asList(user1.getUserId(), otherUser.getUserId())),
-          project.getUserIds());
-      assertTrue(user1.getProjectIds().contains(project.getProjectId()));
-      assertTrue(otherUser.getProjectIds().contains(project.getProjectId()));
-      assertFalse(user2.getProjectIds().contains(project.getProjectId()));
-    }
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    Map<String, Object> responseBody = new HashMap<>();
+    responseBody.put("msg", "Project updated successfully.");
+    assertEquals(responseBody, response.getBody());
+    verify(projectRepository).setDetails(project.getProjectId(), "projectNewName",
+        "projectNewDescription", Instant.parse("2026-12-31T23:59:59Z").toEpochMilli());
+    verify(projectRepository, never()).save(any(Project.class));
+    assertEquals("projectNewName", project.getProjectName());
+    assertEquals("projectNewDescription", project.getProjectDescription());
+    long expectedDeadline = Instant.parse("2026-12-31T23:59:59Z").toEpochMilli();
+    assertEquals(expectedDeadline, project.getProjectDeadline());
+    assertEquals(new ArrayList<>(Arrays.asList(user1.getUserId(), otherUser.getUserId())),
+        project.getUserIds());
+    verify(membershipRepository).addProjectToUser(otherUser.getUserId(), project.getProjectId());
+    verify(membershipRepository).addUserToProject(project.getProjectId(), otherUser.getUserId());
+    verify(mailOutboxService).enqueue(eq("Project Invitation"), eq(otherUser.getEmail()),
+        anyString());
+    verify(membershipRepository).removeProjectFromUser(user2.getUserId(),
+        project.getProjectId());
+    verify(membershipRepository).removeUserFromTeams(project.getTeamIds(), user2.getUserId());
+    verify(irrService).invalidate("teamId");
+    verify(membershipRepository).removeUserFromProject(project.getProjectId(),
+        user2.getUserId());
+    verify(userRepository, never()).save(any(User.class));
+  }
+
+  /**
+   * Tests that a team added to the project while it is updated is kept: only the details of the
+   * project are written, not the lists read before the update.
+   */
+  @Test
+  public void testUpdateProjectKeepsConcurrentMembers() {
+    // Arrange
+    when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
+    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
+    when(userRepository.findByEmail(user1.getEmail())).thenReturn(user1);
+    when(userRepository.existsByEmail(user1.getEmail())).thenReturn(true);
+    when(userRepository.findByUserId(user1.getUserId())).thenReturn(user1);
+    when(userRepository.findByEmail(otherUser.getEmail())).thenReturn(otherUser);
+    when(userRepository.existsByEmail(otherUser.getEmail())).thenReturn(true);
+    when(userRepository.findByUserId(otherUser.getUserId())).thenReturn(otherUser);
+
+    // The stored project, which another request adds a team to while the update runs
+    List<String> storedTeamIds = new ArrayList<>(project.getTeamIds());
+    doAnswer(invocation -> storedTeamIds.add("concurrentTeamId"))
+        .when(membershipRepository).addUserToProject(project.getProjectId(),
+            otherUser.getUserId());
+    when(projectRepository.save(any(Project.class))).thenAnswer(invocation -> {
+      storedTeamIds.clear();
+      storedTeamIds.addAll(invocation.<Project>getArgument(0).getTeamIds());
+      return invocation.getArgument(0);
+    });
+
+    // Act
+    ResponseEntity<?> response =
+        projectService.updateProject(projectModifyDto, project.getProjectId());
+
+    // Assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertTrue(storedTeamIds.contains("concurrentTeamId"));
+    verify(projectRepository).setDetails(eq(project.getProjectId()), eq("projectNewName"),
+        eq("projectNewDescription"), any());
   }
 
   /**
@@ -847,7 +894,8 @@ public class ProjectServiceTest {
     when(userRepository.findByEmail(user1.getEmail())).thenReturn(user1);
     when(userRepository.existsByEmail(otherUser.getEmail())).thenReturn(true);
     when(userRepository.findByEmail(otherUser.getEmail())).thenReturn(otherUser);
-    when(teamRepository.findTeamsByProjectId(project.getProjectId())).thenReturn(null);
+    when(membershipRepository.removeUserFromTeams(any(), anyString()))
+        .thenThrow(new IllegalStateException("Team update failed."));
 
     // Act
     ResponseEntity<?> response =
@@ -856,8 +904,7 @@ public class ProjectServiceTest {
     // Assert
     assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg",
-        "Cannot invoke \"java.util.List.iterator()\" because \"teams\" is null");
+    responseBody.put("msg", "Team update failed.");
     assertEquals(responseBody, response.getBody());
   }
 
@@ -867,16 +914,10 @@ public class ProjectServiceTest {
   @Test
   public void testGetHumanReadableProjectStatusSuccess() {
     // Arrange
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(true);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(userRepository.findByUserId(user1.getUserId())).thenReturn(user1);
-    when(userRepository.findByUserId(user2.getUserId())).thenReturn(user2);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact1.getArtifactId()))
-        .thenReturn(artifact1);
-    when(artifactRepository.findArtifactByArtifactId(artifact2.getArtifactId()))
-        .thenReturn(artifact2);
+    when(userRepository.findAllById(any())).thenReturn(List.of(owner, user1, user2));
+    when(teamRepository.findAllById(any())).thenReturn(List.of(team));
+    when(artifactRepository.findAllById(any())).thenReturn(List.of(artifact1, artifact2));
 
     // Create the expected WholeProjectHeavyDto
     List<UserResponseDto> shortResponseUserDto = new ArrayList<>();
@@ -946,7 +987,7 @@ public class ProjectServiceTest {
   @Test
   public void testGetHumanReadableProjectStatusProjectIdNotFound() {
     // Arrange
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(false);
+    when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(null);
 
     // Act
     ResponseEntity<?> response =
@@ -965,7 +1006,6 @@ public class ProjectServiceTest {
   @Test
   public void testGetHumanReadableProjectStatusProjectNotFound() {
     // Arrange
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(true);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(null);
 
     // Act
@@ -985,9 +1025,8 @@ public class ProjectServiceTest {
   @Test
   public void testGetHumanReadableProjectStatusUserNotFound() {
     // Arrange
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(true);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
+    when(userRepository.findAllById(any())).thenReturn(List.of(owner));
 
     // Act
     ResponseEntity<?> response =
@@ -1006,12 +1045,9 @@ public class ProjectServiceTest {
   @Test
   public void testGetHumanReadableProjectStatusTeamNotFound() {
     // Arrange
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(true);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(userRepository.findByUserId(user1.getUserId())).thenReturn(user1);
-    when(userRepository.findByUserId(user2.getUserId())).thenReturn(user2);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(null);
+    when(userRepository.findAllById(any())).thenReturn(List.of(owner, user1, user2));
+    when(teamRepository.findAllById(any())).thenReturn(List.of());
 
     // Act
     ResponseEntity<?> response =
@@ -1030,13 +1066,10 @@ public class ProjectServiceTest {
   @Test
   public void testGetHumanReadableProjectStatusArtifactNotFound() {
     // Arrange
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(true);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(userRepository.findByUserId(user1.getUserId())).thenReturn(user1);
-    when(userRepository.findByUserId(user2.getUserId())).thenReturn(user2);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact1.getArtifactId())).thenReturn(null);
+    when(userRepository.findAllById(any())).thenReturn(List.of(owner, user1, user2));
+    when(teamRepository.findAllById(any())).thenReturn(List.of(team));
+    when(artifactRepository.findAllById(any())).thenReturn(List.of(artifact2));
 
     // Act
     ResponseEntity<?> response =
@@ -1057,16 +1090,10 @@ public class ProjectServiceTest {
   public void testGetHumanReadableProjectStatusOwnerNotFound() {
     // Arrange
     project.setOwnerId(otherUser.getUserId());
-    when(projectRepository.existsById(project.getProjectId())).thenReturn(true);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(userRepository.findByUserId(user1.getUserId())).thenReturn(user1);
-    when(userRepository.findByUserId(user2.getUserId())).thenReturn(user2);
-    when(userRepository.findByUserId(owner.getUserId())).thenReturn(owner);
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact1.getArtifactId()))
-        .thenReturn(artifact1);
-    when(artifactRepository.findArtifactByArtifactId(artifact2.getArtifactId()))
-        .thenReturn(artifact2);
+    when(userRepository.findAllById(any())).thenReturn(List.of(owner, user1, user2));
+    when(teamRepository.findAllById(any())).thenReturn(List.of(team));
+    when(artifactRepository.findAllById(any())).thenReturn(List.of(artifact1, artifact2));
 
     // Act
     ResponseEntity<?> response =
@@ -1079,6 +1106,49 @@ public class ProjectServiceTest {
     assertEquals(responseBody, response.getBody());
   }
 
+  /**
+   * Tests that the number of queries made by the getHumanReadableProjectStatus method does not
+   * grow with the number of artifacts of the project.
+   */
+  @Test
+  public void testGetHumanReadableProjectStatusQueryCountIsFlat() {
+    int smallProjectQueries = countHumanReadableProjectStatusQueries(2);
+    int largeProjectQueries = countHumanReadableProjectStatusQueries(500);
+
+    assertEquals(smallProjectQueries, largeProjectQueries);
+    verify(artifactRepository, never()).findArtifactByArtifactId(anyString());
+    verify(userRepository, never()).findByUserId(anyString());
+    verify(teamRepository, never()).findTeamByTeamId(anyString());
+  }
+
+  private int countHumanReadableProjectStatusQueries(int artifactCount) {
+    Mockito.clearInvocations(projectRepository, userRepository, teamRepository,
+        artifactRepository);
+
+    List<Artifact> artifacts = new ArrayList<>();
+    for (int i = 0; i < artifactCount; i++) {
+      Artifact artifact = new Artifact("artifact" + i, "projectId", "teamId", "filePath" + i);
+      artifact.setArtifactId(String.format("%024x", i));
+      artifacts.add(artifact);
+    }
+    project.setArtifactIds(artifacts.stream().map(Artifact::getArtifactId).toList());
+
+    when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
+    when(userRepository.findAllById(any())).thenReturn(List.of(owner, user1, user2));
+    when(teamRepository.findAllById(any())).thenReturn(List.of(team));
+    when(artifactRepository.findAllById(any())).thenReturn(artifacts);
+
+    ResponseEntity<?> response =
+        projectService.getHumanReadableProjectStatus(project.getProjectId());
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(artifactCount, ((WholeProjectHeavyDto) response.getBody()).artifacts().size());
+
+    return Mockito.mockingDetails(projectRepository).getInvocations().size()
+        + Mockito.mockingDetails(userRepository).getInvocations().size()
+        + Mockito.mockingDetails(teamRepository).getInvocations().size()
+        + Mockito.mockingDetails(artifactRepository).getInvocations().size();
+  }
+
   /**
    * Tests the getProjectsByOwner method.
    */
@@ -1342,20 +1412,22 @@ public class ProjectServiceTest {
     when(userRepository.save(userToAdd)).thenReturn(userToAdd);
     when(projectRepository.save(project)).thenReturn(project);
 
-    try (MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-        context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
-      // Act
-      projectService.addUsersToProject(project.getProjectId(), userEmails);
+    // Act
+    projectService.addUsersToProject(project.getProjectId(), userEmails);
 
-      // Assert
-      assertTrue(project.getUserIds().contains(otherUser.getUserId()));
-      assertTrue(project.getUserIds().contains(userToAdd.getUserId()));
-      assertTrue(otherUser.getProjectIds().contains(project.getProjectId()));
-      assertTrue(userToAdd.getProjectIds().contains(project.getProjectId()));
-      verify(userRepository, times(1)).save(otherUser);
-      verify(userRepository, times(1)).save(userToAdd);
-      verify(projectRepository, times(2)).save(project);
-    }
+    // Assert
+    assertTrue(project.getUserIds().contains(otherUser.getUserId()));
+    assertTrue(project.getUserIds().contains(userToAdd.getUserId()));
+    verify(membershipRepository).addProjectToUser(otherUser.getUserId(),
+        project.getProjectId());
+    verify(membershipRepository).addProjectToUser(userToAdd.getUserId(),
+        project.getProjectId());
+    verify(membershipRepository).addUserToProject(project.getProjectId(),
+        otherUser.getUserId());
+    verify(membershipRepository).addUserToProject(project.getProjectId(),
+        userToAdd.getUserId());
+    verify(userRepository, never()).save(any(User.class));
+    verify(projectRepository, never()).save(project);
   }
 
   /**
@@ -1431,17 +1503,16 @@ public class ProjectServiceTest {
     when(userRepository.save(otherUser)).thenReturn(otherUser);
     when(projectRepository.save(project)).thenReturn(project);
 
-    try (MockedConstruction<GmailService> mockedGmail = mockConstruction(GmailService.class, (mock,
-        context) -> doNothing().when(mock).sendMail(anyString(), anyString(), anyString()))) {
-      // Act
-      projectService.addUsersToProject(project.getProjectId(), userEmails);
+    // Act
+    projectService.addUsersToProject(project.getProjectId(), userEmails);
 
-      // Assert
-      assertTrue(project.getUserIds().contains(otherUser.getUserId()));
-      assertTrue(otherUser.getProjectIds().contains(project.getProjectId()));
-      verify(userRepository, times(1)).save(otherUser);
-      verify(projectRepository, times(1)).save(project);
-    }
+    // Assert
+    assertTrue(project.getUserIds().contains(otherUser.getUserId()));
+    verify(membershipRepository).addProjectToUser(otherUser.getUserId(),
+        project.getProjectId());
+    verify(membershipRepository, never()).addProjectToUser(user1.getUserId(),
+        project.getProjectId());
+    verify(projectRepository, never()).save(project);
   }
 
   /**
@@ -1934,12 +2005,10 @@ public class ProjectServiceTest {
     //     deleteTeam(team.getTeamId());
     // verify(teamRepository, times(1)).
     //delete(team);
-    verify(userRepository, times(2)).save(owner);
-    verify(userRepository, times(1)).save(user1);
-    verify(userRepository, times(1)).save(user2);
-    assertTrue(owner.getProjectIds().isEmpty());
-    assertTrue(user1.getProjectIds().isEmpty());
-    assertTrue(user2.getProjectIds().isEmpty());
+    verify(membershipRepository).removeProjectFromUser(owner.getUserId(), project.getProjectId());
+    verify(membershipRepository).removeProjectFromUsers(project.getUserIds(),
+        project.getProjectId());
+    verify(userRepository, never()).save(any(User.class));
   }
 
   /**
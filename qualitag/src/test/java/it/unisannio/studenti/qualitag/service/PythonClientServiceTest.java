@@ -1,11 +1,19 @@
 package it.unisannio.studenti.qualitag.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import it.unisannio.studenti.qualitag.config.PythonClientProperties;
+import it.unisannio.studenti.qualitag.exception.PythonServiceException;
+import it.unisannio.studenti.qualitag.irr.CodedRatings;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -28,8 +36,8 @@ public class PythonClientServiceTest {
     mockWebServer = new MockWebServer();
     mockWebServer.start();
     
-    String baseUrl = mockWebServer.url("/").toString();
-    pythonClientService = new PythonClientService(baseUrl);
+    // The first call of the JVM also starts Reactor Netty, so the timeout leaves room for it
+    pythonClientService = client(Duration.ofSeconds(5));
   }
 
   /**
@@ -39,6 +47,7 @@ public class PythonClientServiceTest {
    */
   @AfterEach
   public void tearDown() throws IOException {
+    pythonClientService.close();
     mockWebServer.shutdown();
   }
 
@@ -57,6 +66,44 @@ public class PythonClientServiceTest {
     assertEquals("0.85", result);
   }
 
+  @Test
+  public void testGetKrippendorffAlphaCoded() throws InterruptedException {
+    mockWebServer
+        .enqueue(new MockResponse().setBody("0.85").addHeader("Content-Type", "application/json"));
+
+    pythonClientService.getKrippendorffAlpha(
+        List.of(List.of(List.of("A", "B"), List.of("A")), List.of(List.of("B"), List.of())));
+
+    // The tag values are sent once, the tags as their indexes
+    RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+    assertEquals(CodedRatings.MEDIA_TYPE, request.getHeader("Content-Type"));
+    assertEquals("{\"vocabulary\":[\"A\",\"B\"],\"annotators\":2,"
+        + "\"offsets\":[0,2,3,4,4],\"codes\":[0,1,0,1]}", request.getBody().readUtf8());
+  }
+
+  @Test
+  public void testGetKrippendorffAlphaFallsBackToLists() throws InterruptedException {
+    // A Python service that only knows the nested lists refuses the coded ratings
+    mockWebServer.enqueue(new MockResponse().setResponseCode(415));
+    mockWebServer
+        .enqueue(new MockResponse().setBody("0.85").addHeader("Content-Type", "application/json"));
+    mockWebServer
+        .enqueue(new MockResponse().setBody("0.5").addHeader("Content-Type", "application/json"));
+
+    List<List<List<String>>> input = List.of(List.of(List.of("A"), List.of("A")));
+    assertEquals("0.85", pythonClientService.getKrippendorffAlpha(input));
+    assertEquals("0.5", pythonClientService.getKrippendorffAlpha(input));
+
+    assertEquals(CodedRatings.MEDIA_TYPE,
+        mockWebServer.takeRequest(1, TimeUnit.SECONDS).getHeader("Content-Type"));
+    RecordedRequest fallback = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+    assertEquals("application/json", fallback.getHeader("Content-Type"));
+    assertEquals("[[[\"A\"],[\"A\"]]]", fallback.getBody().readUtf8());
+    // The next calls send the lists at once
+    assertEquals("application/json",
+        mockWebServer.takeRequest(1, TimeUnit.SECONDS).getHeader("Content-Type"));
+  }
+
   @Test
   public void testProcessTags() {
     // Simulate Python server response
@@ -71,4 +118,89 @@ public class PythonClientServiceTest {
     // Verify response
     assertEquals("processed_tags", result);
   }
+
+  @Test
+  public void testProcessTagsAsync() {
+    mockWebServer.enqueue(
+        new MockResponse().setBody("processed_tags").addHeader("Content-Type", "application/json"));
+
+    String result = pythonClientService.processTagsAsync(List.of("tag1", "tag2")).block();
+
+    assertEquals("processed_tags", result);
+  }
+
+  @Test
+  public void testConsolidateTags() throws InterruptedException {
+    mockWebServer.enqueue(new MockResponse()
+        .setBody("{\"result\": {\"BUGS\": \"bug\", \"BUG\": \"bug\"}}")
+        .addHeader("Content-Type", "application/json"));
+
+    Map<String, String> result = pythonClientService.consolidateTags(List.of("BUGS", "BUG"));
+
+    assertEquals(Map.of("BUGS", "bug", "BUG", "bug"), result);
+    assertEquals("/api/consolidate-tags", mockWebServer.takeRequest().getPath());
+  }
+
+  @Test
+  public void testProcessTagsRetriesTransientErrors() {
+    // The first two calls fail while the model is loading, the third one succeeds
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    mockWebServer.enqueue(
+        new MockResponse().setBody("processed_tags").addHeader("Content-Type", "application/json"));
+
+    String result = pythonClientService.processTags(List.of("tag1"));
+
+    assertEquals("processed_tags", result);
+    assertEquals(3, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  public void testProcessTagsDoesNotRetryClientErrors() {
+    mockWebServer.enqueue(new MockResponse().setResponseCode(400));
+
+    assertThrows(PythonServiceException.class,
+        () -> pythonClientService.processTags(List.of("tag1")));
+    assertEquals(1, mockWebServer.getRequestCount());
+  }
+
+  @Test
+  public void testProcessTagsTimeout() {
+    pythonClientService.close();
+    pythonClientService = client(Duration.ofMillis(500));
+    mockWebServer.enqueue(new MockResponse().setBody("processed_tags")
+        .setHeadersDelay(2, TimeUnit.SECONDS));
+    mockWebServer.enqueue(new MockResponse().setBody("processed_tags")
+        .setHeadersDelay(2, TimeUnit.SECONDS));
+    mockWebServer.enqueue(new MockResponse().setBody("processed_tags")
+        .setHeadersDelay(2, TimeUnit.SECONDS));
+
+    assertThrows(PythonServiceException.class,
+        () -> pythonClientService.processTags(List.of("tag1")));
+  }
+
+  @Test
+  public void testCircuitBreakerFailsFast() {
+    // Every attempt fails, so each call makes 3 requests
+    for (int i = 0; i < 9; i++) {
+      mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+    }
+    for (int i = 0; i < 3; i++) {
+      assertThrows(PythonServiceException.class,
+          () -> pythonClientService.processTags(List.of("tag1")));
+    }
+    assertEquals(9, mockWebServer.getRequestCount());
+
+    // The circuit is now open, so the service is not called at all
+    PythonServiceException e = assertThrows(PythonServiceException.class,
+        () -> pythonClientService.getKrippendorffAlpha(List.of()));
+    assertEquals("Python service unavailable.", e.getMessage());
+    assertEquals(9, mockWebServer.getRequestCount());
+  }
+
+  private PythonClientService client(Duration readTimeout) {
+    String baseUrl = mockWebServer.url("/").toString();
+    return new PythonClientService(new PythonClientProperties(baseUrl, Duration.ofSeconds(1),
+        readTimeout, 4, 8, 2, Duration.ofMillis(10), 3, Duration.ofMinutes(1)));
+  }
 }
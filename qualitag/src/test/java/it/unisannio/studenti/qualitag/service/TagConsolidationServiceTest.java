@@ -0,0 +1,301 @@
+package it.unisannio.studenti.qualitag.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.exception.PythonServiceException;
+import it.unisannio.studenti.qualitag.model.Job;
+import it.unisannio.studenti.qualitag.model.JobStatus;
+import it.unisannio.studenti.qualitag.model.JobType;
+import it.unisannio.studenti.qualitag.model.Project;
+import it.unisannio.studenti.qualitag.model.Tag;
+import it.unisannio.studenti.qualitag.model.User;
+import it.unisannio.studenti.qualitag.repository.JobRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
+import it.unisannio.studenti.qualitag.repository.ProjectRepository;
+import it.unisannio.studenti.qualitag.repository.TagRepository;
+import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Test class for the TagConsolidationService.
+ */
+public class TagConsolidationServiceTest {
+
+  @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
+  private ProjectRepository projectRepository;
+  @Mock
+  private JobRepository jobRepository;
+  @Mock
+  private TagRepository tagRepository;
+  @Mock
+  private IrrService irrService;
+  @Mock
+  private JobService jobService;
+  @Mock
+  private PythonClientService pythonClientService;
+
+  private TagConsolidationService tagConsolidationService;
+
+  private Project project;
+  private Tag bugs;
+  private Tag bug;
+  private Tag buggy;
+  private Tag crash;
+
+  /**
+   * Set up the test environment, with a project of the logged-in user whose tags on an artifact
+   * are consolidated into BUG and CRASH.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    tagConsolidationService = new TagConsolidationService(membershipRepository,
+        projectRepository, jobRepository, tagRepository, irrService, jobService,
+        pythonClientService);
+    tagConsolidationService.batchSize = 2;
+
+    User owner = new User("owner", "owner@example.com", "password", "John", "Doe");
+    owner.setUserId("ownerId");
+
+    project = new Project();
+    project.setProjectId("projectId");
+    project.setOwnerId("ownerId");
+    project.setArtifactIds(List.of("artifactId"));
+    project.setTeamIds(List.of("teamId"));
+    when(projectRepository.findProjectByProjectId("projectId")).thenReturn(project);
+
+    // The first user has BUGS and BUG on the artifact, the second one BUGGY
+    bugs = tag("bugsId", "BUGS", "user1Id");
+    bug = tag("bugId", "BUG", "user1Id");
+    buggy = tag("buggyId", "BUGGY", "user2Id");
+    crash = tag("crashId", "CRASH", "user2Id");
+    when(pythonClientService.consolidateTags(List.of("BUG", "BUGGY")))
+        .thenReturn(Map.of("BUG", "bug", "BUGGY", "bug"));
+    // The second batch carries the value the first one was consolidated into
+    when(pythonClientService.consolidateTags(List.of("BUGS", "CRASH", "bug")))
+        .thenReturn(Map.of("BUGS", "bug", "CRASH", "crash", "bug", "bug"));
+
+    Authentication authentication = mock(Authentication.class);
+    when(authentication.isAuthenticated()).thenReturn(true);
+    when(authentication.getPrincipal()).thenReturn(new CustomUserDetails(owner));
+    SecurityContext securityContext = mock(SecurityContext.class);
+    when(securityContext.getAuthentication()).thenReturn(authentication);
+    SecurityContextHolder.setContext(securityContext);
+  }
+
+  /**
+   * Tests that the distinct values are sent in batches, that the tags taking a new value are
+   * rewritten at once, and that a tag becoming a duplicate is merged into the existing one.
+   */
+  @Test
+  public void testConsolidate() {
+    // Act
+    TagConsolidationService.Result result = tagConsolidationService.consolidate(
+        List.of(bugs, bug, buggy, crash), List.of("artifactId"), null);
+
+    // Assert
+    assertEquals(List.of("BUG", "CRASH"), result.tagValues());
+    assertEquals(1, result.rewritten());
+    assertEquals(1, result.merged());
+    verify(pythonClientService, times(2)).consolidateTags(anyList());
+    verify(membershipRepository).removeTagsFromArtifacts(Set.of("artifactId"), Set.of("bugsId"));
+    verify(membershipRepository).removeTagsFromUsers(Set.of("user1Id"), Set.of("bugsId"));
+    verify(tagRepository).deleteAllById(Set.of("bugsId"));
+    verify(tagRepository).setTagValues(Map.of("buggyId", "BUG"));
+    verify(irrService).invalidateArtifacts(Set.of("artifactId"));
+  }
+
+  /**
+   * Tests that a tag also on an artifact outside the scope only changes on the artifacts of the
+   * scope: it is split when it takes a new value and detached when it becomes a duplicate.
+   */
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testConsolidateSharedTags() {
+    // Arrange
+    bugs.getArtifactIds().add("otherArtifactId");
+    buggy.getArtifactIds().add("otherArtifactId");
+    when(tagRepository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<Tag> copies = invocation.getArgument(0);
+      copies.get(0).setTagId("copyId");
+      return copies;
+    });
+
+    // Act
+    TagConsolidationService.Result result = tagConsolidationService.consolidate(
+        List.of(bugs, bug, buggy, crash), List.of("artifactId"), null);
+
+    // Assert
+    assertEquals(List.of("BUG", "CRASH"), result.tagValues());
+    assertEquals(1, result.rewritten());
+    assertEquals(1, result.merged());
+    verify(tagRepository, never()).deleteAllById(any());
+    verify(tagRepository).setTagValues(Map.of());
+    // BUGS is left on the other artifact only
+    verify(membershipRepository).removeArtifactsFromTag("bugsId", List.of("artifactId"));
+    verify(membershipRepository).removeTagFromArtifacts(List.of("artifactId"), "bugsId");
+    // BUGGY keeps its value on the other artifact, and a copy takes the new one on the scope
+    ArgumentCaptor<List<Tag>> copies = ArgumentCaptor.forClass(List.class);
+    verify(tagRepository).saveAll(copies.capture());
+    Tag copy = copies.getValue().get(0);
+    assertEquals("BUG", copy.getTagValue());
+    assertEquals("user2Id", copy.getCreatedBy());
+    assertEquals(List.of("artifactId"), copy.getArtifactIds());
+    verify(membershipRepository).removeArtifactsFromTag("buggyId", List.of("artifactId"));
+    verify(membershipRepository).removeTagFromArtifacts(List.of("artifactId"), "buggyId");
+    verify(membershipRepository).addTagToArtifacts(List.of("artifactId"), "copyId");
+    verify(membershipRepository).addTagToUser("user2Id", "copyId");
+    verify(irrService).invalidateArtifacts(Set.of("artifactId"));
+  }
+
+  /**
+   * Tests that similar values in different batches are consolidated together, the earlier values
+   * following their group when it takes a new common value.
+   */
+  @Test
+  public void testConsolidateAcrossBatches() {
+    // Arrange
+    Tag defect = tag("defectId", "DEFECT", "user2Id");
+    Tag fault = tag("faultId", "FAULT", "user3Id");
+    when(pythonClientService.consolidateTags(List.of("BUG", "CRASH")))
+        .thenReturn(Map.of("BUG", "bug", "CRASH", "crash"));
+    when(pythonClientService.consolidateTags(List.of("DEFECT", "FAULT", "bug", "crash")))
+        .thenReturn(Map.of("DEFECT", "defect", "FAULT", "defect", "bug", "defect",
+            "crash", "crash"));
+
+    // Act
+    TagConsolidationService.Result result = tagConsolidationService.consolidate(
+        List.of(bug, crash, defect, fault), List.of("artifactId"), null);
+
+    // Assert
+    assertEquals(List.of("CRASH", "DEFECT"), result.tagValues());
+    verify(tagRepository).setTagValues(Map.of("bugId", "DEFECT", "faultId", "DEFECT"));
+  }
+
+  /**
+   * Tests that a tag keeps its value when the consolidated one is not a valid tag value.
+   */
+  @Test
+  public void testConsolidateKeepsInvalidValues() {
+    // Arrange
+    Tag ai = tag("aiId", "A.I.", "user1Id");
+    when(pythonClientService.consolidateTags(List.of("A.I."))).thenReturn(Map.of("A.I.", "ai"));
+
+    // Act
+    TagConsolidationService.Result result =
+        tagConsolidationService.consolidate(List.of(ai), List.of("artifactId"), null);
+
+    // Assert
+    assertEquals(List.of("A.I."), result.tagValues());
+    assertEquals(0, result.rewritten());
+    verify(tagRepository, never()).deleteAllById(any());
+    verify(irrService, never()).invalidateArtifacts(any());
+  }
+
+  /**
+   * Tests that the consolidation of a project reports its progress after every batch and its
+   * outcome.
+   */
+  @Test
+  public void testConsolidateProject() {
+    // Arrange
+    when(tagRepository.findTagsOfArtifacts(List.of("artifactId")))
+        .thenReturn(List.of(bugs, bug, buggy, crash));
+    JobService.Progress progress = mock(JobService.Progress.class);
+
+    // Act
+    Map<String, Object> outcome =
+        tagConsolidationService.consolidateProject("projectId", progress);
+
+    // Assert
+    assertEquals(Map.of("rewrittenTags", 1, "mergedTags", 1), outcome);
+    verify(progress).update(0, 4);
+    verify(progress).update(2, 4);
+    verify(progress).update(4, 4);
+  }
+
+  /**
+   * Tests that a consolidation fails without touching the tags when the Python service is not
+   * available.
+   */
+  @Test
+  public void testConsolidateProjectServiceUnavailable() {
+    // Arrange
+    when(tagRepository.findTagsOfArtifacts(List.of("artifactId")))
+        .thenReturn(List.of(bugs, bug, buggy, crash));
+    when(pythonClientService.consolidateTags(List.of("BUGS", "CRASH", "bug")))
+        .thenThrow(new PythonServiceException("Python service unavailable."));
+    JobService.Progress progress = mock(JobService.Progress.class);
+
+    // Act
+    PythonServiceException exception = assertThrows(PythonServiceException.class,
+        () -> tagConsolidationService.consolidateProject("projectId", progress));
+
+    // Assert
+    assertEquals("Python service unavailable.", exception.getMessage());
+    verify(progress).update(2, 4);
+    verify(tagRepository, never()).setTagValues(anyMap());
+  }
+
+  /**
+   * Tests that a consolidation is started as a job for the owner of the project, once at a time.
+   */
+  @Test
+  public void testStartConsolidation() {
+    // Arrange
+    when(jobService.submit(eq(JobType.TAG_CONSOLIDATION), eq("projectId"), eq("ownerId"),
+        any())).thenReturn(ResponseEntity.accepted().build());
+    Job running = new Job();
+    running.setJobId("jobId");
+
+    // Act
+    ResponseEntity<?> started = tagConsolidationService.startConsolidation("projectId");
+    when(jobRepository.findFirstByProjectIdAndTypeAndStatusIn("projectId",
+        JobType.TAG_CONSOLIDATION, List.of(JobStatus.QUEUED, JobStatus.RUNNING)))
+        .thenReturn(running);
+    ResponseEntity<?> conflict = tagConsolidationService.startConsolidation("projectId");
+    project.setOwnerId("otherId");
+    ResponseEntity<?> forbidden = tagConsolidationService.startConsolidation("projectId");
+
+    // Assert
+    assertEquals(HttpStatus.ACCEPTED, started.getStatusCode());
+    assertEquals(HttpStatus.CONFLICT, conflict.getStatusCode());
+    assertEquals("jobId", ((Map<?, ?>) conflict.getBody()).get("jobId"));
+    assertEquals(HttpStatus.FORBIDDEN, forbidden.getStatusCode());
+    verify(jobService, times(1)).submit(any(), any(), any(), any());
+  }
+
+  // UTILITY METHODS
+
+  private static Tag tag(String tagId, String tagValue, String createdBy) {
+    Tag tag = new Tag(tagValue, createdBy, "#000000");
+    tag.setTagId(tagId);
+    tag.getArtifactIds().add("artifactId");
+    return tag;
+  }
+}
@@ -2,7 +2,11 @@ package it.unisannio.studenti.qualitag.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import it.unisannio.studenti.qualitag.constants.TagConstants;
@@ -15,6 +19,7 @@ import it.unisannio.studenti.qualitag.model.Artifact;
 import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
@@ -45,11 +50,15 @@ public class TagServiceTest {
   @Mock
   private TagRepository tagRepository;
   @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
   private UserRepository userRepository;
   @Mock
   ArtifactRepository artifactRepository;
   @Mock
   private TagMapper tagMapper;
+  @Mock
+  private IrrService irrService;
 
   @InjectMocks
   private TagService tagService;
@@ -321,6 +330,10 @@ public class TagServiceTest {
     when(tagRepository.save(any(Tag.class))).thenReturn(tag1);
     when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
     when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(newTag);
+    when(tagRepository.existsByCreatedByAndTagValueAndArtifactIdsAndTagIdNot(anyString(),
+        eq("TAG3"), any(), any())).thenReturn(true);
+    when(tagRepository.findFirstByCreatedByAndTagValue(anyString(), eq("TAG3")))
+        .thenReturn(newTag);
 
     when(tagMapper.toEntity(any(TagCreateDto.class))).thenReturn(newTag);
 
@@ -389,6 +402,8 @@ public class TagServiceTest {
     Map<String, String> responseBody = new HashMap<>();
     responseBody.put("msg", "Tags added successfully.");
     assertEquals(responseBody, response.getBody());
+    verify(irrService).tagsAdded(artifact.getArtifactId(), List.of(newTag1));
+    verify(irrService).tagsAdded(artifact.getArtifactId(), List.of(newTag2));
   }
 
   /**
@@ -414,6 +429,8 @@ public class TagServiceTest {
     when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
     when(tagRepository.findTagByTagId(newTag1.getTagId())).thenReturn(newTag1);
     when(tagRepository.findTagByTagId(newTag2.getTagId())).thenReturn(newTag2);
+    when(tagRepository.existsByCreatedByAndTagValueAndArtifactIdsAndTagIdNot(anyString(),
+        eq("TAG2"), any(), any())).thenReturn(true);
     when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
         .thenReturn(artifact);
 
@@ -437,6 +454,7 @@ public class TagServiceTest {
         tagService.addTagsToArtifactAndUser(tagList, artifact.getArtifactId());
 
     // Assert
+    verify(tagRepository).delete(newTag2);
     assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     Map<String, String> responseBody = new HashMap<>();
     responseBody.put("msg", "Tag already exists.");
@@ -790,6 +808,7 @@ public class TagServiceTest {
     Map<String, String> responseBody = new HashMap<>();
     responseBody.put("msg", "Tag deleted successfully.");
     assertEquals(responseBody, response.getBody());
+    verify(irrService).tagDeleted(tag1);
   }
 
   /**
@@ -905,6 +924,7 @@ public class TagServiceTest {
     Map<String, String> responseBody = new HashMap<>();
     responseBody.put("msg", "Tag updated successfully.");
     assertEquals(responseBody, response.getBody());
+    verify(irrService).tagUpdated(tag1);
   }
 
   /**
@@ -1109,6 +1129,8 @@ public class TagServiceTest {
     when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
     when(userRepository.findByUserId(tag1.getCreatedBy())).thenReturn(user);
     when(tagRepository.save(tag1)).thenReturn(tag1);
+    when(tagRepository.existsByCreatedByAndTagValue(tag1.getCreatedBy(), "TAG2"))
+        .thenReturn(true);
 
     // Act
     ResponseEntity<?> response = tagService.updateTag(sameTagUpdateDto, tag1.getTagId());
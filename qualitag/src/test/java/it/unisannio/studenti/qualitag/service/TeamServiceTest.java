@@ -7,7 +7,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -15,14 +17,15 @@ import it.unisannio.studenti.qualitag.constants.TeamConstants;
 import it.unisannio.studenti.qualitag.dto.team.CompletedTeamCreateDto;
 import it.unisannio.studenti.qualitag.dto.team.TeamCreateDto;
 import it.unisannio.studenti.qualitag.exception.TeamValidationException;
+import it.unisannio.studenti.qualitag.irr.KrippendorffAlpha;
+import it.unisannio.studenti.qualitag.irr.TeamAgreement;
 import it.unisannio.studenti.qualitag.model.Artifact;
 import it.unisannio.studenti.qualitag.model.Project;
 import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
-import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
-import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
@@ -55,18 +58,15 @@ public class TeamServiceTest {
   @Mock
   private TeamRepository teamRepository;
   @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
   private ProjectRepository projectRepository;
   @Mock
   private UserRepository userRepository;
   @Mock
-  private ArtifactRepository artifactRepository;
-  @Mock
-  private TagRepository tagRepository;
-  @Mock
   private ArtifactService artifactService;
-
   @Mock
-  private PythonClientService pythonClientService;
+  private IrrService irrService;
 
   @InjectMocks
   private TeamService teamService;
@@ -1010,27 +1010,29 @@ public class TeamServiceTest {
   }
 
   /**
-   * Tests an execution of the deleteTeam method where the user is not found.
+   * Tests that the deleteTeam method unlinks the team from its project and users with partial
+   * updates, without loading the users.
    */
   @Test
-  void testDeleteTeamUserNotFound() {
+  void testDeleteTeamUnlinksWithoutLoadingUsers() {
     // Arrange
     when(teamRepository.findById(team.getTeamId())).thenReturn(Optional.ofNullable(team));
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(projectRepository.save(project)).thenReturn(project);
-
-    when(userRepository.findById(user1.getUserId())).thenReturn(Optional.ofNullable(user1));
-    when(userRepository.save(user1)).thenReturn(user1);
-    when(userRepository.findById(user2.getUserId())).thenReturn(Optional.empty());
 
     // Act
     ResponseEntity<?> response = teamService.deleteTeam(team.getTeamId());
 
     // Assert
     Map<String, String> responseBody = new HashMap<>();
-    responseBody.put("msg", "User with ID " + user2.getUserId() + " not found.");
-    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    responseBody.put("msg", "Team deleted successfully.");
+    assertEquals(HttpStatus.OK, response.getStatusCode());
     assertEquals(responseBody, response.getBody());
+    verify(membershipRepository).removeTeamFromProject(project.getProjectId(), team.getTeamId());
+    verify(membershipRepository).removeTeamFromUsers(team.getUserIds(), team.getTeamId());
+    verify(userRepository, never()).findById(anyString());
+    verify(userRepository, never()).save(any(User.class));
+    verify(projectRepository, never()).save(any(Project.class));
+    verify(irrService).invalidate(team.getTeamId());
   }
 
   /**
@@ -1068,14 +1070,17 @@ public class TeamServiceTest {
   @Test
   void testGetTeamIrrSuccess() {
     // Arrange
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
+    team.setArtifactIds(List.of(artifact.getArtifactId(), "artifact2Id"));
+    TeamAgreement agreement = new TeamAgreement(team.getUserIds(), team.getArtifactIds());
 
-    String mockAlphaResponse = "{\"alpha\": 0.85}";
-    when(pythonClientService.getKrippendorffAlpha(Mockito.anyList())).thenReturn(mockAlphaResponse);
+    // Both users agree on the first artifact and disagree on the second one
+    agreement.addTag(artifact.getArtifactId(), user1.getUserId(), "tagId1", "DOCS");
+    agreement.addTag(artifact.getArtifactId(), user2.getUserId(), "tagId2", "DOCS");
+    agreement.addTag("artifact2Id", user1.getUserId(), "tagId3", "BUG");
+    agreement.addTag("artifact2Id", user2.getUserId(), "tagId4", "FEATURE");
+
+    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
+    when(irrService.getAgreement(team)).thenReturn(agreement);
 
     // Act
     ResponseEntity<?> response = teamService.getTeamIrr(team.getTeamId());
@@ -1086,7 +1091,7 @@ public class TeamServiceTest {
     assertNotNull(response.getBody());
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Successfully retrieved Krippendorff's alpha.");
-    responseBody.put("irr", 0.85);
+    responseBody.put("irr", 0.4);
     assertEquals(responseBody, response.getBody());
   }
 
@@ -1108,6 +1113,7 @@ public class TeamServiceTest {
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Team not found.");
     assertEquals(responseBody, response.getBody());
+    verify(irrService, never()).getAgreement(any());
   }
 
   /**
@@ -1117,7 +1123,7 @@ public class TeamServiceTest {
   void testGetTeamIrrArtifactNotFound() {
     // Arrange
     when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId())).thenReturn(null);
+    when(irrService.getAgreement(team)).thenReturn(null);
 
     // Act
     ResponseEntity<?> response = teamService.getTeamIrr(team.getTeamId());
@@ -1137,24 +1143,19 @@ public class TeamServiceTest {
   @Test
   void testGetTeamIrrNoTagsForArtifact() {
     // Arrange
-    artifact.setTags(new ArrayList<>()); // Artifact has no tags
     when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
-
-    String mockAlphaResponse = "{\"alpha\": 1.0}";
-    when(pythonClientService.getKrippendorffAlpha(Mockito.anyList())).thenReturn(mockAlphaResponse);
+    when(irrService.getAgreement(team))
+        .thenReturn(new TeamAgreement(team.getUserIds(), team.getArtifactIds()));
 
     // Act
     ResponseEntity<?> response = teamService.getTeamIrr(team.getTeamId());
 
     // Assert
     assertNotNull(response);
-    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     assertNotNull(response.getBody());
     Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "Successfully retrieved Krippendorff's alpha.");
-    responseBody.put("irr", 1.0); // Default alpha value
+    responseBody.put("msg", KrippendorffAlpha.INSUFFICIENT_DATA_MSG);
     assertEquals(responseBody, response.getBody());
   }
 
@@ -1164,27 +1165,24 @@ public class TeamServiceTest {
   @Test
   void testGetTeamIrrTagCreatedByUserMismatch() {
     // Arrange
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(artifactRepository.findArtifactByArtifactId(artifact.getArtifactId()))
-        .thenReturn(artifact);
+    TeamAgreement agreement = new TeamAgreement(team.getUserIds(), team.getArtifactIds());
+    // No user in the team matches this creator
+    agreement.addTag(artifact.getArtifactId(), "otherUserId", "tagId1", "BUG");
+    agreement.addTag(artifact.getArtifactId(), user2.getUserId(), "tagId2", "BUG");
 
-    tag1.setCreatedBy("otherUserId"); // No user in the team matches this creator
-    when(tagRepository.findTagByTagId(tag1.getTagId())).thenReturn(tag1);
-    when(tagRepository.findTagByTagId(tag2.getTagId())).thenReturn(tag2);
-
-    String mockAlphaResponse = "{\"alpha\": 0.0}";
-    when(pythonClientService.getKrippendorffAlpha(Mockito.anyList())).thenReturn(mockAlphaResponse);
+    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
+    when(irrService.getAgreement(team)).thenReturn(agreement);
 
     // Act
     ResponseEntity<?> response = teamService.getTeamIrr(team.getTeamId());
 
     // Assert
     assertNotNull(response);
-    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     assertNotNull(response.getBody());
     Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "Successfully retrieved Krippendorff's alpha.");
-    responseBody.put("irr", 0.0); // Alpha drops due to mismatch
+    // Only one user annotated the artifact, so there is nothing to compare
+    responseBody.put("msg", KrippendorffAlpha.INSUFFICIENT_DATA_MSG);
     assertEquals(responseBody, response.getBody());
   }
 
@@ -1217,10 +1215,14 @@ public class TeamServiceTest {
     Map<String, Object> responseBody = new HashMap<>();
     responseBody.put("msg", "Team users updated successfully.");
     assertEquals(responseBody, response.getBody());
-    verify(teamRepository).save(team);
     assertEquals(Arrays.asList(user1.getUserId(), user3.getUserId()), team.getUserIds());
-    assertTrue(user3.getTeamIds().contains("teamId")); // This doesn't work apparently...
-    assertFalse(user2.getTeamIds().contains("teamId"));
+    verify(membershipRepository).setTeamUsers(team.getTeamId(), team.getUserIds());
+    verify(membershipRepository).removeTeamFromUsers(
+        Arrays.asList(user1.getUserId(), user2.getUserId()), team.getTeamId());
+    verify(membershipRepository).addTeamToUser(user1.getUserId(), team.getTeamId());
+    verify(membershipRepository).addTeamToUser(user3.getUserId(), team.getTeamId());
+    verify(teamRepository, never()).save(team);
+    verify(irrService).invalidate(team.getTeamId());
   }
 
   /**
@@ -1328,10 +1330,10 @@ public class TeamServiceTest {
   }
 
   /**
-   * Tests an execution of updateTeamUsers where the user is not found (in the database).
+   * Tests that updateTeamUsers moves the users with partial updates, without loading them.
    */
   @Test
-  public void testUpdateTeamUsersUserNotFound() {
+  public void testUpdateTeamUsersDoesNotLoadUsers() {
     // Arrange
     when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
     when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
@@ -1343,35 +1345,10 @@ public class TeamServiceTest {
         Arrays.asList(user1.getEmail(), user3.getEmail()));
 
     // Assert
-    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "User with ID " + user1.getUserId() + " not found.");
-    assertEquals(responseBody, response.getBody());
-  }
-
-  /**
-   * Tests an execution of updateTeamUsers where the user to add to team is not found.
-   */
-  @Test
-  public void testUpdateTeamUsersUserToAddNotFound() {
-    // Arrange
-    when(teamRepository.findTeamByTeamId(team.getTeamId())).thenReturn(team);
-    when(projectRepository.findProjectByProjectId(project.getProjectId())).thenReturn(project);
-    when(userRepository.findByEmail(user1.getEmail())).thenReturn(user1);
-    when(userRepository.findByEmail(user3.getEmail())).thenReturn(user3);
-    when(userRepository.findByUserId(user1.getUserId())).thenReturn(user1);
-    when(userRepository.findByUserId(user2.getUserId())).thenReturn(user2);
-    when(userRepository.findByUserId(user3.getUserId())).thenReturn(null);
-
-    // Act
-    ResponseEntity<?> response = teamService.updateTeamUsers(team.getTeamId(),
-        Arrays.asList(user1.getEmail(), user3.getEmail()));
-
-    // Assert
-    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
-    Map<String, Object> responseBody = new HashMap<>();
-    responseBody.put("msg", "User with ID " + user3.getUserId() + " not found.");
-    assertEquals(responseBody, response.getBody());
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    verify(userRepository, never()).findByUserId(anyString());
+    verify(userRepository, never()).save(any(User.class));
+    verify(teamRepository, never()).save(any(Team.class));
   }
 
   /**
@@ -1409,10 +1386,13 @@ public class TeamServiceTest {
     responseBody.put("msg", "Team users updated successfully.");
     assertEquals(responseBody, response.getBody());
     assertEquals(Arrays.asList(user1.getUserId(), user3.getUserId()), team.getUserIds());
-    assertTrue(user3.getTeamIds().contains("teamId"));
-    assertFalse(user3.getTeamIds().contains("anotherTeamId"));
-    assertFalse(anotherTeam.getUserIds().contains(user3.getUserId()));
-    assertFalse(user2.getTeamIds().contains("teamId"));
+    verify(membershipRepository).addTeamToUser(user3.getUserId(), "teamId");
+    verify(membershipRepository)
+        .removeTeamsFromUser(user3.getUserId(), List.of("anotherTeamId"));
+    verify(membershipRepository)
+        .removeUserFromTeams(List.of("anotherTeamId"), user3.getUserId());
+    verify(membershipRepository).removeTeamFromUsers(
+        Arrays.asList(user1.getUserId(), user2.getUserId()), "teamId");
   }
 
 
@@ -2,6 +2,7 @@ package it.unisannio.studenti.qualitag.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -15,12 +16,14 @@ import it.unisannio.studenti.qualitag.model.Tag;
 import it.unisannio.studenti.qualitag.model.Team;
 import it.unisannio.studenti.qualitag.model.User;
 import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import it.unisannio.studenti.qualitag.repository.MembershipRepository;
 import it.unisannio.studenti.qualitag.repository.ProjectRepository;
 import it.unisannio.studenti.qualitag.repository.TagRepository;
 import it.unisannio.studenti.qualitag.repository.TeamRepository;
 import it.unisannio.studenti.qualitag.repository.UserRepository;
 import it.unisannio.studenti.qualitag.security.model.CustomUserDetails;
 import it.unisannio.studenti.qualitag.security.service.AuthenticationService;
+import it.unisannio.studenti.qualitag.security.service.CustomUserDetailService;
 import it.unisannio.studenti.qualitag.security.service.JwtService;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -52,10 +55,16 @@ public class UserServiceTest {
   private AuthenticationService authenticationService;
   @Mock
   private JwtService jwtService;
+  @Mock
+  private CustomUserDetailService customUserDetailService;
+  @Mock
+  private IrrService irrService;
 
   @Mock
   private UserRepository userRepository;
   @Mock
+  private MembershipRepository membershipRepository;
+  @Mock
   private TeamRepository teamRepository;
   @Mock
   private ProjectRepository projectRepository;
@@ -260,6 +269,7 @@ public class UserServiceTest {
 
     verify(userMapper, times(1)).updateEntity(userModifyDto, user1);
     verify(userRepository, times(1)).save(user1);
+    verify(customUserDetailService, times(1)).evict("user1");
     
     Map<String, String> responseBody = new HashMap<>();
     responseBody.put("msg", "User updated successfully.");
@@ -596,15 +606,18 @@ public class UserServiceTest {
 
     // Assert
     verify(userRepository, times(1)).deleteByUsername("user1");
-    verify(projectRepository, times(1)).save(project);
-    verify(teamRepository, times(1)).save(team);
+    verify(customUserDetailService, times(1)).evict("user1");
+    verify(membershipRepository, times(1))
+        .removeUserFromProject(project.getProjectId(), user1.getUserId());
+    verify(membershipRepository, times(1))
+        .removeUserFromTeams(user1.getTeamIds(), user1.getUserId());
+    verify(irrService, times(1)).invalidate("teamId");
+    verify(projectRepository, never()).save(project);
     verify(tagService, times(1)).deleteTag(tag1.getTagId());
     verify(tagService, times(1)).deleteTag(tag2.getTagId());
     Map<String, String> responseBody = new HashMap<>();
     responseBody.put("msg", "User deleted successfully.");
     assertEquals(responseBody, response.getBody());
-    assertEquals(Arrays.asList("ownerId", "user2Id"), project.getUserIds());
-    assertEquals(List.of("user2Id"), team.getUserIds());
   }
 
   /**
@@ -0,0 +1,88 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class for the ArtifactCompression.
+ */
+public class ArtifactCompressionTest {
+
+  private final ArtifactCompression artifactCompression = new ArtifactCompression();
+
+  @Test
+  public void testEncodingFor() {
+    assertEquals(ArtifactCompression.GZIP, artifactCompression.encodingFor("text/x-python", 4096));
+    assertEquals(ArtifactCompression.GZIP,
+        artifactCompression.encodingFor("application/json; charset=UTF-8", 4096));
+    assertNull(artifactCompression.encodingFor("image/png", 4096));
+    assertNull(artifactCompression.encodingFor("text/plain", 100));
+    // Large files and files of unknown size are read in parts, so they are kept as they are
+    assertNull(artifactCompression.encodingFor("text/plain", 2 * 1024 * 1024));
+    assertNull(artifactCompression.encodingFor("text/plain", -1));
+    assertNull(artifactCompression.encodingFor(null, 4096));
+
+    artifactCompression.enabled = false;
+    assertNull(artifactCompression.encodingFor("text/plain", 4096));
+  }
+
+  @Test
+  public void testEncodeDecodesWithGzip() throws IOException {
+    byte[] content = "def hello():\n    print('hello')\n".repeat(500)
+        .getBytes(StandardCharsets.UTF_8);
+
+    byte[] encoded = encode(content);
+
+    assertTrue(encoded.length < content.length / 5);
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+      assertArrayEquals(content, in.readAllBytes());
+    }
+    try (InputStream in = ArtifactCompression.decode(new ByteArrayInputStream(encoded),
+        ArtifactCompression.GZIP)) {
+      assertArrayEquals(content, in.readAllBytes());
+    }
+  }
+
+  @Test
+  public void testEncodeIsDeterministic() throws IOException {
+    // The storage keeps one file per content, so equal files must compress equally
+    byte[] content = new byte[200_000];
+    new Random(42).nextBytes(content);
+
+    assertArrayEquals(encode(content), encode(content));
+  }
+
+  @Test
+  public void testEncodeEmptyContent() throws IOException {
+    byte[] encoded = encode(new byte[0]);
+
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(encoded))) {
+      assertEquals(0, in.readAllBytes().length);
+    }
+  }
+
+  @Test
+  public void testNoEncodingKeepsContent() throws IOException {
+    InputStream content = new ByteArrayInputStream(new byte[] {1, 2, 3});
+
+    assertEquals(content, ArtifactCompression.encode(content, null));
+    assertEquals(content, ArtifactCompression.decode(content, null));
+  }
+
+  private static byte[] encode(byte[] content) throws IOException {
+    try (InputStream in = ArtifactCompression.encode(new ByteArrayInputStream(content),
+        ArtifactCompression.GZIP)) {
+      return in.readAllBytes();
+    }
+  }
+}
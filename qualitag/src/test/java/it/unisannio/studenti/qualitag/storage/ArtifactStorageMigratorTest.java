@@ -0,0 +1,138 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Test class for the ArtifactStorageMigrator.
+ */
+public class ArtifactStorageMigratorTest {
+
+  private static final String TARGET_LOCATION = "gridfs:0123456789abcdef01234567";
+
+  @Mock
+  private LocalArtifactStorage localArtifactStorage;
+  @Mock
+  private GridFsArtifactStorage gridFsArtifactStorage;
+  @Mock
+  private ArtifactRepository artifactRepository;
+  @Mock
+  private MongoTemplate mongoTemplate;
+  @Mock
+  private ConfigurableApplicationContext context;
+  @Mock
+  private StoredFile storedFile;
+
+  private ArtifactStorageMigrator migrator;
+
+  /**
+   * Set up the test environment.
+   */
+  @BeforeEach
+  public void setUp() throws IOException {
+    MockitoAnnotations.openMocks(this);
+
+    migrator = new ArtifactStorageMigrator(localArtifactStorage, gridFsArtifactStorage,
+        artifactRepository, mongoTemplate, context);
+
+    when(localArtifactStorage.owns(anyString()))
+        .thenAnswer(invocation -> !invocation.<String>getArgument(0).startsWith("gridfs:"));
+    when(storedFile.openStream()).thenReturn(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+    when(gridFsArtifactStorage.store(any())).thenReturn(TARGET_LOCATION);
+  }
+
+  /**
+   * Tests that a file is copied, the artifact pointed at the copy and the original released.
+   */
+  @Test
+  public void testMigrateMovesFile() throws IOException {
+    // Arrange
+    Artifact artifact = artifact("a1", "/artifacts/a");
+    Artifact migrated = artifact("a2", "gridfs:abcdefabcdefabcdefabcdef");
+    when(mongoTemplate.stream(any(Query.class), eq(Artifact.class)))
+        .thenReturn(Stream.of(artifact, migrated));
+    when(localArtifactStorage.open("/artifacts/a")).thenReturn(storedFile);
+    when(artifactRepository.replaceFilePath("a1", "/artifacts/a", TARGET_LOCATION))
+        .thenReturn(true);
+
+    // Act
+    ArtifactStorageMigrator.Result result =
+        migrator.migrate(localArtifactStorage, gridFsArtifactStorage);
+
+    // Assert
+    assertEquals(new ArtifactStorageMigrator.Result(1, 1, 0), result);
+    verify(localArtifactStorage).release("/artifacts/a");
+    verify(gridFsArtifactStorage, never()).release(anyString());
+  }
+
+  /**
+   * Tests that the copy is released if the artifact changed while being moved.
+   */
+  @Test
+  public void testMigrateReleasesCopyWhenArtifactChanged() throws IOException {
+    // Arrange
+    Artifact artifact = artifact("a1", "/artifacts/a");
+    when(mongoTemplate.stream(any(Query.class), eq(Artifact.class)))
+        .thenReturn(Stream.of(artifact));
+    when(localArtifactStorage.open("/artifacts/a")).thenReturn(storedFile);
+    when(artifactRepository.replaceFilePath("a1", "/artifacts/a", TARGET_LOCATION))
+        .thenReturn(false);
+
+    // Act
+    ArtifactStorageMigrator.Result result =
+        migrator.migrate(localArtifactStorage, gridFsArtifactStorage);
+
+    // Assert
+    assertEquals(new ArtifactStorageMigrator.Result(0, 1, 0), result);
+    verify(gridFsArtifactStorage).release(TARGET_LOCATION);
+    verify(localArtifactStorage, never()).release(anyString());
+  }
+
+  /**
+   * Tests that a missing file is counted as failed and the artifact left unchanged.
+   */
+  @Test
+  public void testMigrateMissingFile() throws IOException {
+    // Arrange
+    Artifact artifact = artifact("a1", "/artifacts/a");
+    when(mongoTemplate.stream(any(Query.class), eq(Artifact.class)))
+        .thenReturn(Stream.of(artifact));
+    when(localArtifactStorage.open("/artifacts/a")).thenReturn(null);
+
+    // Act
+    ArtifactStorageMigrator.Result result =
+        migrator.migrate(localArtifactStorage, gridFsArtifactStorage);
+
+    // Assert
+    assertEquals(new ArtifactStorageMigrator.Result(0, 0, 1), result);
+    verify(gridFsArtifactStorage, never()).store(any());
+    verify(artifactRepository, never()).replaceFilePath(anyString(), anyString(), anyString());
+  }
+
+  // UTILITY METHODS
+
+  private static Artifact artifact(String artifactId, String filePath) {
+    Artifact artifact = new Artifact();
+    artifact.setArtifactId(artifactId);
+    artifact.setFilePath(filePath);
+    return artifact;
+  }
+}
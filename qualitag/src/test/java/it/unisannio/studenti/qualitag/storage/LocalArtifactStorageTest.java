@@ -0,0 +1,189 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+import it.unisannio.studenti.qualitag.repository.ArtifactBlobRepository;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Test class for the LocalArtifactStorage.
+ */
+public class LocalArtifactStorageTest {
+
+  // The SHA-256 digest of "hello"
+  private static final String HELLO_DIGEST =
+      "2cf24dba5fb0a30e26e83b2ac5b9e29e1b161e5c1fa7425e73043362938b9824";
+
+  @Mock
+  private ArtifactBlobRepository artifactBlobRepository;
+
+  private LocalArtifactStorage localArtifactStorage;
+
+  private final Map<String, Long> references = new HashMap<>();
+
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Set up the test environment, with the reference counts kept in a map.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    localArtifactStorage = new LocalArtifactStorage(artifactBlobRepository);
+    localArtifactStorage.storageDir = tempDir.toString();
+
+    when(artifactBlobRepository.addReference(anyString(), anyLong())).thenAnswer(
+        invocation -> references.merge(invocation.getArgument(0), 1L, Long::sum));
+    when(artifactBlobRepository.removeReference(anyString())).thenAnswer(invocation -> {
+      String digest = invocation.getArgument(0);
+      return references.containsKey(digest) ? references.merge(digest, -1L, Long::sum) : -1L;
+    });
+    when(artifactBlobRepository.removeIfUnreferenced(anyString())).thenAnswer(invocation -> {
+      String digest = invocation.getArgument(0);
+      if (!references.containsKey(digest) || references.get(digest) > 0) {
+        return null;
+      }
+      references.remove(digest);
+      ArtifactBlob blob = new ArtifactBlob();
+      blob.setKey(digest);
+      return blob;
+    });
+  }
+
+  @Test
+  public void testStoreNamesFileAfterItsDigest() throws IOException {
+    String filePath = localArtifactStorage.store(content("hello"));
+
+    assertEquals(helloPath().toString(), filePath);
+    assertEquals("hello", Files.readString(Paths.get(filePath)));
+    assertEquals(1L, references.get(HELLO_DIGEST));
+  }
+
+  @Test
+  public void testStoreSameContentTwiceKeepsOneFile() throws IOException {
+    String first = localArtifactStorage.store(content("hello"));
+    String second = localArtifactStorage.store(content("hello"));
+
+    assertEquals(first, second);
+    assertEquals(2L, references.get(HELLO_DIGEST));
+    try (Stream<Path> files = Files.list(helloPath().getParent())) {
+      assertEquals(1, files.filter(Files::isRegularFile).count());
+    }
+    try (Stream<Path> temps = Files.list(tempDir.resolve("tmp"))) {
+      assertEquals(0, temps.count());
+    }
+  }
+
+  @Test
+  public void testStoreFileMovesFileIntoStorage() throws IOException {
+    Path upload = Files.writeString(Files.createDirectory(tempDir.resolve("uploads"))
+        .resolve("upload.part"), "hello");
+    localArtifactStorage.store(content("hello"));
+
+    String filePath = localArtifactStorage.storeFile(upload);
+
+    assertEquals(helloPath().toString(), filePath);
+    assertEquals("hello", Files.readString(Paths.get(filePath)));
+    assertFalse(Files.exists(upload));
+    assertEquals(2L, references.get(HELLO_DIGEST));
+  }
+
+  @Test
+  public void testStoreReusesFileStoredBeforeTheDirectories() throws IOException {
+    Path flat = Files.writeString(tempDir.resolve(HELLO_DIGEST), "hello");
+
+    String filePath = localArtifactStorage.store(content("hello"));
+
+    assertEquals(flat.toString(), filePath);
+    assertFalse(Files.exists(helloPath()));
+    assertEquals(1L, references.get(HELLO_DIGEST));
+  }
+
+  @Test
+  public void testRelocateMovesFileIntoItsDirectory() throws IOException {
+    Path flat = Files.writeString(tempDir.resolve(HELLO_DIGEST), "hello");
+
+    Path moved = localArtifactStorage.relocate(flat);
+
+    assertEquals(helloPath(), moved);
+    assertEquals("hello", Files.readString(moved));
+    assertFalse(Files.exists(flat));
+    // Moved already
+    assertEquals(moved, localArtifactStorage.relocate(flat));
+  }
+
+  @Test
+  public void testReleaseDeletesFileWithLastReference() throws IOException {
+    String filePath = localArtifactStorage.store(content("hello"));
+    localArtifactStorage.store(content("hello"));
+
+    localArtifactStorage.release(filePath);
+    assertTrue(Files.exists(Paths.get(filePath)));
+
+    localArtifactStorage.release(filePath);
+    assertFalse(Files.exists(Paths.get(filePath)));
+    assertNull(references.get(HELLO_DIGEST));
+  }
+
+  @Test
+  public void testReleaseDeletesFileStoredBeforeDeduplication() throws IOException {
+    Path legacy = Files.writeString(tempDir.resolve("uuid_file.txt"), "legacy");
+
+    localArtifactStorage.release(legacy.toString());
+
+    assertFalse(Files.exists(legacy));
+  }
+
+  @Test
+  public void testOpen() throws IOException {
+    String filePath = localArtifactStorage.store(content("hello"));
+
+    StoredFile storedFile = localArtifactStorage.open(filePath);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    storedFile.writeTo(out, 1, 3);
+
+    assertEquals(5, storedFile.size());
+    assertEquals("ell", out.toString(StandardCharsets.UTF_8));
+    assertNull(localArtifactStorage.open(tempDir.resolve("missing").toString()));
+  }
+
+  @Test
+  public void testReleaseKeepsFileWithoutReferenceCount() throws IOException {
+    Path unknown = Files.writeString(tempDir.resolve(HELLO_DIGEST), "hello");
+
+    localArtifactStorage.release(unknown.toString());
+
+    assertTrue(Files.exists(unknown));
+  }
+
+  private Path helloPath() {
+    return tempDir.resolve("2c").resolve("f2").resolve(HELLO_DIGEST);
+  }
+
+  private static ByteArrayInputStream content(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,141 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.repository.ArtifactBlobRepository;
+import it.unisannio.studenti.qualitag.repository.ArtifactRepository;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HexFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Test class for the LocalLayoutMigrator.
+ */
+public class LocalLayoutMigratorTest {
+
+  @Mock
+  private ArtifactBlobRepository artifactBlobRepository;
+  @Mock
+  private ArtifactRepository artifactRepository;
+  @Mock
+  private ConfigurableApplicationContext context;
+
+  private LocalArtifactStorage localArtifactStorage;
+  private LocalLayoutMigrator migrator;
+
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Set up the test environment.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    localArtifactStorage = new LocalArtifactStorage(artifactBlobRepository);
+    localArtifactStorage.storageDir = tempDir.toString();
+    migrator = new LocalLayoutMigrator(localArtifactStorage, artifactBlobRepository,
+        artifactRepository, context);
+  }
+
+  @Test
+  public void testMigrateMovesFlatFiles() throws IOException {
+    String digest = "ab" + "c".repeat(62);
+    Path flat = Files.writeString(tempDir.resolve(digest), "content");
+    Path target = tempDir.resolve("ab").resolve("cc").resolve(digest);
+    when(artifactRepository.replaceFilePaths(flat.toString(), target.toString())).thenReturn(2L);
+
+    LocalLayoutMigrator.Result result = migrator.migrate();
+
+    assertEquals(1, result.moved());
+    assertEquals(2L, result.artifacts());
+    assertEquals(0, result.failed());
+    assertFalse(Files.exists(flat));
+    assertEquals("content", Files.readString(target));
+    verify(artifactBlobRepository, never()).addReference(anyString(), anyLong());
+  }
+
+  @Test
+  public void testMigrateStoresLegacyFiles() throws IOException {
+    // The storage directory is given relative to the working directory, as by default
+    Path workingDirectory = Path.of(System.getProperty("user.dir"));
+    localArtifactStorage.storageDir = workingDirectory.relativize(tempDir).toString();
+    Path legacy = Files.writeString(tempDir.resolve("uuid_file.txt"), "legacy");
+    String digest = sha256("legacy");
+    Path target = localArtifactStorage.pathFor(digest);
+    String unnormalized = workingDirectory.resolve(localArtifactStorage.storageDir)
+        .resolve("uuid_file.txt").toString();
+    when(artifactRepository.replaceFilePaths(legacy.toString(), target.toString()))
+        .thenReturn(1L);
+    when(artifactRepository.replaceFilePaths(unnormalized, target.toString())).thenReturn(1L);
+
+    LocalLayoutMigrator.Result result = migrator.migrate();
+
+    assertEquals(1, result.moved());
+    assertEquals(2L, result.artifacts());
+    assertEquals(0, result.failed());
+    assertFalse(Files.exists(legacy));
+    assertEquals("legacy", Files.readString(target));
+    // One reference from storing the file, one more for the second artifact
+    verify(artifactBlobRepository, times(2)).addReference(digest, 6);
+  }
+
+  @Test
+  public void testMigrateStoresLegacyFileIntoExistingContent() throws IOException {
+    String digest = sha256("content");
+    Path stored = Files.writeString(tempDir.resolve(digest), "content");
+    Path legacy = Files.writeString(tempDir.resolve("uuid_copy.txt"), "content");
+    Path target = localArtifactStorage.pathFor(digest);
+    when(artifactRepository.replaceFilePaths(legacy.toString(), target.toString()))
+        .thenReturn(1L);
+
+    LocalLayoutMigrator.Result result = migrator.migrate();
+
+    // The file named after its digest is moved first, so the legacy copy is dropped
+    assertEquals(2, result.moved());
+    assertFalse(Files.exists(stored));
+    assertFalse(Files.exists(legacy));
+    assertEquals("content", Files.readString(target));
+    verify(artifactBlobRepository, times(1)).addReference(digest, 7);
+  }
+
+  @Test
+  public void testMigrateKeepsFileWhenArtifactsCannotBeUpdated() throws IOException {
+    String digest = "d".repeat(64);
+    Path flat = Files.writeString(tempDir.resolve(digest), "content");
+    Path legacy = Files.writeString(tempDir.resolve("uuid_file.txt"), "legacy");
+    when(artifactRepository.replaceFilePaths(anyString(), anyString()))
+        .thenThrow(new IllegalStateException("Database down."));
+
+    LocalLayoutMigrator.Result result = migrator.migrate();
+
+    assertEquals(0, result.moved());
+    assertEquals(2, result.failed());
+    assertTrue(Files.exists(flat));
+    assertTrue(Files.exists(legacy));
+  }
+
+  // UTILITY METHODS
+
+  private static String sha256(String content) {
+    return HexFormat.of().formatHex(LocalArtifactStorage.newDigest()
+        .digest(content.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,210 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import it.unisannio.studenti.qualitag.model.Artifact;
+import it.unisannio.studenti.qualitag.model.ArtifactBlob;
+import it.unisannio.studenti.qualitag.repository.ArtifactBlobRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Test class for the OrphanFileCollector.
+ */
+public class OrphanFileCollectorTest {
+
+  private static final long HOUR = 60 * 60 * 1000;
+
+  @Mock
+  private ArtifactStorage artifactStorage;
+  @Mock
+  private ArtifactBlobRepository artifactBlobRepository;
+  @Mock
+  private MongoTemplate mongoTemplate;
+
+  private OrphanFileCollector orphanFileCollector;
+
+  // The locations artifacts point at
+  private final Set<String> referenced = new HashSet<>();
+
+  @TempDir
+  private Path tempDir;
+
+  /**
+   * Set up the test environment, with the artifacts looked up in a set of locations.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    LocalArtifactStorage localArtifactStorage = new LocalArtifactStorage(artifactBlobRepository);
+    localArtifactStorage.storageDir = tempDir.toString();
+    orphanFileCollector =
+        new OrphanFileCollector(artifactStorage, localArtifactStorage, mongoTemplate);
+    orphanFileCollector.batchSize = 2;
+    orphanFileCollector.batchPauseMs = 0;
+    orphanFileCollector.start();
+
+    when(mongoTemplate.getCollectionName(Artifact.class)).thenReturn("artifact");
+    when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("artifact")))
+        .thenAnswer(invocation -> {
+          Query query = invocation.getArgument(0);
+          List<Document> artifacts = new ArrayList<>();
+          for (Object location : query.getQueryObject().get("filePath", Document.class)
+              .getList("$in", Object.class)) {
+            // The files are looked up by path, or by name with a pattern
+            for (String filePath : referenced) {
+              if (location instanceof Pattern pattern ? pattern.matcher(filePath).find()
+                  : filePath.equals(location)) {
+                artifacts.add(new Document("filePath", filePath));
+              }
+            }
+          }
+          return artifacts;
+        });
+    when(artifactBlobRepository.findById(any())).thenReturn(Optional.empty());
+  }
+
+  /**
+   * Stops the collector thread.
+   */
+  @AfterEach
+  public void tearDown() {
+    orphanFileCollector.stop();
+  }
+
+  @Test
+  public void testSweepQuarantinesOldOrphans() throws IOException {
+    Path kept = file("a".repeat(64), 2 * HOUR);
+    referenced.add(kept.toString());
+    Path orphan = file("b".repeat(64), 2 * HOUR);
+    ArtifactBlob leaked = new ArtifactBlob();
+    leaked.setKey("b".repeat(64));
+    leaked.setRefCount(1);
+    leaked.setLastReferencedAt(System.currentTimeMillis() - 2 * HOUR);
+    when(artifactBlobRepository.findById("b".repeat(64))).thenReturn(Optional.of(leaked));
+    Path legacy = file("uuid_old.txt", 2 * HOUR);
+    Path recent = file("c".repeat(64), 0);
+    Files.createDirectories(tempDir.resolve(LocalArtifactStorage.TEMP_DIRECTORY));
+    Path staleTemp = file(LocalArtifactStorage.TEMP_DIRECTORY + "/upload-1.tmp", 2 * HOUR);
+    Files.createDirectories(tempDir.resolve("ee/ee"));
+    Path sharded = file("ee/ee/" + "e".repeat(64), 2 * HOUR);
+    Files.createDirectories(tempDir.resolve("uploads"));
+    Path upload = file("uploads/upload-1.part", 2 * HOUR);
+
+    OrphanFileCollector.SweepReport report = orphanFileCollector.sweep();
+
+    assertEquals(5, report.scanned());
+    assertEquals(1, report.referenced());
+    assertEquals(1, report.recent());
+    assertEquals(4, report.removed());
+    assertEquals(0, report.failed());
+    assertTrue(Files.exists(kept));
+    assertTrue(Files.exists(recent));
+    assertTrue(Files.exists(upload));
+    assertFalse(Files.exists(orphan));
+    assertFalse(Files.exists(legacy));
+    assertFalse(Files.exists(staleTemp));
+    assertFalse(Files.exists(sharded));
+    Path quarantine = tempDir.resolve(OrphanFileCollector.QUARANTINE_DIRECTORY);
+    assertTrue(Files.exists(quarantine.resolve(orphan.getFileName())));
+    assertTrue(Files.exists(quarantine.resolve(legacy.getFileName())));
+    assertTrue(Files.exists(quarantine.resolve(sharded.getFileName())));
+
+    // Two batches of the storage directory and one of the directory of a digest, each looked up
+    // by path, then by name for the files not found
+    verify(mongoTemplate, times(6)).find(any(Query.class), eq(Document.class), eq("artifact"));
+    verify(artifactBlobRepository).deleteById("b".repeat(64));
+    assertEquals(4L, orphanFileCollector.getStatus().get("removedOrphans"));
+  }
+
+  @Test
+  public void testSweepKeepsLegacyPaths() throws IOException {
+    // Artifacts stored before the paths were normalized point at their files through ".."
+    Path legacy = file("uuid_old.txt", 2 * HOUR);
+    String legacyPath = tempDir.resolve("uploads").resolve("..").resolve("uuid_old.txt")
+        .toString();
+    referenced.add(legacyPath);
+    Path orphan = file("uuid_orphan.txt", 2 * HOUR);
+
+    OrphanFileCollector.SweepReport report = orphanFileCollector.sweep();
+
+    assertEquals(1, report.referenced());
+    assertEquals(1, report.removed());
+    assertTrue(Files.exists(legacy));
+    assertFalse(Files.exists(orphan));
+    ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+    verify(mongoTemplate).updateMulti(any(Query.class), update.capture(), eq(Artifact.class));
+    assertEquals(new Document("filePath", legacy.toString()),
+        update.getValue().getUpdateObject().get("$set"));
+  }
+
+  @Test
+  public void testSweepKeepsContentReferencedRecently() throws IOException {
+    // An upload of the same content may be about to point at the file
+    Path orphan = file("d".repeat(64), 2 * HOUR);
+    ArtifactBlob blob = new ArtifactBlob();
+    blob.setKey("d".repeat(64));
+    blob.setRefCount(1);
+    blob.setLastReferencedAt(System.currentTimeMillis());
+    when(artifactBlobRepository.findById("d".repeat(64))).thenReturn(Optional.of(blob));
+    orphanFileCollector.quarantine = false;
+
+    OrphanFileCollector.SweepReport report = orphanFileCollector.sweep();
+
+    assertEquals(1, report.recent());
+    assertEquals(0, report.removed());
+    assertTrue(Files.exists(orphan));
+  }
+
+  @Test
+  public void testReleaseLater() throws IOException, InterruptedException {
+    doThrow(new IOException("Busy.")).when(artifactStorage).release("broken");
+
+    orphanFileCollector.releaseLater("location");
+    orphanFileCollector.releaseLater("broken");
+
+    verify(artifactStorage, timeout(1000)).release("location");
+    verify(artifactStorage, timeout(1000)).release("broken");
+    for (int i = 0; i < 100 && (int) orphanFileCollector.getStatus().get("pendingReleases") > 0;
+        i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, orphanFileCollector.getStatus().get("pendingReleases"));
+    assertEquals(1L, orphanFileCollector.getStatus().get("failedReleases"));
+  }
+
+  private Path file(String name, long age) throws IOException {
+    Path file = Files.writeString(tempDir.resolve(name), name);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - age));
+    return file;
+  }
+}
@@ -0,0 +1,94 @@
+package it.unisannio.studenti.qualitag.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * Test class for the RoutingArtifactStorage.
+ */
+public class RoutingArtifactStorageTest {
+
+  private static final String LOCAL_LOCATION = "/artifacts/" + "0".repeat(64);
+  private static final String GRIDFS_LOCATION = "gridfs:0123456789abcdef01234567";
+
+  @Mock
+  private LocalArtifactStorage localArtifactStorage;
+  @Mock
+  private GridFsArtifactStorage gridFsArtifactStorage;
+  @Mock
+  private StoredFile storedFile;
+
+  /**
+   * Set up the test environment.
+   */
+  @BeforeEach
+  public void setUp() {
+    MockitoAnnotations.openMocks(this);
+
+    when(gridFsArtifactStorage.owns(anyString()))
+        .thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("gridfs:"));
+    when(localArtifactStorage.owns(anyString())).thenReturn(true);
+  }
+
+  /**
+   * Tests that new files go to the selected storage.
+   */
+  @Test
+  public void testStoreUsesSelectedBackend() throws IOException {
+    // Arrange
+    InputStream content = new ByteArrayInputStream(new byte[]{1});
+    when(gridFsArtifactStorage.store(content)).thenReturn(GRIDFS_LOCATION);
+    RoutingArtifactStorage storage =
+        new RoutingArtifactStorage(localArtifactStorage, gridFsArtifactStorage, "gridfs");
+
+    // Act
+    String location = storage.store(content);
+
+    // Assert
+    assertEquals(GRIDFS_LOCATION, location);
+    verify(localArtifactStorage, never()).store(any());
+  }
+
+  /**
+   * Tests that files are opened and released through the storage holding them.
+   */
+  @Test
+  public void testOpenAndReleaseUseOwningBackend() throws IOException {
+    // Arrange
+    when(localArtifactStorage.open(LOCAL_LOCATION)).thenReturn(storedFile);
+    RoutingArtifactStorage storage =
+        new RoutingArtifactStorage(localArtifactStorage, gridFsArtifactStorage, "gridfs");
+
+    // Act
+    StoredFile file = storage.open(LOCAL_LOCATION);
+    storage.release(GRIDFS_LOCATION);
+
+    // Assert
+    assertSame(storedFile, file);
+    verify(gridFsArtifactStorage).release(GRIDFS_LOCATION);
+    verify(localArtifactStorage, never()).release(anyString());
+  }
+
+  /**
+   * Tests that an unknown storage is rejected.
+   */
+  @Test
+  public void testUnknownBackend() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new RoutingArtifactStorage(localArtifactStorage, gridFsArtifactStorage, "s3"));
+  }
+}
@@ -0,0 +1,109 @@
+"""
+  Benchmark of the tag grouping: the previous implementation, which encodes
+  the members of every group again for every tag and compares them one pair
+  at a time, against the current one, which encodes each tag once and keeps a
+  running sum per group.
+
+  Usage (from the qualitag_python directory):
+    python -m benchmarks.tag_grouping [--sizes 10 100 1000] [--repeat 3]
+
+  The previous implementation makes O(n^2) model calls, so its run on 1,000
+  tags takes a long time; --legacy-max-size skips it above a size.
+"""
+import argparse
+import random
+import time
+
+from sentence_transformers import util
+
+from my_functions.similarity import (group_tags_by_average_similarity, model,
+                                     preprocess_text)
+
+WORDS = [
+    "bug", "crash", "slow", "database", "query", "login", "password", "ui",
+    "button", "layout", "memory", "leak", "network", "timeout", "cache",
+    "security", "token", "api", "error", "exception", "test", "flaky",
+    "performance", "refactor", "documentation", "typo", "build", "deploy",
+    "config", "logging", "thread", "deadlock", "parser", "encoding", "upload",
+    "download", "search", "index", "sort", "filter"
+]
+
+
+def legacy_group_tags(tags: list[str], threshold: float = 0.7):
+  """
+    The grouping as it was before, kept here for the comparison.
+  """
+  grouped_tags = []
+  embeddings = [(tag, model.encode(preprocess_text(tag),
+                                   convert_to_tensor=True)) for tag in tags]
+
+  def average_similarity(new_emb, group_embs) -> float:
+    sims = [util.cos_sim(new_emb, emb).item() for emb in group_embs]
+    return sum(sims) / len(sims) if sims else 0.0
+
+  for tag, emb in embeddings:
+    added = False
+    for group in grouped_tags:
+      group_embs = [
+          model.encode(preprocess_text(t), convert_to_tensor=True)
+          for t in group
+      ]
+      if average_similarity(emb, group_embs) >= threshold:
+        group.append(tag)
+        added = True
+        break
+    if not added:
+      grouped_tags.append([tag])
+
+  return grouped_tags
+
+
+def make_tags(count: int, seed: int = 42) -> list[str]:
+  """
+    Generate distinct tags of one to three words, the same for a given seed.
+  """
+  rng = random.Random(seed)
+  tags = set()
+  while len(tags) < count:
+    tags.add(" ".join(rng.sample(WORDS, rng.randint(1, 3))))
+  return sorted(tags)
+
+
+def best_time(function, tags: list[str], repeat: int) -> float:
+  """
+    Run a grouping function and return the best time, in seconds.
+  """
+  times = []
+  for _ in range(repeat):
+    start = time.perf_counter()
+    function(tags)
+    times.append(time.perf_counter() - start)
+  return min(times)
+
+
+def main():
+  parser = argparse.ArgumentParser(description=__doc__)
+  parser.add_argument("--sizes", type=int, nargs="+", default=[10, 100, 1000])
+  parser.add_argument("--repeat", type=int, default=3)
+  parser.add_argument("--legacy-max-size", type=int, default=None)
+  args = parser.parse_args()
+
+  # Warm up the model, so the first run does not pay for it
+  model.encode(["warm up"])
+
+  print(f"{'tags':>6} {'previous (s)':>14} {'current (s)':>12} {'speedup':>9}")
+  for size in args.sizes:
+    tags = make_tags(size)
+    current = best_time(group_tags_by_average_similarity, tags, args.repeat)
+    if args.legacy_max_size is not None and size > args.legacy_max_size:
+      print(f"{size:>6} {'skipped':>14} {current:>12.4f} {'-':>9}")
+      continue
+
+    previous = best_time(legacy_group_tags, tags, 1)
+    same = legacy_group_tags(tags) == group_tags_by_average_similarity(tags)
+    print(f"{size:>6} {previous:>14.4f} {current:>12.4f} "
+          f"{previous / current:>8.1f}x" + ("" if same else "  (groups differ)"))
+
+
+if __name__ == "__main__":
+  main()
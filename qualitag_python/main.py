@@ -10,7 +10,15 @@ Functions:
 
 Routes:
   /api/krippendorff (POST): Accepts JSON payload, computes 
-    Krippendorff's Alpha, and returns the result.
+    Krippendorff's Alpha, and returns the result. The payload is either the
+    nested lists of tags, as application/json, or the dictionary-encoded
+    tags, as application/vnd.qualitag.coded-ratings.
+  /api/process-tags (POST): Accepts a JSON list of tags and returns the
+    reduced list of tags.
+  /api/consolidate-tags (POST): Accepts a JSON list of tags and returns the
+    tag each one is consolidated into.
+  /api/embedding-cache (GET): Returns the hit and miss counters of the
+    cache of tag embeddings.
 
 Usage:
   Run this module to start the Flask web application. 
@@ -24,6 +32,9 @@ from flask import Flask, request, jsonify
 
 app = Flask(__name__)
 
+# The media type of the dictionary-encoded ratings, sent as JSON
+CODED_RATINGS = "application/vnd.qualitag.coded-ratings"
+
 
 @app.route("/api/process", methods=["GET"])
 def process_data():
@@ -36,7 +47,10 @@ def process_data():
 @app.route("/api/krippendorff", methods=["POST"])
 def krippendorff_compute():
   try:
-    received = request.json  # Directly access the JSON payload
+    if request.mimetype == CODED_RATINGS:
+      received = mf.decode_ratings(request.get_json(force=True))
+    else:
+      received = request.json  # Directly access the JSON payload
     print("Data received:", received)
 
     alpha_value = mf.calculate_krippendorff_alpha(received)
@@ -74,6 +88,29 @@ def process_tags():
     return jsonify(error=f"Value error: {str(e)}"), 400
 
 
+@app.route("/api/consolidate-tags", methods=["POST"])
+def consolidate_tags():
+  try:
+    received = request.json  # Directly access the JSON payload
+    if not isinstance(received, list) or not all(
+        isinstance(tag, str) for tag in received):
+      return jsonify(error="A list of tags is expected."), 400
+
+    result = mf.consolidate_tags(received, threshold=0.7)
+    return jsonify(result=result)
+  except KeyError as e:
+    return jsonify(error=f"Key error: {str(e)}"), 400
+  except TypeError as e:
+    return jsonify(error=f"Type error: {str(e)}"), 400
+  except ValueError as e:
+    return jsonify(error=f"Value error: {str(e)}"), 400
+
+
+@app.route("/api/embedding-cache", methods=["GET"])
+def embedding_cache_stats():
+  return jsonify(mf.embedding_cache.stats())
+
+
 if __name__ == "__main__":
   host = os.getenv("FLASK_RUN_HOST", "localhost")
   app.run(host=host, port=5000)
@@ -6,10 +6,10 @@ __author__ = "Mattia Marino"
 __version__ = "0.1.0"
 __license__ = "GPL-3.0"
 
-from .krippendorff_functions import calculate_krippendorff_alpha
+from .krippendorff_functions import calculate_krippendorff_alpha, decode_ratings
 
-from .similarity import are_tags_close, suggest_common_tag
+from .similarity import are_tags_close, embedding_cache, suggest_common_tag
 
 from .text_preprocessing import preprocess_text
 
-from .utils import reduce_similar_tags
+from .utils import consolidate_tags, reduce_similar_tags
@@ -0,0 +1,257 @@
+"""
+  A cache of the embeddings of preprocessed tags, so the tags seen before
+  skip the model.
+
+  The cache keeps up to a given number of embeddings and evicts the least
+  recently used one when it is full. With a directory, the embeddings are
+  kept in a memory-mapped file and the tags in an append-only log next to
+  it, compacted when it grows past a few times the capacity, so the cache
+  survives restarts; without one, it lives in memory only.
+"""
+import json
+import os
+import threading
+from collections import OrderedDict
+
+import numpy as np
+
+VECTORS_FILE = "vectors.npy"
+KEYS_FILE = "keys.log"
+# The whole table of keys, as written before the log
+LEGACY_KEYS_FILE = "keys.json"
+# The log is compacted once it holds this many entries per slot
+COMPACTION_FACTOR = 2
+
+
+class EmbeddingCache:
+  """
+    A least recently used cache from preprocessed text to its normalized
+    embedding, with hit and miss counters.
+
+    Args:
+      dimension (int): The size of the embeddings.
+      capacity (int): The maximum number of embeddings kept.
+      directory (str): Where to keep the embeddings, None to keep them in
+        memory only.
+      model_name (str): The model the embeddings come from; the embeddings
+        stored for another model are discarded.
+  """
+
+  def __init__(self,
+               dimension: int,
+               capacity: int = 50000,
+               directory: str | None = None,
+               model_name: str = ""):
+    if capacity < 1:
+      raise ValueError("The capacity of the cache must be positive.")
+
+    self.dimension = dimension
+    self.capacity = capacity
+    self.directory = directory
+    self.model_name = model_name
+
+    self.hits = 0
+    self.misses = 0
+    self.evictions = 0
+
+    # The slot of the vectors of each text, least recently used first
+    self._slots: OrderedDict[str, int] = OrderedDict()
+    self._free = list(range(capacity - 1, -1, -1))
+    self._lock = threading.Lock()
+    self._log = None
+    self._log_entries = 0
+
+    if directory is None:
+      self._vectors = np.zeros((capacity, dimension), dtype=np.float32)
+    else:
+      os.makedirs(directory, exist_ok=True)
+      self._vectors, existing = self._open_vectors()
+      if existing:
+        self._load_keys()
+      self._compact()
+
+  def get_many(self, texts: list[str], encode) -> np.ndarray:
+    """
+      Return the embeddings of distinct texts, encoding only the ones not
+      in the cache, in a single call.
+
+      Args:
+        texts (list[str]): Distinct preprocessed texts.
+        encode (callable): Encodes a list of texts into an array of
+          normalized embeddings, one per row.
+
+      Returns:
+        numpy.ndarray: One embedding per text, in order.
+    """
+    result = np.empty((len(texts), self.dimension), dtype=np.float32)
+
+    with self._lock:
+      missing = []
+      for row, text in enumerate(texts):
+        slot = self._slots.get(text)
+        if slot is None:
+          missing.append(row)
+        else:
+          self._slots.move_to_end(text)
+          result[row] = self._vectors[slot]
+      self.hits += len(texts) - len(missing)
+      self.misses += len(missing)
+
+    if not missing:
+      return result
+
+    # The model runs outside the lock, the other requests keep hitting
+    vectors = np.asarray(encode([texts[row] for row in missing]),
+                         dtype=np.float32)
+    result[missing] = vectors
+
+    with self._lock:
+      added = {}
+      evicted = []
+      for row in missing:
+        text = texts[row]
+        if text in self._slots:
+          # Encoded by another request meanwhile
+          self._slots.move_to_end(text)
+          continue
+        if not self._free:
+          self._free.append(self._slots.popitem(last=False)[1])
+          self.evictions += 1
+          evicted.append(self._free[-1])
+        added[text] = self._free.pop()
+        self._slots[text] = added[text]
+
+      # A reused slot is forgotten on disk before it is overwritten
+      self._append_keys([None, slot] for slot in evicted)
+      for row in missing:
+        slot = added.get(texts[row])
+        if slot is not None:
+          self._vectors[slot] = result[row]
+      self._flush(added)
+
+    return result
+
+  def stats(self) -> dict:
+    """
+      Return the counters of the cache, to size it.
+    """
+    with self._lock:
+      lookups = self.hits + self.misses
+      return {
+          "hits": self.hits,
+          "misses": self.misses,
+          "evictions": self.evictions,
+          "hit_rate": self.hits / lookups if lookups else 0.0,
+          "size": len(self._slots),
+          "capacity": self.capacity,
+          "persistent": self.directory is not None,
+      }
+
+  def _open_vectors(self) -> tuple[np.ndarray, bool]:
+    path = os.path.join(self.directory, VECTORS_FILE)
+    shape = (self.capacity, self.dimension)
+    if os.path.exists(path):
+      vectors = np.load(path, mmap_mode="r+")
+      if vectors.shape == shape and vectors.dtype == np.float32:
+        return vectors, True
+      print(f"Discarding the embedding cache in {self.directory}: "
+            f"it holds {vectors.shape}, {shape} expected.")
+      del vectors
+    return np.lib.format.open_memmap(path,
+                                     mode="w+",
+                                     dtype=np.float32,
+                                     shape=shape), False
+
+  def _load_keys(self):
+    path = os.path.join(self.directory, KEYS_FILE)
+    legacy = os.path.join(self.directory, LEGACY_KEYS_FILE)
+    try:
+      if os.path.exists(path):
+        header, entries = self._read_log(path)
+      else:
+        with open(legacy, encoding="utf-8") as file:
+          stored = json.load(file)
+        header, entries = stored, stored.get("slots", [])
+    except FileNotFoundError:
+      return
+    except (OSError, ValueError) as e:
+      print(f"Discarding the embedding cache keys in {self.directory}: {e}")
+      return
+
+    if (header.get("model") != self.model_name or
+        header.get("dimension") != self.dimension):
+      return
+
+    # The last entry of a slot wins, a null text frees the slot
+    texts = {}
+    for text, slot in entries:
+      if isinstance(slot, int) and 0 <= slot < self.capacity:
+        texts.pop(slot, None)
+        texts[slot] = text
+    for slot, text in texts.items():
+      if text is not None:
+        self._slots.pop(text, None)
+        self._slots[text] = slot
+    used = set(self._slots.values())
+    self._free = [slot for slot in self._free if slot not in used]
+
+  @staticmethod
+  def _read_log(path) -> tuple[dict, list]:
+    with open(path, encoding="utf-8") as file:
+      header = json.loads(file.readline() or "{}")
+      entries = []
+      for line in file:
+        try:
+          entries.append(json.loads(line))
+        except ValueError:
+          # A line torn by a crash ends the log
+          break
+    return header, entries
+
+  def _flush(self, added):
+    if self.directory is None:
+      return
+
+    # The vectors are written before the keys that point at them
+    self._vectors.flush()
+    self._append_keys([text, slot] for text, slot in added.items())
+    if self._log_entries > COMPACTION_FACTOR * self.capacity:
+      self._compact()
+
+  def _append_keys(self, entries):
+    if self._log is None:
+      return
+
+    lines = [json.dumps(entry) + "\n" for entry in entries]
+    if lines:
+      self._log.writelines(lines)
+      self._log.flush()
+      self._log_entries += len(lines)
+
+  def _compact(self):
+    """
+      Rewrite the log with only the current keys, least recently used
+      first, and keep appending to it.
+    """
+    if self._log is not None:
+      self._log.close()
+
+    path = os.path.join(self.directory, KEYS_FILE)
+    temporary = path + ".tmp"
+    with open(temporary, "w", encoding="utf-8") as file:
+      file.write(
+          json.dumps({
+              "model": self.model_name,
+              "dimension": self.dimension
+          }) + "\n")
+      file.writelines(
+          json.dumps([text, slot]) + "\n"
+          for text, slot in self._slots.items())
+    os.replace(temporary, path)
+
+    legacy = os.path.join(self.directory, LEGACY_KEYS_FILE)
+    if os.path.exists(legacy):
+      os.remove(legacy)
+
+    self._log = open(path, "a", encoding="utf-8")
+    self._log_entries = len(self._slots)
@@ -46,6 +46,45 @@ def check_data(data):
   return False
 
 
+def decode_ratings(payload):
+  """
+    Decode the dictionary-encoded ratings into the nested lists of tags,
+    one list per item and annotator.
+
+    The payload has the distinct tags in "vocabulary", and the indexes of
+    the tags in "codes": the tags of the annotator j on the item i go from
+    offsets[i * annotators + j] to offsets[i * annotators + j + 1].
+
+    Raises:
+      KeyError: If a field is missing.
+      ValueError: If the offsets or the codes do not fit together.
+  """
+  vocabulary = payload["vocabulary"]
+  annotators = payload["annotators"]
+  offsets = payload["offsets"]
+  codes = payload["codes"]
+
+  cells = len(offsets) - 1
+  if cells < 0 or (annotators < 1 and cells > 0):
+    raise ValueError("The offsets do not match the annotators.")
+  if cells > 0 and cells % annotators != 0:
+    raise ValueError("The offsets do not match the annotators.")
+  if offsets[0] != 0 or offsets[-1] != len(codes):
+    raise ValueError("The offsets do not cover the codes.")
+  if any(start > end for start, end in zip(offsets, offsets[1:])):
+    raise ValueError("The offsets are not in order.")
+  if any(code < 0 or code >= len(vocabulary) for code in codes):
+    raise ValueError("A code is not in the vocabulary.")
+
+  tags = [[vocabulary[code]
+           for code in codes[offsets[cell]:offsets[cell + 1]]]
+          for cell in range(cells)]
+  return [
+      tags[start:start + annotators]
+      for start in range(0, cells, max(annotators, 1))
+  ]
+
+
 def calculate_krippendorff_alpha(data):
   """
     Calculate Krippendorff's Alpha for the given data
@@ -1,11 +1,23 @@
 """
   This module provides functions to check the similarity between tags.
 """
+import os
+
+import numpy as np
 from sentence_transformers import SentenceTransformer, util
+from .embedding_cache import EmbeddingCache
 from .text_preprocessing import preprocess_text
 
 # Load a pre-trained model (this model balances speed and accuracy)
-model = SentenceTransformer("all-MiniLM-L6-v2")
+MODEL_NAME = "all-MiniLM-L6-v2"
+model = SentenceTransformer(MODEL_NAME)
+
+# The embeddings of the tags seen before, kept on disk when a directory is set
+embedding_cache = EmbeddingCache(
+    model.get_sentence_embedding_dimension(),
+    capacity=int(os.getenv("EMBEDDING_CACHE_SIZE", "50000")),
+    directory=os.getenv("EMBEDDING_CACHE_DIR"),
+    model_name=MODEL_NAME)
 
 
 # TODO: Modify to get list of tags as tag 1 and compute with average embedding
@@ -26,56 +38,112 @@ def are_tags_close(tag1: str, tag2: str, threshold: float = 0.7) -> bool:
   return similarity.item() > threshold
 
 
-# ...existing code...
+def encode_tags(tags: list[str]):
+  """
+    Encode tags after preprocessing them. The distinct preprocessed tags
+    are looked up in the embedding cache, and the model runs once on the
+    ones not found.
+
+    Args:
+      tags (list[str]): Input tags.
+
+    Returns:
+      numpy.ndarray: One L2-normalized embedding per input tag, in order.
+  """
+  processed = [preprocess_text(tag) for tag in tags]
+  distinct = list(dict.fromkeys(processed))
+  if not distinct:
+    return np.zeros((0, model.get_sentence_embedding_dimension()),
+                    dtype=np.float32)
+
+  vectors = embedding_cache.get_many(
+      distinct, lambda texts: model.encode(
+          texts, convert_to_numpy=True, normalize_embeddings=True))
+  rows = {text: row for row, text in enumerate(distinct)}
+  return vectors[[rows[text] for text in processed]]
+
+
+def group_tag_indices(embeddings, threshold: float = 0.7) -> list[list[int]]:
+  """
+    Group normalized embeddings by the average similarity of each one
+    against all the members of a group, in order: an embedding joins the
+    first group it is close enough to, or starts a new one.
+
+    The average cosine similarity against a group equals the dot product
+    with the sum of the group members divided by their count, so a running
+    sum per group replaces comparing every pair.
+
+    Args:
+      embeddings (numpy.ndarray): L2-normalized embeddings, one per row.
+      threshold (float): Minimum average similarity to join a group.
+
+    Returns:
+      list[list[int]]: The rows of each group.
+  """
+  count, dimension = embeddings.shape
+  sums = np.zeros((count, dimension), dtype=np.float64)
+  sizes = np.zeros(count, dtype=np.float64)
+  groups: list[list[int]] = []
+
+  for row in range(count):
+    embedding = embeddings[row]
+    if groups:
+      averages = sums[:len(groups)] @ embedding / sizes[:len(groups)]
+      matches = np.flatnonzero(averages >= threshold)
+      if matches.size:
+        group = int(matches[0])
+        groups[group].append(row)
+        sums[group] += embedding
+        sizes[group] += 1
+        continue
+
+    sums[len(groups)] = embedding
+    sizes[len(groups)] = 1
+    groups.append([row])
+
+  return groups
 
 
 def group_tags_by_average_similarity(tags: list[str],
-                                     threshold: float = 0.7) -> list[list[str]]:
+                                     threshold: float = 0.7,
+                                     embeddings=None) -> list[list[str]]:
   """
     Groups tags by checking the average similarity of a new tag
     against all tags in the group.
-    """
-  grouped_tags = []
-  embeddings = [(tag, model.encode(preprocess_text(tag),
-                                   convert_to_tensor=True)) for tag in tags]
-
-  def average_similarity(new_emb, group_embs) -> float:
-    sims = [util.cos_sim(new_emb, emb).item() for emb in group_embs]
-    return sum(sims) / len(sims) if sims else 0.0
-
-  for tag, emb in embeddings:
-    added = False
-    for group in grouped_tags:
-      group_embs = [
-          model.encode(preprocess_text(t), convert_to_tensor=True)
-          for t in group
-      ]
-      if average_similarity(emb, group_embs) >= threshold:
-        group.append(tag)
-        added = True
-        break
-    if not added:
-      grouped_tags.append([tag])
-
-  return grouped_tags
-
-
-def suggest_common_tag(tags: list[str]) -> str:
+
+    Args:
+      tags (list[str]): Input tags.
+      threshold (float): Minimum average similarity to join a group.
+      embeddings (numpy.ndarray): The embeddings of the tags, as returned
+        by encode_tags, to avoid encoding them again.
+
+    Returns:
+      list[list[str]]: The groups of tags.
+  """
+  if embeddings is None:
+    embeddings = encode_tags(tags)
+  groups = group_tag_indices(embeddings, threshold)
+  return [[tags[row] for row in group] for group in groups]
+
+
+def suggest_common_tag(tags: list[str], embeddings=None) -> str:
   """
     Suggest a common tag that could represent all input tags, 
-    preferring shorter tags.
+    preferring shorter tags. The embeddings of the tags, as returned by
+    encode_tags, can be given to avoid encoding them again.
   """
   if not tags:
     return "No tags provided"
 
   print(f"\nReceived tags: {tags}")
 
-  processed_tags = [preprocess_text(tag) for tag in tags]
-  embeddings = model.encode(processed_tags, convert_to_tensor=True)
-  avg_embedding = sum(embeddings) / len(embeddings)
+  if embeddings is None:
+    embeddings = encode_tags(tags)
+  avg_embedding = embeddings.mean(axis=0)
 
   # Finding the closest tag to the average embedding
-  similarities = util.cos_sim(avg_embedding, embeddings).squeeze().tolist()
+  similarities = (embeddings @ avg_embedding /
+                  np.linalg.norm(avg_embedding)).tolist()
 
   # Adjust similarities based on tag length
   # Shorter tags are preferred by reducing their similarity score less
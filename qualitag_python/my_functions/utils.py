@@ -1,31 +1,45 @@
 """
   Utility functions for tag processing and text similarity.
 """
-from .similarity import group_tags_by_average_similarity, suggest_common_tag
+from .similarity import encode_tags, group_tag_indices, suggest_common_tag
 from .text_preprocessing import preprocess_text
 
 
-def reduce_similar_tags(tags: list[str], threshold: float = 0.7) -> list[str]:
+def consolidate_tags(tags: list[str], threshold: float = 0.7) -> dict[str, str]:
   """
-    Given a list of tags, return a reduced list where similar tags are grouped 
-    into one suggested common tag. The similarity threshold can be adjusted.
+    Given a list of tags, return the tag each one is consolidated into:
+    similar tags are grouped and mapped to the suggested common tag of
+    their group, the others to themselves once preprocessed.
   """
   if not tags:
-    return []
+    return {}
 
   # Process and deduplicate input tags
-  processed_tags = sorted(list(set(preprocess_text(tag) for tag in tags)))
+  processed = {tag: preprocess_text(tag) for tag in tags}
+  processed_tags = sorted(set(processed.values()))
   print(f"Processed tags: {processed_tags}")
 
-  grouped_tags = group_tags_by_average_similarity(processed_tags, threshold)
+  # Encode every tag once, for both the grouping and the suggestions
+  embeddings = encode_tags(processed_tags)
+  groups = group_tag_indices(embeddings, threshold)
+  grouped_tags = [[processed_tags[row] for row in group] for group in groups]
   print(f"\n\nGrouped tags: {grouped_tags}\n\n")
 
-  reduced_tags = []
-  for group in grouped_tags:
+  common_tags = {}
+  for group, tags_in_group in zip(groups, grouped_tags):
     if len(group) == 1:
-      reduced_tags.append(group[0])
+      common_tag = tags_in_group[0]
     else:
-      common_tag = suggest_common_tag(group)
-      reduced_tags.append(common_tag)
+      common_tag = suggest_common_tag(tags_in_group, embeddings[group])
+    for tag in tags_in_group:
+      common_tags[tag] = common_tag
+
+  return {tag: common_tags[value] for tag, value in processed.items()}
+
 
-  return sorted(list(set(reduced_tags)))
+def reduce_similar_tags(tags: list[str], threshold: float = 0.7) -> list[str]:
+  """
+    Given a list of tags, return a reduced list where similar tags are grouped 
+    into one suggested common tag. The similarity threshold can be adjusted.
+  """
+  return sorted(set(consolidate_tags(tags, threshold).values()))
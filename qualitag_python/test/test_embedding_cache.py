@@ -0,0 +1,161 @@
+"""
+  This module contains unit tests for the cache of tag embeddings.
+
+  Tests included:
+  - `test_get_many_counts`: Tests that only the texts not in the cache are
+      encoded, and that hits and misses are counted.
+  - `test_least_recently_used_evicted`: Tests that the least recently used
+      embedding is evicted when the cache is full.
+  - `test_persistent`: Tests that the embeddings stored in a directory
+      are found again by a new cache.
+  - `test_persistent_other_model`: Tests that the embeddings stored for
+      another model are discarded.
+  - `test_persistent_log_compacted`: Tests that the log of keys is
+      compacted once it grows past the capacity, and still read back.
+  - `test_persistent_dropped_slot`: Tests that a slot dropped in the log
+      is not found again, and that a torn last line is ignored.
+  - `test_persistent_legacy_keys`: Tests that the keys stored in a single
+      JSON file are read back and moved to the log.
+"""
+
+import json
+import os
+
+import numpy as np
+from my_functions.embedding_cache import EmbeddingCache
+
+
+class FakeEncoder:
+  """
+    Encodes a text into a vector made of its length, counting the calls.
+  """
+
+  def __init__(self):
+    self.calls = []
+
+  def __call__(self, texts):
+    self.calls.append(list(texts))
+    return np.array([[len(text), 1.0] for text in texts], dtype=np.float32)
+
+
+def test_get_many_counts():
+  cache = EmbeddingCache(2, capacity=10)
+  encode = FakeEncoder()
+
+  first = cache.get_many(["a", "bb"], encode)
+  second = cache.get_many(["bb", "ccc", "a"], encode)
+
+  assert encode.calls == [["a", "bb"], ["ccc"]]
+  assert first.tolist() == [[1, 1], [2, 1]]
+  assert second.tolist() == [[2, 1], [3, 1], [1, 1]]
+  stats = cache.stats()
+  assert stats["hits"] == 2
+  assert stats["misses"] == 3
+  assert stats["size"] == 3
+  assert not stats["persistent"]
+
+
+def test_least_recently_used_evicted():
+  cache = EmbeddingCache(2, capacity=2)
+  encode = FakeEncoder()
+
+  cache.get_many(["a", "bb"], encode)
+  cache.get_many(["a"], encode)
+  cache.get_many(["ccc"], encode)
+  cache.get_many(["a", "ccc"], encode)
+  cache.get_many(["bb"], encode)
+
+  assert encode.calls == [["a", "bb"], ["ccc"], ["bb"]]
+  assert cache.stats()["evictions"] == 2
+  assert cache.get_many(["bb", "ccc"], encode).tolist() == [[2, 1], [3, 1]]
+
+
+def test_persistent(tmp_path):
+  encode = FakeEncoder()
+  cache = EmbeddingCache(2, capacity=2, directory=str(tmp_path), model_name="m")
+  cache.get_many(["a", "bb"], encode)
+  cache.get_many(["ccc"], encode)
+
+  reopened = EmbeddingCache(2,
+                            capacity=2,
+                            directory=str(tmp_path),
+                            model_name="m")
+  vectors = reopened.get_many(["bb", "ccc"], encode)
+
+  assert len(encode.calls) == 2
+  assert vectors.tolist() == [[2, 1], [3, 1]]
+  assert reopened.stats()["hits"] == 2
+  assert reopened.stats()["persistent"]
+
+
+def test_persistent_other_model(tmp_path):
+  encode = FakeEncoder()
+  EmbeddingCache(2, directory=str(tmp_path), model_name="m").get_many(["a"],
+                                                                      encode)
+
+  other = EmbeddingCache(2, directory=str(tmp_path), model_name="other")
+  other.get_many(["a"], encode)
+
+  assert len(encode.calls) == 2
+  assert other.stats()["misses"] == 1
+
+
+def test_persistent_log_compacted(tmp_path):
+  encode = FakeEncoder()
+  cache = EmbeddingCache(2, capacity=2, directory=str(tmp_path), model_name="m")
+  for length in range(1, 20):
+    cache.get_many(["x" * length], encode)
+
+  with open(tmp_path / "keys.log", encoding="utf-8") as file:
+    assert len(file.readlines()) <= 1 + 2 * 2 + 2
+
+  reopened = EmbeddingCache(2,
+                            capacity=2,
+                            directory=str(tmp_path),
+                            model_name="m")
+  vectors = reopened.get_many(["x" * 18, "x" * 19], encode)
+
+  assert len(encode.calls) == 19
+  assert vectors.tolist() == [[18, 1], [19, 1]]
+
+
+def test_persistent_dropped_slot(tmp_path):
+  encode = FakeEncoder()
+  cache = EmbeddingCache(2, capacity=2, directory=str(tmp_path), model_name="m")
+  cache.get_many(["a", "bb"], encode)
+  slot = cache._slots["a"]  # pylint: disable=protected-access
+
+  # A crash after the slot is dropped, while its entry is written
+  with open(tmp_path / "keys.log", "a", encoding="utf-8") as file:
+    file.write(json.dumps([None, slot]) + "\n" + '["ccc", ')
+
+  reopened = EmbeddingCache(2,
+                            capacity=2,
+                            directory=str(tmp_path),
+                            model_name="m")
+  reopened.get_many(["a", "bb"], encode)
+
+  assert encode.calls[-1] == ["a"]
+  assert reopened.stats()["hits"] == 1
+
+
+def test_persistent_legacy_keys(tmp_path):
+  encode = FakeEncoder()
+  EmbeddingCache(2, capacity=2, directory=str(tmp_path),
+                 model_name="m").get_many(["a", "bb"], encode)
+  with open(tmp_path / "keys.log", encoding="utf-8") as file:
+    header = json.loads(file.readline())
+    slots = [json.loads(line) for line in file]
+  os.remove(tmp_path / "keys.log")
+  with open(tmp_path / "keys.json", "w", encoding="utf-8") as file:
+    json.dump(dict(header, slots=slots), file)
+
+  reopened = EmbeddingCache(2,
+                            capacity=2,
+                            directory=str(tmp_path),
+                            model_name="m")
+  vectors = reopened.get_many(["a", "bb"], encode)
+
+  assert len(encode.calls) == 1
+  assert vectors.tolist() == [[1, 1], [2, 1]]
+  assert not (tmp_path / "keys.json").exists()
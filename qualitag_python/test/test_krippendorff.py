@@ -17,6 +17,12 @@
 			all annotations are the same.
 	- `test_krippendorff_compute_disagreement`: Tests the computation 
 			with complete disagreement.
+	- `test_krippendorff_fixtures`: Tests the computation against the 
+			shared fixtures also used by the Java implementation.
+	- `test_krippendorff_coded_fixtures`: Tests that the fixtures sent 
+			dictionary-encoded give the same alpha.
+	- `test_krippendorff_coded_invalid`: Tests that coded ratings whose 
+			offsets do not fit the codes are refused.
 
 	Each test sends a POST request to the `/api/krippendorff` endpoint 
 	with a specific payload and asserts the correctness of the response 
@@ -25,8 +31,15 @@
 """
 
 import json
+import os
 import pytest
-from main import app
+from main import app, CODED_RATINGS
+
+FIXTURES_PATH = os.path.join(os.path.dirname(__file__), "fixtures",
+                             "krippendorff_cases.json")
+
+with open(FIXTURES_PATH, encoding="utf-8") as fixtures_file:
+  FIXTURES = json.load(fixtures_file)
 
 
 @pytest.fixture
@@ -98,3 +111,64 @@ def test_krippendorff_compute_disagreement(test_client):  # pylint: disable=rede
   assert "alpha" in data
   assert "error" not in data
   assert data["alpha"] == 0.0
+
+
+@pytest.mark.parametrize("case", FIXTURES, ids=[c["name"] for c in FIXTURES])
+def test_krippendorff_fixtures(test_client, case):  # pylint: disable=redefined-outer-name
+  resp = test_client.post("/api/krippendorff",
+                          data=json.dumps(case["data"]),
+                          content_type="application/json")
+  data = resp.get_json()
+  if case["alpha"] is None:
+    assert resp.status_code == 400
+    assert "error" in data
+  else:
+    assert resp.status_code == 200
+    assert data["alpha"] == pytest.approx(case["alpha"], abs=1e-12)
+
+
+def encode_ratings(data):
+  vocabulary = []
+  annotators = max((len(item) for item in data), default=0)
+  offsets = []
+  codes = []
+  for item in data:
+    for annotator in range(annotators):
+      offsets.append(len(codes))
+      tags = item[annotator] if annotator < len(item) else []
+      for tag in tags:
+        if tag not in vocabulary:
+          vocabulary.append(tag)
+        codes.append(vocabulary.index(tag))
+  offsets.append(len(codes))
+  return {
+      "vocabulary": vocabulary,
+      "annotators": annotators,
+      "offsets": offsets,
+      "codes": codes
+  }
+
+
+@pytest.mark.parametrize("case", FIXTURES, ids=[c["name"] for c in FIXTURES])
+def test_krippendorff_coded_fixtures(test_client, case):  # pylint: disable=redefined-outer-name
+  resp = test_client.post("/api/krippendorff",
+                          data=json.dumps(encode_ratings(case["data"])),
+                          content_type=CODED_RATINGS)
+  data = resp.get_json()
+  if case["alpha"] is None:
+    assert resp.status_code == 400
+    assert "error" in data
+  else:
+    assert resp.status_code == 200
+    assert data["alpha"] == pytest.approx(case["alpha"], abs=1e-12)
+
+
+def test_krippendorff_coded_invalid(test_client):  # pylint: disable=redefined-outer-name
+  payload = encode_ratings([[["A"], ["B"]]])
+  payload["offsets"][-1] += 1
+  resp = test_client.post("/api/krippendorff",
+                          data=json.dumps(payload),
+                          content_type=CODED_RATINGS)
+  assert resp.status_code == 400
+  assert resp.get_json()["error"] == ("Value error: The offsets do not "
+                                      "cover the codes.")
@@ -7,6 +7,10 @@ Fixtures:
 Test Functions:
     test_process_data(test_client): Tests the /api/process endpoint 
         to ensure it processes data correctly.
+    test_consolidate_tags(test_client): Tests that the
+        /api/consolidate-tags endpoint maps every tag to its consolidated tag.
+    test_consolidate_bad(test_client): Tests that the /api/consolidate-tags
+        endpoint rejects a payload that is not a list of tags.
 """
 import json
 import pytest
@@ -32,3 +36,22 @@ def test_process_tags(test_client):  # pylint: disable=redefined-outer-name
   assert "result" in data
   print(data["result"])
   assert data["result"] == ["ai", "bug", "data science", "machine learning"]
+
+
+def test_consolidate_tags(test_client):  # pylint: disable=redefined-outer-name
+  test_payload = ["BUG", "BUGGED", "DATA SCIENCE", "BUG"]
+  resp = test_client.post("/api/consolidate-tags",
+                          data=json.dumps(test_payload),
+                          content_type="application/json")
+  assert resp.status_code == 200
+  result = resp.get_json()["result"]
+  assert set(result) == {"BUG", "BUGGED", "DATA SCIENCE"}
+  assert result["BUG"] == result["BUGGED"] == "bug"
+  assert result["DATA SCIENCE"] == "data science"
+
+
+def test_consolidate_bad(test_client):  # pylint: disable=redefined-outer-name
+  resp = test_client.post("/api/consolidate-tags",
+                          data=json.dumps({"tags": ["bug"]}),
+                          content_type="application/json")
+  assert resp.status_code == 400
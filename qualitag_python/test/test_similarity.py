@@ -0,0 +1,71 @@
+"""
+  This module contains unit tests for the grouping of similar tags.
+
+  Tests included:
+  - `test_group_tag_indices`: Tests the grouping on known embeddings.
+  - `test_group_tag_indices_average`: Tests that a tag joins a group only
+      when it is close to the average of its members.
+  - `test_encode_tags_once`: Tests that every distinct tag is encoded once,
+      in a single call of the model, and not again once cached.
+  - `test_group_tags_by_average_similarity`: Tests the grouping of real tags.
+"""
+
+import numpy as np
+from my_functions import similarity
+from my_functions.embedding_cache import EmbeddingCache
+
+
+def unit(*vector):
+  array = np.array(vector, dtype=np.float32)
+  return array / np.linalg.norm(array)
+
+
+def test_group_tag_indices():
+  embeddings = np.stack([unit(1, 0), unit(0, 1), unit(1, 0.1), unit(0.1, 1)])
+
+  groups = similarity.group_tag_indices(embeddings, threshold=0.9)
+
+  assert groups == [[0, 2], [1, 3]]
+
+
+def test_group_tag_indices_average():
+  # The third embedding is close to the first, but not to the second
+  embeddings = np.stack([unit(1, 0), unit(1, 0.5), unit(1, -0.5)])
+  assert embeddings[2] @ embeddings[0] >= 0.85
+  assert np.mean(embeddings[[0, 1]] @ embeddings[2]) < 0.85
+
+  assert similarity.group_tag_indices(embeddings, 0.85) == [[0, 1], [2]]
+  assert similarity.group_tag_indices(embeddings, 0.95) == [[0], [1], [2]]
+
+
+def test_encode_tags_once(monkeypatch):
+  calls = []
+  original = similarity.model.encode
+
+  def counting_encode(sentences, **kwargs):
+    calls.append(list(sentences))
+    return original(sentences, **kwargs)
+
+  monkeypatch.setattr(similarity.model, "encode", counting_encode)
+  monkeypatch.setattr(similarity, "embedding_cache",
+                      EmbeddingCache(similarity.embedding_cache.dimension))
+
+  embeddings = similarity.encode_tags(["Bugs", "bug", "Crash", "bugs"])
+
+  assert len(calls) == 1
+  assert sorted(calls[0]) == ["bug", "crash"]
+  assert embeddings.shape[0] == 4
+  assert np.allclose(embeddings[0], embeddings[1])
+  assert np.allclose(np.linalg.norm(embeddings, axis=1), 1, atol=1e-5)
+
+  # The same tags again skip the model
+  similarity.encode_tags(["bug", "crash"])
+  assert len(calls) == 1
+
+
+def test_group_tags_by_average_similarity():
+  groups = similarity.group_tags_by_average_similarity(
+      ["bug", "bugged", "data science", "machine learning"])
+
+  assert ["data science"] in groups
+  assert ["machine learning"] in groups